@@ -43,6 +43,7 @@ final class BytesModelValue extends ModelValue {
 
     @Override
     void writeExternal(final DataOutput out) throws IOException {
+        out.writeInt(bytes.length);
         out.write(bytes);
     }
 
@@ -137,7 +138,7 @@ final class BytesModelValue extends ModelValue {
         }
         builder.append(jsonEscape(TYPE_KEY));
         builder.append(" : ");
-        //builder.append(jsonEscape(Base64.encodeBytes(bytes)));
+        builder.append(jsonEscape(Base64.encodeBytes(bytes)));
         if (multiLine) {
             indent(builder.append('\n'), indent);
         } else {
@@ -19,8 +19,6 @@
 
 package org.jboss.dmr.client;
 
-import com.google.gwt.core.client.JsArrayInteger;
-
 import java.io.IOException;
 
 public class DataOutput {
@@ -38,19 +36,15 @@ public class DataOutput {
 
     public byte[] getBytes() {
         byte[] array = new byte[pos];
-        for (int i = 0; i < pos; i++)
-            array[i] = bytes[i];
-
+        System.arraycopy(bytes, 0, array, 0, pos);
         return array;
     }
 
     private void growToFit(int size) {
         if (pos + size >= bytes.length) {
-            byte[] array = new byte[bytes.length + size];
-            for (int i = 0; i < bytes.length; i++) {
-                array[i] = bytes[i];
-            }
-
+            // grow geometrically to keep the number of copies logarithmic
+            byte[] array = new byte[Math.max(bytes.length * 2, pos + size + 1)];
+            System.arraycopy(bytes, 0, array, 0, pos);
             bytes = array;
         }
     }
@@ -101,24 +95,22 @@ public class DataOutput {
 
     public void writeFloat(float v) throws IOException {
         growToFit(4);
-        JsArrayInteger bytes = IEEE754.fromFloat(v);
-        for (int i = 0; i < 4; i++) {
-            this.bytes[pos++] = (byte)bytes.get(i);
-        }
+        TypedArrayCodec.writeFloat(bytes, pos, v);
+        pos += 4;
     }
 
     public void writeDouble(double v) throws IOException {
         growToFit(8);
-        JsArrayInteger bytes = IEEE754.fromDoubleClosure(v);
-        for (int i = 0; i < 8; i++) {
-            this.bytes[pos++] = (byte)bytes.get(i);
-        }
+        TypedArrayCodec.writeDouble(bytes, pos, v);
+        pos += 8;
     }
 
     public void writeUTF(String s) throws IOException {
         final int length = s.length();
-        final byte[] bytes = new byte[length * 3];
-        int bl = 0;
+        // reserve the worst case and encode directly into the buffer, the length is patched afterwards
+        growToFit(2 + length * 3);
+        final int start = pos;
+        int bl = start + 2;
         char c;
         for (int i = 0; i < length; i ++) {
             c = s.charAt(i);
@@ -133,20 +125,19 @@ public class DataOutput {
                 bytes[bl ++] = (byte)(0x80 | 0x3f & c);
             }
         }
-        writeShort(bl);
-        write(bytes, 0, bl);
+        int encoded = bl - start - 2;
+        bytes[start] = (byte)(encoded >>> 8);
+        bytes[start + 1] = (byte)(encoded & 0xFF);
+        pos = bl;
     }
 
     public void write(byte[] bits) {
-        growToFit(bits.length);
-        for (int i = 0; i < bits.length; i++)
-            bytes[pos++] = bits[i];
+        write(bits, 0, bits.length);
     }
 
     public void write(byte[] b, int off, int len) {
         growToFit(len);
-        for (int i = 0; i < len; i ++) {
-            bytes[pos++] = b[off + i];
-        }
+        System.arraycopy(b, off, bytes, pos, len);
+        pos += len;
     }
 }
@@ -0,0 +1,416 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.jboss.dmr.client;
+
+import com.google.gwt.core.client.JsArrayString;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A model value backed by an object or array as returned by the browser's native {@code JSON.parse()}.
+ * <p>
+ * Only one level is converted at a time: the regular {@link ObjectModelValue} or {@link ListModelValue} is created
+ * on first access and its children are again backed by the native JSON. Subtrees which are never read are never
+ * converted. Once materialized, all reads and modifications go to the regular model value.
+ * <p>
+ * JSON carries less type information than the DMR encoding, so the types of the original model cannot always be
+ * recovered:
+ * <ul>
+ *     <li>Integral numbers become {@link ModelType#INT} or {@link ModelType#LONG} depending on their magnitude,
+ *     other numbers become {@link ModelType#DOUBLE}. {@code BIG_INTEGER} and {@code BIG_DECIMAL} values arrive as
+ *     numbers and may lose precision beyond 53 bits.</li>
+ *     <li>Expressions, types, bytes and properties are restored from their special keys, all other JSON objects
+ *     become {@link ModelType#OBJECT}.</li>
+ * </ul>
+ * The {@code as*()} conversions of {@link ModelNode} hide most of these differences. Code which checks
+ * {@link ModelNode#getType()} should not rely on the JSON transport.
+ * <p>
+ * The parsed JSON is read through {@link Access}, which is backed by the native JSON objects in the browser.
+ */
+final class JsonModelValue extends ModelValue {
+
+    private final Access access;
+    private final Object json;
+    private ModelValue delegate;
+
+    private JsonModelValue(final ModelType type, final Access access, final Object json) {
+        super(type);
+        this.access = access;
+        this.json = json;
+    }
+
+    /**
+     * Creates the model value for a parsed JSON value. Primitives are converted immediately, objects and arrays
+     * lazily.
+     */
+    static ModelValue valueOf(final Access access, final Object holder, final String key) {
+        String type = access.typeOf(holder, key);
+        if ("string".equals(type)) {
+            return new StringModelValue(access.getString(holder, key));
+        } else if ("boolean".equals(type)) {
+            return access.getBoolean(holder, key) ? BooleanModelValue.TRUE : BooleanModelValue.FALSE;
+        } else if ("number".equals(type)) {
+            double number = access.getNumber(holder, key);
+            if (number == Math.floor(number) && !Double.isInfinite(number)) {
+                if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                    return new IntModelValue((int) number);
+                }
+                return new LongModelValue((long) number);
+            }
+            return new DoubleModelValue(number);
+        } else if ("array".equals(type)) {
+            return new JsonModelValue(ModelType.LIST, access, access.getObject(holder, key));
+        } else if ("object".equals(type)) {
+            Object object = access.getObject(holder, key);
+            if (access.hasKey(object, ExpressionValue.TYPE_KEY)) {
+                return new ExpressionValue(access.getString(object, ExpressionValue.TYPE_KEY));
+            } else if (access.hasKey(object, TypeModelValue.TYPE_KEY)) {
+                return TypeModelValue.of(ModelType.valueOf(access.getString(object, TypeModelValue.TYPE_KEY)));
+            } else if (access.hasKey(object, BytesModelValue.TYPE_KEY)) {
+                return new BytesModelValue(TypedArrayCodec.decodeBase64(
+                        access.getString(object, BytesModelValue.TYPE_KEY)));
+            } else if (access.hasKey(object, PropertyModelValue.TYPE_KEY)
+                    && "object".equals(access.typeOf(object, PropertyModelValue.TYPE_KEY))) {
+                Object property = access.getObject(object, PropertyModelValue.TYPE_KEY);
+                List<String> names = access.keys(property);
+                if (names.size() == 1) {
+                    String name = names.get(0);
+                    return new PropertyModelValue(name, new ModelNode(valueOf(access, property, name)));
+                }
+            }
+            return new JsonModelValue(ModelType.OBJECT, access, object);
+        }
+        return ModelValue.UNDEFINED;
+    }
+
+    static ModelNode parse(final String json) {
+        return parse(json, NativeAccess.INSTANCE);
+    }
+
+    static ModelNode parse(final String json, final Access access) {
+        Object holder = access.parse(json);
+        return new ModelNode(valueOf(access, holder, "value"));
+    }
+
+    private ModelValue delegate() {
+        if (delegate == null) {
+            if (getType() == ModelType.LIST) {
+                int length = access.length(json);
+                List<ModelNode> list = new ArrayList<ModelNode>(length);
+                for (int i = 0; i < length; i++) {
+                    list.add(new ModelNode(valueOf(access, json, String.valueOf(i))));
+                }
+                delegate = new ListModelValue(list);
+            } else {
+                Map<String, ModelNode> map = new LinkedHashMap<String, ModelNode>();
+                for (String key : access.keys(json)) {
+                    map.put(key, new ModelNode(valueOf(access, json, key)));
+                }
+                delegate = new ObjectModelValue(map);
+            }
+        }
+        return delegate;
+    }
+
+
+    // ------------------------------------------------------ delegate methods
+
+    @Override
+    long asLong() {
+        return delegate().asLong();
+    }
+
+    @Override
+    long asLong(final long defVal) {
+        return delegate().asLong(defVal);
+    }
+
+    @Override
+    int asInt() {
+        return delegate().asInt();
+    }
+
+    @Override
+    int asInt(final int defVal) {
+        return delegate().asInt(defVal);
+    }
+
+    @Override
+    boolean asBoolean() {
+        return delegate().asBoolean();
+    }
+
+    @Override
+    boolean asBoolean(final boolean defVal) {
+        return delegate().asBoolean(defVal);
+    }
+
+    @Override
+    double asDouble() {
+        return delegate().asDouble();
+    }
+
+    @Override
+    double asDouble(final double defVal) {
+        return delegate().asDouble(defVal);
+    }
+
+    @Override
+    byte[] asBytes() {
+        return delegate().asBytes();
+    }
+
+    @Override
+    BigDecimal asBigDecimal() {
+        return delegate().asBigDecimal();
+    }
+
+    @Override
+    BigInteger asBigInteger() {
+        return delegate().asBigInteger();
+    }
+
+    @Override
+    String asString() {
+        return delegate().asString();
+    }
+
+    @Override
+    Property asProperty() {
+        return delegate().asProperty();
+    }
+
+    @Override
+    List<Property> asPropertyList() {
+        return delegate().asPropertyList();
+    }
+
+    @Override
+    ModelNode asObject() {
+        return delegate().asObject();
+    }
+
+    @Override
+    ModelNode getChild(final String name) {
+        return delegate().getChild(name);
+    }
+
+    @Override
+    ModelNode removeChild(final String name) {
+        return delegate().removeChild(name);
+    }
+
+    @Override
+    ModelNode getChild(final int index) {
+        return delegate().getChild(index);
+    }
+
+    @Override
+    ModelNode addChild() {
+        return delegate().addChild();
+    }
+
+    @Override
+    Set<String> getKeys() {
+        return delegate().getKeys();
+    }
+
+    @Override
+    List<ModelNode> asList() {
+        return delegate().asList();
+    }
+
+    @Override
+    ModelType asType() {
+        return delegate().asType();
+    }
+
+    @Override
+    ModelValue protect() {
+        return delegate().protect();
+    }
+
+    @Override
+    ModelValue copy() {
+        return delegate().copy();
+    }
+
+    @Override
+    ModelValue resolve() {
+        return delegate().resolve();
+    }
+
+    @Override
+    void format(final StringBuilder builder, final int indent, final boolean multiLine) {
+        delegate().format(builder, indent, multiLine);
+    }
+
+    @Override
+    void formatAsJSON(final StringBuilder builder, final int indent, final boolean multiLine) {
+        delegate().formatAsJSON(builder, indent, multiLine);
+    }
+
+    @Override
+    void writeExternal(final DataOutput out) throws IOException {
+        delegate().writeExternal(out);
+    }
+
+    @Override
+    boolean has(final int index) {
+        return delegate().has(index);
+    }
+
+    @Override
+    boolean has(final String key) {
+        return delegate().has(key);
+    }
+
+    @Override
+    ModelNode requireChild(final String name) throws NoSuchElementException {
+        return delegate().requireChild(name);
+    }
+
+    @Override
+    ModelNode requireChild(final int index) throws NoSuchElementException {
+        return delegate().requireChild(index);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return delegate().equals(other instanceof JsonModelValue ? ((JsonModelValue) other).delegate() : other);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate().hashCode();
+    }
+
+
+    // ------------------------------------------------------ access
+
+    /**
+     * Reads parsed JSON. Values are addressed by their holder and key: arrays use the index as key.
+     */
+    interface Access {
+
+        /**
+         * Parses the JSON and returns a holder which contains the parsed value under the key {@code "value"}.
+         */
+        Object parse(String json);
+
+        /**
+         * @return one of {@code "undefined"} (also for {@code null}), {@code "string"}, {@code "boolean"},
+         * {@code "number"}, {@code "array"} or {@code "object"}
+         */
+        String typeOf(Object holder, String key);
+
+        boolean hasKey(Object object, String key);
+
+        String getString(Object holder, String key);
+
+        boolean getBoolean(Object holder, String key);
+
+        double getNumber(Object holder, String key);
+
+        Object getObject(Object holder, String key);
+
+        int length(Object array);
+
+        List<String> keys(Object object);
+    }
+
+
+    /**
+     * Access based on the browser's {@code JSON.parse()}.
+     */
+    static final class NativeAccess implements Access {
+
+        static final NativeAccess INSTANCE = new NativeAccess();
+
+        private NativeAccess() {
+        }
+
+        @Override
+        public List<String> keys(final Object object) {
+            JsArrayString keys = nativeKeys(object);
+            List<String> list = new ArrayList<String>(keys.length());
+            for (int i = 0; i < keys.length(); i++) {
+                list.add(keys.get(i));
+            }
+            return list;
+        }
+
+        @Override
+        public native Object parse(String json) /*-{
+            return {value: JSON.parse(json)};
+        }-*/;
+
+        @Override
+        public native String typeOf(Object holder, String key) /*-{
+            var value = holder[key];
+            if (value === null || value === undefined) {
+                return "undefined";
+            }
+            return Array.isArray(value) ? "array" : typeof value;
+        }-*/;
+
+        @Override
+        public native boolean hasKey(Object object, String key) /*-{
+            return Object.prototype.hasOwnProperty.call(object, key);
+        }-*/;
+
+        @Override
+        public native String getString(Object holder, String key) /*-{
+            return String(holder[key]);
+        }-*/;
+
+        @Override
+        public native boolean getBoolean(Object holder, String key) /*-{
+            return holder[key];
+        }-*/;
+
+        @Override
+        public native double getNumber(Object holder, String key) /*-{
+            return holder[key];
+        }-*/;
+
+        @Override
+        public native Object getObject(Object holder, String key) /*-{
+            return holder[key];
+        }-*/;
+
+        @Override
+        public native int length(Object array) /*-{
+            return array.length;
+        }-*/;
+
+        private static native JsArrayString nativeKeys(Object object) /*-{
+            return Object.keys(object);
+        }-*/;
+    }
+}
@@ -1235,10 +1235,15 @@ public class ModelNode implements Cloneable, Exportable {
         ModelNode node = new ModelNode();
         try {
 
-            if(hasNativeBase64Support())
+            if(TypedArrayCodec.isSupported())
+            {
+                // single pass: base64 -> Int8Array, no intermediate binary string
+                node.readExternal(new DataInput(TypedArrayCodec.decodeBase64(encoded)));
+            }
+            else if(hasNativeBase64Support())
             {
                 String s = nativeDecode(encoded);
-                node.readExternal(new DataInput(toBytes(s)));
+                node.readExternal(new DataInput(TypedArrayCodec.fromBinaryString(s)));
             }
             else
             {
@@ -1250,6 +1255,18 @@ public class ModelNode implements Cloneable, Exportable {
         return node;
     }
 
+    /**
+     * Creates a model node from its JSON representation. The JSON is parsed by the browser and converted into
+     * model values lazily, one level at a time, as the node is accessed. Some model types cannot be recovered from
+     * JSON, see {@link JsonModelValue}.
+     *
+     * @param json the JSON string
+     * @return the model node
+     */
+    public static ModelNode fromJSON(String json) {
+        return JsonModelValue.parse(json);
+    }
+
     @Export()
     public String toBase64String() {
         DataOutput out = new DataOutput();
@@ -1299,10 +1316,11 @@ public class ModelNode implements Cloneable, Exportable {
 
     public static native byte[] toBytes(String str) /*-{
 
-        var bytes = [];
-        for (var i = 0; i < str.length; ++i)
+        var length = str.length;
+        var bytes = new Array(length);
+        for (var i = 0; i < length; ++i)
         {
-            bytes.push(str.charCodeAt(i));
+            bytes[i] = str.charCodeAt(i);
         }
         return bytes;
 
@@ -1390,7 +1408,13 @@ public class ModelNode implements Cloneable, Exportable {
      * @return {@code true} if they are equal, {@code false} otherwise
      */
     public boolean equals(final ModelNode other) {
-        return this == other || other != null && other.value.equals(value);
+        if (this == other) {
+            return true;
+        } else if (other == null) {
+            return false;
+        }
+        // values backed by JSON compare against any value, but not the other way round
+        return value instanceof JsonModelValue ? value.equals(other.value) : other.value.equals(value);
     }
 
     /**
@@ -1468,7 +1492,7 @@ public class ModelNode implements Cloneable, Exportable {
                 case BIG_DECIMAL: value = new BigDecimalModelValue(in); return;
                 case BIG_INTEGER: b = new byte[in.readInt()]; in.readFully(b); value = new BigIntegerModelValue(new BigInteger(b)); return;
                 case BOOLEAN: value = BooleanModelValue.valueOf(in.readBoolean()); return;
-                case BYTES: b = new byte[in.readInt()]; in.readFully(b); new BytesModelValue(b); return;
+                case BYTES: b = new byte[in.readInt()]; in.readFully(b); value = new BytesModelValue(b); return;
                 case DOUBLE: value = new DoubleModelValue(in.readDouble()); return;
                 case EXPRESSION: value = new ExpressionValue(in.readUTF()); return;
                 case INT: value = new IntModelValue(in.readInt()); return;
@@ -164,7 +164,7 @@ abstract class ModelValue implements Cloneable {
         final int length = orig.length();
         final StringBuilder builder = new StringBuilder(length + 32);
         builder.append('"');
-        for (int i = 0; i < length; i = orig.offsetByCodePoints(i,1)) {
+        for (int i = 0; i < length; i++) {
             final char cp = orig.charAt(i);
             switch(cp) {
             case '"':
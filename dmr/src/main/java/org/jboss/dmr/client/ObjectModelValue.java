@@ -40,7 +40,7 @@ final class ObjectModelValue extends ModelValue {
         map = new LinkedHashMap<String, ModelNode>();
     }
 
-    private ObjectModelValue(final Map<String, ModelNode> map) {
+    ObjectModelValue(final Map<String, ModelNode> map) {
         super(ModelType.OBJECT);
         this.map = map;
     }
@@ -232,7 +232,7 @@ final class ObjectModelValue extends ModelValue {
         final Iterator<Map.Entry<String, ModelNode>> iterator = map.entrySet().iterator();
         while (iterator.hasNext()) {
             final Map.Entry<String, ModelNode> entry = iterator.next();
-            builder.append(quote(entry.getKey()));
+            builder.append(jsonEscape(entry.getKey()));
             builder.append(" : ");
             final ModelNode value = entry.getValue();
             value.formatAsJSON(builder, multiLine ? indent + 1 : indent, multiLineRequested);
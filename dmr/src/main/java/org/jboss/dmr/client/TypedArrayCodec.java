@@ -0,0 +1,239 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.jboss.dmr.client;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayInteger;
+
+import java.util.Arrays;
+
+/**
+ * Binary helpers for {@link DataInput} and {@link DataOutput} based on {@code ArrayBuffer}, {@code Int8Array} and
+ * {@code DataView}. If typed arrays are not available (hosted mode, old browsers) the {@link IEEE754} based
+ * implementation is used. Outside a client (plain JVM, e.g. unit tests) the bit conversions of {@code java.lang}
+ * are used.
+ */
+public final class TypedArrayCodec {
+
+    private static final String BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    private static final byte[] BASE64_TABLE = base64Table();
+
+    private static JavaScriptObject scratch;
+    private static Boolean supported;
+
+    private TypedArrayCodec() {
+    }
+
+    public static boolean isSupported() {
+        if (supported == null) {
+            supported = GWT.isScript() && hasTypedArrays();
+            if (supported) {
+                scratch = createScratch();
+            }
+        }
+        return supported;
+    }
+
+
+    // ------------------------------------------------------ double / float
+
+    public static void writeDouble(byte[] target, int pos, double value) {
+        if (isSupported()) {
+            writeDouble(scratch, target, pos, value);
+        } else if (!GWT.isClient()) {
+            writeBits(target, pos, Double.doubleToLongBits(value), 8);
+        } else {
+            JsArrayInteger bytes = IEEE754.fromDoubleClosure(value);
+            for (int i = 0; i < 8; i++) {
+                target[pos + i] = (byte) bytes.get(i);
+            }
+        }
+    }
+
+    public static double readDouble(byte[] source, int pos) {
+        if (isSupported()) {
+            return readDouble(scratch, source, pos);
+        } else if (!GWT.isClient()) {
+            return Double.longBitsToDouble(readBits(source, pos, 8));
+        }
+        return IEEE754.toDouble(source[pos], source[pos + 1], source[pos + 2], source[pos + 3],
+                source[pos + 4], source[pos + 5], source[pos + 6], source[pos + 7]);
+    }
+
+    public static void writeFloat(byte[] target, int pos, float value) {
+        if (isSupported()) {
+            writeFloat(scratch, target, pos, value);
+        } else if (!GWT.isClient()) {
+            writeBits(target, pos, Float.floatToIntBits(value), 4);
+        } else {
+            JsArrayInteger bytes = IEEE754.fromFloat(value);
+            for (int i = 0; i < 4; i++) {
+                target[pos + i] = (byte) bytes.get(i);
+            }
+        }
+    }
+
+    public static float readFloat(byte[] source, int pos) {
+        if (isSupported()) {
+            return readFloat(scratch, source, pos);
+        } else if (!GWT.isClient()) {
+            return Float.intBitsToFloat((int) readBits(source, pos, 4));
+        }
+        return IEEE754.toFloat(source[pos], source[pos + 1], source[pos + 2], source[pos + 3]);
+    }
+
+    private static void writeBits(byte[] target, int pos, long bits, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            target[pos + i] = (byte) bits;
+            bits >>>= 8;
+        }
+    }
+
+    private static long readBits(byte[] source, int pos, int length) {
+        long bits = 0;
+        for (int i = 0; i < length; i++) {
+            bits = (bits << 8) | (source[pos + i] & 0xFF);
+        }
+        return bits;
+    }
+
+
+    // ------------------------------------------------------ binary strings
+
+    /**
+     * Converts a binary string (as returned by {@code atob}) into a byte array backed by an {@code Int8Array}.
+     */
+    public static byte[] fromBinaryString(String binary) {
+        return isSupported() ? fromBinaryStringTyped(binary) : ModelNode.toBytes(binary);
+    }
+
+
+    // ------------------------------------------------------ base64
+
+    /**
+     * Decodes base64 in a single pass straight into an {@code Int8Array} (a plain byte array if typed arrays are not
+     * available). Unlike {@code atob()} followed by {@link #fromBinaryString(String)} no intermediate binary string
+     * and no second copy is created. Whitespace and padding are skipped.
+     *
+     * @throws IllegalArgumentException if the input contains characters outside the base64 alphabet or is truncated
+     */
+    public static byte[] decodeBase64(String encoded) {
+        int length = encoded.length();
+        byte[] bytes = allocate(length * 3 / 4);
+        int out = 0, buffer = 0, bits = 0;
+        for (int i = 0; i < length; i++) {
+            char c = encoded.charAt(i);
+            int v = c < 128 ? BASE64_TABLE[c] : -1;
+            if (v < 0) {
+                if (c == '=' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                    continue;
+                }
+                throw new IllegalArgumentException("Invalid base64 character '" + c + "' at " + i);
+            }
+            buffer = (buffer << 6) | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                bytes[out++] = (byte) (buffer >> bits);
+                buffer &= (1 << bits) - 1;
+            }
+        }
+        if (bits >= 6) {
+            // a single character left over cannot encode a byte
+            throw new IllegalArgumentException("Truncated base64 input");
+        }
+        return out == bytes.length ? bytes : truncate(bytes, out);
+    }
+
+    private static byte[] base64Table() {
+        byte[] table = new byte[128];
+        Arrays.fill(table, (byte) -1);
+        for (int i = 0; i < BASE64_ALPHABET.length(); i++) {
+            table[BASE64_ALPHABET.charAt(i)] = (byte) i;
+        }
+        return table;
+    }
+
+    private static byte[] allocate(int length) {
+        return isSupported() ? allocateTyped(length) : new byte[length];
+    }
+
+    private static byte[] truncate(byte[] bytes, int length) {
+        return isSupported() ? subarray(bytes, length) : Arrays.copyOf(bytes, length);
+    }
+
+
+    // ------------------------------------------------------ native
+
+    private static native boolean hasTypedArrays() /*-{
+        return typeof $wnd.ArrayBuffer !== 'undefined' && typeof $wnd.DataView !== 'undefined'
+            && typeof $wnd.Int8Array !== 'undefined';
+    }-*/;
+
+    private static native JavaScriptObject createScratch() /*-{
+        return new DataView(new ArrayBuffer(8));
+    }-*/;
+
+    private static native void writeDouble(JavaScriptObject view, byte[] target, int pos, double value) /*-{
+        view.setFloat64(0, value);
+        for (var i = 0; i < 8; i++) {
+            target[pos + i] = view.getInt8(i);
+        }
+    }-*/;
+
+    private static native double readDouble(JavaScriptObject view, byte[] source, int pos) /*-{
+        for (var i = 0; i < 8; i++) {
+            view.setInt8(i, source[pos + i]);
+        }
+        return view.getFloat64(0);
+    }-*/;
+
+    private static native void writeFloat(JavaScriptObject view, byte[] target, int pos, float value) /*-{
+        view.setFloat32(0, value);
+        for (var i = 0; i < 4; i++) {
+            target[pos + i] = view.getInt8(i);
+        }
+    }-*/;
+
+    private static native float readFloat(JavaScriptObject view, byte[] source, int pos) /*-{
+        for (var i = 0; i < 4; i++) {
+            view.setInt8(i, source[pos + i]);
+        }
+        return view.getFloat32(0);
+    }-*/;
+
+    private static native byte[] allocateTyped(int length) /*-{
+        return new Int8Array(length);
+    }-*/;
+
+    private static native byte[] subarray(byte[] bytes, int length) /*-{
+        return bytes.subarray(0, length);
+    }-*/;
+
+    private static native byte[] fromBinaryStringTyped(String binary) /*-{
+        var length = binary.length;
+        var bytes = new Int8Array(length);
+        for (var i = 0; i < length; i++) {
+            bytes[i] = binary.charCodeAt(i);
+        }
+        return bytes;
+    }-*/;
+}
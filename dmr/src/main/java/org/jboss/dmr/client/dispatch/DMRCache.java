@@ -1,39 +1,318 @@
 package org.jboss.dmr.client.dispatch;
 
-import com.google.gwt.core.client.Scheduler;
+import org.jboss.dmr.client.ModelNode;
+import org.jboss.dmr.client.Property;
 import org.jboss.dmr.client.dispatch.impl.DMRResponse;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.jboss.dmr.client.ModelDescriptionConstants.*;
+
 /**
+ * A size bounded LRU cache for responses of read operations. Only actions which
+ * {@linkplain org.jboss.dmr.client.dispatch.impl.DMRAction#isCachable() opt in} are served from the cache.
+ * <p>
+ * Entries are keyed by the serialized operation and the run-as role. Each entry expires after a TTL that depends on
+ * the operation: descriptions are kept much longer than the actual model. Whenever a write operation has been
+ * executed successfully, all entries which read from an address within or above the modified address are dropped.
+ * Reads of a server in a domain ({@code /host=*&#47;server=*}) reflect the profile, server group and host
+ * configuration, so they are dropped by any write which is not addressed to another server.
+ * <p>
+ * Each invalidation starts a new {@linkplain #getGeneration() generation}. A read records the generation when it is
+ * sent and passes it to {@link #put(String, ModelNode, DMRResponse, int)}: If a write was invalidated in the
+ * meantime, the response might be stale and is not cached.
+ *
  * @author Heiko Braun
  * @date 8/29/12
  */
 public class DMRCache {
 
-    private static Map<String, DMRResponse> values = new HashMap<String, DMRResponse>();
-    private static int expiryTimeMs = 5*1000;
-
-    public void put(final String key, DMRResponse response)
-    {
-        values.put(key, response);
-        Scheduler.get().scheduleFixedPeriod(
-                new Scheduler.RepeatingCommand() {
-                    @Override
-                    public boolean execute() {
-                        values.remove(key);
-                        return false;
-                    }
-                }, expiryTimeMs
-        );
+    private static final int DEFAULT_MAX_ENTRIES = 250;
+    private static final long DEFAULT_TTL_MS = 10 * 1000;
+    private static final long DESCRIPTION_TTL_MS = 10 * 60 * 1000;
+    private static final String WILDCARD = "*";
+    private static final String HOST = "host";
+    private static final String SERVER = "server";
+
+    /**
+     * Operations which are eligible for caching (mapped to their TTL in ms).
+     */
+    private static final Map<String, Long> CACHABLE_OPERATIONS = new HashMap<String, Long>();
+
+    /**
+     * Operations which never modify the model. Everything else is treated as a write and invalidates the cache.
+     */
+    private static final List<String> NON_MUTATING_OPERATIONS = new ArrayList<String>();
+
+    static {
+        CACHABLE_OPERATIONS.put(READ_RESOURCE_OPERATION, DEFAULT_TTL_MS);
+        CACHABLE_OPERATIONS.put(READ_CHILDREN_NAMES_OPERATION, DEFAULT_TTL_MS);
+        CACHABLE_OPERATIONS.put(READ_CHILDREN_TYPES_OPERATION, DEFAULT_TTL_MS);
+        CACHABLE_OPERATIONS.put(READ_CHILDREN_RESOURCES_OPERATION, DEFAULT_TTL_MS);
+        CACHABLE_OPERATIONS.put(READ_OPERATION_NAMES_OPERATION, DESCRIPTION_TTL_MS);
+        CACHABLE_OPERATIONS.put(READ_OPERATION_DESCRIPTION_OPERATION, DESCRIPTION_TTL_MS);
+        CACHABLE_OPERATIONS.put(READ_RESOURCE_DESCRIPTION_OPERATION, DESCRIPTION_TTL_MS);
+
+        NON_MUTATING_OPERATIONS.add(WHOAMI);
+        NON_MUTATING_OPERATIONS.add("query");
+        NON_MUTATING_OPERATIONS.add("resolve-expression");
+        NON_MUTATING_OPERATIONS.add("validate-address");
+        NON_MUTATING_OPERATIONS.add("validate-operation");
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> values;
+    private int generation;
+    private int hits;
+    private int misses;
+
+    public DMRCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public DMRCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.values = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > DMRCache.this.maxEntries;
+            }
+        };
+    }
+
+
+    // ------------------------------------------------------ operation classification
+
+    /**
+     * @return {@code true} if the operation (or all steps of a composite) is a read which can be cached.
+     */
+    public static boolean isCachable(ModelNode operation) {
+        return ttl(operation) > 0;
+    }
+
+    /**
+     * @return {@code true} if the operation (or any step of a composite) might modify the model.
+     */
+    public static boolean isMutating(ModelNode operation) {
+        String name = operation.get(OP).asString();
+        if (COMPOSITE.equals(name)) {
+            for (ModelNode step : operation.get(STEPS).asList()) {
+                if (isMutating(step)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return !name.startsWith("read-") && !NON_MUTATING_OPERATIONS.contains(name);
+    }
+
+    private static long ttl(ModelNode operation) {
+        String name = operation.get(OP).asString();
+        if (COMPOSITE.equals(name)) {
+            long ttl = Long.MAX_VALUE;
+            List<ModelNode> steps = operation.get(STEPS).asList();
+            for (ModelNode step : steps) {
+                ttl = Math.min(ttl, ttl(step));
+            }
+            return steps.isEmpty() ? 0 : ttl;
+        }
+        Long ttl = CACHABLE_OPERATIONS.get(name);
+        if (ttl == null || (operation.hasDefined(INCLUDE_RUNTIME) && operation.get(INCLUDE_RUNTIME).asBoolean())) {
+            // runtime attributes change independently of any write operation
+            return 0;
+        }
+        return ttl;
+    }
+
+    /**
+     * Builds the cache key for an operation.
+     *
+     * @param role    the run-as role or {@code null}
+     * @param payload the serialized operation
+     */
+    public static String key(String role, String payload) {
+        return (role != null ? role : "") + "|" + payload;
+    }
+
+
+    // ------------------------------------------------------ cache access
+
+    /**
+     * Caches the response of a read operation.
+     *
+     * @param generation the generation at the time the operation was sent
+     */
+    public void put(final String key, final ModelNode operation, final DMRResponse response, final int generation) {
+        long ttl = ttl(operation);
+        if (ttl > 0 && generation == this.generation) {
+            values.put(key, new Entry(response, now() + ttl, addresses(operation)));
+        }
     }
 
     public DMRResponse get(String key) {
-      return values.get(key);
+        Entry entry = values.get(key);
+        if (entry != null && entry.expires < now()) {
+            values.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.response;
+    }
+
+    /**
+     * Drops all entries affected by the specified operation. Does nothing if the operation is not mutating.
+     * An entry is affected if one of its addresses lies within the subtree of a modified address or
+     * if it is a parent of a modified address (e.g. {@code read-children-names} on the parent).
+     */
+    public void invalidate(ModelNode operation) {
+        if (!isMutating(operation)) {
+            return;
+        }
+        generation++;
+        List<List<String[]>> modified = addresses(operation);
+        for (Iterator<Entry> iterator = values.values().iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            if (entry.affectedBy(modified)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        generation++;
+        values.clear();
+    }
+
+    /**
+     * @return a counter which changes whenever entries are invalidated
+     */
+    public int getGeneration() {
+        return generation;
     }
 
     public int size() {
         return values.size();
     }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+
+    // ------------------------------------------------------ addresses
+
+    /**
+     * @return {@code true} if the write operation might change the result of the read operation
+     */
+    public static boolean affects(ModelNode write, ModelNode read) {
+        if (!isMutating(write)) {
+            return false;
+        }
+        List<List<String[]>> modified = addresses(write);
+        for (List<String[]> address : addresses(read)) {
+            for (List<String[]> m : modified) {
+                if (related(address, m)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<List<String[]>> addresses(ModelNode operation) {
+        if (COMPOSITE.equals(operation.get(OP).asString())) {
+            List<List<String[]>> addresses = new ArrayList<List<String[]>>();
+            for (ModelNode step : operation.get(STEPS).asList()) {
+                addresses.addAll(addresses(step));
+            }
+            return addresses;
+        }
+        return Collections.singletonList(segments(operation));
+    }
+
+    private static List<String[]> segments(ModelNode operation) {
+        List<String[]> segments = new ArrayList<String[]>();
+        if (operation.hasDefined(ADDRESS)) {
+            for (Property property : operation.get(ADDRESS).asPropertyList()) {
+                segments.add(new String[]{property.getName(), property.getValue().asString()});
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * @return {@code true} if a write to {@code modified} might change the result of a read from {@code read}
+     */
+    private static boolean related(List<String[]> read, List<String[]> modified) {
+        if (isServer(read) && !isServer(modified)) {
+            // the server runtime reflects the domain configuration
+            return true;
+        }
+        return prefix(read, modified);
+    }
+
+    private static boolean isServer(List<String[]> address) {
+        return address.size() >= 2 && HOST.equals(address.get(0)[0]) && SERVER.equals(address.get(1)[0]);
+    }
+
+    /**
+     * @return {@code true} if one address is a prefix of the other. Wildcards match any value.
+     */
+    private static boolean prefix(List<String[]> a, List<String[]> b) {
+        int length = Math.min(a.size(), b.size());
+        for (int i = 0; i < length; i++) {
+            String[] left = a.get(i);
+            String[] right = b.get(i);
+            if (!left[0].equals(right[0])) {
+                return false;
+            }
+            if (!left[1].equals(right[1]) && !WILDCARD.equals(left[1]) && !WILDCARD.equals(right[1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static class Entry {
+
+        final DMRResponse response;
+        final long expires;
+        final List<List<String[]>> addresses;
+
+        Entry(DMRResponse response, long expires, List<List<String[]>> addresses) {
+            this.response = response;
+            this.expires = expires;
+            this.addresses = addresses;
+        }
+
+        boolean affectedBy(List<List<String[]>> modified) {
+            for (List<String[]> address : addresses) {
+                for (List<String[]> m : modified) {
+                    if (related(address, m)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,278 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.jboss.dmr.client.dispatch.impl;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.google.inject.Inject;
+import org.jboss.dmr.client.ModelNode;
+import org.jboss.dmr.client.dispatch.Action;
+import org.jboss.dmr.client.dispatch.DispatchAsync;
+import org.jboss.dmr.client.dispatch.DispatchError;
+import org.jboss.dmr.client.dispatch.DispatchRequest;
+import org.jboss.dmr.client.dispatch.Result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.jboss.dmr.client.ModelDescriptionConstants.*;
+
+/**
+ * A {@link DispatchAsync} decorator which collects independent read operations issued within the same event loop
+ * turn (or within a configurable window) and sends them as one composite operation. The step results are handed
+ * back to the original callbacks. If a step fails, the management endpoint fails the whole composite (HTTP 500). In
+ * that case, as well as for steps which did not succeed, the operations are re-executed one by one, so that a failing
+ * operation does not affect the others and callers see the same failure semantics as for a single operation.
+ * <p>
+ * Any other action flushes the pending batch before it is dispatched, so the order of operations is preserved.
+ */
+public class BatchingDispatchAsync implements DispatchAsync {
+
+    private static final int MAX_BATCH_SIZE = 25;
+    private static final int STEP_FAILED = 500;
+
+    private static final List<String> BATCHABLE_OPERATIONS = Arrays.asList(
+            READ_RESOURCE_OPERATION,
+            READ_ATTRIBUTE_OPERATION,
+            READ_CHILDREN_NAMES_OPERATION,
+            READ_CHILDREN_TYPES_OPERATION,
+            READ_CHILDREN_RESOURCES_OPERATION
+    );
+
+    private final DispatchAsync delegate;
+    private final Scheduler scheduler;
+    private int window;
+    private List<BatchedAction> batch;
+    private Timer timer;
+
+    @Inject
+    public BatchingDispatchAsync(DispatchAsyncImpl delegate) {
+        this(delegate, Scheduler.get());
+    }
+
+    /**
+     * Decorates an arbitrary dispatcher, e.g. a static dispatcher in unit tests.
+     */
+    public BatchingDispatchAsync(DispatchAsync delegate, Scheduler scheduler) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.window = 0;
+        this.batch = new ArrayList<BatchedAction>();
+    }
+
+    /**
+     * @param window the time in ms to collect operations. Use 0 to collect operations of the current event loop turn.
+     */
+    public void setWindow(int window) {
+        this.window = window;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends Action<R>, R extends Result> DispatchRequest execute(A action, AsyncCallback<R> callback) {
+        if (!isBatchable(action)) {
+            flush();
+            return delegate.execute(action, callback);
+        }
+
+        BatchedAction batched = new BatchedAction((DMRAction) action, (AsyncCallback<DMRResponse>) callback);
+        batch.add(batched);
+        if (batch.size() >= MAX_BATCH_SIZE) {
+            flush();
+        } else if (batch.size() == 1) {
+            schedule();
+        }
+        return batched;
+    }
+
+    @Override
+    public <A extends Action<R>, R extends Result> DispatchRequest undo(A action, R result,
+            AsyncCallback<Void> callback) {
+        return delegate.undo(action, result, callback);
+    }
+
+    @Override
+    public void setProperty(String key, String value) {
+        flush();
+        delegate.setProperty(key, value);
+    }
+
+    @Override
+    public void clearProperty(String key) {
+        flush();
+        delegate.clearProperty(key);
+    }
+
+    private boolean isBatchable(Action action) {
+        if (!(action instanceof DMRAction)) {
+            return false;
+        }
+        ModelNode operation = ((DMRAction) action).getOperation();
+        return BATCHABLE_OPERATIONS.contains(operation.get(OP).asString()) && !operation.has("operation-headers");
+    }
+
+    private void schedule() {
+        if (window > 0) {
+            timer = new Timer() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            };
+            timer.schedule(window);
+        } else {
+            scheduler.scheduleDeferred(new Scheduler.ScheduledCommand() {
+                @Override
+                public void execute() {
+                    flush();
+                }
+            });
+        }
+    }
+
+    private void flush() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+
+        final List<BatchedAction> actions = new ArrayList<BatchedAction>();
+        for (BatchedAction action : batch) {
+            if (!action.cancelled) {
+                actions.add(action);
+            }
+        }
+        batch = new ArrayList<BatchedAction>();
+
+        if (actions.isEmpty()) {
+            return;
+        }
+        if (actions.size() == 1) {
+            actions.get(0).dispatchSingle();
+            return;
+        }
+
+        ModelNode composite = new ModelNode();
+        composite.get(OP).set(COMPOSITE);
+        composite.get(ADDRESS).setEmptyList();
+        List<ModelNode> steps = new ArrayList<ModelNode>();
+        boolean cachable = true;
+        for (BatchedAction action : actions) {
+            steps.add(action.action.getOperation());
+            cachable &= action.action.isCachable();
+        }
+        composite.get(STEPS).set(steps);
+
+        delegate.execute(new DMRAction(composite, cachable), new AsyncCallback<DMRResponse>() {
+            @Override
+            public void onFailure(Throwable caught) {
+                // the endpoint answers a composite with a failed step with HTTP 500
+                boolean stepFailed = caught instanceof DispatchError
+                        && ((DispatchError) caught).getStatusCode() == STEP_FAILED;
+                for (BatchedAction action : actions) {
+                    if (stepFailed) {
+                        action.dispatchSingle();
+                    } else {
+                        action.onFailure(caught);
+                    }
+                }
+            }
+
+            @Override
+            public void onSuccess(DMRResponse dmrResponse) {
+                ModelNode response = dmrResponse.get();
+                ModelNode result = response.get(RESULT);
+                for (int i = 0; i < actions.size(); i++) {
+                    BatchedAction action = actions.get(i);
+                    String step = "step-" + (i + 1);
+                    if (result.hasDefined(step) && SUCCESS.equals(result.get(step).get(OUTCOME).asString())) {
+                        action.onSuccess(new DMRResponse(result.get(step)));
+                    } else {
+                        // isolate failures: re-execute the operation on its own
+                        action.dispatchSingle();
+                    }
+                }
+            }
+        });
+    }
+
+
+    private class BatchedAction implements DispatchRequest {
+
+        private final DMRAction action;
+        private final AsyncCallback<DMRResponse> callback;
+        private boolean cancelled;
+        private boolean pending;
+        private DispatchRequest single;
+
+        BatchedAction(DMRAction action, AsyncCallback<DMRResponse> callback) {
+            this.action = action;
+            this.callback = callback;
+            this.pending = true;
+        }
+
+        void dispatchSingle() {
+            if (cancelled) {
+                return;
+            }
+            single = delegate.execute(action, new AsyncCallback<DMRResponse>() {
+                @Override
+                public void onFailure(Throwable caught) {
+                    BatchedAction.this.onFailure(caught);
+                }
+
+                @Override
+                public void onSuccess(DMRResponse response) {
+                    BatchedAction.this.onSuccess(response);
+                }
+            });
+        }
+
+        void onSuccess(DMRResponse response) {
+            if (!cancelled) {
+                pending = false;
+                callback.onSuccess(response);
+            }
+        }
+
+        void onFailure(Throwable caught) {
+            if (!cancelled) {
+                pending = false;
+                callback.onFailure(caught);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            pending = false;
+            if (single != null) {
+                single.cancel();
+            }
+        }
+
+        @Override
+        public boolean isPending() {
+            return pending;
+        }
+    }
+}
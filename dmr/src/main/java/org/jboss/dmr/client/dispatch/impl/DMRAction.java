@@ -30,7 +30,12 @@ import org.jboss.dmr.client.ModelNode;
 public class DMRAction implements Action<DMRResponse> {
 
     private ModelNode operation;
-    private boolean cachable = true;
+
+    /**
+     * Whether the response may be served from the {@link org.jboss.dmr.client.dispatch.DMRCache}. Off by default:
+     * a cached response hides changes made by other clients, so only callers which can live with that opt in.
+     */
+    private boolean cachable = false;
 
     public DMRAction(ModelNode operation) {
         this.operation = operation;
@@ -29,10 +29,13 @@ import org.jboss.as.console.client.rbac.ResourceAccessLog;
 import org.jboss.dmr.client.ModelNode;
 import org.jboss.dmr.client.Property;
 import org.jboss.dmr.client.dispatch.ActionHandler;
+import org.jboss.dmr.client.dispatch.DMRCache;
 import org.jboss.dmr.client.dispatch.Diagnostics;
 import org.jboss.dmr.client.dispatch.DispatchError;
 import org.jboss.dmr.client.dispatch.DispatchRequest;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,8 +51,18 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
     private static final String HEADER_CONTENT_TYPE = "Content-Type";
     private static final String HEADER_ACCEPT = "Accept";
     private static final String DMR_ENCODED = "application/dmr-encoded";
+    static final String APPLICATION_JSON = "application/json";
     private static final String HEADER_CONNECTION = "Connection";
     private static final String KEEP_ALIVE = "Keep-Alive";
+    private static final String RUN_AS = "run_as";
+
+    /**
+     * Dispatch property to select the transport: {@link #TRANSPORT_DMR} (default) or {@link #TRANSPORT_JSON}.
+     * The JSON transport lets the browser parse the response natively, see {@link ModelNode#fromJSON(String)}.
+     */
+    public static final String TRANSPORT = "transport";
+    public static final String TRANSPORT_DMR = "dmr";
+    public static final String TRANSPORT_JSON = "json";
 
     /**
      * The read resource description supports the following parameters:
@@ -63,13 +76,40 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
     private static long idCounter = 0;
 
     private RequestBuilder prb;
-    private Diagnostics diagnostics = GWT.create(Diagnostics.class);
-    private boolean trackInvocations = diagnostics.isEnabled();
-    private DMREndpointConfig endpointConfig = GWT.create(DMREndpointConfig.class);
+    private RequestBuilder jsonPrb;
+    private final Diagnostics diagnostics;
+    private final boolean trackInvocations;
+    private final DMREndpointConfig endpointConfig;
+    private final Scheduler scheduler;
     private ResourceAccessLog resourceLog = ResourceAccessLog.INSTANCE;
+    private DMRCache cache = new DMRCache();
+    private Map<String, InFlight> inFlight = new HashMap<String, InFlight>();
+
+    public DMRHandler()
+    {
+        this(GWT.<Diagnostics>create(Diagnostics.class), GWT.<DMREndpointConfig>create(DMREndpointConfig.class),
+                Scheduler.get());
+    }
+
+    DMRHandler(Diagnostics diagnostics, DMREndpointConfig endpointConfig, Scheduler scheduler)
+    {
+        this.diagnostics = diagnostics;
+        this.trackInvocations = diagnostics.isEnabled();
+        this.endpointConfig = endpointConfig;
+        this.scheduler = scheduler;
+    }
 
-    private RequestBuilder postRequestBuilder() {
+    private RequestBuilder postRequestBuilder(boolean json) {
         // lazy init, because endpointConfig.getUrl() is not initialized at construction time
+        if (json) {
+            if (jsonPrb == null) {
+                jsonPrb = new RequestBuilder(RequestBuilder.POST, endpointConfig.getUrl());
+                jsonPrb.setHeader(HEADER_ACCEPT, APPLICATION_JSON);
+                jsonPrb.setHeader(HEADER_CONTENT_TYPE, APPLICATION_JSON);
+                jsonPrb.setIncludeCredentials(true);
+            }
+            return jsonPrb;
+        }
         if (prb == null) {
             prb = new RequestBuilder(RequestBuilder.POST, endpointConfig.getUrl());
             prb.setHeader(HEADER_ACCEPT, DMR_ENCODED);
@@ -128,7 +168,7 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
         // diagnostics, development only
         if(!GWT.isScript())
         {
-            Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
+            scheduler.scheduleDeferred(new Scheduler.ScheduledCommand() {
                 @Override
                 public void execute() {
                     decomposeAndLog(operation);
@@ -138,13 +178,80 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
 
         //Request request = executeRequest(resultCallback, GWT.isScript() ? operation : runAsRole(operation));
         // TODO: https://issues.jboss.org/browse/HAL-100
-        Request request = executeRequest(resultCallback, runAsRole(operation, properties));
-        return new DispatchRequestHandle(request);
+        final ModelNode effectiveOperation = runAsRole(operation, properties);
+        final boolean json = TRANSPORT_JSON.equals(properties.get(TRANSPORT));
+        final String payload = json ? effectiveOperation.toJSONString(true) : effectiveOperation.toBase64String();
+
+        String cacheKey = null;
+        if (action.isCachable() && DMRCache.isCachable(effectiveOperation))
+        {
+            cacheKey = DMRCache.key(properties.get(RUN_AS), payload);
+            DMRResponse cached = cache.get(cacheKey);
+            if (cached != null)
+            {
+                return replay(cached, resultCallback);
+            }
+        }
+
+        // reads which are already on their way are not sent again: the caller subscribes to the pending request
+        String flightKey = DMRCache.isMutating(effectiveOperation) ? null : DMRCache.key(properties.get(RUN_AS), payload);
+        if (flightKey != null && inFlight.containsKey(flightKey))
+        {
+            return inFlight.get(flightKey).subscribe(resultCallback);
+        }
+        else if (flightKey == null)
+        {
+            // reads issued from now on must not join reads which were sent before this write
+            detach(effectiveOperation);
+        }
+
+        InFlight flight = new InFlight(flightKey, effectiveOperation);
+        DispatchRequest handle = flight.subscribe(resultCallback);
+        if (flightKey != null)
+        {
+            inFlight.put(flightKey, flight);
+        }
+        flight.request = executeRequest(flight, effectiveOperation, payload, json, cacheKey);
+        return handle;
+    }
+
+    /**
+     * Removes the pending reads affected by a write from the in-flight registry. The requests themselves continue
+     * and serve their current subscribers.
+     */
+    private void detach(ModelNode write)
+    {
+        for (InFlight flight : new ArrayList<InFlight>(inFlight.values()))
+        {
+            if (DMRCache.affects(write, flight.operation))
+            {
+                flight.release();
+            }
+        }
+    }
+
+    /**
+     * Serves a cached response. The callback is still invoked asynchronously to keep the semantics of a real request.
+     */
+    private DispatchRequest replay(final DMRResponse cached, final AsyncCallback<DMRResponse> resultCallback)
+    {
+        final CachedRequestHandle handle = new CachedRequestHandle();
+        scheduler.scheduleDeferred(new Scheduler.ScheduledCommand() {
+            @Override
+            public void execute() {
+                if (handle.isPending())
+                {
+                    handle.done();
+                    resultCallback.onSuccess(cached.copy());
+                }
+            }
+        });
+        return handle;
     }
 
     private ModelNode runAsRole(final ModelNode operation, final Map<String, String> properties) {
 
-        String role = properties.get("run_as");
+        String role = properties.get(RUN_AS);
         if (role != null && !operation.get(OP).asString().equals("whoami")) // otherwise we get the replacement role
         {
             operation.get("operation-headers").get("roles").set(role);
@@ -188,8 +295,11 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
         throw new RuntimeException("Not implemented yet.");
     }
 
-    private Request executeRequest(final AsyncCallback<DMRResponse> resultCallback, final ModelNode operation)
+    private Request executeRequest(final InFlight resultCallback, final ModelNode operation,
+            final String payload, final boolean json, final String cacheKey)
     {
+        // responses of reads which overlap with a write must not be cached
+        final int generation = cache.getGeneration();
         if (idCounter == Long.MAX_VALUE)
         {
             idCounter = 0;
@@ -201,7 +311,7 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
             final String id = String.valueOf(idCounter++);
             trace(Type.BEGIN, id, operation);
 
-            final RequestBuilder requestBuilder = chooseRequestBuilder(operation);
+            final RequestBuilder requestBuilder = chooseRequestBuilder(operation, payload, json);
             trace(Type.SERIALIZED, id, operation);
 
             final RequestCallback requestCallback = new RequestCallback()
@@ -209,18 +319,27 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
                 @Override
                 public void onResponseReceived(Request request, Response response)
                 {
+                    resultCallback.release();
                     trace(Type.RECEIVE, id, operation);
 
                     int statusCode = response.getStatusCode();
                     if (200 == statusCode)
                     {
-                        resultCallback.onSuccess(
-                                new DMRResponse(
-                                        requestBuilder.getHTTPMethod(),
-                                        response.getText(),
-                                        response.getHeader(HEADER_CONTENT_TYPE)
-                                )
+                        DMRResponse dmrResponse = new DMRResponse(
+                                requestBuilder.getHTTPMethod(),
+                                response.getText(),
+                                response.getHeader(HEADER_CONTENT_TYPE)
                         );
+                        if (cacheKey != null)
+                        {
+                            cache.put(cacheKey, operation, dmrResponse.copy(), generation);
+                        }
+                        else
+                        {
+                            cache.invalidate(operation);
+                            detach(operation);
+                        }
+                        resultCallback.onSuccess(dmrResponse);
                     }
                     else if (401 == statusCode || 0 == statusCode)
                     {
@@ -250,9 +369,9 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
                         sb.append(operation.toString());
                         sb.append("\n\nResponse\n\n");
                         sb.append(response.getStatusText()).append("\n");
-                        String payload = response.getText().equals("") ? "No details" :
-                                ModelNode.fromBase64(response.getText()).toString();
-                        sb.append(payload);
+                        String details = response.getText().equals("") ? "No details" :
+                                json ? response.getText() : ModelNode.fromBase64(response.getText()).toString();
+                        sb.append(details);
                         resultCallback.onFailure(new DispatchError(sb.toString(), statusCode));
                     }
                     trace(Type.END, id, operation);
@@ -261,22 +380,32 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
                 @Override
                 public void onError(Request request, Throwable e)
                 {
+                    resultCallback.release();
                     trace(Type.RECEIVE, id, operation);
                     resultCallback.onFailure(e);
                     trace(Type.END, id, operation);
                 }
             };
             requestBuilder.setCallback(requestCallback);
-            request = requestBuilder.send();
+            request = send(requestBuilder);
             trace(Type.SEND, id, operation);
         }
         catch (RequestException e)
         {
+            resultCallback.release();
             resultCallback.onFailure(e);
         }
         return request;
     }
 
+    /**
+     * Puts the request on the wire.
+     */
+    Request send(RequestBuilder requestBuilder) throws RequestException
+    {
+        return requestBuilder.send();
+    }
+
 
     final static String[] COLLECTION_OPS = {
             READ_CHILDREN_RESOURCES_OPERATION
@@ -293,7 +422,7 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
         return false;
     }
 
-    private RequestBuilder chooseRequestBuilder(final ModelNode operation)
+    private RequestBuilder chooseRequestBuilder(final ModelNode operation, final String payload, final boolean json)
     {
         RequestBuilder requestBuilder;
         final String op = operation.get(OP).asString();
@@ -307,15 +436,15 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
             String descriptionUrl = endpoint + descriptionOperationToUrl(operation);
             requestBuilder = new RequestBuilder(RequestBuilder.GET,
                     com.google.gwt.http.client.URL.encode(descriptionUrl));
-            requestBuilder.setHeader(HEADER_ACCEPT, DMR_ENCODED);
-            requestBuilder.setHeader(HEADER_CONTENT_TYPE, DMR_ENCODED);
+            requestBuilder.setHeader(HEADER_ACCEPT, json ? APPLICATION_JSON : DMR_ENCODED);
+            requestBuilder.setHeader(HEADER_CONTENT_TYPE, json ? APPLICATION_JSON : DMR_ENCODED);
             requestBuilder.setIncludeCredentials(true);
             requestBuilder.setRequestData(null);
         }
         else
         {
-            requestBuilder = postRequestBuilder();
-            requestBuilder.setRequestData(operation.toBase64String());
+            requestBuilder = postRequestBuilder(json);
+            requestBuilder.setRequestData(payload);
         }
         return requestBuilder;
     }
@@ -375,28 +504,130 @@ public class DMRHandler implements ActionHandler<DMRAction, DMRResponse> {
     }
 
 
+    /**
+     * A request on the wire together with all callbacks waiting for its response.
+     */
+    class InFlight implements AsyncCallback<DMRResponse>
+    {
+        private final String key;
+        private final ModelNode operation;
+        private final List<AsyncCallback<DMRResponse>> subscribers = new ArrayList<AsyncCallback<DMRResponse>>();
+        private Request request;
+
+        InFlight(String key, ModelNode operation)
+        {
+            this.key = key;
+            this.operation = operation;
+        }
+
+        DispatchRequest subscribe(AsyncCallback<DMRResponse> callback)
+        {
+            subscribers.add(callback);
+            return new DispatchRequestHandle(this, callback);
+        }
+
+        void unsubscribe(AsyncCallback<DMRResponse> callback)
+        {
+            subscribers.remove(callback);
+            if (subscribers.isEmpty())
+            {
+                release();
+                if (request != null)
+                {
+                    request.cancel();
+                }
+            }
+        }
+
+        boolean isPending(AsyncCallback<DMRResponse> callback)
+        {
+            return subscribers.contains(callback) && request != null && request.isPending();
+        }
+
+        /**
+         * Removes this request from the in-flight registry, so that subsequent operations open a new request.
+         */
+        void release()
+        {
+            if (key != null && inFlight.get(key) == this)
+            {
+                inFlight.remove(key);
+            }
+        }
+
+        @Override
+        public void onSuccess(DMRResponse response)
+        {
+            List<AsyncCallback<DMRResponse>> callbacks = new ArrayList<AsyncCallback<DMRResponse>>(subscribers);
+            subscribers.clear();
+            for (int i = 0; i < callbacks.size(); i++)
+            {
+                // every subscriber gets its own response instance
+                callbacks.get(i).onSuccess(i == 0 ? response : response.copy());
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable caught)
+        {
+            List<AsyncCallback<DMRResponse>> callbacks = new ArrayList<AsyncCallback<DMRResponse>>(subscribers);
+            subscribers.clear();
+            for (AsyncCallback<DMRResponse> callback : callbacks)
+            {
+                callback.onFailure(caught);
+            }
+        }
+    }
+
+
+    /**
+     * Handle of a single subscriber. Cancelling it only cancels the underlying request if there are no other
+     * subscribers left.
+     */
     class DispatchRequestHandle implements DispatchRequest
     {
-        private Request delegate;
+        private InFlight delegate;
+        private AsyncCallback<DMRResponse> callback;
 
-        DispatchRequestHandle(Request delegate)
+        DispatchRequestHandle(InFlight delegate, AsyncCallback<DMRResponse> callback)
         {
             this.delegate = delegate;
+            this.callback = callback;
         }
 
         @Override
         public void cancel()
         {
-            if (delegate != null)
-            {
-                delegate.cancel();
-            }
+            delegate.unsubscribe(callback);
+        }
+
+        @Override
+        public boolean isPending()
+        {
+            return delegate.isPending(callback);
+        }
+    }
+
+
+    class CachedRequestHandle implements DispatchRequest
+    {
+        private boolean pending = true;
+
+        void done()
+        {
+            pending = false;
+        }
+
+        @Override
+        public void cancel()
+        {
+            pending = false;
         }
 
         @Override
         public boolean isPending()
         {
-            return delegate != null ? delegate.isPending() : false;
+            return pending;
         }
     }
 }
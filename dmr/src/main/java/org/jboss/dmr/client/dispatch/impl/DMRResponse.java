@@ -21,12 +21,17 @@ package org.jboss.dmr.client.dispatch.impl;
 
 
 import org.jboss.as.console.client.shared.state.ResponseProcessorDelegate;
+import org.jboss.dmr.client.Base64;
 import org.jboss.dmr.client.ModelNode;
 import org.jboss.dmr.client.dispatch.Result;
 
 import static org.jboss.dmr.client.ModelDescriptionConstants.*;
 
 /**
+ * The response of a DMR operation. The payload is decoded lazily and at most once: subsequent calls to
+ * {@link #get()} return the same model node. Use {@link #getOutcome()} or {@link #isFailure()} to check the outcome
+ * without decoding the whole payload.
+ *
  * @author Heiko Braun
  * @date 3/17/11
  */
@@ -36,10 +41,14 @@ public class DMRResponse implements Result<ModelNode> {
     private static final String FILTERED_ATTRIBUTES = "filtered-attributes";
     private static final String ABSOLUTE_ADDRESS = "absolute-address";
     private static final String RELATIVE_ADDRESS = "relative-address";
+    // 'o' + size + "outcome" + 's' + "success" takes 24 bytes, i.e. 32 base64 characters
+    private static final int PEEK_LENGTH = 32;
 
     private String method;
     private String responseText;
     private String contentType;
+    private ModelNode decoded;
+    private boolean processed;
 
     private ResponseProcessorDelegate processor;
 
@@ -51,12 +60,119 @@ public class DMRResponse implements Result<ModelNode> {
         this.processor = new ResponseProcessorDelegate();
     }
 
+    /**
+     * Creates a response from an already decoded model node, e.g. a single step of a composite response.
+     */
+    public DMRResponse(ModelNode response) {
+        this.method = "POST";
+        this.decoded = response;
+
+        this.processor = new ResponseProcessorDelegate();
+    }
+
+    /**
+     * @return a new response with the same payload, which can be handed out to another caller.
+     */
+    public DMRResponse copy() {
+        return responseText != null ? new DMRResponse(method, responseText, contentType) : new DMRResponse(decoded.clone());
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getResponseText() {
+        return responseText;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
     @Override
     public ModelNode get() {
+        if (!processed) {
+            if (decoded == null) {
+                decoded = decode();
+            }
+            processor.process(decoded);
+            processed = true;
+        }
+        return decoded;
+    }
+
+    /**
+     * Returns the outcome of the operation. If the payload has not been decoded yet, only the leading
+     * {@code outcome} attribute is read from the encoded response.
+     */
+    public String getOutcome() {
+        if (decoded != null) {
+            return decoded.get(OUTCOME).asString();
+        }
+        if ("GET".equals(method)) {
+            return SUCCESS;
+        }
+        String outcome = isJson() ? null : peekOutcome();
+        return outcome != null ? outcome : get().get(OUTCOME).asString();
+    }
 
+    public boolean isFailure() {
+        return !SUCCESS.equals(getOutcome());
+    }
+
+    /**
+     * Decodes just enough of the base64 payload to read {@code {"outcome" => "..."}} if that is the first
+     * attribute of the response object. Returns {@code null} if the payload has another layout.
+     */
+    private String peekOutcome() {
+        if (responseText == null || responseText.length() < PEEK_LENGTH) {
+            return null;
+        }
+        try {
+            byte[] bytes = Base64.decode(responseText.substring(0, PEEK_LENGTH));
+            // 'o', int size, utf key, 's', utf value
+            int pos = 0;
+            if (bytes.length < 8 || bytes[pos] != 'o') {
+                return null;
+            }
+            pos += 5;
+            String key = readUTF(bytes, pos);
+            if (!OUTCOME.equals(key)) {
+                return null;
+            }
+            pos += 2 + key.length();
+            if (pos >= bytes.length || bytes[pos] != 's') {
+                return null;
+            }
+            return readUTF(bytes, pos + 1);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private boolean isJson() {
+        return contentType != null && contentType.startsWith(DMRHandler.APPLICATION_JSON);
+    }
+
+    private static String readUTF(byte[] bytes, int pos) {
+        if (pos + 2 > bytes.length) {
+            return null;
+        }
+        int length = ((bytes[pos] & 0xff) << 8) | (bytes[pos + 1] & 0xff);
+        if (pos + 2 + length > bytes.length) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) (bytes[pos + 2 + i] & 0x7f));
+        }
+        return builder.toString();
+    }
+
+    private ModelNode decode() {
         ModelNode response = null;
         try {
-            response = ModelNode.fromBase64(responseText);
+            response = isJson() ? ModelNode.fromJSON(responseText) : ModelNode.fromBase64(responseText);
 
             /*if(response.hasDefined("response-headers"))
             {
@@ -112,9 +228,6 @@ public class DMRResponse implements Result<ModelNode> {
                             e.getClass().getName() +": "+e.getMessage());
             response = err;
         }
-
-        processor.process(response);
-
         return response;
     }
 
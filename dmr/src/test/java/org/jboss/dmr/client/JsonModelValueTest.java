@@ -0,0 +1,391 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.jboss.dmr.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trips through {@link ModelNode#toJSONString(boolean)} and {@link JsonModelValue}. The native
+ * {@code JSON.parse()} is replaced by a strict parser which reads into maps and lists.
+ */
+public class JsonModelValueTest {
+
+    private MapAccess access;
+
+
+    // ------------------------------------------------------ setup
+
+    @Before
+    public void setUp() {
+        access = new MapAccess();
+    }
+
+
+    // ------------------------------------------------------ tests
+
+    @Test
+    public void primitives() {
+        assertEquals(ModelType.UNDEFINED, roundTrip(new ModelNode()).getType());
+        assertEquals("text", roundTrip(new ModelNode().set("text")).asString());
+        assertTrue(roundTrip(new ModelNode().set(true)).asBoolean());
+        assertEquals(ModelType.BOOLEAN, roundTrip(new ModelNode().set(false)).getType());
+        assertEquals(new ModelNode().set(-42), roundTrip(new ModelNode().set(-42)));
+        assertEquals(new ModelNode().set(Integer.MIN_VALUE), roundTrip(new ModelNode().set(Integer.MIN_VALUE)));
+        assertEquals(new ModelNode().set(1L << 40), roundTrip(new ModelNode().set(1L << 40)));
+        assertEquals(new ModelNode().set(-0.25), roundTrip(new ModelNode().set(-0.25)));
+    }
+
+    @Test
+    public void numbers() {
+        // integral numbers which fit into an int are ints, larger ones longs
+        assertEquals(ModelType.INT, roundTrip(new ModelNode().set(7L)).getType());
+        assertEquals(ModelType.LONG, roundTrip(new ModelNode().set(Integer.MAX_VALUE + 1L)).getType());
+        assertEquals(ModelType.INT, roundTrip(new ModelNode().set(2.0)).getType());
+
+        // big integers arrive as numbers
+        ModelNode big = roundTrip(new ModelNode().set(new BigInteger("12345678901")));
+        assertEquals(12345678901L, big.asLong());
+    }
+
+    @Test
+    public void nestedObjects() {
+        ModelNode node = new ModelNode();
+        node.get("outcome").set("success");
+        node.get("result", "name").set("default");
+        node.get("result", "socket-binding", "http", "port").set(8080);
+        node.get("result", "socket-binding", "http", "interface").set("public");
+        node.get("result", "socket-binding", "https", "port").set(8443);
+        node.get("result", "empty").setEmptyObject();
+        node.get("result", "unset");
+
+        ModelNode parsed = roundTrip(node);
+        assertEquals(node, parsed);
+        assertEquals(ModelType.OBJECT, parsed.get("result", "empty").getType());
+        assertFalse(parsed.get("result").hasDefined("unset"));
+        assertEquals(8443, parsed.get("result", "socket-binding", "https", "port").asInt());
+
+        // the key order is preserved
+        List<String> keys = new ArrayList<String>(parsed.get("result", "socket-binding").keys());
+        assertEquals("http", keys.get(0));
+        assertEquals("https", keys.get(1));
+    }
+
+    @Test
+    public void lists() {
+        ModelNode node = new ModelNode();
+        node.add("one").add(2).add(3.5).add(true);
+        node.add().add("nested").add(new ModelNode().setEmptyList());
+        node.add().get("key").set("value");
+
+        ModelNode parsed = roundTrip(node);
+        assertEquals(node, parsed);
+        assertEquals(6, parsed.asList().size());
+        assertEquals("nested", parsed.get(4).get(0).asString());
+        assertEquals(ModelType.LIST, parsed.get(4).get(1).getType());
+        assertTrue(parsed.get(4).get(1).asList().isEmpty());
+        assertEquals(ModelType.LIST, roundTrip(new ModelNode().setEmptyList()).getType());
+    }
+
+    @Test
+    public void properties() {
+        ModelNode property = new ModelNode().set("name", new ModelNode().set(42));
+        ModelNode parsed = roundTrip(property);
+        assertEquals(ModelType.PROPERTY, parsed.getType());
+        assertEquals("name", parsed.asProperty().getName());
+        assertEquals(42, parsed.asProperty().getValue().asInt());
+
+        ModelNode nested = new ModelNode();
+        nested.get("result").set("data-source", new ModelNode().set("ExampleDS"));
+        assertEquals(nested, roundTrip(nested));
+
+        // an object is a property list
+        ModelNode object = new ModelNode();
+        object.get("a").set(1);
+        object.get("b").set(2);
+        List<Property> list = roundTrip(object).asPropertyList();
+        assertEquals(2, list.size());
+        assertEquals("b", list.get(1).getName());
+        assertEquals(2, list.get(1).getValue().asInt());
+    }
+
+    @Test
+    public void specialValues() {
+        assertEquals(new ModelNode().setExpression("${jboss.home.dir}"),
+                roundTrip(new ModelNode().setExpression("${jboss.home.dir}")));
+        assertEquals(new ModelNode().set(ModelType.LONG), roundTrip(new ModelNode().set(ModelType.LONG)));
+        byte[] bytes = {0, 1, -1, Byte.MIN_VALUE, Byte.MAX_VALUE};
+        assertEquals(new ModelNode().set(bytes), roundTrip(new ModelNode().set(bytes)));
+        assertEquals(new ModelNode().set(new byte[0]), roundTrip(new ModelNode().set(new byte[0])));
+    }
+
+    @Test
+    public void escapes() {
+        String[] strings = {
+                "", "\"quoted\"", "back\\slash", "/slash/", "line\nbreak", "carriage\rreturn", "tab\tbed",
+                "\b\f", "\u0000\u0001\u001f", "\u007f\u0080\u009f", "\u00e4\u00f6\u00fc", "\u2028\u2029\u20ac",
+                "\ud83d\ude00 surrogates", "{\"key\" : [1, 2]}"
+        };
+        for (String string : strings) {
+            assertEquals(string, roundTrip(new ModelNode().set(string)).asString());
+
+            // ... also in keys
+            ModelNode node = new ModelNode();
+            node.get(string).set(string);
+            ModelNode parsed = roundTrip(node);
+            assertEquals(string, parsed.keys().iterator().next());
+            assertEquals(string, parsed.get(string).asString());
+        }
+    }
+
+    @Test
+    public void lazy() {
+        ModelNode node = new ModelNode();
+        node.get("a", "b", "c").set(1);
+        node.get("x", "y", "z").set(2);
+
+        ModelNode parsed = JsonModelValue.parse(node.toJSONString(true), access);
+        assertEquals(0, access.keysCalls);
+        assertEquals(1, parsed.get("a", "b", "c").asInt());
+        // root, a and b have been converted, x has not
+        assertEquals(3, access.keysCalls);
+    }
+
+    @Test
+    public void modify() {
+        ModelNode node = new ModelNode();
+        node.get("result", "list").add(1);
+        ModelNode parsed = roundTrip(node);
+
+        parsed.get("result", "list").add(2);
+        parsed.get("result", "name").set("changed");
+        assertEquals(2, parsed.get("result", "list").asList().size());
+        assertEquals("changed", parsed.get("result", "name").asString());
+
+        ModelNode copy = parsed.clone();
+        copy.get("result", "name").set("copy");
+        assertEquals("changed", parsed.get("result", "name").asString());
+    }
+
+    @Test
+    public void multiLine() {
+        ModelNode node = new ModelNode();
+        node.get("a").add(1).add("two");
+        node.get("b").set("c", new ModelNode().set(true));
+        assertEquals(node, JsonModelValue.parse(node.toJSONString(false), access));
+    }
+
+
+    // ------------------------------------------------------ helpers
+
+    private ModelNode roundTrip(ModelNode node) {
+        return JsonModelValue.parse(node.toJSONString(true), access);
+    }
+
+    /**
+     * Reads JSON into {@link Map}, {@link List}, {@link String}, {@link Double} and {@link Boolean}.
+     */
+    private static class MapAccess implements JsonModelValue.Access {
+
+        int keysCalls;
+
+        @Override
+        public Object parse(String json) {
+            Parser parser = new Parser(json);
+            Object value = parser.value();
+            parser.skipWhitespace();
+            assertEquals("Trailing characters in " + json, json.length(), parser.pos);
+            Map<String, Object> holder = new LinkedHashMap<String, Object>();
+            holder.put("value", value);
+            return holder;
+        }
+
+        @Override
+        public String typeOf(Object holder, String key) {
+            Object value = get(holder, key);
+            if (value == null) {
+                return "undefined";
+            } else if (value instanceof List) {
+                return "array";
+            } else if (value instanceof Map) {
+                return "object";
+            } else if (value instanceof Double) {
+                return "number";
+            }
+            return value instanceof Boolean ? "boolean" : "string";
+        }
+
+        @Override
+        public boolean hasKey(Object object, String key) {
+            return ((Map) object).containsKey(key);
+        }
+
+        @Override
+        public String getString(Object holder, String key) {
+            return String.valueOf(get(holder, key));
+        }
+
+        @Override
+        public boolean getBoolean(Object holder, String key) {
+            return (Boolean) get(holder, key);
+        }
+
+        @Override
+        public double getNumber(Object holder, String key) {
+            return (Double) get(holder, key);
+        }
+
+        @Override
+        public Object getObject(Object holder, String key) {
+            return get(holder, key);
+        }
+
+        @Override
+        public int length(Object array) {
+            return ((List) array).size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<String> keys(Object object) {
+            keysCalls++;
+            return new ArrayList<String>(((Map<String, Object>) object).keySet());
+        }
+
+        private Object get(Object holder, String key) {
+            return holder instanceof List ? ((List) holder).get(Integer.parseInt(key)) : ((Map) holder).get(key);
+        }
+    }
+
+    private static class Parser {
+
+        private final String json;
+        private int pos;
+
+        Parser(String json) {
+            this.json = json;
+        }
+
+        Object value() {
+            skipWhitespace();
+            char c = json.charAt(pos);
+            if (c == '{') {
+                Map<String, Object> object = new LinkedHashMap<String, Object>();
+                pos++;
+                skipWhitespace();
+                if (json.charAt(pos) == '}') {
+                    pos++;
+                    return object;
+                }
+                do {
+                    skipWhitespace();
+                    String key = string();
+                    skipWhitespace();
+                    expect(':');
+                    object.put(key, value());
+                    skipWhitespace();
+                } while (json.charAt(pos++) == ',');
+                assertEquals('}', json.charAt(pos - 1));
+                return object;
+            } else if (c == '[') {
+                List<Object> array = new ArrayList<Object>();
+                pos++;
+                skipWhitespace();
+                if (json.charAt(pos) == ']') {
+                    pos++;
+                    return array;
+                }
+                do {
+                    array.add(value());
+                    skipWhitespace();
+                } while (json.charAt(pos++) == ',');
+                assertEquals(']', json.charAt(pos - 1));
+                return array;
+            } else if (c == '"') {
+                return string();
+            } else if (json.startsWith("true", pos)) {
+                pos += 4;
+                return true;
+            } else if (json.startsWith("false", pos)) {
+                pos += 5;
+                return false;
+            } else if (json.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            int start = pos;
+            while (pos < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos)) != -1) {
+                pos++;
+            }
+            return Double.valueOf(json.substring(start, pos));
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder builder = new StringBuilder();
+            char c;
+            while ((c = json.charAt(pos++)) != '"') {
+                assertTrue("Unescaped control character", c >= 0x20);
+                if (c == '\\') {
+                    c = json.charAt(pos++);
+                    switch (c) {
+                        case 'b': builder.append('\b'); break;
+                        case 'f': builder.append('\f'); break;
+                        case 'n': builder.append('\n'); break;
+                        case 'r': builder.append('\r'); break;
+                        case 't': builder.append('\t'); break;
+                        case 'u':
+                            builder.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                            pos += 4;
+                            break;
+                        case '"':
+                        case '\\':
+                        case '/':
+                            builder.append(c);
+                            break;
+                        default:
+                            fail("Invalid escape \\" + c);
+                    }
+                } else {
+                    builder.append(c);
+                }
+            }
+            return builder.toString();
+        }
+
+        void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private void expect(char c) {
+            assertEquals(c, json.charAt(pos++));
+        }
+    }
+}
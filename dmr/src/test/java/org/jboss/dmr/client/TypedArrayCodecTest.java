@@ -0,0 +1,316 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.jboss.dmr.client;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trips through {@link DataOutput}, {@link DataInput} and {@link TypedArrayCodec}. The byte layout is compared
+ * against {@link DataOutputStream}, which is what the server side uses. Please note that the typed array
+ * implementation needs a browser: on the JVM the codec falls back to the {@code java.lang} bit conversions.
+ */
+public class TypedArrayCodecTest {
+
+    private static final double[] DOUBLES = {
+            0.0, -0.0, 1.0, -1.0, 0.1, Math.PI, Double.MIN_VALUE, Double.MIN_NORMAL, Double.MAX_VALUE,
+            -Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, 1e-300, 9007199254740993.0
+    };
+
+    private static final float[] FLOATS = {
+            0f, -0f, 1f, -1f, 0.1f, Float.MIN_VALUE, Float.MIN_NORMAL, Float.MAX_VALUE, -Float.MAX_VALUE,
+            Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NaN
+    };
+
+    private static final long[] LONGS = {
+            0L, 1L, -1L, 255L, -256L, Integer.MAX_VALUE, Integer.MIN_VALUE, 1L << 32, -(1L << 32) - 1,
+            Long.MAX_VALUE, Long.MIN_VALUE
+    };
+
+
+    // ------------------------------------------------------ primitives
+
+    @Test
+    public void doubles() throws IOException {
+        for (double value : DOUBLES) {
+            byte[] expected = reference(value);
+            byte[] bytes = new byte[8];
+            TypedArrayCodec.writeDouble(bytes, 0, value);
+            assertArrayEquals(String.valueOf(value), expected, bytes);
+            assertEquals(Double.doubleToLongBits(value), Double.doubleToLongBits(TypedArrayCodec.readDouble(bytes, 0)));
+
+            DataOutput out = new DataOutput();
+            out.writeDouble(value);
+            assertArrayEquals(expected, out.getBytes());
+            assertEquals(Double.doubleToLongBits(value),
+                    Double.doubleToLongBits(new DataInput(out.getBytes()).readDouble()));
+        }
+    }
+
+    @Test
+    public void floats() throws IOException {
+        for (float value : FLOATS) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            new DataOutputStream(buffer).writeFloat(value);
+            byte[] bytes = new byte[4];
+            TypedArrayCodec.writeFloat(bytes, 0, value);
+            assertArrayEquals(String.valueOf(value), buffer.toByteArray(), bytes);
+            assertEquals(Float.floatToIntBits(value), Float.floatToIntBits(TypedArrayCodec.readFloat(bytes, 0)));
+        }
+    }
+
+    @Test
+    public void offset() {
+        byte[] bytes = new byte[12];
+        TypedArrayCodec.writeDouble(bytes, 3, -2.5);
+        assertEquals(0, bytes[2]);
+        assertEquals(0, bytes[11]);
+        assertEquals(-2.5, TypedArrayCodec.readDouble(bytes, 3), 0);
+    }
+
+    @Test
+    public void longs() throws IOException {
+        for (long value : LONGS) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            new DataOutputStream(buffer).writeLong(value);
+            DataOutput out = new DataOutput();
+            out.writeLong(value);
+            assertArrayEquals(String.valueOf(value), buffer.toByteArray(), out.getBytes());
+            assertEquals(value, new DataInput(out.getBytes()).readLong());
+        }
+    }
+
+    @Test
+    public void truncated() throws IOException {
+        DataOutput out = new DataOutput();
+        out.writeInt(42);
+        try {
+            new DataInput(out.getBytes()).readDouble();
+            fail("EOF expected");
+        } catch (RuntimeException expected) {
+        }
+    }
+
+
+    // ------------------------------------------------------ model types
+
+    @Test
+    public void bigDecimal() {
+        roundTrip(new ModelNode().set(new BigDecimal("-1234567890.0987654321")));
+        roundTrip(new ModelNode().set(BigDecimal.ZERO));
+    }
+
+    @Test
+    public void bigInteger() {
+        roundTrip(new ModelNode().set(new BigInteger("123456789012345678901234567890")));
+        roundTrip(new ModelNode().set(new BigInteger("-123456789012345678901234567890")));
+        roundTrip(new ModelNode().set(BigInteger.ZERO));
+    }
+
+    @Test
+    public void booleans() {
+        roundTrip(new ModelNode().set(true));
+        roundTrip(new ModelNode().set(false));
+    }
+
+    @Test
+    public void bytes() {
+        roundTrip(new ModelNode().set(new byte[0]));
+        roundTrip(new ModelNode().set(new byte[]{0, 1, -1, Byte.MIN_VALUE, Byte.MAX_VALUE}));
+    }
+
+    @Test
+    public void doubleValues() {
+        for (double value : DOUBLES) {
+            ModelNode node = ModelNode.fromBase64(new ModelNode().set(value).toBase64String());
+            assertEquals(ModelType.DOUBLE, node.getType());
+            assertEquals(Double.doubleToLongBits(value), Double.doubleToLongBits(node.asDouble()));
+        }
+    }
+
+    @Test
+    public void expression() {
+        roundTrip(new ModelNode().setExpression("${jboss.bind.address:127.0.0.1}"));
+    }
+
+    @Test
+    public void ints() {
+        roundTrip(new ModelNode().set(0));
+        roundTrip(new ModelNode().set(-1));
+        roundTrip(new ModelNode().set(Integer.MIN_VALUE));
+        roundTrip(new ModelNode().set(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void list() {
+        ModelNode list = new ModelNode();
+        list.add(1).add("two").add(3.0).add(new ModelNode().setEmptyList());
+        roundTrip(list);
+        roundTrip(new ModelNode().setEmptyList());
+    }
+
+    @Test
+    public void longValues() {
+        for (long value : LONGS) {
+            roundTrip(new ModelNode().set(value));
+        }
+    }
+
+    @Test
+    public void object() {
+        ModelNode object = new ModelNode();
+        object.get("name").set("default");
+        object.get("nested", "port").set(8080);
+        object.get("nested", "ratio").set(-0.5);
+        object.get("empty").setEmptyObject();
+        roundTrip(object);
+        roundTrip(new ModelNode().setEmptyObject());
+    }
+
+    @Test
+    public void property() {
+        roundTrip(new ModelNode().set("key", new ModelNode().set(Long.MIN_VALUE)));
+    }
+
+    @Test
+    public void string() {
+        roundTrip(new ModelNode().set(""));
+        roundTrip(new ModelNode().set("plain"));
+        roundTrip(new ModelNode().set("\u00e4\u00f6\u00fc \u20ac \u4e2d"));
+    }
+
+    @Test
+    public void type() {
+        for (ModelType type : ModelType.values()) {
+            roundTrip(new ModelNode().set(type));
+        }
+    }
+
+    @Test
+    public void undefined() {
+        roundTrip(new ModelNode());
+    }
+
+
+
+    // ------------------------------------------------------ base64
+
+    @Test
+    public void decodeEmpty() {
+        assertEquals(0, TypedArrayCodec.decodeBase64("").length);
+        assertEquals(0, TypedArrayCodec.decodeBase64("\r\n").length);
+    }
+
+    @Test
+    public void decodePadding() {
+        assertEquals("Man", ascii(TypedArrayCodec.decodeBase64("TWFu")));
+        assertEquals("Ma", ascii(TypedArrayCodec.decodeBase64("TWE=")));
+        assertEquals("M", ascii(TypedArrayCodec.decodeBase64("TQ==")));
+
+        // padding is optional
+        assertEquals("Ma", ascii(TypedArrayCodec.decodeBase64("TWE")));
+        assertEquals("M", ascii(TypedArrayCodec.decodeBase64("TQ")));
+    }
+
+    @Test
+    public void decodeLineBreaks() throws IOException {
+        byte[] data = random(1000, 42);
+        String encoded = Base64.encodeBytes(data, Base64.DO_BREAK_LINES);
+        assertTrue(encoded.contains("\n"));
+        assertArrayEquals(data, TypedArrayCodec.decodeBase64(encoded));
+        assertArrayEquals(data, TypedArrayCodec.decodeBase64(encoded.replace("\n", "\r\n")));
+        assertArrayEquals(data, TypedArrayCodec.decodeBase64(" " + encoded.replace("\n", "\t") + " "));
+    }
+
+    @Test
+    public void decodeInvalid() {
+        for (String invalid : new String[]{"TW!u", "TWFu\u00e9", "TW-_", "T", "TWFuT"}) {
+            try {
+                TypedArrayCodec.decodeBase64(invalid);
+                fail("Invalid input accepted: " + invalid);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void decodeLikePreviousDecoder() throws IOException {
+        // Base64.decode() is what fromBase64() used before the single pass decoder
+        for (int length = 0; length < 300; length++) {
+            byte[] data = random(length, length);
+            String encoded = Base64.encodeBytes(data);
+            assertArrayEquals(String.valueOf(length), Base64.decode(encoded), TypedArrayCodec.decodeBase64(encoded));
+            assertArrayEquals(String.valueOf(length), data, TypedArrayCodec.decodeBase64(encoded));
+        }
+        byte[] data = random(1 << 16, 7);
+        String encoded = Base64.encodeBytes(data);
+        assertArrayEquals(Base64.decode(encoded), TypedArrayCodec.decodeBase64(encoded));
+    }
+
+    @Test
+    public void decodeModel() throws IOException {
+        ModelNode node = new ModelNode();
+        node.get("outcome").set("success");
+        node.get("result", "bytes").set(random(100, 1));
+        node.get("result", "ratio").set(Double.NaN);
+        String encoded = node.toBase64String();
+        ModelNode decoded = new ModelNode();
+        decoded.readExternal(new DataInput(TypedArrayCodec.decodeBase64(encoded)));
+        assertEquals(node.get("result", "bytes"), decoded.get("result", "bytes"));
+        assertTrue(Double.isNaN(decoded.get("result", "ratio").asDouble()));
+    }
+
+
+    // ------------------------------------------------------ helpers
+
+    private static void roundTrip(ModelNode node) {
+        ModelNode decoded = ModelNode.fromBase64(node.toBase64String());
+        assertEquals(node.getType(), decoded.getType());
+        assertEquals(node, decoded);
+    }
+
+    private static byte[] random(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String ascii(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append((char) b);
+        }
+        return builder.toString();
+    }
+
+    private static byte[] reference(double value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new DataOutputStream(buffer).writeDouble(value);
+        return buffer.toByteArray();
+    }
+}
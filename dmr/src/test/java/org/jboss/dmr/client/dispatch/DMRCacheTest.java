@@ -0,0 +1,262 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.jboss.dmr.client.dispatch;
+
+import org.jboss.dmr.client.ModelNode;
+import org.jboss.dmr.client.dispatch.impl.DMRResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.jboss.dmr.client.ModelDescriptionConstants.*;
+import static org.junit.Assert.*;
+
+public class DMRCacheTest {
+
+    private long now;
+    private DMRCache cache;
+
+    @Before
+    public void setUp() {
+        now = 0;
+        cache = new DMRCache(3) {
+            @Override
+            long now() {
+                return now;
+            }
+        };
+    }
+
+
+    // ------------------------------------------------------ classification
+
+    @Test
+    public void cachable() {
+        assertTrue(DMRCache.isCachable(op(READ_RESOURCE_OPERATION, "subsystem", "a")));
+        assertTrue(DMRCache.isCachable(op(READ_RESOURCE_DESCRIPTION_OPERATION, "subsystem", "a")));
+        assertFalse(DMRCache.isCachable(op(WRITE_ATTRIBUTE_OPERATION, "subsystem", "a")));
+        assertFalse(DMRCache.isCachable(op(READ_ATTRIBUTE_OPERATION, "subsystem", "a")));
+
+        ModelNode runtime = op(READ_RESOURCE_OPERATION, "subsystem", "a");
+        runtime.get(INCLUDE_RUNTIME).set(true);
+        assertFalse(DMRCache.isCachable(runtime));
+
+        assertTrue(DMRCache.isCachable(composite(op(READ_RESOURCE_OPERATION, "subsystem", "a"),
+                op(READ_CHILDREN_NAMES_OPERATION, "subsystem", "b"))));
+        assertFalse(DMRCache.isCachable(composite(op(READ_RESOURCE_OPERATION, "subsystem", "a"),
+                op(ADD, "subsystem", "b"))));
+        assertFalse(DMRCache.isCachable(composite()));
+    }
+
+    @Test
+    public void mutating() {
+        assertFalse(DMRCache.isMutating(op(READ_RESOURCE_OPERATION, "subsystem", "a")));
+        assertFalse(DMRCache.isMutating(op(WHOAMI)));
+        assertTrue(DMRCache.isMutating(op(REMOVE, "subsystem", "a")));
+        assertTrue(DMRCache.isMutating(composite(op(READ_RESOURCE_OPERATION), op(ADD, "subsystem", "a"))));
+    }
+
+
+    // ------------------------------------------------------ ttl
+
+    @Test
+    public void expire() {
+        ModelNode read = op(READ_RESOURCE_OPERATION, "subsystem", "a");
+        cache.put("read", read, response(), cache.getGeneration());
+
+        now = 10 * 1000;
+        assertNotNull(cache.get("read"));
+        now++;
+        assertNull(cache.get("read"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void expireDescription() {
+        ModelNode read = op(READ_RESOURCE_DESCRIPTION_OPERATION, "subsystem", "a");
+        cache.put("description", read, response(), cache.getGeneration());
+
+        now = 10 * 60 * 1000;
+        assertNotNull(cache.get("description"));
+        now++;
+        assertNull(cache.get("description"));
+    }
+
+    @Test
+    public void notCachable() {
+        cache.put("write", op(WRITE_ATTRIBUTE_OPERATION, "subsystem", "a"), response(), cache.getGeneration());
+        assertNull(cache.get("write"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void lru() {
+        cache.put("a", op(READ_RESOURCE_OPERATION, "subsystem", "a"), response(), cache.getGeneration());
+        cache.put("b", op(READ_RESOURCE_OPERATION, "subsystem", "b"), response(), cache.getGeneration());
+        cache.put("c", op(READ_RESOURCE_OPERATION, "subsystem", "c"), response(), cache.getGeneration());
+        assertNotNull(cache.get("a"));
+
+        cache.put("d", op(READ_RESOURCE_OPERATION, "subsystem", "d"), response(), cache.getGeneration());
+        assertEquals(3, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+
+    // ------------------------------------------------------ invalidation
+
+    @Test
+    public void invalidateChild() {
+        // the parent read includes the modified child
+        cache.put("parent", op(READ_CHILDREN_NAMES_OPERATION, "subsystem", "a"), response(), cache.getGeneration());
+        cache.put("other", op(READ_RESOURCE_OPERATION, "subsystem", "b"), response(), cache.getGeneration());
+
+        cache.invalidate(op(ADD, "subsystem", "a", "child", "c"));
+        assertNull(cache.get("parent"));
+        assertNotNull(cache.get("other"));
+    }
+
+    @Test
+    public void invalidateParent() {
+        cache.put("child", op(READ_RESOURCE_OPERATION, "subsystem", "a", "child", "c"), response(),
+                cache.getGeneration());
+        cache.put("other", op(READ_RESOURCE_OPERATION, "subsystem", "b", "child", "c"), response(),
+                cache.getGeneration());
+
+        cache.invalidate(op(REMOVE, "subsystem", "a"));
+        assertNull(cache.get("child"));
+        assertNotNull(cache.get("other"));
+    }
+
+    @Test
+    public void invalidateWildcard() {
+        cache.put("all", op(READ_RESOURCE_OPERATION, "subsystem", "a", "child", "*"), response(),
+                cache.getGeneration());
+
+        cache.invalidate(op(WRITE_ATTRIBUTE_OPERATION, "subsystem", "a", "child", "c"));
+        assertNull(cache.get("all"));
+    }
+
+    @Test
+    public void invalidateServer() {
+        // the server runtime reflects the profile
+        cache.put("server", op(READ_RESOURCE_OPERATION, "host", "master", "server", "one", "subsystem", "a"),
+                response(), cache.getGeneration());
+        cache.put("profile", op(READ_RESOURCE_OPERATION, "profile", "default", "subsystem", "b"), response(),
+                cache.getGeneration());
+
+        cache.invalidate(op(WRITE_ATTRIBUTE_OPERATION, "profile", "full", "subsystem", "a"));
+        assertNull(cache.get("server"));
+        assertNotNull(cache.get("profile"));
+
+        // ... but not writes to another server
+        cache.put("server", op(READ_RESOURCE_OPERATION, "host", "master", "server", "one", "subsystem", "a"),
+                response(), cache.getGeneration());
+        cache.invalidate(op(WRITE_ATTRIBUTE_OPERATION, "host", "master", "server", "two", "subsystem", "a"));
+        assertNotNull(cache.get("server"));
+    }
+
+    @Test
+    public void invalidateComposite() {
+        ModelNode read = composite(op(READ_RESOURCE_OPERATION, "subsystem", "a"),
+                op(READ_RESOURCE_OPERATION, "subsystem", "b"));
+        cache.put("read", read, response(), cache.getGeneration());
+        cache.put("other", op(READ_RESOURCE_OPERATION, "subsystem", "c"), response(), cache.getGeneration());
+
+        // one step of the cached composite is affected
+        cache.invalidate(op(WRITE_ATTRIBUTE_OPERATION, "subsystem", "b"));
+        assertNull(cache.get("read"));
+        assertNotNull(cache.get("other"));
+
+        // one step of the write is affected
+        cache.invalidate(composite(op(WRITE_ATTRIBUTE_OPERATION, "subsystem", "d"),
+                op(REMOVE, "subsystem", "c")));
+        assertNull(cache.get("other"));
+    }
+
+    @Test
+    public void ignoreReads() {
+        cache.put("read", op(READ_RESOURCE_OPERATION, "subsystem", "a"), response(), cache.getGeneration());
+        int generation = cache.getGeneration();
+
+        cache.invalidate(op(READ_RESOURCE_OPERATION, "subsystem", "a"));
+        assertEquals(generation, cache.getGeneration());
+        assertNotNull(cache.get("read"));
+    }
+
+    @Test
+    public void generation() {
+        // a read is sent, a write overtakes it
+        ModelNode read = op(READ_RESOURCE_OPERATION, "subsystem", "a");
+        int generation = cache.getGeneration();
+        cache.invalidate(op(WRITE_ATTRIBUTE_OPERATION, "subsystem", "b"));
+        assertNotEquals(generation, cache.getGeneration());
+
+        cache.put("read", read, response(), generation);
+        assertNull(cache.get("read"));
+
+        cache.put("read", read, response(), cache.getGeneration());
+        assertNotNull(cache.get("read"));
+
+        generation = cache.getGeneration();
+        cache.clear();
+        cache.put("read", read, response(), generation);
+        assertNull(cache.get("read"));
+    }
+
+    @Test
+    public void affects() {
+        ModelNode read = op(READ_RESOURCE_OPERATION, "subsystem", "a", "child", "c");
+        assertTrue(DMRCache.affects(op(REMOVE, "subsystem", "a"), read));
+        assertFalse(DMRCache.affects(op(REMOVE, "subsystem", "b"), read));
+        assertFalse(DMRCache.affects(op(READ_RESOURCE_OPERATION, "subsystem", "a"), read));
+    }
+
+    @Test
+    public void key() {
+        assertNotEquals(DMRCache.key("Monitor", "payload"), DMRCache.key("Administrator", "payload"));
+        assertEquals(DMRCache.key(null, "payload"), DMRCache.key(null, "payload"));
+    }
+
+
+    // ------------------------------------------------------ helpers
+
+    private static ModelNode op(String name, String... address) {
+        ModelNode op = new ModelNode();
+        op.get(OP).set(name);
+        op.get(ADDRESS).setEmptyList();
+        for (int i = 0; i < address.length; i += 2) {
+            op.get(ADDRESS).add(address[i], address[i + 1]);
+        }
+        return op;
+    }
+
+    private static ModelNode composite(ModelNode... steps) {
+        ModelNode composite = op(COMPOSITE);
+        composite.get(STEPS).setEmptyList();
+        for (ModelNode step : steps) {
+            composite.get(STEPS).add(step);
+        }
+        return composite;
+    }
+
+    private static DMRResponse response() {
+        return new DMRResponse(new ModelNode());
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.jboss.dmr.client.dispatch.impl;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import org.jboss.dmr.client.ModelNode;
+import org.jboss.dmr.client.StaticDispatcher;
+import org.jboss.dmr.client.StaticDmrResponse;
+import org.jboss.dmr.client.dispatch.Action;
+import org.jboss.dmr.client.dispatch.DispatchAsync;
+import org.jboss.dmr.client.dispatch.DispatchError;
+import org.jboss.dmr.client.dispatch.DispatchRequest;
+import org.jboss.dmr.client.dispatch.Result;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.jboss.dmr.client.ModelDescriptionConstants.*;
+import static org.junit.Assert.*;
+
+public class BatchingDispatchAsyncTest {
+
+    private StaticDispatcher dispatcher;
+    private List<ModelNode> sent;
+    private Throwable compositeFailure;
+    private LinkedList<Scheduler.ScheduledCommand> deferred;
+    private BatchingDispatchAsync batching;
+    private Map<String, Object> results;
+
+
+    // ------------------------------------------------------ setup
+
+    @Before
+    public void setUp() {
+        dispatcher = new StaticDispatcher();
+        sent = new ArrayList<>();
+        compositeFailure = null;
+        deferred = new LinkedList<>();
+        results = new LinkedHashMap<>();
+
+        // records the operations and fails composites with compositeFailure (if set)
+        DispatchAsync delegate = new DispatchAsync() {
+            @Override
+            public <A extends Action<R>, R extends Result> DispatchRequest execute(A action,
+                    AsyncCallback<R> callback) {
+                ModelNode operation = ((DMRAction) action).getOperation();
+                sent.add(operation);
+                if (compositeFailure != null && COMPOSITE.equals(operation.get(OP).asString())) {
+                    callback.onFailure(compositeFailure);
+                    return null;
+                }
+                return dispatcher.execute(action, callback);
+            }
+
+            @Override
+            public <A extends Action<R>, R extends Result> DispatchRequest undo(A action, R result,
+                    AsyncCallback<Void> callback) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void setProperty(String key, String value) {
+            }
+
+            @Override
+            public void clearProperty(String key) {
+            }
+        };
+        batching = new BatchingDispatchAsync(delegate, new DeferredScheduler());
+    }
+
+
+    // ------------------------------------------------------ tests
+
+    @Test
+    public void batch() {
+        dispatcher.push(StaticDmrResponse.ok(compositeResult(success("a"), success("b"), success("c"))));
+        read("a", READ_RESOURCE_OPERATION);
+        read("b", READ_ATTRIBUTE_OPERATION);
+        read("c", READ_CHILDREN_NAMES_OPERATION);
+
+        // nothing is sent before the end of the event loop turn
+        assertTrue(sent.isEmpty());
+        flush();
+
+        assertEquals(1, sent.size());
+        ModelNode composite = sent.get(0);
+        assertEquals(COMPOSITE, composite.get(OP).asString());
+        List<ModelNode> steps = composite.get(STEPS).asList();
+        assertEquals(3, steps.size());
+        assertEquals("a", steps.get(0).get(ADDRESS).asList().get(0).get("subsystem").asString());
+        assertEquals(READ_ATTRIBUTE_OPERATION, steps.get(1).get(OP).asString());
+        assertEquals(READ_CHILDREN_NAMES_OPERATION, steps.get(2).get(OP).asString());
+
+        // each caller gets its step result
+        assertEquals("a", result("a"));
+        assertEquals("b", result("b"));
+        assertEquals("c", result("c"));
+    }
+
+    @Test
+    public void single() {
+        dispatcher.push(StaticDmrResponse.ok(new ModelNode().set("a")));
+        read("a", READ_RESOURCE_OPERATION);
+        flush();
+
+        // a single operation is not wrapped
+        assertEquals(1, sent.size());
+        assertEquals(READ_RESOURCE_OPERATION, sent.get(0).get(OP).asString());
+        assertEquals("a", result("a"));
+    }
+
+    @Test
+    public void failedStep() {
+        // results are popped from a stack: the single execution of "b" comes last
+        dispatcher.push(StaticDmrResponse.failure("b failed"));
+        dispatcher.push(StaticDmrResponse.ok(compositeResult(success("a"), failed("b failed"), success("c"))));
+        read("a", READ_RESOURCE_OPERATION);
+        read("b", READ_RESOURCE_OPERATION);
+        read("c", READ_RESOURCE_OPERATION);
+        flush();
+
+        // only the failed step is executed again on its own
+        assertEquals(2, sent.size());
+        assertEquals(READ_RESOURCE_OPERATION, sent.get(1).get(OP).asString());
+        assertEquals("b", address(sent.get(1)));
+        assertEquals("a", result("a"));
+        assertEquals("c", result("c"));
+        ModelNode b = ((DMRResponse) results.get("b")).get();
+        assertTrue(b.isFailure());
+        assertEquals("b failed", b.getFailureDescription());
+    }
+
+    @Test
+    public void failedComposite() {
+        // a failed step fails the whole composite with HTTP 500
+        compositeFailure = new DispatchError("Internal Server Error", 500);
+        dispatcher.push(StaticDmrResponse.ok(new ModelNode().set("c")));
+        dispatcher.push(StaticDmrResponse.failure("b failed"));
+        dispatcher.push(StaticDmrResponse.ok(new ModelNode().set("a")));
+        read("a", READ_RESOURCE_OPERATION);
+        read("b", READ_RESOURCE_OPERATION);
+        read("c", READ_RESOURCE_OPERATION);
+        flush();
+
+        // all operations are executed again one by one
+        assertEquals(4, sent.size());
+        assertEquals("a", address(sent.get(1)));
+        assertEquals("b", address(sent.get(2)));
+        assertEquals("c", address(sent.get(3)));
+        assertEquals("a", result("a"));
+        assertTrue(((DMRResponse) results.get("b")).get().isFailure());
+        assertEquals("c", result("c"));
+    }
+
+    @Test
+    public void unavailable() {
+        DispatchError error = new DispatchError("Service Unavailable", 503);
+        compositeFailure = error;
+        read("a", READ_RESOURCE_OPERATION);
+        read("b", READ_RESOURCE_OPERATION);
+        flush();
+
+        // any other failure is passed to all callers
+        assertEquals(1, sent.size());
+        assertSame(error, results.get("a"));
+        assertSame(error, results.get("b"));
+    }
+
+    @Test
+    public void flushBeforeNonBatchable() {
+        dispatcher.push(StaticDmrResponse.ok(new ModelNode()));
+        dispatcher.push(StaticDmrResponse.ok(compositeResult(success("a"), success("b"))));
+        read("a", READ_RESOURCE_OPERATION);
+        read("b", READ_RESOURCE_OPERATION);
+        read("c", WRITE_ATTRIBUTE_OPERATION);
+
+        // the pending reads are sent before the write
+        assertEquals(2, sent.size());
+        assertEquals(COMPOSITE, sent.get(0).get(OP).asString());
+        assertEquals(WRITE_ATTRIBUTE_OPERATION, sent.get(1).get(OP).asString());
+        assertEquals("a", result("a"));
+        assertEquals("b", result("b"));
+
+        flush();
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void operationHeaders() {
+        dispatcher.push(StaticDmrResponse.ok(new ModelNode().set("a")));
+        ModelNode operation = operation("a", READ_RESOURCE_OPERATION);
+        operation.get("operation-headers").get("roles").set("Monitor");
+        batching.execute(new DMRAction(operation), callback("a"));
+
+        // operations with headers are never batched
+        assertEquals(1, sent.size());
+        assertEquals("a", result("a"));
+    }
+
+    @Test
+    public void cancel() {
+        dispatcher.push(StaticDmrResponse.ok(compositeResult(success("a"), success("c"))));
+        read("a", READ_RESOURCE_OPERATION);
+        DispatchRequest b = read("b", READ_RESOURCE_OPERATION);
+        read("c", READ_RESOURCE_OPERATION);
+        b.cancel();
+        assertFalse(b.isPending());
+        flush();
+
+        assertEquals(2, sent.get(0).get(STEPS).asList().size());
+        assertFalse(results.containsKey("b"));
+        assertEquals("c", result("c"));
+    }
+
+    @Test
+    public void maxBatchSize() {
+        ModelNode[] steps = new ModelNode[25];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = success(String.valueOf(i));
+        }
+        dispatcher.push(StaticDmrResponse.ok(compositeResult(steps)));
+        for (int i = 0; i < steps.length; i++) {
+            read(String.valueOf(i), READ_RESOURCE_OPERATION);
+        }
+
+        // a full batch is sent right away
+        assertEquals(1, sent.size());
+        assertEquals(25, sent.get(0).get(STEPS).asList().size());
+        assertEquals("24", result("24"));
+    }
+
+
+    // ------------------------------------------------------ helpers
+
+    private DispatchRequest read(String name, String operation) {
+        return batching.execute(new DMRAction(operation(name, operation)), callback(name));
+    }
+
+    private AsyncCallback<DMRResponse> callback(final String name) {
+        return new AsyncCallback<DMRResponse>() {
+            @Override
+            public void onFailure(Throwable caught) {
+                assertNull("duplicate callback for " + name, results.put(name, caught));
+            }
+
+            @Override
+            public void onSuccess(DMRResponse response) {
+                assertNull("duplicate callback for " + name, results.put(name, response));
+            }
+        };
+    }
+
+    private String result(String name) {
+        Object result = results.get(name);
+        assertTrue("no response for " + name + ": " + result, result instanceof DMRResponse);
+        ModelNode response = ((DMRResponse) result).get();
+        assertEquals(SUCCESS, response.get(OUTCOME).asString());
+        return response.get(RESULT).asString();
+    }
+
+    private void flush() {
+        while (!deferred.isEmpty()) {
+            deferred.removeFirst().execute();
+        }
+    }
+
+    private static ModelNode operation(String name, String operation) {
+        ModelNode node = new ModelNode();
+        node.get(OP).set(operation);
+        node.get(ADDRESS).add("subsystem", name);
+        return node;
+    }
+
+    private static String address(ModelNode operation) {
+        return operation.get(ADDRESS).asList().get(0).get("subsystem").asString();
+    }
+
+    private static ModelNode success(String result) {
+        ModelNode step = new ModelNode();
+        step.get(OUTCOME).set(SUCCESS);
+        step.get(RESULT).set(result);
+        return step;
+    }
+
+    private static ModelNode failed(String description) {
+        ModelNode step = new ModelNode();
+        step.get(OUTCOME).set(FAILED);
+        step.get(FAILURE_DESCRIPTION).set(description);
+        return step;
+    }
+
+    private static ModelNode compositeResult(ModelNode... steps) {
+        ModelNode result = new ModelNode();
+        for (int i = 0; i < steps.length; i++) {
+            result.get("step-" + (i + 1)).set(steps[i]);
+        }
+        return result;
+    }
+
+
+    /**
+     * Collects deferred commands, which are executed by {@link #flush()}.
+     */
+    private class DeferredScheduler extends Scheduler {
+
+        @Override
+        public void scheduleDeferred(ScheduledCommand command) {
+            deferred.add(command);
+        }
+
+        @Override
+        public void scheduleEntry(ScheduledCommand command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @Deprecated
+        public void scheduleEntry(RepeatingCommand command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void scheduleFinally(ScheduledCommand command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @Deprecated
+        public void scheduleFinally(RepeatingCommand command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void scheduleFixedDelay(RepeatingCommand command, int delay) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void scheduleFixedPeriod(RepeatingCommand command, int period) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void scheduleIncremental(RepeatingCommand command) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.jboss.dmr.client.dispatch.impl;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.http.client.Header;
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import org.jboss.dmr.client.ModelNode;
+import org.jboss.dmr.client.dispatch.Diagnostics;
+import org.jboss.dmr.client.dispatch.DispatchError;
+import org.jboss.dmr.client.dispatch.DispatchRequest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.jboss.dmr.client.ModelDescriptionConstants.*;
+import static org.junit.Assert.*;
+
+public class DMRHandlerTest {
+
+    private List<RequestCallback> sent;
+    private Map<String, String> properties;
+    private DMRHandler handler;
+
+
+    // ------------------------------------------------------ setup
+
+    @Before
+    public void setUp() {
+        sent = new ArrayList<>();
+        properties = new HashMap<>();
+        handler = new DMRHandler(new NoDiagnostics(), new LocalEndpoint(), new IgnoringScheduler()) {
+            @Override
+            Request send(RequestBuilder requestBuilder) {
+                // the request stays on the wire until the test answers it
+                sent.add(requestBuilder.getCallback());
+                return null;
+            }
+        };
+    }
+
+
+    // ------------------------------------------------------ tests
+
+    @Test
+    public void joinIdenticalReads() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        Recorder third = new Recorder();
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), first, properties);
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), second, properties);
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), third, properties);
+        assertEquals(1, sent.size());
+
+        respond(0, 200, success("a"));
+        assertEquals(1, first.responses.size());
+        assertEquals(1, second.responses.size());
+        assertEquals(1, third.responses.size());
+
+        // every subscriber gets its own copy
+        DMRResponse response = first.responses.get(0);
+        assertNotSame(response, second.responses.get(0));
+        assertNotSame(response, third.responses.get(0));
+        assertNotSame(second.responses.get(0), third.responses.get(0));
+        assertEquals(response.getResponseText(), second.responses.get(0).getResponseText());
+        assertEquals(response.getResponseText(), third.responses.get(0).getResponseText());
+    }
+
+    @Test
+    public void differentReads() {
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), new Recorder(), properties);
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "b")), new Recorder(), properties);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void differentRoles() {
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), new Recorder(), properties);
+        properties.put("run_as", "Monitor");
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), new Recorder(), properties);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void releaseOnSuccess() {
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), new Recorder(), properties);
+        respond(0, 200, success("a"));
+
+        // the response is not cached, so the next read opens a new request
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), new Recorder(), properties);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void releaseOnFailure() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), first, properties);
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), second, properties);
+        respond(0, 503, "");
+
+        assertEquals(1, first.failures.size());
+        assertEquals(1, second.failures.size());
+        assertEquals(503, ((DispatchError) first.failures.get(0)).getStatusCode());
+        assertTrue(first.responses.isEmpty());
+
+        Recorder retry = new Recorder();
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), retry, properties);
+        assertEquals(2, sent.size());
+        respond(1, 200, success("a"));
+        assertEquals(1, retry.responses.size());
+        assertEquals(1, first.failures.size());
+    }
+
+    @Test
+    public void releaseOnError() {
+        Recorder first = new Recorder();
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), first, properties);
+        sent.get(0).onError(null, new RuntimeException("network"));
+        assertEquals(1, first.failures.size());
+
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), new Recorder(), properties);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void skipWrites() {
+        handler.execute(new DMRAction(op(WRITE_ATTRIBUTE_OPERATION, "subsystem", "a")), new Recorder(), properties);
+        handler.execute(new DMRAction(op(WRITE_ATTRIBUTE_OPERATION, "subsystem", "a")), new Recorder(), properties);
+        assertEquals(2, sent.size());
+
+        handler.execute(new DMRAction(composite(op(READ_RESOURCE_OPERATION, "subsystem", "a"),
+                op(ADD, "subsystem", "b"))), new Recorder(), properties);
+        handler.execute(new DMRAction(composite(op(READ_RESOURCE_OPERATION, "subsystem", "a"),
+                op(ADD, "subsystem", "b"))), new Recorder(), properties);
+        assertEquals(4, sent.size());
+    }
+
+    @Test
+    public void writeDetachesPendingReads() {
+        Recorder before = new Recorder();
+        Recorder other = new Recorder();
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), before, properties);
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "b")), other, properties);
+        handler.execute(new DMRAction(op(WRITE_ATTRIBUTE_OPERATION, "subsystem", "a")), new Recorder(), properties);
+        assertEquals(3, sent.size());
+
+        // a read issued after the write must not see the state from before the write
+        Recorder after = new Recorder();
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), after, properties);
+        assertEquals(4, sent.size());
+
+        // ... while unaffected reads are still joined
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "b")), new Recorder(), properties);
+        assertEquals(4, sent.size());
+
+        // the detached request still serves its subscribers
+        respond(0, 200, success("before"));
+        assertEquals(1, before.responses.size());
+        assertTrue(after.responses.isEmpty());
+    }
+
+    @Test
+    public void cancelSubscriber() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        DispatchRequest handle = handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")),
+                first, properties);
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), second, properties);
+
+        handle.cancel();
+        respond(0, 200, success("a"));
+        assertTrue(first.responses.isEmpty());
+        assertEquals(1, second.responses.size());
+    }
+
+    @Test
+    public void cancelAllSubscribers() {
+        DispatchRequest first = handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")),
+                new Recorder(), properties);
+        DispatchRequest second = handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")),
+                new Recorder(), properties);
+        first.cancel();
+        second.cancel();
+
+        // the abandoned request is no longer joined
+        handler.execute(new DMRAction(op(READ_RESOURCE_OPERATION, "subsystem", "a")), new Recorder(), properties);
+        assertEquals(2, sent.size());
+    }
+
+
+    // ------------------------------------------------------ helpers
+
+    private void respond(int index, int status, String text) {
+        sent.get(index).onResponseReceived(null, new StaticResponse(status, text));
+    }
+
+    private static String success(String result) {
+        ModelNode response = new ModelNode();
+        response.get(OUTCOME).set(SUCCESS);
+        response.get(RESULT).set(result);
+        return response.toBase64String();
+    }
+
+    private static ModelNode op(String name, String... address) {
+        ModelNode op = new ModelNode();
+        op.get(OP).set(name);
+        op.get(ADDRESS).setEmptyList();
+        for (int i = 0; i < address.length; i += 2) {
+            op.get(ADDRESS).add(address[i], address[i + 1]);
+        }
+        return op;
+    }
+
+    private static ModelNode composite(ModelNode... steps) {
+        ModelNode composite = op(COMPOSITE);
+        composite.get(STEPS).setEmptyList();
+        for (ModelNode step : steps) {
+            composite.get(STEPS).add(step);
+        }
+        return composite;
+    }
+
+    private static class Recorder implements AsyncCallback<DMRResponse> {
+
+        final List<DMRResponse> responses = new ArrayList<>();
+        final List<Throwable> failures = new ArrayList<>();
+
+        @Override
+        public void onSuccess(DMRResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onFailure(Throwable caught) {
+            failures.add(caught);
+        }
+    }
+
+    private static class StaticResponse extends Response {
+
+        private final int status;
+        private final String text;
+
+        StaticResponse(int status, String text) {
+            this.status = status;
+            this.text = text;
+        }
+
+        @Override
+        public String getHeader(String header) {
+            return "Content-Type".equals(header) ? "application/dmr-encoded" : null;
+        }
+
+        @Override
+        public Header[] getHeaders() {
+            return new Header[0];
+        }
+
+        @Override
+        public String getHeadersAsString() {
+            return "";
+        }
+
+        @Override
+        public int getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public String getStatusText() {
+            return String.valueOf(status);
+        }
+
+        @Override
+        public String getText() {
+            return text;
+        }
+    }
+
+    private static class NoDiagnostics implements Diagnostics {
+
+        @Override
+        public void logError(String module, double millis, String errMsg) {
+        }
+
+        @Override
+        public void logRpc(String type, String id, double millis, String method) {
+        }
+
+        @Override
+        public void logRpc(String type, String id, double millis) {
+        }
+
+        @Override
+        public void logEvent(String moduleName, String subSystem, String eventGroup, double millis, String type) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    }
+
+    private static class LocalEndpoint implements DMREndpointConfig {
+
+        @Override
+        public String getUrl() {
+            return "http://localhost:9990/management";
+        }
+
+        @Override
+        public String getUploadUrl() {
+            return "http://localhost:9990/management/add-content";
+        }
+    }
+
+    /**
+     * Drops the deferred resource access logging, which needs a browser.
+     */
+    private static class IgnoringScheduler extends Scheduler {
+
+        @Override
+        public void scheduleDeferred(ScheduledCommand command) {
+        }
+
+        @Override
+        public void scheduleEntry(ScheduledCommand command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @Deprecated
+        public void scheduleEntry(RepeatingCommand command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void scheduleFinally(ScheduledCommand command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @Deprecated
+        public void scheduleFinally(RepeatingCommand command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void scheduleFixedDelay(RepeatingCommand command, int delay) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void scheduleFixedPeriod(RepeatingCommand command, int period) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void scheduleIncremental(RepeatingCommand command) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
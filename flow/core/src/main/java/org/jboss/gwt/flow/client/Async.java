@@ -20,9 +20,21 @@ package org.jboss.gwt.flow.client;
 
 import com.google.gwt.core.client.Scheduler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Flow control functions for GWT.
  * Integrates with the default GWT scheduling mechanism.
+ * <p>
+ * {@link #series(Outcome, Function[])}, {@link #waterfall(Object, Outcome, Function[])} and
+ * {@link #parallel(Object, Outcome, Function[])} are driven by {@link Control#proceed()} and {@link Control#abort()}:
+ * the next function or the outcome is triggered directly by the control. Nothing runs while the flow waits for a
+ * function to complete. As before, the first function(s) are started deferred, i.e. not from within the call which
+ * sets up the flow, and the outcome is always called deferred.
+ * <p>
+ * These methods return a {@link FlowHandle} which can be used to cancel the flow, e.g. when the user navigates away.
+ * Use {@link #timeout(int)} to abort a flow if a single function does not complete in time.
  *
  * @author Heiko Braun
  */
@@ -30,13 +42,23 @@ public class Async<C> {
 
     private final static Object EMPTY_CONTEXT = new Object();
     private final Progress progress;
+    private final Scheduler scheduler;
+    private int timeout;
 
     public Async() {
         this(new Progress.Nop());
     }
 
     public Async(final Progress progress) {
+        this(progress, Scheduler.get());
+    }
+
+    /**
+     * Creates a flow which uses the specified scheduler instead of {@link Scheduler#get()}, e.g. in unit tests.
+     */
+    public Async(final Progress progress, final Scheduler scheduler) {
         this.progress = progress;
+        this.scheduler = scheduler;
     }
 
     /**
@@ -49,14 +71,27 @@ public class Async<C> {
         function.execute(ctrl);
     }
 
+    /**
+     * Sets a timeout for each function executed by {@link #series(Outcome, Function[])},
+     * {@link #waterfall(Object, Outcome, Function[])} and {@link #parallel(Object, Outcome, Function[])}. If a
+     * function neither proceeds nor aborts within the timeout, the work it registered is cancelled and the flow is
+     * aborted.
+     *
+     * @param timeout the timeout in ms, 0 (the default) means no timeout
+     */
+    public Async<C> timeout(final int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
     /**
      * Run an array of functions in series, each one running once the previous function has completed.
      * If any functions in the series pass an error to its callback,
      * no more functions are run and outcome for the series is immediately called with the value of the error.
      */
     @SuppressWarnings("unchecked")
-    public void series(final Outcome outcome, final Function... functions) {
-        _series(null, outcome, functions);  // generic signature problem, hence null
+    public FlowHandle series(final Outcome outcome, final Function... functions) {
+        return _series(null, outcome, functions);  // generic signature problem, hence null
     }
 
     /**
@@ -65,50 +100,22 @@ public class Async<C> {
      * the next function is not executed and the outcome is immediately called with the error.
      */
     @SafeVarargs
-    public final void waterfall(final C context, final Outcome<C> outcome, final Function<C>... functions) {
-        _series(context, outcome, functions);
+    public final FlowHandle waterfall(final C context, final Outcome<C> outcome, final Function<C>... functions) {
+        return _series(context, outcome, functions);
     }
 
     @SafeVarargs
     @SuppressWarnings("unchecked")
-    private final void _series(C context, final Outcome<C> outcome, final Function<C>... functions) {
+    private final FlowHandle _series(C context, final Outcome<C> outcome, final Function<C>... functions) {
         final C finalContext = context != null ? context : (C) EMPTY_CONTEXT;
-        final SequentialControl ctrl = new SequentialControl(finalContext, functions);
+        final SequentialControl ctrl = new SequentialControl(finalContext, outcome, functions);
 
         // reset progress
         progress.reset(functions.length);
 
-        // select first function and start
-        ctrl.proceed();
-        Scheduler.get().scheduleIncremental(new Scheduler.RepeatingCommand() {
-            @Override
-            public boolean execute() {
-                if (ctrl.isDrained()) {
-                    // schedule deferred so that 'return false' executes first!
-                    Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
-                        @Override
-                        public void execute() {
-                            progress.finish();
-                            outcome.onSuccess(finalContext);
-                        }
-                    });
-                    return false;
-                } else if (ctrl.isAborted()) {
-                    // schedule deferred so that 'return false' executes first!
-                    Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
-                        @Override
-                        public void execute() {
-                            progress.finish();
-                            outcome.onFailure(finalContext);
-                        }
-                    });
-                    return false;
-                } else {
-                    ctrl.nextUnlessPending();
-                    return true;
-                }
-            }
-        });
+        // execute the first function, the others are triggered by Control.proceed()
+        ctrl.start();
+        return ctrl;
     }
 
     /**
@@ -117,38 +124,25 @@ public class Async<C> {
      * error.
      */
     @SuppressWarnings("unchecked")
-    public void parallel(C context, final Outcome<C> outcome, final Function<C>... functions) {
+    public FlowHandle parallel(C context, final Outcome<C> outcome, final Function<C>... functions) {
+        return parallel(context, outcome, 0, functions);
+    }
+
+    /**
+     * Same as {@link #parallel(Object, Outcome, Function[])}, but executes at most {@code maxConcurrency} functions
+     * at the same time. The next function is started as soon as a running function has completed. If a function
+     * aborts, no more functions are started.
+     *
+     * @param maxConcurrency the maximum number of functions running at the same time, 0 means no limit
+     */
+    @SuppressWarnings("unchecked")
+    public FlowHandle parallel(C context, final Outcome<C> outcome, final int maxConcurrency,
+            final Function<C>... functions) {
         final C finalContext = context != null ? context : (C) EMPTY_CONTEXT;
-        final CountingControl ctrl = new CountingControl(finalContext, functions);
+        final CountingControl ctrl = new CountingControl(finalContext, outcome, maxConcurrency, functions);
         progress.reset(functions.length);
-
-        Scheduler.get().scheduleIncremental(new Scheduler.RepeatingCommand() {
-            @Override
-            public boolean execute() {
-                if (ctrl.isAborted() || ctrl.allFinished()) {
-                    // schedule deferred so that 'return false' executes first!
-                    Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
-                        @Override
-                        @SuppressWarnings("unchecked")
-                        public void execute() {
-                            if (ctrl.isAborted()) {
-                                progress.finish();
-                                outcome.onFailure(finalContext);
-                            } else {
-                                progress.finish();
-                                outcome.onSuccess(finalContext);
-                            }
-
-                        }
-                    });
-                    return false;
-                } else {
-                    // one after the other until all are active
-                    ctrl.next();
-                    return true;
-                }
-            }
-        });
+        ctrl.start();
+        return ctrl;
     }
 
     /**
@@ -174,7 +168,7 @@ public class Async<C> {
             public boolean execute() {
                 if (!ctrl.shouldProceed()) {
                     // schedule deferred so that 'return false' executes first!
-                    Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
+                    scheduler.scheduleDeferred(new Scheduler.ScheduledCommand() {
                         @Override
                         public void execute() {
                             if (ctrl.isAborted()) {
@@ -196,9 +190,9 @@ public class Async<C> {
         };
 
         if (period > 100) {
-            Scheduler.get().scheduleFixedPeriod(repeatingCommand, period);
+            scheduler.scheduleFixedPeriod(repeatingCommand, period);
         } else {
-            Scheduler.get().scheduleIncremental(repeatingCommand);
+            scheduler.scheduleIncremental(repeatingCommand);
         }
     }
 
@@ -230,117 +224,290 @@ public class Async<C> {
         }
     }
 
-    private class SequentialControl implements Control<C> {
+    /**
+     * Common base of series / waterfall and parallel flows. Each function gets its own {@link FunctionControl}, so
+     * that late or duplicate calls can be ignored and timeouts and cancellation can be applied per function.
+     */
+    private abstract class FlowControl implements FlowHandle {
 
-        private final C context;
-        private final Function<C>[] functions;
-        private Function<C> next;
-        private int index;
-        private boolean drained;
-        private boolean aborted;
-        private boolean pending;
+        final C context;
+        private final Outcome<C> outcome;
+        private final List<FunctionControl> running;
+        boolean finished;
+        boolean cancelled;
 
-        @SafeVarargs
-        SequentialControl(final C context, final Function<C>... functions) {
+        FlowControl(final C context, final Outcome<C> outcome) {
             this.context = context;
-            this.functions = functions;
+            this.outcome = outcome;
+            this.running = new ArrayList<FunctionControl>();
+        }
+
+        /**
+         * Starts the flow deferred, so that the caller has finished setting up the flow (e.g. stored the handle)
+         * before the first function is executed.
+         */
+        void start() {
+            scheduler.scheduleDeferred(new Scheduler.ScheduledCommand() {
+                @Override
+                public void execute() {
+                    if (!finished) {
+                        onStart();
+                    }
+                }
+            });
+        }
+
+        abstract void onStart();
+
+        void execute(final Function<C> function) {
+            FunctionControl control = new FunctionControl(this);
+            running.add(control);
+            control.startTimeout();
+            function.execute(control);
+        }
+
+        abstract void onProceed();
+
+        void onCompleted(FunctionControl control, boolean success) {
+            running.remove(control);
+            if (success) {
+                progress.tick();
+                onProceed();
+            } else {
+                finish(false);
+            }
+        }
+
+        /**
+         * Calls the outcome deferred, so that it's never called from within the function which completed the flow.
+         */
+        void finish(final boolean success) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            scheduler.scheduleDeferred(new Scheduler.ScheduledCommand() {
+                @Override
+                public void execute() {
+                    if (cancelled) {
+                        return;
+                    }
+                    progress.finish();
+                    if (success) {
+                        outcome.onSuccess(context);
+                    } else {
+                        outcome.onFailure(context);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            finished = true;
+            for (FunctionControl control : new ArrayList<FunctionControl>(running)) {
+                control.cancelRegistered();
+            }
+            running.clear();
+            progress.finish();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+    }
+
+    private class FunctionControl implements Control<C> {
+
+        private final FlowControl flow;
+        private List<Cancellable> registered;
+        private boolean done;
+
+        FunctionControl(final FlowControl flow) {
+            this.flow = flow;
         }
 
         @Override
         public C getContext() {
-            return context;
+            return flow.context;
         }
 
         @Override
         public void proceed() {
-            if (index > 0) {
-                // start ticking *after* the first function has finished
-                progress.tick();
-            }
-            if (index >= functions.length) {
-                next = null;
-                drained = true;
-            } else {
-                next = functions[index];
-                index++;
-            }
-            this.pending = false;
+            complete(true);
         }
 
         @Override
         public void abort() {
-            this.aborted = true;
-            this.pending = false;
+            complete(false);
         }
 
-        public boolean isAborted() {
-            return aborted;
+        private void complete(boolean success) {
+            if (!done && !flow.finished) {
+                done = true;
+                flow.onCompleted(this, success);
+            }
+        }
+
+        @Override
+        public void register(final Cancellable cancellable) {
+            if (flow.cancelled) {
+                cancellable.cancel();
+            } else if (!done) {
+                if (registered == null) {
+                    registered = new ArrayList<Cancellable>();
+                }
+                registered.add(cancellable);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return flow.cancelled;
         }
 
-        public boolean isDrained() {
-            return drained;
+        void startTimeout() {
+            if (timeout > 0) {
+                scheduler.scheduleFixedDelay(new Scheduler.RepeatingCommand() {
+                    @Override
+                    public boolean execute() {
+                        if (!done && !flow.finished) {
+                            cancelRegistered();
+                            abort();
+                        }
+                        return false;
+                    }
+                }, timeout);
+            }
         }
 
-        public void nextUnlessPending() {
-            if (!pending) {
-                pending = true;
-                next.execute(this);
+        void cancelRegistered() {
+            if (registered != null) {
+                for (Cancellable cancellable : registered) {
+                    cancellable.cancel();
+                }
+                registered = null;
             }
         }
     }
 
-    private class CountingControl implements Control<C> {
+    private class SequentialControl extends FlowControl {
 
-        private final C context;
         private final Function<C>[] functions;
-        protected boolean aborted;
+        private Function<C> scheduled;
         private int index;
-        private int finished;
+        private boolean executing;
 
         @SafeVarargs
-        CountingControl(final C context, Function<C>... functions) {
-            this.context = context;
+        SequentialControl(final C context, final Outcome<C> outcome, final Function<C>... functions) {
+            super(context, outcome);
             this.functions = functions;
         }
 
         @Override
-        public C getContext() {
-            return context;
+        void onStart() {
+            next();
         }
 
-        @SuppressWarnings("unchecked")
-        public void next() {
-            if (index < functions.length) {
-                functions[index].execute(this);
-                index++;
-            }
+        @Override
+        void onProceed() {
+            next();
         }
 
-        @Override
-        public void proceed() {
-            if (index > 0) {
-                // start ticking *after* the first function has finished
-                progress.tick();
+        void next() {
+            if (finished) {
+                return;
+            }
+            if (index >= functions.length) {
+                finish(true);
+                return;
+            }
+            Function<C> next = functions[index];
+            index++;
+
+            if (executing) {
+                // proceed() was called synchronously from within the current function:
+                // let the loop below pick up the next function instead of growing the stack
+                scheduled = next;
+            } else {
+                executing = true;
+                try {
+                    while (next != null && !finished) {
+                        scheduled = null;
+                        execute(next);
+                        next = scheduled;
+                    }
+                } finally {
+                    executing = false;
+                }
             }
-            increment();
         }
+    }
+
+    private class CountingControl extends FlowControl {
 
-        private void increment() {
-            ++finished;
+        private final Function<C>[] functions;
+        private final int maxConcurrency;
+        private int index;
+        private int active;
+        private int completed;
+        private boolean filling;
+
+        @SafeVarargs
+        CountingControl(final C context, final Outcome<C> outcome, final int maxConcurrency,
+                Function<C>... functions) {
+            super(context, outcome);
+            this.functions = functions;
+            this.maxConcurrency = maxConcurrency > 0 ? maxConcurrency : Integer.MAX_VALUE;
         }
 
         @Override
-        public void abort() {
-            increment();
-            aborted = true;
+        void onStart() {
+            fill();
         }
 
-        public boolean isAborted() {
-            return aborted;
+        /**
+         * Starts functions until the concurrency limit is reached. Functions which complete synchronously are
+         * replaced within the same loop.
+         */
+        void fill() {
+            if (functions.length == 0) {
+                finish(true);
+                return;
+            }
+            if (filling) {
+                return;
+            }
+            filling = true;
+            try {
+                while (!finished && active < maxConcurrency && index < functions.length) {
+                    active++;
+                    execute(functions[index++]);
+                }
+            } finally {
+                filling = false;
+            }
         }
 
-        public boolean allFinished() {
-            return finished >= functions.length;
+        @Override
+        void onProceed() {
+            active--;
+            completed++;
+            if (completed >= functions.length) {
+                finish(true);
+            } else {
+                fill();
+            }
         }
     }
 
@@ -30,4 +30,19 @@ public interface Control<C> {
     void abort();
 
     C getContext();
+
+    /**
+     * Registers pending work of the current function (e.g. a {@code DispatchRequest}) which is cancelled if the flow
+     * is cancelled or the function times out. If the flow has already been cancelled, the work is cancelled right
+     * away.
+     */
+    default void register(Cancellable cancellable) {
+    }
+
+    /**
+     * @return {@code true} if the flow has been cancelled. Long running functions can use this to stop early.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
 }
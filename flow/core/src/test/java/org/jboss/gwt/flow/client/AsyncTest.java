@@ -0,0 +1,465 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.jboss.gwt.flow.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("unchecked")
+public class AsyncTest {
+
+    private ManualScheduler scheduler;
+    private Async<List<String>> async;
+    private List<String> log;
+    private Map<String, Control<List<String>>> pending;
+    private RecordingOutcome outcome;
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        async = new Async<>(new Progress.Nop(), scheduler);
+        log = new ArrayList<>();
+        pending = new HashMap<>();
+        outcome = new RecordingOutcome();
+    }
+
+
+    // ------------------------------------------------------ series / waterfall
+
+    @Test
+    public void waterfall() {
+        async.waterfall(log, outcome, proceed("a"), deferred("b"), proceed("c"));
+
+        // started deferred
+        assertTrue(log.isEmpty());
+        scheduler.flush();
+        assertEquals(asList("a", "b", "b done", "c"), log);
+        outcome.assertSucceeded();
+    }
+
+    @Test
+    public void waterfallPending() {
+        async.waterfall(log, outcome, pending("a"), pending("b"));
+        scheduler.flush();
+        assertEquals(asList("a"), log);
+
+        pending.get("a").proceed();
+        assertEquals(asList("a", "b"), log);
+        pending.get("b").proceed();
+
+        // the outcome is called deferred
+        outcome.assertPending();
+        scheduler.flush();
+        outcome.assertSucceeded();
+    }
+
+    @Test
+    public void waterfallManyFunctions() {
+        Function<List<String>>[] functions = new Function[10000];
+        Arrays.fill(functions, proceed("x"));
+        async.waterfall(log, outcome, functions);
+        scheduler.flush();
+
+        // functions which proceed synchronously must not grow the stack
+        assertEquals(10000, log.size());
+        outcome.assertSucceeded();
+    }
+
+    @Test
+    public void series() {
+        async.series(outcome, proceed("a"), proceed("b"));
+        scheduler.flush();
+        assertEquals(asList("a", "b"), log);
+        outcome.assertSucceeded();
+    }
+
+    @Test
+    public void waterfallAbort() {
+        async.waterfall(log, outcome, proceed("a"), abort("b"), proceed("c"));
+        scheduler.flush();
+        assertEquals(asList("a", "b"), log);
+        outcome.assertFailed();
+    }
+
+    @Test
+    public void waterfallAbortPending() {
+        async.waterfall(log, outcome, pending("a"), proceed("b"));
+        scheduler.flush();
+        pending.get("a").abort();
+        scheduler.flush();
+
+        assertEquals(asList("a"), log);
+        outcome.assertFailed();
+    }
+
+    @Test
+    public void waterfallEmpty() {
+        async.waterfall(log, outcome);
+        scheduler.flush();
+        outcome.assertSucceeded();
+    }
+
+
+    // ------------------------------------------------------ parallel
+
+    @Test
+    public void parallel() {
+        async.parallel(log, outcome, pending("a"), pending("b"), pending("c"));
+        assertTrue(log.isEmpty());
+        scheduler.flush();
+
+        // all functions are started before any of them completes
+        assertEquals(asList("a", "b", "c"), log);
+        pending.get("c").proceed();
+        pending.get("a").proceed();
+        scheduler.flush();
+        outcome.assertPending();
+
+        pending.get("b").proceed();
+        scheduler.flush();
+        outcome.assertSucceeded();
+    }
+
+    @Test
+    public void parallelMaxConcurrency() {
+        async.parallel(log, outcome, 2, pending("a"), pending("b"), pending("c"), pending("d"));
+        scheduler.flush();
+        assertEquals(asList("a", "b"), log);
+
+        pending.get("b").proceed();
+        assertEquals(asList("a", "b", "c"), log);
+        pending.get("a").proceed();
+        assertEquals(asList("a", "b", "c", "d"), log);
+
+        pending.get("d").proceed();
+        pending.get("c").proceed();
+        scheduler.flush();
+        outcome.assertSucceeded();
+    }
+
+    @Test
+    public void parallelSynchronous() {
+        async.parallel(log, outcome, 1, proceed("a"), proceed("b"), proceed("c"));
+        scheduler.flush();
+        assertEquals(asList("a", "b", "c"), log);
+        outcome.assertSucceeded();
+    }
+
+    @Test
+    public void parallelAbort() {
+        async.parallel(log, outcome, pending("a"), pending("b"));
+        scheduler.flush();
+        pending.get("a").abort();
+        pending.get("b").proceed();
+        scheduler.flush();
+        outcome.assertFailed();
+    }
+
+    @Test
+    public void parallelAbortStopsTheRest() {
+        async.parallel(log, outcome, 1, abort("a"), proceed("b"), proceed("c"));
+        scheduler.flush();
+        assertEquals(asList("a"), log);
+        outcome.assertFailed();
+    }
+
+    @Test
+    public void parallelEmpty() {
+        async.parallel(log, outcome);
+        scheduler.flush();
+        outcome.assertSucceeded();
+    }
+
+
+    // ------------------------------------------------------ whilst
+
+    @Test
+    public void whilst() {
+        async.whilst(new Precondition() {
+            @Override
+            public boolean isMet() {
+                return log.size() < 3;
+            }
+        }, outcome, proceed("a"));
+        scheduler.flush();
+        assertEquals(asList("a", "a", "a"), log);
+        outcome.assertSucceeded();
+    }
+
+    @Test
+    public void whilstAbort() {
+        async.whilst(new Precondition() {
+            @Override
+            public boolean isMet() {
+                return log.size() < 5;
+            }
+        }, outcome, new Function<List<String>>() {
+            @Override
+            public void execute(Control<List<String>> control) {
+                log.add("a");
+                if (log.size() == 2) {
+                    control.abort();
+                }
+            }
+        });
+        scheduler.flush();
+        assertEquals(asList("a", "a"), log);
+        outcome.assertFailed();
+    }
+
+
+    // ------------------------------------------------------ timeout
+
+    @Test
+    public void timeout() {
+        Cancelled request = new Cancelled();
+        async.timeout(100).waterfall(log, outcome, pending("a", request), proceed("b"));
+        scheduler.flush();
+
+        scheduler.advance(99);
+        outcome.assertPending();
+        scheduler.advance(1);
+        assertTrue(request.cancelled);
+        outcome.assertFailed();
+
+        // late callbacks are ignored
+        pending.get("a").proceed();
+        pending.get("a").abort();
+        scheduler.advance(1000);
+        assertEquals(asList("a"), log);
+        outcome.assertFailed();
+    }
+
+    @Test
+    public void timeoutParallel() {
+        Cancelled request = new Cancelled();
+        async.timeout(100).parallel(log, outcome, pending("a"), pending("b", request));
+        scheduler.flush();
+        scheduler.advance(50);
+        pending.get("a").proceed();
+
+        scheduler.advance(50);
+        assertTrue(request.cancelled);
+        outcome.assertFailed();
+
+        pending.get("b").proceed();
+        scheduler.advance(1000);
+        outcome.assertFailed();
+    }
+
+    @Test
+    public void noTimeout() {
+        Cancelled request = new Cancelled();
+        async.timeout(100).waterfall(log, outcome, pending("a", request), pending("b"));
+        scheduler.flush();
+        scheduler.advance(90);
+        pending.get("a").proceed();
+        scheduler.advance(90);
+        pending.get("b").proceed();
+
+        // the timeouts of completed functions don't fire
+        scheduler.advance(1000);
+        assertFalse(request.cancelled);
+        outcome.assertSucceeded();
+    }
+
+
+    // ------------------------------------------------------ cancel
+
+    @Test
+    public void cancel() {
+        Cancelled request = new Cancelled();
+        FlowHandle handle = async.waterfall(log, outcome, pending("a", request), proceed("b"));
+        scheduler.flush();
+
+        handle.cancel();
+        assertTrue(handle.isCancelled());
+        assertTrue(handle.isFinished());
+        assertTrue(request.cancelled);
+        assertTrue(pending.get("a").isCancelled());
+
+        // a cancelled flow neither calls the outcome nor reacts to late callbacks
+        pending.get("a").proceed();
+        pending.get("a").abort();
+        scheduler.advance(1000);
+        assertEquals(asList("a"), log);
+        outcome.assertPending();
+    }
+
+    @Test
+    public void cancelBeforeStart() {
+        FlowHandle handle = async.waterfall(log, outcome, proceed("a"));
+        handle.cancel();
+        scheduler.flush();
+
+        assertTrue(log.isEmpty());
+        outcome.assertPending();
+    }
+
+    @Test
+    public void cancelParallel() {
+        Cancelled request = new Cancelled();
+        FlowHandle handle = async.parallel(log, outcome, 1, pending("a", request), proceed("b"));
+        scheduler.flush();
+
+        handle.cancel();
+        pending.get("a").proceed();
+        scheduler.flush();
+        assertTrue(request.cancelled);
+        assertEquals(asList("a"), log);
+        outcome.assertPending();
+
+        // work registered after the flow was cancelled is cancelled right away
+        Cancelled late = new Cancelled();
+        pending.get("a").register(late);
+        assertTrue(late.cancelled);
+    }
+
+    @Test
+    public void cancelTimedOut() {
+        FlowHandle handle = async.timeout(100).waterfall(log, outcome, pending("a"));
+        scheduler.flush();
+        scheduler.advance(100);
+        outcome.assertFailed();
+
+        handle.cancel();
+        scheduler.advance(1000);
+        outcome.assertFailed();
+    }
+
+
+    // ------------------------------------------------------ functions
+
+    private Function<List<String>> proceed(final String name) {
+        return new Function<List<String>>() {
+            @Override
+            public void execute(Control<List<String>> control) {
+                log.add(name);
+                control.proceed();
+            }
+        };
+    }
+
+    private Function<List<String>> abort(final String name) {
+        return new Function<List<String>>() {
+            @Override
+            public void execute(Control<List<String>> control) {
+                log.add(name);
+                control.abort();
+            }
+        };
+    }
+
+    /**
+     * Proceeds in a deferred command, like a function which waits for a response.
+     */
+    private Function<List<String>> deferred(final String name) {
+        return new Function<List<String>>() {
+            @Override
+            public void execute(final Control<List<String>> control) {
+                log.add(name);
+                scheduler.scheduleDeferred(() -> {
+                    log.add(name + " done");
+                    control.proceed();
+                });
+            }
+        };
+    }
+
+    /**
+     * Keeps the control, so that the test decides when the function completes.
+     */
+    private Function<List<String>> pending(final String name) {
+        return pending(name, null);
+    }
+
+    /**
+     * Same as {@link #pending(String)}, but registers {@code request} as pending work of the function.
+     */
+    private Function<List<String>> pending(final String name, final Cancellable request) {
+        return new Function<List<String>>() {
+            @Override
+            public void execute(Control<List<String>> control) {
+                log.add(name);
+                pending.put(name, control);
+                if (request != null) {
+                    control.register(request);
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Pending work, e.g. a request, which records whether it was cancelled.
+     */
+    static class Cancelled implements Cancellable {
+
+        boolean cancelled;
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+
+    /**
+     * Counts the calls of the outcome.
+     */
+    static class RecordingOutcome implements Outcome {
+
+        int succeeded;
+        int failed;
+
+        @Override
+        public void onFailure(Object context) {
+            failed++;
+        }
+
+        @Override
+        public void onSuccess(Object context) {
+            succeeded++;
+        }
+
+        void assertSucceeded() {
+            assertEquals("onSuccess", 1, succeeded);
+            assertEquals("onFailure", 0, failed);
+        }
+
+        void assertFailed() {
+            assertEquals("onSuccess", 0, succeeded);
+            assertEquals("onFailure", 1, failed);
+        }
+
+        void assertPending() {
+            assertEquals("onSuccess", 0, succeeded);
+            assertEquals("onFailure", 0, failed);
+        }
+    }
+}
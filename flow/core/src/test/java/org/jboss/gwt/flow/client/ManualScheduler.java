@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.jboss.gwt.flow.client;
+
+import com.google.gwt.core.client.Scheduler;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A scheduler for unit tests which runs the scheduled commands on demand. Timers are driven by a virtual clock
+ * which is moved forward using {@link #advance(int)}.
+ */
+class ManualScheduler extends Scheduler {
+
+    private final LinkedList<ScheduledCommand> deferred;
+    private final List<RepeatingCommand> incremental;
+    private final List<Timer> timers;
+    private long now;
+
+    ManualScheduler() {
+        this.deferred = new LinkedList<>();
+        this.incremental = new ArrayList<>();
+        this.timers = new ArrayList<>();
+    }
+
+    /**
+     * Runs the deferred and incremental commands until there's nothing left to do. Timers are not run.
+     */
+    void flush() {
+        while (!deferred.isEmpty() || !incremental.isEmpty()) {
+            while (!deferred.isEmpty()) {
+                deferred.removeFirst().execute();
+            }
+            for (RepeatingCommand command : new ArrayList<>(incremental)) {
+                if (!command.execute()) {
+                    incremental.remove(command);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the clock forward and runs the timers which are due in the order of their due time.
+     */
+    void advance(int millis) {
+        long until = now + millis;
+        flush();
+        Timer next;
+        while ((next = nextTimer(until)) != null) {
+            now = next.due;
+            if (next.command.execute() && next.period > 0) {
+                next.due = now + next.period;
+            } else {
+                timers.remove(next);
+            }
+            flush();
+        }
+        now = until;
+    }
+
+    private Timer nextTimer(long until) {
+        Timer next = null;
+        for (Timer timer : timers) {
+            if (timer.due <= until && (next == null || timer.due < next.due)) {
+                next = timer;
+            }
+        }
+        return next;
+    }
+
+    @Override
+    public void scheduleDeferred(ScheduledCommand command) {
+        deferred.add(command);
+    }
+
+    @Override
+    public void scheduleEntry(ScheduledCommand command) {
+        deferred.add(command);
+    }
+
+    @Override
+    public void scheduleFinally(ScheduledCommand command) {
+        deferred.add(command);
+    }
+
+    @Override
+    public void scheduleIncremental(RepeatingCommand command) {
+        incremental.add(command);
+    }
+
+    @Override
+    public void scheduleFixedDelay(RepeatingCommand command, int delay) {
+        timers.add(new Timer(command, now + delay, delay));
+    }
+
+    @Override
+    public void scheduleFixedPeriod(RepeatingCommand command, int period) {
+        timers.add(new Timer(command, now + period, period));
+    }
+
+    @Override
+    @Deprecated
+    public void scheduleEntry(RepeatingCommand command) {
+        incremental.add(command);
+    }
+
+    @Override
+    @Deprecated
+    public void scheduleFinally(RepeatingCommand command) {
+        incremental.add(command);
+    }
+
+
+    private static class Timer {
+
+        final RepeatingCommand command;
+        final int period;
+        long due;
+
+        Timer(RepeatingCommand command, long due, int period) {
+            this.command = command;
+            this.due = due;
+            this.period = period;
+        }
+    }
+}
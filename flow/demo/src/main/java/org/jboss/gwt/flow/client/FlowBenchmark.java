@@ -0,0 +1,304 @@
+package org.jboss.gwt.flow.client;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
+
+/**
+ * Micro benchmark for {@link Async}. Runs a waterfall of {@value #STEPS} functions with the current engine and with
+ * the previous engine, which polled the control from an incremental command ({@link PollingWaterfall}):
+ * <ul>
+ * <li>sync: all functions proceed immediately, the time spent is the CPU time of the flow engine</li>
+ * <li>async: all functions proceed after {@value #LATENCY} ms (a simulated round trip). While the flow is running
+ * a probe measures how long the main thread is blocked. Ideally the flow doesn't block at all while waiting. The
+ * functions chained by hand serve as lower bound.</li>
+ * </ul>
+ */
+public class FlowBenchmark {
+
+    interface Report {
+        void println(String line);
+    }
+
+    /**
+     * Runs the functions as waterfall and calls the outcome once all functions proceeded.
+     */
+    interface Engine {
+        void waterfall(Outcome<Object> outcome, Function<Object>[] functions);
+    }
+
+    static final int STEPS = 100;
+    static final int LATENCY = 10;
+    private static final int SYNC_RUNS = 50;
+    private static final int PROBE_INTERVAL = 1;
+
+    private static final Engine CURRENT = new Engine() {
+        @Override
+        public void waterfall(Outcome<Object> outcome, Function<Object>[] functions) {
+            new Async<Object>().waterfall(new Object(), outcome, functions);
+        }
+    };
+
+    private static final Engine POLLING = new Engine() {
+        @Override
+        public void waterfall(Outcome<Object> outcome, Function<Object>[] functions) {
+            new PollingWaterfall(new Object(), outcome, functions).start();
+        }
+    };
+
+    private static final Engine BY_HAND = new Engine() {
+        @Override
+        public void waterfall(Outcome<Object> outcome, Function<Object>[] functions) {
+            chain(functions, 0, outcome);
+        }
+    };
+
+    private final Report report;
+
+    public FlowBenchmark(Report report) {
+        this.report = report;
+    }
+
+    public void run() {
+        final Function<Object>[] sync = functions(0);
+        final Function<Object>[] async = functions(LATENCY);
+
+        syncFlow("sync, polling", POLLING, sync, SYNC_RUNS, new Scheduler.ScheduledCommand() {
+            @Override
+            public void execute() {
+                syncFlow("sync, current", CURRENT, sync, SYNC_RUNS, new Scheduler.ScheduledCommand() {
+                    @Override
+                    public void execute() {
+                        asyncFlow("async, by hand", BY_HAND, async, new Scheduler.ScheduledCommand() {
+                            @Override
+                            public void execute() {
+                                asyncFlow("async, polling", POLLING, async, new Scheduler.ScheduledCommand() {
+                                    @Override
+                                    public void execute() {
+                                        asyncFlow("async, current", CURRENT, async,
+                                                new Scheduler.ScheduledCommand() {
+                                                    @Override
+                                                    public void execute() {
+                                                        report.println("<Benchmark finished>");
+                                                    }
+                                                });
+                                    }
+                                });
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    private void syncFlow(final String name, final Engine engine, final Function<Object>[] functions, final int runs,
+            final Scheduler.ScheduledCommand next) {
+        final Duration duration = new Duration();
+        final int[] remaining = {runs};
+        engine.waterfall(new Outcome<Object>() {
+            @Override
+            public void onFailure(Object context) {
+                report.println(name + ": failed");
+            }
+
+            @Override
+            public void onSuccess(Object context) {
+                remaining[0]--;
+                if (remaining[0] > 0) {
+                    engine.waterfall(this, functions);
+                } else {
+                    report.println(name + ": " + format(duration.elapsedMillis() / (double) runs) + " ms per "
+                            + STEPS + "-step flow (" + runs + " runs, incl. deferred outcome)");
+                    next.execute();
+                }
+            }
+        }, functions);
+    }
+
+    private void asyncFlow(final String name, final Engine engine, final Function<Object>[] functions,
+            final Scheduler.ScheduledCommand next) {
+        final Probe probe = new Probe();
+        final Duration duration = new Duration();
+        final Outcome<Object> outcome = new Outcome<Object>() {
+            @Override
+            public void onFailure(Object context) {
+                probe.stop();
+                report.println(name + ": failed");
+            }
+
+            @Override
+            public void onSuccess(Object context) {
+                probe.stop();
+                report.println(name + ": " + duration.elapsedMillis() + " ms wall time, main thread blocked "
+                        + probe.blocked + " ms (" + probe.ticks + " probe ticks)");
+                next.execute();
+            }
+        };
+
+        probe.start();
+        engine.waterfall(outcome, functions);
+    }
+
+    /**
+     * Baseline: execute the functions one after another without the flow engine.
+     */
+    private static void chain(final Function<Object>[] functions, final int index, final Outcome<Object> outcome) {
+        if (index == functions.length) {
+            outcome.onSuccess(null);
+            return;
+        }
+        functions[index].execute(new Control<Object>() {
+            @Override
+            public void proceed() {
+                chain(functions, index + 1, outcome);
+            }
+
+            @Override
+            public void abort() {
+                outcome.onFailure(null);
+            }
+
+            @Override
+            public Object getContext() {
+                return null;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Function<Object>[] functions(final int latency) {
+        Function<Object>[] functions = new Function[STEPS];
+        for (int i = 0; i < STEPS; i++) {
+            functions[i] = new Function<Object>() {
+                @Override
+                public void execute(final Control<Object> control) {
+                    if (latency == 0) {
+                        control.proceed();
+                    } else {
+                        Scheduler.get().scheduleFixedDelay(new Scheduler.RepeatingCommand() {
+                            @Override
+                            public boolean execute() {
+                                control.proceed();
+                                return false;
+                            }
+                        }, latency);
+                    }
+                }
+            };
+        }
+        return functions;
+    }
+
+    private static String format(double value) {
+        return String.valueOf(Math.round(value * 100) / 100.0);
+    }
+
+
+    /**
+     * The waterfall of the previous flow engine: an incremental command polls the control until the current function
+     * has proceeded and then executes the next one.
+     */
+    private static class PollingWaterfall implements Control<Object> {
+
+        private final Object context;
+        private final Outcome<Object> outcome;
+        private final Function<Object>[] functions;
+        private Function<Object> next;
+        private int index;
+        private boolean drained;
+        private boolean aborted;
+        private boolean pending;
+
+        PollingWaterfall(Object context, Outcome<Object> outcome, Function<Object>[] functions) {
+            this.context = context;
+            this.outcome = outcome;
+            this.functions = functions;
+        }
+
+        void start() {
+            proceed();
+            Scheduler.get().scheduleIncremental(new Scheduler.RepeatingCommand() {
+                @Override
+                public boolean execute() {
+                    if (drained || aborted) {
+                        Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
+                            @Override
+                            public void execute() {
+                                if (aborted) {
+                                    outcome.onFailure(context);
+                                } else {
+                                    outcome.onSuccess(context);
+                                }
+                            }
+                        });
+                        return false;
+                    } else {
+                        if (!pending) {
+                            pending = true;
+                            next.execute(PollingWaterfall.this);
+                        }
+                        return true;
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void proceed() {
+            if (index >= functions.length) {
+                next = null;
+                drained = true;
+            } else {
+                next = functions[index];
+                index++;
+            }
+            pending = false;
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            pending = false;
+        }
+
+        @Override
+        public Object getContext() {
+            return context;
+        }
+    }
+
+
+    /**
+     * Sums up the time a timer fires later than requested. That's the time the main thread was busy.
+     */
+    private static class Probe implements Scheduler.RepeatingCommand {
+
+        boolean running;
+        double last;
+        long blocked;
+        int ticks;
+
+        void start() {
+            running = true;
+            last = Duration.currentTimeMillis();
+            Scheduler.get().scheduleFixedDelay(this, PROBE_INTERVAL);
+        }
+
+        void stop() {
+            running = false;
+        }
+
+        @Override
+        public boolean execute() {
+            double now = Duration.currentTimeMillis();
+            // browsers clamp timeouts to at least 4 ms
+            double lag = now - last - Math.max(4, PROBE_INTERVAL);
+            if (lag > 0) {
+                blocked += (long) lag;
+            }
+            last = now;
+            ticks++;
+            return running;
+        }
+    }
+}
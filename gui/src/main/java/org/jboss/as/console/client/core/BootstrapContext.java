@@ -46,6 +46,7 @@ public class BootstrapContext implements ApplicationProperties {
     private String serverName;
     private String productName;
     private String productVersion;
+    private String managementVersion;
     private String principal;
     private boolean sameOrigin;
     private boolean hostManagementDisabled;
@@ -143,6 +144,17 @@ public class BootstrapContext implements ApplicationProperties {
         this.productVersion = productVersion;
     }
 
+    /**
+     * @return the version of the management model (major.minor.micro) or {@code null} if unknown
+     */
+    public String getManagementVersion() {
+        return managementVersion;
+    }
+
+    public void setManagementVersion(String managementVersion) {
+        this.managementVersion = managementVersion;
+    }
+
     public void setPrincipal(String principal) {
         this.principal = principal;
     }
@@ -23,6 +23,7 @@ package org.jboss.as.console.client.core;
 
 import com.allen_sauer.gwt.log.client.Log;
 import com.google.gwt.user.client.rpc.AsyncCallback;
+import org.jboss.as.console.client.rbac.AccessControlStore;
 import org.jboss.as.console.client.rbac.Constraints;
 import org.jboss.as.console.client.rbac.ResourceRef;
 import org.jboss.as.console.client.rbac.SecurityContextImpl;
@@ -31,11 +32,7 @@ import org.jboss.as.console.mbui.dmr.ResourceAddress;
 import org.jboss.as.console.mbui.dmr.ResourceDefinition;
 import org.jboss.as.console.mbui.widgets.ResourceDescription;
 import org.jboss.dmr.client.ModelNode;
-import org.jboss.dmr.client.ModelType;
 import org.jboss.dmr.client.Property;
-import org.jboss.dmr.client.dispatch.DispatchAsync;
-import org.jboss.dmr.client.dispatch.impl.DMRAction;
-import org.jboss.dmr.client.dispatch.impl.DMRResponse;
 import org.jboss.gwt.flow.client.Control;
 import org.jboss.gwt.flow.client.Function;
 import org.useware.kernel.gui.behaviour.StatementContext;
@@ -57,13 +54,13 @@ public class ReadRequiredResources implements Function<RequiredResourcesContext>
     private static final String ACCESS_CONTROL = "access-control";
     private static final String COMBINED_DESCRIPTIONS = "combined-descriptions";
 
-    private final DispatchAsync dispatcher;
     private final StatementContext statementContext;
+    private final AccessControlStore store;
     private final List<Input> input;
 
-    public ReadRequiredResources(DispatchAsync dispatcher, StatementContext statementContext) {
-        this.dispatcher = dispatcher;
+    public ReadRequiredResources(StatementContext statementContext, AccessControlStore store) {
         this.statementContext = statementContext;
+        this.store = store;
         this.input = new ArrayList<>();
     }
 
@@ -84,22 +81,23 @@ public class ReadRequiredResources implements Function<RequiredResourcesContext>
         input.add(new Input(requiredResource, ref, address, description, operation));
     }
 
+    /**
+     * @return the number of required resources in this batch
+     */
+    public int size() {
+        return input.size();
+    }
+
     @Override
     public void execute(Control<RequiredResourcesContext> control) {
-        ModelNode comp = new ModelNode();
-        comp.get(OP).set(COMPOSITE);
-        comp.get(ADDRESS).setEmptyList();
-
-        int index = 1;
-        List<ModelNode> steps = new ArrayList<>();
-        Map<String, Input> stepToInput = new HashMap<>();
-        for (Iterator<Input> iterator = input.iterator(); iterator.hasNext(); index++) {
-            Input in = iterator.next();
-            steps.add(in.operation);
-            stepToInput.put("step-" + index, in);
+        // descriptions which are already known or on their way are not read again
+        List<String> addresses = new ArrayList<>();
+        List<ModelNode> operations = new ArrayList<>();
+        for (Input in : input) {
+            addresses.add(in.ref.getAddress());
+            operations.add(in.operation);
         }
-        comp.get(STEPS).set(steps);
-        dispatcher.execute(new DMRAction(comp), new Parser(control, steps, stepToInput));
+        control.register(store.fetch(addresses, operations, new Parser(control, input)));
     }
 
 
@@ -124,20 +122,20 @@ public class ReadRequiredResources implements Function<RequiredResourcesContext>
         }
     }
 
-    private class Parser implements AsyncCallback<DMRResponse> {
+    private class Parser implements AsyncCallback<AccessControlStore.Result> {
 
         private final Control<RequiredResourcesContext> control;
-        private final List<ModelNode> steps;
-        private final Map<String, Input> stepToInput;
+        private final List<Input> batch;
         private final Set<ResourceRef> references;
+        private final long start;
 
-        private Parser(Control<RequiredResourcesContext> control, List<ModelNode> steps, Map<String, Input> stepToInput) {
+        private Parser(Control<RequiredResourcesContext> control, List<Input> input) {
             this.control = control;
-            this.steps = steps;
-            this.stepToInput = stepToInput;
+            this.batch = input;
+            this.start = System.currentTimeMillis();
 
             this.references = new HashSet<>();
-            for (Input in : stepToInput.values()) {
+            for (Input in : input) {
                 references.add(in.ref);
             }
         }
@@ -153,82 +151,42 @@ public class ReadRequiredResources implements Function<RequiredResourcesContext>
         }
 
         @Override
-        public void onSuccess(DMRResponse dmrResponse) {
-            ModelNode response = dmrResponse.get();
+        public void onSuccess(AccessControlStore.Result result) {
+            if (result.getFetched() > 0) {
+                control.getContext().recordBatch(result.getFetched(), result.getResponseSize(),
+                        System.currentTimeMillis() - start);
+            }
 
-            if (response.isFailure()) {
+            if (result.isFailure()) {
                 Log.error("Failed to retrieve access control meta data, fallback to temporary read-only context: ",
-                        response.getFailureDescription());
+                        result.getFailureDescription());
                 control.getContext().makeReadonly();
 
             } else {
-                ModelNode compositeResult = response.get(RESULT);
-                for (int i = 1; i <= steps.size(); i++) {
-                    String step = "step-" + i;
-                    if (compositeResult.hasDefined(step)) {
-                        // The first part is identify the resource that has been requested.
-                        // Depending on whether you've requested a wildcard address or a
-                        // specific one we either get a ModelType.List or ModelType.Object
-                        // response. The former requires parsing the response to access control
-                        // meta data matching the inquiry.
-                        Input in = stepToInput.get(step);
-                        List<ModelNode> inquiryAddress = in.address.get(ADDRESS).asList();
-
-                        // it's a List response when asking for '<resourceType>=*"
-                        ModelNode payload = null;
-                        ModelNode stepResult = compositeResult.get(step).get(RESULT);
-                        if (stepResult.getType() == ModelType.LIST) {
-                            List<ModelNode> nodes = stepResult.asList();
-
-                            for (ModelNode node : nodes) {
-                                // matching the wildcard response
-                                List<ModelNode> responseAddress = node.get(ADDRESS).asList();
-
-                                // match the inquiry
-                                if (matchingAddress(responseAddress, inquiryAddress)) {
-                                    payload = node.get(RESULT);
-                                    break;
-                                }
-                            }
-                            if (payload == null) {
-                                Log.error("Failed to process response: "+stepResult.toString());
-
-                                control.getContext().setError(
-                                        new RuntimeException("Unexpected response format at address: "+in.requiredResource)
-                                );
-                                control.abort();
-                            }
-                        } else {
-                            payload = stepResult;
-                        }
-
-                        // TODO extract the functions to parse and process the
-                        // resource descriptions and the security related metadata
-
-                        // update & store description
-                        in.description.setDefinition(new ResourceDefinition(payload));
-//                        control.getContext().getResourceDescriptionRegistry().add(in.description);
-                        control.getContext().getResourceDescriptionRegistry().add(in.addressTemplate, new org.jboss.as.console.client.v3.dmr.ResourceDescription(payload));
-
-                        // break down into root resource and children
-                        parseAccessControlChildren(in.ref, references, control.getContext().getSecurityContextImpl(),
-                                payload);
+                // The payloads are in the order of the input. For wildcard addresses the store already picked
+                // the description matching the inquiry.
+                List<ModelNode> payloads = result.getPayloads();
+                for (int i = 0; i < batch.size(); i++) {
+                    ModelNode payload = payloads.get(i);
+                    if (payload.isDefined()) {
+                        process(batch.get(i), payload);
                     }
                 }
             }
             control.proceed();
         }
 
-        private boolean matchingAddress(List<ModelNode> responseAddress, List<ModelNode> inquiryAddress) {
-            int numMatchingTokens = 0;
-            int offset = inquiryAddress.size() - responseAddress.size();
+        private void process(Input in, ModelNode payload) {
+            // TODO extract the functions to parse and process the
+            // resource descriptions and the security related metadata
 
-            for (int i = responseAddress.size() - 1; i >= 0; i--) {
-                ModelNode token = responseAddress.get(i);
-                if (inquiryAddress.get(i + offset).toString().equals(token.toString()))
-                    numMatchingTokens++;
-            }
-            return numMatchingTokens == responseAddress.size();
+            // update & store description
+            in.description.setDefinition(new ResourceDefinition(payload));
+//            control.getContext().getResourceDescriptionRegistry().add(in.description);
+            control.getContext().getResourceDescriptionRegistry().add(in.addressTemplate, new org.jboss.as.console.client.v3.dmr.ResourceDescription(payload));
+
+            // break down into root resource and children
+            parseAccessControlChildren(in.ref, references, control.getContext().getSecurityContextImpl(), payload);
         }
 
         private void parseAccessControlChildren(ResourceRef ref, Set<ResourceRef> references,
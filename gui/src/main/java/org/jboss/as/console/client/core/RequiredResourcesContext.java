@@ -27,7 +27,9 @@ import org.jboss.as.console.client.rbac.SecurityContextImpl;
 import org.jboss.as.console.client.v3.ResourceDescriptionRegistry;
 import org.jboss.ballroom.client.rbac.SecurityContext;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -38,6 +40,7 @@ public class RequiredResourcesContext {
     private final String token;
     private final ResourceDescriptionRegistry resourceDescriptionRegistry;
     private final SecurityContextImpl securityContextImpl;
+    private final List<Batch> batches;
     private boolean readOnly;
     private Throwable error;
 
@@ -51,6 +54,7 @@ public class RequiredResourcesContext {
             refs.add(new ResourceRef(requiredResource));
         }
         this.securityContextImpl = new SecurityContextImpl(token, refs);
+        this.batches = new ArrayList<>();
     }
 
     public String getToken() {
@@ -80,4 +84,29 @@ public class RequiredResourcesContext {
     public Throwable getError() {
         return error;
     }
+
+    void recordBatch(int resources, int payloadSize, long millis) {
+        batches.add(new Batch(resources, payloadSize, millis));
+    }
+
+    List<Batch> getBatches() {
+        return batches;
+    }
+
+
+    /**
+     * Statistics of one composite r-r-d operation.
+     */
+    static class Batch {
+
+        final int resources;
+        final int payloadSize;
+        final long millis;
+
+        Batch(int resources, int payloadSize, long millis) {
+            this.resources = resources;
+            this.payloadSize = payloadSize;
+            this.millis = millis;
+        }
+    }
 }
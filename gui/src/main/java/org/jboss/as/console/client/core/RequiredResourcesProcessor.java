@@ -21,15 +21,17 @@
  */
 package org.jboss.as.console.client.core;
 
+import com.allen_sauer.gwt.log.client.Log;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.inject.Inject;
 import org.jboss.as.console.client.plugins.RequiredResourcesRegistry;
+import org.jboss.as.console.client.rbac.AccessControlStore;
 import org.jboss.as.console.client.rbac.NoGatekeeperContext;
 import org.jboss.as.console.client.rbac.SecurityFramework;
 import org.jboss.as.console.mbui.behaviour.CoreGUIContext;
+import org.jboss.as.console.client.v3.ResourceDescriptionCache;
 import org.jboss.as.console.client.v3.ResourceDescriptionRegistry;
 import org.jboss.ballroom.client.rbac.SecurityContext;
-import org.jboss.dmr.client.dispatch.DispatchAsync;
 import org.jboss.gwt.flow.client.Async;
 import org.jboss.gwt.flow.client.Outcome;
 import org.useware.kernel.gui.behaviour.FilteringStatementContext;
@@ -46,29 +48,53 @@ import java.util.Set;
 public class RequiredResourcesProcessor {
 
     /**
-     * Number of required resources which are loaded as part of one composite operation.
+     * Bounds for the number of required resources which are loaded as part of one composite operation.
      */
-    private final static int BATCH_SIZE = 3;
+    private final static int MIN_BATCH_SIZE = 1;
+    private final static int MAX_BATCH_SIZE = 10;
 
-    private final DispatchAsync dispatcher;
+    /**
+     * The batch size is chosen so that the response of one composite operation is about this size (in characters).
+     */
+    private final static int TARGET_BATCH_PAYLOAD = 384 * 1024;
+
+    /**
+     * Initial estimation of the response size per required resource (results in a batch size of 3).
+     */
+    private final static int INITIAL_RESOURCE_PAYLOAD = 128 * 1024;
+
+    /**
+     * Maximum number of composite operations executed in parallel.
+     */
+    private final static int MAX_CONCURRENT_BATCHES = 4;
+
+    private final AccessControlStore accessControlStore;
     private final RequiredResourcesRegistry requiredResourcesRegistry;
     private final NameTokenRegistry nameTokenRegistry;
     private final ResourceDescriptionRegistry resourceDescriptionRegistry;
+    private final ResourceDescriptionCache resourceDescriptionCache;
     private final SecurityFramework securityFramework;
     private final StatementContext statementContext;
 
+    /**
+     * Average response size per required resource for non-recursive [0] and recursive [1] descriptions.
+     */
+    private final double[] resourcePayload = {INITIAL_RESOURCE_PAYLOAD, INITIAL_RESOURCE_PAYLOAD};
+
     @Inject
-    protected RequiredResourcesProcessor(DispatchAsync dispatcher,
+    protected RequiredResourcesProcessor(AccessControlStore accessControlStore,
                                          BootstrapContext bootstrap,
                                          NameTokenRegistry nameTokenRegistry,
                                          RequiredResourcesRegistry requiredResourcesRegistry,
                                          ResourceDescriptionRegistry resourceDescriptionRegistry,
+                                         ResourceDescriptionCache resourceDescriptionCache,
                                          SecurityFramework securityFramework,
                                          CoreGUIContext statementContext) {
-        this.dispatcher = dispatcher;
+        this.accessControlStore = accessControlStore;
         this.nameTokenRegistry = nameTokenRegistry;
         this.requiredResourcesRegistry = requiredResourcesRegistry;
         this.resourceDescriptionRegistry = resourceDescriptionRegistry;
+        this.resourceDescriptionCache = resourceDescriptionCache;
         this.securityFramework = securityFramework;
         this.statementContext = new FilteringStatementContext(statementContext, new RequiredResourcesFilter(bootstrap));
     }
@@ -76,14 +102,13 @@ public class RequiredResourcesProcessor {
     public void process(final String token, final AsyncCallback<Void> callback) {
         if (!nameTokenRegistry.wasRevealed(token)) {
             Set<String> requiredResources = requiredResourcesRegistry.getResources(token);
-            boolean recursive = requiredResourcesRegistry.isRecursive(token);
+            final boolean recursive = requiredResourcesRegistry.isRecursive(token);
             if (requiredResources.isEmpty()) {
                 finishWithContext(token, new NoGatekeeperContext(), callback);
 
             } else {
-                List<ReadRequiredResources> functions = partition(requiredResources, recursive, BATCH_SIZE);
-
-                System.out.println("Num partitions: "+functions.size());
+                final int batchSize = batchSize(recursive);
+                List<ReadRequiredResources> functions = partition(requiredResources, recursive, batchSize);
 
                 RequiredResourcesContext context = new RequiredResourcesContext(token, requiredResources,
                         resourceDescriptionRegistry);
@@ -95,14 +120,15 @@ public class RequiredResourcesProcessor {
 
                     @Override
                     public void onSuccess(RequiredResourcesContext context) {
+                        adjustBatchSize(token, recursive, batchSize, context.getBatches());
                         finishWithContext(token, context.getSecurityContext(), callback);
                     }
                 };
                 //noinspection unchecked
-                // Unfortunately we cannot use Async.parallel() here unless someone finds a way
-                // to unambiguously map parallel r-r-d operations to their results (multiple "step-1" results)
-                new Async<RequiredResourcesContext>(Footer.PROGRESS_ELEMENT).waterfall(context, outcome,
-                        functions.toArray(new ReadRequiredResources[functions.size()]));
+                // Each batch keeps its own list of inputs and maps the composite steps to that list,
+                // so the batches can be executed in parallel.
+                new Async<RequiredResourcesContext>(Footer.PROGRESS_ELEMENT).parallel(context, outcome,
+                        MAX_CONCURRENT_BATCHES, functions.toArray(new ReadRequiredResources[functions.size()]));
             }
         } else {
             callback.onSuccess(null);
@@ -116,6 +142,36 @@ public class RequiredResourcesProcessor {
         callback.onSuccess(null);
     }
 
+    private int batchSize(boolean recursive) {
+        int size = (int) Math.round(TARGET_BATCH_PAYLOAD / resourcePayload[recursive ? 1 : 0]);
+        return Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, size));
+    }
+
+    /**
+     * Updates the average response size per required resource using the batches of the last request.
+     */
+    private void adjustBatchSize(String token, boolean recursive, int batchSize,
+            List<RequiredResourcesContext.Batch> batches) {
+        int resources = 0;
+        long payload = 0;
+        StringBuilder timings = new StringBuilder();
+        for (RequiredResourcesContext.Batch batch : batches) {
+            if (batch.payloadSize >= 0) {
+                resources += batch.resources;
+                payload += batch.payloadSize;
+            }
+            timings.append(" ").append(batch.resources).append("/").append(batch.millis).append("ms");
+        }
+        if (resources > 0) {
+            int index = recursive ? 1 : 0;
+            resourcePayload[index] = (resourcePayload[index] + (double) payload / resources) / 2;
+        }
+        Log.info("Required resources for " + token + ": " + batches.size() + " batches of max. " + batchSize
+                + " (resources/time:" + timings + "), next batch size: " + batchSize(recursive)
+                + ", description cache hits/misses: " + resourceDescriptionCache.getHits() + "/"
+                + resourceDescriptionCache.getMisses() + ", " + resourceDescriptionRegistry);
+    }
+
     private List<ReadRequiredResources> partition(Set<String> requiredResources, boolean recursive, int batchSize) {
         int index = 0;
         List<ReadRequiredResources> functions = new ArrayList<>();
@@ -123,7 +179,7 @@ public class RequiredResourcesProcessor {
         ReadRequiredResources rrr = null;
         for (Iterator<String> iterator = requiredResources.iterator(); iterator.hasNext(); index++) {
             if (index % batchSize == 0) {
-                rrr = new ReadRequiredResources(dispatcher, statementContext);
+                rrr = new ReadRequiredResources(statementContext, accessControlStore);
                 functions.add(rrr);
             }
             assert rrr != null;
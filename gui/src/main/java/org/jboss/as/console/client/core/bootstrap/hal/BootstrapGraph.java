@@ -0,0 +1,214 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.console.client.core.bootstrap.hal;
+
+import com.allen_sauer.gwt.log.client.Log;
+import org.jboss.as.console.client.core.BootstrapContext;
+import org.jboss.gwt.flow.client.Control;
+import org.jboss.gwt.flow.client.Outcome;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A graph of bootstrap steps. Each step declares the steps it depends on. A step is started as soon as all of its
+ * prerequisites have finished, so independent steps (and their round trips) run concurrently. Since prerequisites
+ * have to be added before their dependents, the graph is acyclic by construction.
+ * <p>
+ * The first step which aborts fails the whole bootstrap. The time spent in each step is logged once the bootstrap
+ * has finished.
+ */
+public class BootstrapGraph {
+
+    private final List<Node> nodes;
+
+    public BootstrapGraph() {
+        this.nodes = new ArrayList<>();
+    }
+
+    /**
+     * Adds a step to the graph.
+     *
+     * @param name     the name used to report timings
+     * @param step     the step
+     * @param requires the steps which must have finished before this step is started
+     *
+     * @return the node which can be used as a prerequisite for other steps
+     */
+    public Node add(String name, BootstrapStep step, Node... requires) {
+        for (Node node : requires) {
+            if (!nodes.contains(node)) {
+                throw new IllegalArgumentException("Unknown prerequisite " + node.name + " for step " + name);
+            }
+        }
+        Node node = new Node(name, step, Arrays.asList(requires));
+        nodes.add(node);
+        return node;
+    }
+
+    public List<Node> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public void execute(BootstrapContext context, Outcome<BootstrapContext> outcome) {
+        new Execution(context, outcome).schedule();
+    }
+
+
+    public static class Node {
+
+        private final String name;
+        private final BootstrapStep step;
+        private final List<Node> requires;
+
+        private Node(String name, BootstrapStep step, List<Node> requires) {
+            this.name = name;
+            this.step = step;
+            this.requires = requires;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Node> getRequires() {
+            return requires;
+        }
+    }
+
+
+    private class Execution {
+
+        private final BootstrapContext context;
+        private final Outcome<BootstrapContext> outcome;
+        private final long start;
+        private final Map<Node, Long> started;
+        private final Map<Node, Long> finished;
+        private boolean failed;
+
+        Execution(BootstrapContext context, Outcome<BootstrapContext> outcome) {
+            this.context = context;
+            this.outcome = outcome;
+            this.start = System.currentTimeMillis();
+            this.started = new HashMap<>();
+            this.finished = new HashMap<>();
+        }
+
+        /**
+         * Starts all steps whose prerequisites have finished. Steps which finish synchronously call back into this
+         * method, hence the checks inside the loop.
+         */
+        void schedule() {
+            if (nodes.isEmpty()) {
+                outcome.onSuccess(context);
+                return;
+            }
+            for (Node node : nodes) {
+                if (failed) {
+                    return;
+                }
+                if (!started.containsKey(node) && finished.keySet().containsAll(node.requires)) {
+                    started.put(node, System.currentTimeMillis());
+                    node.step.execute(new StepControl(node));
+                }
+            }
+        }
+
+        void onFinished(Node node) {
+            if (failed) {
+                return;
+            }
+            finished.put(node, System.currentTimeMillis());
+            if (finished.size() == nodes.size()) {
+                report(null);
+                outcome.onSuccess(context);
+            } else {
+                schedule();
+            }
+        }
+
+        void onAborted(Node node) {
+            if (failed) {
+                return;
+            }
+            failed = true;
+            finished.put(node, System.currentTimeMillis());
+            report(node);
+            outcome.onFailure(context);
+        }
+
+        private void report(Node failedNode) {
+            StringBuilder builder = new StringBuilder();
+            builder.append(failedNode == null ? "Bootstrap finished" : "Bootstrap failed in " + failedNode.name)
+                    .append(" after ").append(System.currentTimeMillis() - start).append(" ms");
+            for (Node node : nodes) {
+                builder.append("\n  ").append(node.name).append(": ");
+                Long begin = started.get(node);
+                Long end = finished.get(node);
+                if (begin == null) {
+                    builder.append("not started");
+                } else if (end == null) {
+                    builder.append("started at +").append(begin - start).append(" ms, not finished");
+                } else {
+                    builder.append(end - begin).append(" ms (started at +").append(begin - start).append(" ms)");
+                }
+            }
+            Log.info(builder.toString());
+        }
+
+
+        private class StepControl implements Control<BootstrapContext> {
+
+            private final Node node;
+            private boolean done;
+
+            StepControl(Node node) {
+                this.node = node;
+            }
+
+            @Override
+            public void proceed() {
+                if (!done) {
+                    done = true;
+                    onFinished(node);
+                }
+            }
+
+            @Override
+            public void abort() {
+                if (!done) {
+                    done = true;
+                    onAborted(node);
+                }
+            }
+
+            @Override
+            public BootstrapContext getContext() {
+                return context;
+            }
+        }
+    }
+}
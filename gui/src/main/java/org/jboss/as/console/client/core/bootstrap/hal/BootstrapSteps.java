@@ -24,7 +24,8 @@ package org.jboss.as.console.client.core.bootstrap.hal;
 import com.google.inject.Inject;
 
 /**
- * Simple wrapper around an ordered array of HAL's bootstrap steps.
+ * Declares HAL's bootstrap steps and their dependencies. Everything which talks to the server needs the execution
+ * mode (standalone / domain, run-as role), the remaining steps are independent of each other.
  *
  * @author Harald Pehl
  */
@@ -62,17 +63,24 @@ public class BootstrapSteps {
         this.eagerLoadGroups = eagerLoadGroups;
     }
 
-    public BootstrapStep[] steps() {
-        return new BootstrapStep[] {
-                loadGoogleViz,
-                executionMode,
-                trackExecutionMode,
-                loadCompatMatrix,
-                registerSubsystems,
-                eagerLoadProfiles,
-                hostStoreInit,
-                serverStoreInit,
-                eagerLoadGroups
-        };
+    public BootstrapGraph graph() {
+        BootstrapGraph graph = new BootstrapGraph();
+
+        // the execution mode is on the critical path, so it's started first
+        BootstrapGraph.Node mode = graph.add("ExecutionMode", executionMode);
+
+        // local steps, run while waiting for the execution mode
+        graph.add("LoadGoogleViz", loadGoogleViz);
+        BootstrapGraph.Node compatMatrix = graph.add("LoadCompatMatrix", loadCompatMatrix);
+        BootstrapGraph.Node subsystems = graph.add("RegisterSubsystems", registerSubsystems);
+
+        // steps which depend on the execution mode
+        graph.add("TrackExecutionMode", trackExecutionMode, mode);
+        graph.add("EagerLoadProfiles", eagerLoadProfiles, mode, compatMatrix, subsystems);
+        BootstrapGraph.Node hosts = graph.add("HostStoreInit", hostStoreInit, mode, compatMatrix, subsystems);
+        graph.add("ServerStoreInit", serverStoreInit, hosts);
+        graph.add("EagerLoadGroups", eagerLoadGroups, mode, compatMatrix, subsystems);
+
+        return graph;
     }
 }
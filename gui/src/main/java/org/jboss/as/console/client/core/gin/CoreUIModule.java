@@ -117,6 +117,7 @@ import org.jboss.as.console.client.plugins.SubsystemRegistry;
 import org.jboss.as.console.client.plugins.SubsystemRegistryImpl;
 import org.jboss.as.console.client.preview.PreviewContentFactory;
 import org.jboss.as.console.client.preview.PreviewContentFactoryImpl;
+import org.jboss.as.console.client.rbac.AccessControlStore;
 import org.jboss.as.console.client.rbac.HostManagementGatekeeper;
 import org.jboss.as.console.client.rbac.RBACGatekeeper;
 import org.jboss.as.console.client.rbac.SecurityFramework;
@@ -147,6 +148,7 @@ import org.jboss.as.console.client.shared.model.SubsystemStoreImpl;
 import org.jboss.as.console.client.shared.patching.PatchManagementPresenter;
 import org.jboss.as.console.client.shared.patching.PatchManager;
 import org.jboss.as.console.client.shared.patching.ui.PatchManagementView;
+import org.jboss.as.console.client.shared.runtime.MetricSampler;
 import org.jboss.as.console.client.shared.runtime.RuntimeBaseAddress;
 import org.jboss.as.console.client.shared.runtime.ds.DataSourceMetricPresenter;
 import org.jboss.as.console.client.shared.runtime.ds.DataSourceMetricView;
@@ -261,6 +263,7 @@ import org.jboss.as.console.client.tools.ToolsView;
 import org.jboss.as.console.client.tools.modelling.workbench.repository.RepositoryPresenter;
 import org.jboss.as.console.client.tools.modelling.workbench.repository.RepositoryView;
 import org.jboss.as.console.client.tools.modelling.workbench.repository.SampleRepository;
+import org.jboss.as.console.client.v3.ResourceDescriptionCache;
 import org.jboss.as.console.client.v3.ResourceDescriptionRegistry;
 import org.jboss.as.console.client.v3.deployment.DomainDeploymentFinder;
 import org.jboss.as.console.client.v3.deployment.DomainDeploymentFinderView;
@@ -272,6 +275,7 @@ import org.jboss.as.console.spi.GinExtensionBinding;
 import org.jboss.dmr.client.dispatch.DispatchAsync;
 import org.jboss.dmr.client.dispatch.HandlerMapping;
 import org.jboss.dmr.client.dispatch.impl.DMRHandler;
+import org.jboss.dmr.client.dispatch.impl.BatchingDispatchAsync;
 import org.jboss.dmr.client.dispatch.impl.DispatchAsyncImpl;
 import org.jboss.dmr.client.dispatch.impl.HandlerRegistry;
 import org.jboss.dmr.client.dispatch.impl.UploadHandler;
@@ -757,6 +761,9 @@ public class CoreUIModule extends AbstractPresenterModule {
         bind(DomainEndpointStrategy.class).in(Singleton.class);
         bind(RequiredResourcesRegistry.class).to(RequiredResourcesRegistryImpl.class).in(Singleton.class);
         bind(ResourceDescriptionRegistry.class).in(Singleton.class);
+        bind(ResourceDescriptionCache.class).in(Singleton.class);
+        bind(AccessControlStore.class).in(Singleton.class);
+        bind(MetricSampler.class).in(Singleton.class);
         bind(SearchIndexRegistry.class).to(SearchIndexRegistryImpl.class).in(Singleton.class);
         bind(SubsystemRegistry.class).to(SubsystemRegistryImpl.class).in(Singleton.class);
         bind(RuntimeExtensionRegistry.class).to(RuntimeLHSItemExtensionRegistryImpl.class).in(Singleton.class);
@@ -796,7 +803,8 @@ public class CoreUIModule extends AbstractPresenterModule {
 
         bind(DMRHandler.class).in(Singleton.class);
         bind(UploadHandler.class).in(Singleton.class);
-        bind(DispatchAsync.class).to(DispatchAsyncImpl.class).in(Singleton.class);
+        bind(DispatchAsyncImpl.class).in(Singleton.class);
+        bind(DispatchAsync.class).to(BatchingDispatchAsync.class).in(Singleton.class);
         bind(HandlerMapping.class).to(HandlerRegistry.class).in(Singleton.class);
 
         bind(ReloadState.class).in(Singleton.class);
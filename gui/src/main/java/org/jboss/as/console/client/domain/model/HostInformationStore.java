@@ -23,6 +23,7 @@ import com.google.gwt.user.client.rpc.AsyncCallback;
 import org.jboss.as.console.client.domain.topology.HostInfo;
 import org.jboss.as.console.client.shared.jvm.Jvm;
 import org.jboss.as.console.client.shared.properties.PropertyRecord;
+import org.jboss.gwt.flow.client.FlowHandle;
 
 import java.util.List;
 import java.util.Map;
@@ -33,8 +34,12 @@ import java.util.Map;
  */
 public interface HostInformationStore {
     void getHosts(AsyncCallback<List<Host>> callback);
-    void loadHostsAndServerInstances(AsyncCallback<List<HostInfo>> callback);
-    void loadServerInstances(String serverGroup, AsyncCallback<List<ServerInstance>> callback);
+    /**
+     * Reads the hosts and the server instances of all hosts. Cancel the returned handle if the result is no longer
+     * needed, e.g. when the view is hidden.
+     */
+    FlowHandle loadHostsAndServerInstances(AsyncCallback<List<HostInfo>> callback);
+    FlowHandle loadServerInstances(String serverGroup, AsyncCallback<List<ServerInstance>> callback);
     void getServerConfigurations(String name, AsyncCallback<List<Server>> callback);
     void getServerConfiguration(String host, String server, final AsyncCallback<Server> callback);
     void getServerInstances(String host, AsyncCallback<List<ServerInstance>> callback);
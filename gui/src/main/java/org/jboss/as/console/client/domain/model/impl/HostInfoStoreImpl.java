@@ -46,8 +46,14 @@ import org.jboss.dmr.client.ModelNode;
 import org.jboss.dmr.client.ModelType;
 import org.jboss.dmr.client.Property;
 import org.jboss.dmr.client.dispatch.DispatchAsync;
+import org.jboss.dmr.client.dispatch.DispatchRequest;
 import org.jboss.dmr.client.dispatch.impl.DMRAction;
 import org.jboss.dmr.client.dispatch.impl.DMRResponse;
+import org.jboss.gwt.flow.client.Async;
+import org.jboss.gwt.flow.client.Control;
+import org.jboss.gwt.flow.client.FlowHandle;
+import org.jboss.gwt.flow.client.Function;
+import org.jboss.gwt.flow.client.Outcome;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -65,6 +71,8 @@ import static org.jboss.dmr.client.ModelDescriptionConstants.*;
  */
 public class HostInfoStoreImpl implements HostInformationStore {
 
+    private static final int MAX_CONCURRENT_HOSTS = 6;
+
     private DispatchAsync dispatcher;
     private BeanFactory factory;
     private ApplicationMetaData propertyMetaData;
@@ -84,12 +92,16 @@ public class HostInfoStoreImpl implements HostInformationStore {
 
     @Override
     public void getHosts(final AsyncCallback<List<Host>> callback) {
+        getHosts(callback, null);
+    }
+
+    private void getHosts(final AsyncCallback<List<Host>> callback, final Control<?> control) {
         final ModelNode operation = new ModelNode();
         operation.get(OP).set(READ_CHILDREN_RESOURCES_OPERATION);
         operation.get(CHILD_TYPE).set("host");
         operation.get(ADDRESS).setEmptyList();
 
-        dispatcher.execute(new DMRAction(operation, false), new AsyncCallback<DMRResponse>() {
+        register(control, dispatcher.execute(new DMRAction(operation, false), new AsyncCallback<DMRResponse>() {
             @Override
             public void onFailure(Throwable caught) {
                 callback.onFailure(caught);
@@ -124,73 +136,102 @@ public class HostInfoStoreImpl implements HostInformationStore {
                 }
             }
 
-        });
+        }));
     }
 
     @Override
-    public void loadHostsAndServerInstances(final AsyncCallback<List<HostInfo>> callback)
+    public FlowHandle loadHostsAndServerInstances(final AsyncCallback<List<HostInfo>> callback)
     {
-        getHosts(new SimpleCallback<List<Host>>() {
+        // first the hosts, then the server instances of all hosts
+        final Throwable[] failure = new Throwable[1];
+        Function<List<HostInfo>> readHosts = new Function<List<HostInfo>>() {
             @Override
-            public void onSuccess(final List<Host> hosts) {
-                // The command is used to defer callback.onSuccess()
-                // until all server instances of all hosts are available
-                final Command cmd = new Command() {
-                    int numRequests = 0;
-                    int numResponses = 0;
-                    final List<HostInfo> hostInfos = new ArrayList<HostInfo>();
+            public void execute(final Control<List<HostInfo>> control) {
+                getHosts(new SimpleCallback<List<Host>>() {
+                    @Override
+                    public void onFailure(final Throwable caught) {
+                        failure[0] = caught;
+                        control.abort();
+                    }
 
                     @Override
-                    public void execute() {
-                        for (final Host host : hosts) {
-                            numRequests++;
-                            getServerInstances(host.getName(), new SimpleCallback<List<ServerInstance>>() {
+                    public void onSuccess(final List<Host> hosts) {
+                        for (Host host : hosts) {
+                            HostInfo info = new HostInfo(host.getName(), host.isController());
+                            info.setServerInstances(Collections.<ServerInstance>emptyList());
+                            control.getContext().add(info);
+                        }
+                        control.proceed();
+                    }
+                }, control);
+            }
+        };
+
+        Function<List<HostInfo>> readServerInstances = new Function<List<HostInfo>>() {
+            @Override
+            public void execute(final Control<List<HostInfo>> control) {
+                // one function per host, but not more than MAX_CONCURRENT_HOSTS at the same time
+                // so that large domains don't saturate the browser's connection pool
+                List<HostInfo> hostInfos = control.getContext();
+                @SuppressWarnings("unchecked")
+                Function<List<HostInfo>>[] functions = new Function[hostInfos.size()];
+                for (int i = 0; i < hostInfos.size(); i++) {
+                    final HostInfo info = hostInfos.get(i);
+                    functions[i] = new Function<List<HostInfo>>() {
+                        @Override
+                        public void execute(final Control<List<HostInfo>> hostControl) {
+                            getServerInstances(info.getName(), new SimpleCallback<List<ServerInstance>>() {
                                 @Override
                                 public void onFailure(final Throwable caught) {
-                                    // log error
+                                    // log error, the host keeps an empty list of server instances
                                     super.onFailure(caught);
-
-                                    numResponses++;
-                                    HostInfo info = new HostInfo(host.getName(), host.isController());
-                                    info.setServerInstances(Collections.<ServerInstance>emptyList());
-                                    hostInfos.add(info);
-                                    checkComplete();
+                                    hostControl.proceed();
                                 }
 
                                 @Override
                                 public void onSuccess(List<ServerInstance> serverInstances) {
-                                    numResponses++;
-                                    HostInfo info = new HostInfo(host.getName(), host.isController());
                                     info.setServerInstances(serverInstances);
-                                    hostInfos.add(info);
-                                    checkComplete();
+                                    hostControl.proceed();
                                 }
-                            });
+                            }, hostControl);
                         }
-                    }
+                    };
+                }
 
-                    private void checkComplete() {
-                        if (numRequests == numResponses) {
-                            callback.onSuccess(hostInfos);
-                        }
+                // cancelling the outer flow cancels this one, too
+                control.register(new Async<List<HostInfo>>().parallel(hostInfos, new Outcome<List<HostInfo>>() {
+                    @Override
+                    public void onFailure(List<HostInfo> context) {
+                        // not reached: failures of single hosts are tolerated
+                        control.proceed();
                     }
-                };
 
-                Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
                     @Override
-                    public void execute() {
-                        cmd.execute();
+                    public void onSuccess(List<HostInfo> context) {
+                        control.proceed();
                     }
-                });
+                }, MAX_CONCURRENT_HOSTS, functions));
             }
-        });
+        };
+
+        return new Async<List<HostInfo>>().waterfall(new ArrayList<HostInfo>(), new Outcome<List<HostInfo>>() {
+            @Override
+            public void onFailure(List<HostInfo> hostInfos) {
+                callback.onFailure(failure[0] != null ? failure[0] : new RuntimeException("Failed to read hosts"));
+            }
+
+            @Override
+            public void onSuccess(List<HostInfo> hostInfos) {
+                callback.onSuccess(hostInfos);
+            }
+        }, readHosts, readServerInstances);
     }
 
     @Override
-    public void loadServerInstances(final String serverGroup, final AsyncCallback<List<ServerInstance>> callback)
+    public FlowHandle loadServerInstances(final String serverGroup, final AsyncCallback<List<ServerInstance>> callback)
     {
         final List<ServerInstance> instancesOfGroup = new LinkedList<ServerInstance>();
-        loadHostsAndServerInstances(new SimpleCallback<List<HostInfo>>() {
+        return loadHostsAndServerInstances(new SimpleCallback<List<HostInfo>>() {
             @Override
             public void onSuccess(final List<HostInfo> result) {
                 for (HostInfo host : result) {
@@ -210,6 +251,11 @@ public class HostInfoStoreImpl implements HostInformationStore {
 
     @Override
     public void getServerConfigurations(final String host, final AsyncCallback<List<Server>> callback) {
+        getServerConfigurations(host, callback, null);
+    }
+
+    private void getServerConfigurations(final String host, final AsyncCallback<List<Server>> callback,
+            final Control<?> control) {
 
         if(host==null) throw new RuntimeException("Host parameter is null!");
 
@@ -234,7 +280,7 @@ public class HostInfoStoreImpl implements HostInformationStore {
 
         operation.get(STEPS).set(steps);
 
-        dispatcher.execute(new DMRAction(operation, false), new AsyncCallback<DMRResponse>() {
+        register(control, dispatcher.execute(new DMRAction(operation, false), new AsyncCallback<DMRResponse>() {
             @Override
             public void onFailure(Throwable caught) {
                 callback.onFailure(caught);
@@ -291,7 +337,7 @@ public class HostInfoStoreImpl implements HostInformationStore {
 
             }
 
-        });
+        }));
     }
 
     @Override
@@ -383,6 +429,11 @@ public class HostInfoStoreImpl implements HostInformationStore {
 
     @Override
     public void getServerInstances(final String host, final AsyncCallback<List<ServerInstance>> callbackReference) {
+        getServerInstances(host, callbackReference, null);
+    }
+
+    private void getServerInstances(final String host, final AsyncCallback<List<ServerInstance>> callbackReference,
+            final Control<?> control) {
 
 
         final Command cmd = new Command() {
@@ -452,7 +503,7 @@ public class HostInfoStoreImpl implements HostInformationStore {
 
                             numRequests++;
 
-                            dispatcher.execute(new DMRAction(operation, false), new SimpleCallback<DMRResponse>() {
+                            register(control, dispatcher.execute(new DMRAction(operation, false), new SimpleCallback<DMRResponse>() {
 
 
                                 @Override
@@ -556,11 +607,11 @@ public class HostInfoStoreImpl implements HostInformationStore {
 
                                     checkComplete(instanceList, cb);
                                 }
-                            });
+                            }));
 
                         }
                     }
-                });
+                }, control);
             }
 
             private void checkComplete(List<ServerInstance> instanceList, AsyncCallback<List<ServerInstance>> callback) {
@@ -593,6 +644,15 @@ public class HostInfoStoreImpl implements HostInformationStore {
     }
 
 
+    /**
+     * Hands a request over to the flow which issued it, so that it's cancelled together with the flow.
+     */
+    private static void register(Control<?> control, final DispatchRequest request) {
+        if (control != null && request != null) {
+            control.register(request::cancel);
+        }
+    }
+
     public void updateServerInstance(String host, final Server handle, final AsyncCallback<ServerInstance> callback) {
 
 
@@ -11,6 +11,7 @@ import org.jboss.as.console.client.v3.dmr.ResourceAddress;
 import org.jboss.dmr.client.ModelNode;
 import org.jboss.dmr.client.Property;
 import org.jboss.dmr.client.dispatch.DispatchAsync;
+import org.jboss.dmr.client.dispatch.DispatchRequest;
 import org.jboss.dmr.client.dispatch.impl.DMRAction;
 import org.jboss.gwt.flow.client.Control;
 import org.jboss.gwt.flow.client.Function;
@@ -60,7 +61,7 @@ public final class TopologyFunctions {
                     .param(CHILD_TYPE, "server-group")
                     .build();
 
-            dispatcher.execute(new DMRAction(new Composite(hostsOp, groupsOp), false), new FunctionCallback(control) {
+            DispatchRequest request = dispatcher.execute(new DMRAction(new Composite(hostsOp, groupsOp), false), new FunctionCallback(control) {
                 @Override
                 public void onSuccess(final ModelNode result) {
                     ModelNode stepsResult = result.get(RESULT);
@@ -97,6 +98,7 @@ public final class TopologyFunctions {
                     context.set(GROUP_TO_PROFILE_KEY, groupToProfile);
                 }
             });
+            control.register(request::cancel);
         }
     }
 
@@ -134,7 +136,7 @@ public final class TopologyFunctions {
                 step++;
             }
 
-            dispatcher.execute(new DMRAction(new Composite(steps)), new FunctionCallback(control) {
+            DispatchRequest request = dispatcher.execute(new DMRAction(new Composite(steps)), new FunctionCallback(control) {
                 @Override
                 public void onSuccess(final ModelNode result) {
                     ModelNode stepsResult = result.get(RESULT);
@@ -166,6 +168,7 @@ public final class TopologyFunctions {
                     }
                 }
             });
+            control.register(request::cancel);
         }
     }
 
@@ -215,7 +218,7 @@ public final class TopologyFunctions {
                 }
             }
 
-            dispatcher.execute(new DMRAction(new Composite(steps)), new FunctionCallback(control) {
+            DispatchRequest request = dispatcher.execute(new DMRAction(new Composite(steps)), new FunctionCallback(control) {
                 @Override
                 public void onSuccess(final ModelNode result) {
                     ModelNode stepsResult = result.get(RESULT);
@@ -253,6 +256,7 @@ public final class TopologyFunctions {
                     context.push(hosts);
                 }
             });
+            control.register(request::cancel);
         }
     }
 }
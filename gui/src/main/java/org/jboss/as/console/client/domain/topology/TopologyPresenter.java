@@ -57,6 +57,7 @@ import org.jboss.as.console.spi.SearchIndex;
 import org.jboss.ballroom.client.widgets.window.DefaultWindow;
 import org.jboss.dmr.client.dispatch.DispatchAsync;
 import org.jboss.gwt.flow.client.Async;
+import org.jboss.gwt.flow.client.FlowHandle;
 import org.jboss.gwt.flow.client.Outcome;
 
 import java.util.*;
@@ -100,6 +101,7 @@ public class TopologyPresenter extends Presenter<TopologyPresenter.MyView, Topol
     private final DispatchAsync dispatcher;
     private final Map<String, ServerGroup> serverGroups;
     private LoadExtensionCmd loadExtensionCmd;
+    private FlowHandle topologyFlow;
     private boolean fake;
     private int hostIndex;
 
@@ -142,6 +144,18 @@ public class TopologyPresenter extends Presenter<TopologyPresenter.MyView, Topol
         loadExtensions();
     }
 
+    @Override
+    protected void onHide() {
+        super.onHide();
+        cancelTopology();
+    }
+
+    @Override
+    protected void onUnbind() {
+        super.onUnbind();
+        cancelTopology();
+    }
+
     @Override
     public void prepareFromRequest(final PlaceRequest request) {
         super.prepareFromRequest(request);
@@ -168,13 +182,23 @@ public class TopologyPresenter extends Presenter<TopologyPresenter.MyView, Topol
                     getView().updateHosts(deriveGroups(hosts), hostIndex);
                 }
             };
-            new Async<FunctionContext>(Footer.PROGRESS_ELEMENT).waterfall(new FunctionContext(), outcome,
+            // reading a large domain takes a while: don't keep reading once the view is gone
+            cancelTopology();
+            topologyFlow = new Async<FunctionContext>(Footer.PROGRESS_ELEMENT).waterfall(new FunctionContext(),
+                    outcome,
                     new TopologyFunctions.ReadHostsAndGroups(dispatcher),
                     new TopologyFunctions.ReadServerConfigs(dispatcher, beanFactory),
                     new TopologyFunctions.FindRunningServerInstances(dispatcher));
         }
     }
 
+    private void cancelTopology() {
+        if (topologyFlow != null) {
+            topologyFlow.cancel();
+            topologyFlow = null;
+        }
+    }
+
     public void requestHostIndex(int hostIndex) {
         // TODO Use the in-memory model of the topology for paging
         PlaceRequest.Builder builder = new PlaceRequest.Builder().nameToken(NameTokens.Topology)
@@ -0,0 +1,359 @@
+package org.jboss.as.console.client.rbac;
+
+import com.allen_sauer.gwt.log.client.Log;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import org.jboss.as.console.client.v3.ResourceDescriptionCache;
+import org.jboss.dmr.client.ModelNode;
+import org.jboss.dmr.client.ModelType;
+import org.jboss.dmr.client.dispatch.DispatchAsync;
+import org.jboss.dmr.client.dispatch.impl.DMRAction;
+import org.jboss.dmr.client.dispatch.impl.DMRResponse;
+import org.jboss.gwt.flow.client.Cancellable;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.jboss.dmr.client.ModelDescriptionConstants.*;
+
+/**
+ * Shared store for the results of the {@code read-resource-description} operations used to build security contexts.
+ * Each operation is executed at most once: results are kept in memory (backed by the {@link ResourceDescriptionCache})
+ * and operations which are already on their way are not sent again, but the callers wait for the pending response.
+ * <p>
+ * The result of an operation is the description of the requested resource. For wildcard operations the description
+ * matching the address of the operation is picked from the list response.
+ * <p>
+ * Entries are tagged with the address template they were requested for and invalidated by template (both in memory
+ * and in the {@link ResourceDescriptionCache}), e.g. when a
+ * {@link org.jboss.ballroom.client.rbac.SecurityContextChangedEvent} signals that the constraints of an instance might
+ * have changed.
+ * <p>
+ * The number of entries kept in memory is bounded, the least recently used entries are dropped first. Dropped entries
+ * are restored from the {@link ResourceDescriptionCache} if they are still there.
+ */
+public class AccessControlStore {
+
+    private static final int DEFAULT_MAX_ENTRIES = 500;
+
+    private final DispatchAsync dispatcher;
+    private final ResourceDescriptionCache cache;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, List<Slot>> pending;
+
+    @Inject
+    public AccessControlStore(DispatchAsync dispatcher, ResourceDescriptionCache cache) {
+        this(dispatcher, cache, DEFAULT_MAX_ENTRIES);
+    }
+
+    AccessControlStore(DispatchAsync dispatcher, ResourceDescriptionCache cache, int maxEntries) {
+        this.dispatcher = dispatcher;
+        this.cache = cache;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > AccessControlStore.this.maxEntries;
+            }
+        };
+        this.pending = new HashMap<>();
+    }
+
+    /**
+     * Reads the descriptions for the specified operations. The callback receives the descriptions in the order of the
+     * operations.
+     *
+     * @param addresses  the address templates the operations belong to (same size as {@code operations})
+     * @param operations the resolved {@code read-resource-description} operations
+     * @param callback   receives the result. {@link AsyncCallback#onFailure(Throwable)} is called for transport
+     *                   errors or unexpected responses.
+     *
+     * @return a handle to stop waiting for the result. Operations which are already on their way are not cancelled,
+     * their results are still stored for other callers.
+     */
+    public Cancellable fetch(List<String> addresses, List<ModelNode> operations, AsyncCallback<Result> callback) {
+        final Fetch fetch = new Fetch(operations.size(), callback);
+        final List<String> missingAddresses = new ArrayList<>();
+        final List<ModelNode> missing = new ArrayList<>();
+
+        for (int i = 0; i < operations.size(); i++) {
+            ModelNode operation = operations.get(i);
+            String key = key(operation);
+
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                ModelNode cached = cache.get(operation);
+                if (cached != null) {
+                    entry = new Entry(addresses.get(i), cached);
+                    entries.put(key, entry);
+                }
+            }
+
+            if (entry != null) {
+                fetch.payloads[i] = entry.payload;
+                fetch.remaining--;
+            } else if (pending.containsKey(key)) {
+                pending.get(key).add(new Slot(fetch, i));
+            } else {
+                List<Slot> slots = new ArrayList<>();
+                slots.add(new Slot(fetch, i));
+                pending.put(key, slots);
+                missingAddresses.add(addresses.get(i));
+                missing.add(operation);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            fetch.result.fetched = missing.size();
+            dispatch(fetch, missingAddresses, missing);
+        }
+        fetch.checkFinished();
+        return fetch;
+    }
+
+    /**
+     * Removes all entries which were requested for the specified address template from memory and from the
+     * {@link ResourceDescriptionCache}, so they are read again next time.
+     */
+    public void invalidate(String address) {
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            if (entry.address.equals(address)) {
+                iterator.remove();
+            }
+        }
+        cache.invalidate(address);
+    }
+
+    public void clear() {
+        entries.clear();
+        cache.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+
+    // ------------------------------------------------------ dispatch
+
+    private void dispatch(final Fetch fetch, final List<String> addresses, final List<ModelNode> operations) {
+        final ModelNode composite = new ModelNode();
+        composite.get(OP).set(COMPOSITE);
+        composite.get(ADDRESS).setEmptyList();
+        composite.get(STEPS).set(operations);
+
+        dispatcher.execute(new DMRAction(composite), new AsyncCallback<DMRResponse>() {
+            @Override
+            public void onFailure(Throwable caught) {
+                failed(operations, caught, null);
+            }
+
+            @Override
+            public void onSuccess(DMRResponse dmrResponse) {
+                ModelNode response = dmrResponse.get();
+                String responseText = dmrResponse.getResponseText();
+                fetch.result.responseSize = responseText != null ? responseText.length() : -1;
+
+                if (response.isFailure()) {
+                    failed(operations, null, response.getFailureDescription());
+                    return;
+                }
+
+                ModelNode compositeResult = response.get(RESULT);
+                for (int i = 0; i < operations.size(); i++) {
+                    ModelNode operation = operations.get(i);
+                    ModelNode stepResult = compositeResult.get("step-" + (i + 1)).get(RESULT);
+                    ModelNode payload = match(operation, stepResult);
+                    if (payload == null) {
+                        Log.error("Failed to process response: " + stepResult.toString());
+                        failed(operations.subList(i, operations.size()),
+                                new RuntimeException("Unexpected response format at address: " + addresses.get(i)),
+                                null);
+                        return;
+                    }
+
+                    String key = key(operation);
+                    if (payload.isDefined()) {
+                        entries.put(key, new Entry(addresses.get(i), payload));
+                        cache.put(addresses.get(i), operation, payload);
+                    }
+                    List<Slot> slots = pending.remove(key);
+                    if (slots != null) {
+                        for (Slot slot : slots) {
+                            slot.fetch.resolved(slot.index, payload);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void failed(List<ModelNode> operations, Throwable caught, String failure) {
+        for (ModelNode operation : operations) {
+            List<Slot> slots = pending.remove(key(operation));
+            if (slots != null) {
+                for (Slot slot : slots) {
+                    slot.fetch.failed(caught, failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * It's a list response when asking for '<resourceType>=*'. In that case pick the description which matches the
+     * address of the operation.
+     */
+    private ModelNode match(ModelNode operation, ModelNode stepResult) {
+        if (stepResult.getType() == ModelType.LIST) {
+            List<ModelNode> inquiryAddress = operation.get(ADDRESS).asList();
+            for (ModelNode node : stepResult.asList()) {
+                if (matchingAddress(node.get(ADDRESS).asList(), inquiryAddress)) {
+                    return node.get(RESULT);
+                }
+            }
+            return null;
+        }
+        return stepResult;
+    }
+
+    private static boolean matchingAddress(List<ModelNode> responseAddress, List<ModelNode> inquiryAddress) {
+        int numMatchingTokens = 0;
+        int offset = inquiryAddress.size() - responseAddress.size();
+
+        for (int i = responseAddress.size() - 1; i >= 0; i--) {
+            ModelNode token = responseAddress.get(i);
+            if (inquiryAddress.get(i + offset).toString().equals(token.toString()))
+                numMatchingTokens++;
+        }
+        return numMatchingTokens == responseAddress.size();
+    }
+
+    private static String key(ModelNode operation) {
+        return operation.toJSONString(true);
+    }
+
+
+    // ------------------------------------------------------ inner classes
+
+    public static class Result {
+
+        private final List<ModelNode> payloads;
+        private int fetched;
+        private int responseSize;
+        private String failure;
+
+        Result(List<ModelNode> payloads) {
+            this.payloads = payloads;
+            this.responseSize = -1;
+        }
+
+        /**
+         * @return the descriptions in the order of the operations (undefined if a step returned no result) or
+         * {@code null} if the composite operation failed.
+         */
+        public List<ModelNode> getPayloads() {
+            return failure == null ? payloads : null;
+        }
+
+        /**
+         * @return the number of operations which were sent to the server on behalf of this fetch
+         */
+        public int getFetched() {
+            return fetched;
+        }
+
+        /**
+         * @return the size of the response in characters or -1 if nothing was sent to the server on behalf of this
+         * fetch
+         */
+        public int getResponseSize() {
+            return responseSize;
+        }
+
+        public boolean isFailure() {
+            return failure != null;
+        }
+
+        public String getFailureDescription() {
+            return failure;
+        }
+    }
+
+
+    private static class Entry {
+
+        final String address;
+        final ModelNode payload;
+
+        Entry(String address, ModelNode payload) {
+            this.address = address;
+            this.payload = payload;
+        }
+    }
+
+
+    private static class Slot {
+
+        final Fetch fetch;
+        final int index;
+
+        Slot(Fetch fetch, int index) {
+            this.fetch = fetch;
+            this.index = index;
+        }
+    }
+
+
+    private static class Fetch implements Cancellable {
+
+        final ModelNode[] payloads;
+        final Result result;
+        final AsyncCallback<Result> callback;
+        int remaining;
+        boolean done;
+
+        Fetch(int size, AsyncCallback<Result> callback) {
+            this.payloads = new ModelNode[size];
+            this.result = new Result(Arrays.asList(payloads));
+            this.callback = callback;
+            this.remaining = size;
+        }
+
+        void resolved(int index, ModelNode payload) {
+            payloads[index] = payload;
+            remaining--;
+            checkFinished();
+        }
+
+        void failed(Throwable caught, String failure) {
+            if (!done) {
+                done = true;
+                if (caught != null) {
+                    callback.onFailure(caught);
+                } else {
+                    result.failure = failure;
+                    callback.onSuccess(result);
+                }
+            }
+        }
+
+        void checkFinished() {
+            if (!done && remaining == 0) {
+                done = true;
+                callback.onSuccess(result);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package org.jboss.as.console.client.rbac;
+
+import org.jboss.ballroom.client.rbac.AuthorisationDecision;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, compiled form of the constraints of a {@link SecurityContextImpl}. Attribute and operation names are
+ * interned to ids and the permissions of each resource are kept in bit sets indexed by these ids. The policies over
+ * all required resources are evaluated once when the matrix is compiled.
+ * <p>
+ * The policies are kept as immutable {@link Verdict}s. Since {@link AuthorisationDecision} is mutable, callers get a
+ * new decision for each check (see {@link Verdict#toDecision()}).
+ */
+final class PermissionMatrix {
+
+    private final Map<String, Integer> attributeIds;
+    private final Map<String, Integer> operationIds;
+    private final Map<String, Resource> resources;
+    private final Map<String, Resource> optionalResources;
+
+    /**
+     * Decisions over all required resources. {@code null} if the constraints of a required resource are missing.
+     * Resource privileges only take the constraints of required resources into account, attribute privileges the
+     * optional ones as well.
+     */
+    private final Verdict read;
+    private final Verdict write;
+    private final Verdict[] attributeRead;
+    private final Verdict[] attributeWrite;
+
+    PermissionMatrix(Set<ResourceRef> requiredResources, Map<String, Constraints> accessConstraints,
+            Map<String, Constraints> optionalConstraints) {
+
+        attributeIds = new HashMap<String, Integer>();
+        operationIds = new HashMap<String, Integer>();
+        intern(accessConstraints);
+        intern(optionalConstraints);
+
+        resources = compile(accessConstraints);
+        optionalResources = compile(optionalConstraints);
+
+        Map<String, Resource> required = required(requiredResources, false);
+        if (required != null) {
+            read = decide(required, READ_RESOURCE, -1);
+            write = decide(required, WRITE_RESOURCE, -1);
+        } else {
+            read = null;
+            write = null;
+        }
+
+        required = required(requiredResources, true);
+        if (required != null) {
+            attributeRead = new Verdict[attributeIds.size()];
+            attributeWrite = new Verdict[attributeIds.size()];
+            for (int id = 0; id < attributeIds.size(); id++) {
+                attributeRead[id] = decide(required, READ_ATTRIBUTE, id);
+                attributeWrite[id] = decide(required, WRITE_ATTRIBUTE, id);
+            }
+        } else {
+            attributeRead = null;
+            attributeWrite = null;
+        }
+    }
+
+
+    // ------------------------------------------------------ policies over all required resources
+
+    /**
+     * @return {@code null} if the policy cannot be evaluated because of missing constraints
+     */
+    Verdict getRead() {
+        return read;
+    }
+
+    /**
+     * @return {@code null} if the policy cannot be evaluated because of missing constraints
+     */
+    Verdict getWrite() {
+        return write;
+    }
+
+    /**
+     * @return {@code null} if the policy cannot be evaluated because of missing constraints
+     */
+    Verdict getAttributeRead(String name) {
+        if (attributeRead == null) {
+            return null;
+        }
+        Integer id = attributeIds.get(name);
+        // attributes without constraints are readable
+        return id == null ? Verdict.GRANTED : attributeRead[id];
+    }
+
+    /**
+     * @return {@code null} if the policy cannot be evaluated because of missing constraints
+     */
+    Verdict getAttributeWrite(String name) {
+        if (attributeWrite == null) {
+            return null;
+        }
+        Integer id = attributeIds.get(name);
+        // attributes without constraints are writable
+        return id == null ? Verdict.GRANTED : attributeWrite[id];
+    }
+
+
+    // ------------------------------------------------------ single resources
+
+    /**
+     * @return the compiled constraints or {@code null} if there are no constraints for the resource
+     */
+    Resource resource(String address, boolean includeOptional) {
+        Resource resource = resources.get(address);
+        if (resource == null && includeOptional) {
+            resource = optionalResources.get(address);
+        }
+        return resource;
+    }
+
+    int attributeId(String name) {
+        Integer id = attributeIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    int operationId(String name) {
+        Integer id = operationIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+
+    // ------------------------------------------------------ compile
+
+    private void intern(Map<String, Constraints> constraints) {
+        for (Map.Entry<String, Constraints> entry : constraints.entrySet()) {
+            for (String attribute : entry.getValue().attributePermissions.keySet()) {
+                if (!attributeIds.containsKey(attribute)) {
+                    attributeIds.put(attribute, attributeIds.size());
+                }
+            }
+            Set<String> operations = entry.getValue().execPermission.get(entry.getKey());
+            if (operations != null) {
+                for (String operation : operations) {
+                    if (!operationIds.containsKey(operation)) {
+                        operationIds.put(operation, operationIds.size());
+                    }
+                }
+            }
+        }
+    }
+
+    private Map<String, Resource> compile(Map<String, Constraints> constraints) {
+        Map<String, Resource> compiled = new HashMap<String, Resource>();
+        for (Map.Entry<String, Constraints> entry : constraints.entrySet()) {
+            String address = entry.getKey();
+            Constraints c = entry.getValue();
+            Resource resource = new Resource(c, attributeIds.size(), operationIds.size());
+            for (Map.Entry<String, Constraints.AttributePerm> attribute : c.attributePermissions.entrySet()) {
+                int id = attributeIds.get(attribute.getKey());
+                set(resource.declared, id);
+                if (attribute.getValue().isRead()) {
+                    set(resource.read, id);
+                }
+                if (attribute.getValue().isWrite()) {
+                    set(resource.write, id);
+                }
+            }
+            Set<String> operations = c.execPermission.get(address);
+            if (operations != null) {
+                for (String operation : operations) {
+                    set(resource.exec, operationIds.get(operation));
+                }
+            }
+            compiled.put(address, resource);
+        }
+        return compiled;
+    }
+
+    /**
+     * @return the compiled constraints of the required (non-optional) resources by address or {@code null} if some
+     * are missing
+     */
+    private Map<String, Resource> required(Set<ResourceRef> requiredResources, boolean includeOptional) {
+        Map<String, Resource> required = new LinkedHashMap<String, Resource>();
+        for (ResourceRef ref : requiredResources) {
+            if (!ref.optional) {
+                Resource resource = resource(ref.address, includeOptional);
+                if (resource == null) {
+                    return null;
+                }
+                required.put(ref.address, resource);
+            }
+        }
+        return required;
+    }
+
+    private static final int READ_RESOURCE = 0;
+    private static final int WRITE_RESOURCE = 1;
+    private static final int READ_ATTRIBUTE = 2;
+    private static final int WRITE_ATTRIBUTE = 3;
+
+    /**
+     * Granted if the privilege holds true for all required resources. Otherwise the decision contains the address
+     * of the first resource which denies the privilege.
+     */
+    private static Verdict decide(Map<String, Resource> required, int privilege, int attribute) {
+        for (Map.Entry<String, Resource> entry : required.entrySet()) {
+            Resource resource = entry.getValue();
+            boolean granted;
+            switch (privilege) {
+                case READ_RESOURCE:
+                    granted = resource.constraints.isReadResource();
+                    break;
+                case WRITE_RESOURCE:
+                    granted = resource.constraints.isWriteResource();
+                    break;
+                case READ_ATTRIBUTE:
+                    granted = !resource.isDeclared(attribute) || resource.isRead(attribute);
+                    break;
+                default:
+                    granted = !resource.isDeclared(attribute) || resource.isWrite(attribute);
+                    break;
+            }
+            if (!granted) {
+                return new Verdict(entry.getKey());
+            }
+        }
+        return Verdict.GRANTED;
+    }
+
+    private static void set(int[] bits, int index) {
+        bits[index >>> 5] |= 1 << (index & 31);
+    }
+
+    private static boolean get(int[] bits, int index) {
+        return index >= 0 && (bits[index >>> 5] & (1 << (index & 31))) != 0;
+    }
+
+
+    // ------------------------------------------------------ inner classes
+
+    /**
+     * Immutable outcome of a policy.
+     */
+    static final class Verdict {
+
+        static final Verdict GRANTED = new Verdict(null);
+
+        /**
+         * The address of the first required resource which denies the privilege, {@code null} if granted.
+         */
+        final String deniedBy;
+
+        private Verdict(String deniedBy) {
+            this.deniedBy = deniedBy;
+        }
+
+        boolean isGranted() {
+            return deniedBy == null;
+        }
+
+        /**
+         * @return a new decision with the address of the denying resource as error message
+         */
+        AuthorisationDecision toDecision() {
+            AuthorisationDecision decision = new AuthorisationDecision(true);
+            if (deniedBy != null) {
+                decision.getErrorMessages().add(deniedBy);
+                decision.setGranted(false);
+            }
+            return decision;
+        }
+    }
+
+
+    static final class Resource {
+
+        final Constraints constraints;
+        final int[] declared;
+        final int[] read;
+        final int[] write;
+        final int[] exec;
+
+        private Resource(Constraints constraints, int attributes, int operations) {
+            this.constraints = constraints;
+            this.declared = new int[(attributes + 31) >>> 5];
+            this.read = new int[declared.length];
+            this.write = new int[declared.length];
+            this.exec = new int[(operations + 31) >>> 5];
+        }
+
+        boolean isDeclared(int attribute) {
+            return get(declared, attribute);
+        }
+
+        boolean isRead(int attribute) {
+            return get(read, attribute);
+        }
+
+        boolean isWrite(int attribute) {
+            return get(write, attribute);
+        }
+
+        boolean isExec(int operation) {
+            return get(exec, operation);
+        }
+    }
+}
@@ -45,6 +45,11 @@ public class SecurityContextImpl implements SecurityContext {
      */
     private boolean sealed;
 
+    /**
+     * Compiled constraints, available once the context is sealed
+     */
+    private PermissionMatrix matrix;
+
     public SecurityContextImpl(String nameToken, Set<ResourceRef> requiredResources) {
         this.nameToken = nameToken;
         this.requiredResources = requiredResources;
@@ -102,6 +107,14 @@ public class SecurityContextImpl implements SecurityContext {
      */
     public AuthorisationDecision getReadPriviledge() {
 
+        PermissionMatrix.Verdict verdict = matrix != null ? matrix.getRead() : null;
+        if(verdict != null)
+        {
+            if(!verdict.isGranted())
+                Log.info("read privilege denied for: " + verdict.deniedBy);
+            return verdict.toDecision();
+        }
+
         return checkPriviledge(new Priviledge() {
             @Override
             public boolean isGranted(Constraints c) {
@@ -118,11 +131,19 @@ public class SecurityContextImpl implements SecurityContext {
     @Override
     public AuthorisationDecision getReadPrivilege(String resourceAddress) {
         Constraints constraints = getConstraints(resourceAddress, false);
-        return new AuthorisationDecision(constraints.isReadResource());
+        return decision(constraints.isReadResource());
     }
 
     @Override
     public AuthorisationDecision getWritePriviledge() {
+        PermissionMatrix.Verdict verdict = matrix != null ? matrix.getWrite() : null;
+        if(verdict != null)
+        {
+            if(!verdict.isGranted())
+                Log.info("write privilege denied for: " + verdict.deniedBy);
+            return verdict.toDecision();
+        }
+
         return checkPriviledge(new Priviledge() {
             @Override
             public boolean isGranted(Constraints c) {
@@ -138,10 +159,14 @@ public class SecurityContextImpl implements SecurityContext {
     @Override
     public AuthorisationDecision getWritePrivilege(String resourceAddress) {
         Constraints constraints = getConstraints(resourceAddress, false);
-        return new AuthorisationDecision(constraints.isWriteResource());
+        return decision(constraints.isWriteResource());
     }
 
     public AuthorisationDecision getAttributeWritePriviledge(final String name) {
+        PermissionMatrix.Verdict verdict = matrix != null ? matrix.getAttributeWrite(name) : null;
+        if(verdict != null)
+            return verdict.toDecision();
+
         return checkPriviledge(new Priviledge() {
             @Override
             public boolean isGranted(Constraints c) {
@@ -152,6 +177,10 @@ public class SecurityContextImpl implements SecurityContext {
 
     @Override
     public AuthorisationDecision getAttributeReadPriviledge(final String name) {
+        PermissionMatrix.Verdict verdict = matrix != null ? matrix.getAttributeRead(name) : null;
+        if(verdict != null)
+            return verdict.toDecision();
+
         return checkPriviledge(new Priviledge() {
              @Override
              public boolean isGranted(Constraints c) {
@@ -163,6 +192,15 @@ public class SecurityContextImpl implements SecurityContext {
     @Override
     public AuthorisationDecision getAttributeWritePriviledge(String resourceAddress, String attributeName) {
 
+        if(matrix != null)
+        {
+            PermissionMatrix.Resource resource = compiledConstraints(resourceAddress, true);
+            int id = matrix.attributeId(attributeName);
+            if(!resource.isDeclared(id))
+                throw new RuntimeException("No such attribute: "+ attributeName);
+            return decision(resource.isWrite(id));
+        }
+
         Constraints constraints = getConstraints(resourceAddress, true);
         Constraints.AttributePerm attributePerm = constraints.attributePermissions.get(attributeName);
 
@@ -174,6 +212,15 @@ public class SecurityContextImpl implements SecurityContext {
 
     @Override
     public AuthorisationDecision getAttributeReadPriviledge(String resourceAddress, String attributeName) {
+        if(matrix != null)
+        {
+            PermissionMatrix.Resource resource = compiledConstraints(resourceAddress, true);
+            int id = matrix.attributeId(attributeName);
+            if(!resource.isDeclared(id))
+                throw new RuntimeException("No such attribute: "+ attributeName);
+            return decision(resource.isRead(id));
+        }
+
         Constraints constraints = getConstraints(resourceAddress, true);
         Constraints.AttributePerm attributePerm = constraints.attributePermissions.get(attributeName);
 
@@ -183,7 +230,20 @@ public class SecurityContextImpl implements SecurityContext {
         return new AuthorisationDecision(attributePerm.isRead());
     }
 
+    private PermissionMatrix.Resource compiledConstraints(String resourceAddress, boolean includeOptional) {
+        PermissionMatrix.Resource resource = matrix.resource(resourceAddress, includeOptional);
+        if (null == resource) {
+            throw new RuntimeException(
+                    "Missing constraints for " + resourceAddress + ". Make sure the resource address matches the @AccessControl annotation");
+        }
+        return resource;
+    }
+
     private Constraints getConstraints(String resourceAddress, boolean includeOptional) {
+        if (matrix != null) {
+            return compiledConstraints(resourceAddress, includeOptional).constraints;
+        }
+
         Constraints constraints;
         if (includeOptional) {
             constraints = accessConstraints.containsKey(resourceAddress) ?
@@ -226,15 +286,26 @@ public class SecurityContextImpl implements SecurityContext {
         return childContexts.get(resourceAddress);
     }
 
+    /**
+     * Seals the context and compiles the constraints into a {@link PermissionMatrix}, which answers the policy
+     * decisions from now on.
+     */
     public void seal() {
-        this.sealed = true;
-
-        // TODO: move all policies that can be evaluated once into this method
+        if (!sealed) {
+            this.sealed = true;
+            this.matrix = new PermissionMatrix(requiredResources, accessConstraints, optionalConstraints);
+        }
     }
 
     @Override
     public AuthorisationDecision getOperationPriviledge(final String resourceAddress, final String operationName) {
 
+        if(matrix != null)
+        {
+            PermissionMatrix.Resource resource = compiledConstraints(resourceAddress, true);
+            return decision(resource.isExec(matrix.operationId(operationName)));
+        }
+
         Constraints constraints = getConstraints(resourceAddress, true);
         boolean execPerm = constraints.isOperationExec(resourceAddress, operationName);
         AuthorisationDecision descision = new AuthorisationDecision(true);
@@ -242,6 +313,10 @@ public class SecurityContextImpl implements SecurityContext {
         return descision;
     }
 
+    private static AuthorisationDecision decision(boolean granted) {
+        return new AuthorisationDecision(granted);
+    }
+
     /**
      * Security context which solely is based on the resource address specified as constructor parameter. The methods
      * which take a resource address as parameter don't operate on that address, but the one given as constructor
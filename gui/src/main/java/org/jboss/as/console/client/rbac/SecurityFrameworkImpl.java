@@ -9,7 +9,6 @@ import com.gwtplatform.mvp.client.proxy.PlaceManager;
 import org.jboss.as.console.client.Console;
 import org.jboss.as.console.client.core.BootstrapContext;
 import org.jboss.as.console.client.core.Footer;
-import org.jboss.as.console.client.domain.model.SimpleCallback;
 import org.jboss.as.console.client.plugins.RequiredResourcesRegistry;
 import org.jboss.as.console.client.widgets.progress.ProgressElement;
 import org.jboss.as.console.mbui.behaviour.CoreGUIContext;
@@ -19,18 +18,14 @@ import org.jboss.ballroom.client.rbac.SecurityContextAware;
 import org.jboss.ballroom.client.rbac.SecurityContextChangedEvent;
 import org.jboss.ballroom.client.rbac.SecurityContextChangedHandler;
 import org.jboss.dmr.client.ModelNode;
-import org.jboss.dmr.client.ModelType;
 import org.jboss.dmr.client.Property;
-import org.jboss.dmr.client.dispatch.DispatchAsync;
-import org.jboss.dmr.client.dispatch.impl.DMRAction;
-import org.jboss.dmr.client.dispatch.impl.DMRResponse;
 import org.useware.kernel.gui.behaviour.FilteringStatementContext;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -60,10 +55,10 @@ public class SecurityFrameworkImpl implements SecurityFramework, SecurityContext
     private static final String COMBINED_DESCRIPTIONS = "combined-descriptions";
 
     protected final RequiredResourcesRegistry requiredResourcesRegistry;
-    protected final DispatchAsync dispatcher;
     protected final CoreGUIContext statementContext;
     protected final CoreGUIContext coreGUIContext;
     protected final ContextKeyResolver keyResolver;
+    protected final AccessControlStore accessControlStore;
 
     private final FilteringStatementContext filteringStatementContext;
     private final Map<String, SecurityContextAware> contextAwareWidgets;
@@ -73,15 +68,15 @@ public class SecurityFrameworkImpl implements SecurityFramework, SecurityContext
     private final static SecurityContext READ_ONLY  = new ReadOnlyContext();
 
     @Inject
-    public SecurityFrameworkImpl(RequiredResourcesRegistry requiredResourcesRegistry, DispatchAsync dispatcher,
-                                 CoreGUIContext statementContext, final BootstrapContext bootstrap, EventBus eventBus,
-                                 CoreGUIContext coreGUIContext) {
+    public SecurityFrameworkImpl(RequiredResourcesRegistry requiredResourcesRegistry, CoreGUIContext statementContext,
+                                 final BootstrapContext bootstrap, EventBus eventBus, CoreGUIContext coreGUIContext,
+                                 AccessControlStore accessControlStore) {
 
         this.requiredResourcesRegistry = requiredResourcesRegistry;
-        this.dispatcher = dispatcher;
         this.statementContext = statementContext;
         this.coreGUIContext = coreGUIContext;
         this.keyResolver = new PlaceSecurityResolver();
+        this.accessControlStore = accessControlStore;
         this.contextAwareWidgets = new HashMap<>();
         this.filteringStatementContext = new FilteringStatementContext(
                 statementContext,
@@ -160,6 +155,9 @@ public class SecurityFrameworkImpl implements SecurityFramework, SecurityContext
         SecurityContext context = event.getSecurityContext();
         String addressTemplate = event.getResourceAddress();
 
+        // the constraints might have changed: contexts created from now on must not use the stored meta data
+        accessControlStore.invalidate(addressTemplate);
+
         if (context == null) {
 
             ModelNode addressNode = AddressMapping.fromString(addressTemplate)
@@ -222,14 +220,9 @@ public class SecurityFrameworkImpl implements SecurityFramework, SecurityContext
     }
 
     private void loadSecurityMetadata(final String id, final Set<String> requiredResources, boolean recursive, final AsyncCallback<SecurityContext> callback) {
-        final ModelNode operation = new ModelNode();
-        operation.get(OP).set(COMPOSITE);
-        operation.get(ADDRESS).setEmptyList();
-
-        final List<ModelNode> steps = new LinkedList<ModelNode>();
-
 
-        final Map<String, ResourceRef> step2address = new HashMap<String,ResourceRef>();
+        final List<String> addresses = new ArrayList<String>();
+        final List<ModelNode> steps = new ArrayList<ModelNode>();
 
         // normalisation
 
@@ -237,12 +230,11 @@ public class SecurityFrameworkImpl implements SecurityFramework, SecurityContext
         for(String address : requiredResources)
             references.add(new ResourceRef(address));
 
-        for (ResourceRef ref : references) {
+        final List<ResourceRef> refs = new ArrayList<ResourceRef>(references); // the order of the steps
+        for (ResourceRef ref : refs) {
             ModelNode emptyAddress = new ModelNode().setEmptyList();
             ModelNode step = AddressMapping.fromString(ref.address).asResource(emptyAddress, filteringStatementContext);
 
-            step2address.put("step-" + (steps.size() + 1), ref);   // we need this for later retrieval
-
             step.get(OP).set(READ_RESOURCE_DESCRIPTION_OPERATION);
             //step.get(RECURSIVE).set(true);
 
@@ -252,13 +244,11 @@ public class SecurityFrameworkImpl implements SecurityFramework, SecurityContext
             step.get(ACCESS_CONTROL).set(TRIM_DESCRIPTIONS); // reduces the payload size
             step.get(INCLUDE_ALIASES).set("true"); // TODO Test if this is still necessary once WFLY-2738 is fixed
             step.get(OPERATIONS).set(true);
+
+            addresses.add(ref.address);
             steps.add(step);
         }
 
-        operation.get(STEPS).set(steps);
-
-        //System.out.println("Request:" + operation);
-
         final long s0 = System.currentTimeMillis();
 
         // TOD: provide proper API
@@ -266,7 +256,8 @@ public class SecurityFrameworkImpl implements SecurityFramework, SecurityContext
         progressElement.reset();
         progressElement.tick();
 
-        dispatcher.execute(new DMRAction(operation), new SimpleCallback<DMRResponse>() {
+        // resources which have been read for other contexts are taken from the store
+        accessControlStore.fetch(addresses, steps, new AsyncCallback<AccessControlStore.Result>() {
 
             @Override
             public void onFailure(Throwable caught) {
@@ -279,24 +270,20 @@ public class SecurityFrameworkImpl implements SecurityFramework, SecurityContext
             }
 
             @Override
-            public void onSuccess(DMRResponse dmrResponse) {
-
-
-                Log.info("Context http (" + id + "): " + (System.currentTimeMillis() - s0) + "ms");
-
-                long s1 = System.currentTimeMillis();
-                ModelNode response = dmrResponse.get();
-                Log.info("Context decode (" + id + "): " + (System.currentTimeMillis() - s1) + "ms");
+            public void onSuccess(AccessControlStore.Result result) {
 
+                Log.info("Context fetch (" + id + "): " + (System.currentTimeMillis() - s0) + "ms, "
+                        + result.getFetched() + " of " + steps.size() + " resources read");
 
                 final long s2 = System.currentTimeMillis();
 
-                if(response.isFailure())
+                if(result.isFailure())
                 {
+                    progressElement.finish();
                     Log.error(
                             "Failed to retrieve access control meta data, " +
                                     "fallback to temporary read-only context: ",
-                            response.getFailureDescription());
+                            result.getFailureDescription());
 
                     contextMapping.put(id, READ_ONLY);
                     callback.onSuccess(READ_ONLY);
@@ -306,63 +293,19 @@ public class SecurityFrameworkImpl implements SecurityFramework, SecurityContext
 
                 try {
 
-                    ModelNode overalResult = response.get(RESULT);
-
                     SecurityContextImpl context = new SecurityContextImpl(id, references);
 
-                    // The first part is identify the resource that has been requested.
-                    // Depending on whether you've requested a wildcard address or a specific one
-                    // we either get a ModelType.List or ModelType.Object response.
-                    // The former requires parsing the response to access control meta data matching the inquiry.
+                    // The store already picked the access control meta data matching the inquiry
+                    // for wildcard addresses.
 
-                    for(int i=1; i<=steps.size();i++)
+                    List<ModelNode> payloads = result.getPayloads();
+                    for(int i=0; i<refs.size(); i++)
                     {
-                        String step = "step-"+i;
-                        if(overalResult.hasDefined(step))
+                        ModelNode payload = payloads.get(i);
+                        if(payload.isDefined())
                         {
-
-                            // break down the address into something we can match against the response
-                            final ResourceRef ref = step2address.get(step);
-                            ModelNode emptyAddress = new ModelNode().setEmptyList();
-                            final ModelNode addressNode = AddressMapping.fromString(ref.address).asResource(emptyAddress, filteringStatementContext);
-                            final List<ModelNode> inquiryAddress = addressNode.get(ADDRESS).asList();
-
-                            ModelNode stepResult = overalResult.get(step).get(RESULT);
-
-                            ModelNode payload = null;
-
-                            // it's a List response when asking for '<resourceType>=*"
-                            if(stepResult.getType() == ModelType.LIST)
-                            {
-                                List<ModelNode> nodes = stepResult.asList();
-
-                                for(ModelNode node : nodes)
-                                {
-                                    // matching the wildcard response
-                                    List<ModelNode> responseAddress = node.get(ADDRESS).asList();
-
-                                    // match the inquiry
-                                    if(matchingAddress(responseAddress, inquiryAddress))
-                                    {
-                                        payload = node;
-                                        break;
-                                    }
-                                }
-
-                                if(payload == null)
-                                {
-                                    //System.out.println(ref.address+" -> "+stepResult);
-                                    throw new RuntimeException("Unexpected response format");
-                                }
-
-                            }
-                            else
-                            {
-                                payload = stepResult;
-                            }
-
                             // break down into root resource and children
-                            parseAccessControlChildren(ref, references, context, payload);
+                            parseAccessControlChildren(refs.get(i), references, context, payload);
                         }
                     }
 
@@ -385,21 +328,6 @@ public class SecurityFrameworkImpl implements SecurityFramework, SecurityContext
         });
     }
 
-    private static boolean matchingAddress(List<ModelNode> responseAddress, List<ModelNode> inquiryAdress) {
-
-        int numMatchingTokens = 0;
-        int offset = inquiryAdress.size()-responseAddress.size();
-
-        for(int i=responseAddress.size()-1; i>=0; i--)
-        {
-            ModelNode token = responseAddress.get(i);
-            if(inquiryAdress.get(i+offset).toString().equals(token.toString()))
-                numMatchingTokens++;
-        }
-
-        return numMatchingTokens==responseAddress.size();
-    }
-
     private void parseAccessControlChildren(final ResourceRef ref, Set<ResourceRef> references, SecurityContextImpl context, ModelNode payload) {
 
         ModelNode actualPayload = payload.hasDefined(RESULT) ? payload.get(RESULT) : payload;
@@ -0,0 +1,190 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.jboss.as.console.client.search;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Compact form of a lunr index as it's persisted by {@link Index}. The form consists of the lines
+ * <pre>
+ * format
+ * lunr version
+ * fields (JSON)
+ * ref
+ * pipeline (JSON)
+ * tokens
+ * postings
+ * </pre>
+ * <ul>
+ * <li>tokens: the sorted corpus tokens separated by blanks (lunr splits on whitespace, so tokens never contain
+ * blanks or line breaks). Each token is front coded: the first character is the length of the prefix shared with
+ * the previous token (as char code offset by 48), followed by the remaining characters.</li>
+ * <li>postings: for each token the documents containing the token separated by ';'. The documents of a token are
+ * separated by ',' and encoded as {@code <ref delta>:<term frequency * 10000>} in base 36.</li>
+ * </ul>
+ * The document store of lunr (document -> tokens) is not part of the compact form, it's rebuilt from the postings.
+ * <p>
+ * The internal structures of lunr differ between versions, so {@link #parse(String, String)} rejects a compact
+ * form which was written by another version of lunr (or in another layout).
+ */
+class CompactIndex {
+
+    /**
+     * Version of the layout. Version 2 was a JSON array.
+     */
+    private static final String FORMAT = "3";
+    private static final int LINES = 7;
+
+    private String lunrVersion;
+    private String fields;
+    private String ref;
+    private String pipeline;
+    /**
+     * Token -> document ref -> term frequency, both sorted
+     */
+    private final SortedMap<String, SortedMap<Long, Double>> postings;
+
+    CompactIndex() {
+        this.postings = new TreeMap<>();
+    }
+
+    /**
+     * Parses the compact form.
+     *
+     * @return the compact index or {@code null} if the value was written in another format, by another version of
+     * lunr or is corrupt
+     */
+    static CompactIndex parse(String value, String lunrVersion) {
+        String[] lines = value.split("\n", -1);
+        if (lines.length != LINES || !FORMAT.equals(lines[0]) || !lines[1].equals(lunrVersion)) {
+            return null;
+        }
+        CompactIndex compact = new CompactIndex();
+        compact.setHeader(lines[1], lines[2], lines[3], lines[4]);
+
+        String[] tokens = lines[5].isEmpty() ? new String[0] : lines[5].split(" ");
+        String[] postings = lines[6].isEmpty() ? new String[0] : lines[6].split(";");
+        if (tokens.length != postings.length) {
+            return null;
+        }
+        try {
+            String previous = "";
+            for (int i = 0; i < tokens.length; i++) {
+                int common = tokens[i].charAt(0) - 48;
+                if (common < 0 || common > previous.length()) {
+                    return null;
+                }
+                String token = previous.substring(0, common) + tokens[i].substring(1);
+                long ref = 0;
+                for (String posting : postings[i].split(",")) {
+                    int colon = posting.indexOf(':');
+                    ref += Long.parseLong(posting.substring(0, colon), 36);
+                    compact.add(token, ref, Long.parseLong(posting.substring(colon + 1), 36) / 10000.0);
+                }
+                previous = token;
+            }
+        } catch (RuntimeException e) {
+            // malformed numbers or postings
+            return null;
+        }
+        return compact;
+    }
+
+    void setHeader(String lunrVersion, String fields, String ref, String pipeline) {
+        this.lunrVersion = lunrVersion;
+        this.fields = fields;
+        this.ref = ref;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Adds a posting. Used by the native code which exports the lunr index, that's why the ref is a string.
+     */
+    void add(String token, String ref, double tf) {
+        add(token, Long.parseLong(ref), tf);
+    }
+
+    void add(String token, long ref, double tf) {
+        SortedMap<Long, Double> documents = postings.get(token);
+        if (documents == null) {
+            documents = new TreeMap<>();
+            postings.put(token, documents);
+        }
+        documents.put(ref, tf);
+    }
+
+    String serialize() {
+        StringBuilder tokens = new StringBuilder();
+        StringBuilder encoded = new StringBuilder();
+        String previous = "";
+        for (Map.Entry<String, SortedMap<Long, Double>> entry : postings.entrySet()) {
+            String token = entry.getKey();
+            int common = 0;
+            int max = Math.min(previous.length(), token.length());
+            while (common < max && previous.charAt(common) == token.charAt(common)) {
+                common++;
+            }
+            if (tokens.length() > 0) {
+                tokens.append(' ');
+                encoded.append(';');
+            }
+            tokens.append((char) (48 + common)).append(token.substring(common));
+
+            long last = 0;
+            boolean first = true;
+            for (Map.Entry<Long, Double> posting : entry.getValue().entrySet()) {
+                if (!first) {
+                    encoded.append(',');
+                }
+                encoded.append(Long.toString(posting.getKey() - last, 36)).append(':')
+                        .append(Long.toString(Math.round(posting.getValue() * 10000), 36));
+                last = posting.getKey();
+                first = false;
+            }
+            previous = token;
+        }
+        return FORMAT + "\n" + lunrVersion + "\n" + fields + "\n" + ref + "\n" + pipeline + "\n" + tokens + "\n"
+                + encoded;
+    }
+
+    String getLunrVersion() {
+        return lunrVersion;
+    }
+
+    String getFields() {
+        return fields;
+    }
+
+    String getRef() {
+        return ref;
+    }
+
+    String getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * @return token -> document ref -> term frequency, sorted by token and ref
+     */
+    SortedMap<String, SortedMap<Long, Double>> getPostings() {
+        return postings;
+    }
+}
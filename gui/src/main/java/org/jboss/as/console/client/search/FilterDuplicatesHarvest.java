@@ -28,12 +28,10 @@ import java.util.Set;
 */
 class FilterDuplicatesHarvest implements Harvest.Handler {
 
-    private final Index index;
     private final SearchPopup searchPopup;
     private final Set<Entry> entries;
 
-    FilterDuplicatesHarvest(final Index index, final SearchPopup searchPopup) {
-        this.index = index;
+    FilterDuplicatesHarvest(final SearchPopup searchPopup) {
         this.searchPopup = searchPopup;
         this.entries = new HashSet<Entry>();
     }
@@ -56,7 +54,6 @@ class FilterDuplicatesHarvest implements Harvest.Handler {
 
     @Override
     public void onFinish() {
-        index.save();
         searchPopup.showSearchPage();
     }
 
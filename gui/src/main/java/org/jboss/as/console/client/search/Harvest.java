@@ -1,7 +1,9 @@
 package org.jboss.as.console.client.search;
 
+import com.allen_sauer.gwt.log.client.Log;
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.user.client.rpc.AsyncCallback;
-import org.jboss.as.console.client.Console;
 import org.jboss.as.console.client.core.BootstrapContext;
 import org.jboss.as.console.client.core.Footer;
 import org.jboss.as.console.client.plugins.SearchIndexRegistry;
@@ -10,9 +12,10 @@ import org.jboss.as.console.mbui.model.mapping.AddressMapping;
 import org.jboss.dmr.client.ModelNode;
 import org.jboss.dmr.client.ModelType;
 import org.jboss.dmr.client.dispatch.DispatchAsync;
+import org.jboss.dmr.client.dispatch.DispatchError;
 import org.jboss.dmr.client.dispatch.impl.DMRAction;
 import org.jboss.dmr.client.dispatch.impl.DMRResponse;
-import org.jboss.gwt.flow.client.*;
+import org.jboss.gwt.flow.client.Progress;
 import org.useware.kernel.gui.behaviour.FilteringStatementContext;
 
 import javax.inject.Inject;
@@ -21,17 +24,40 @@ import java.util.*;
 import static org.jboss.dmr.client.ModelDescriptionConstants.*;
 
 /**
- * Creates search indexes.
+ * Creates search indexes. Harvesting runs in the background and is incremental: tokens which are already indexed
+ * with the same resources and keywords are skipped (see {@link Index#getFingerprint(String)}).
  *
  * @author Heiko Braun
  */
 public class Harvest {
 
+    /**
+     * Max. number of steps in one composite operation
+     */
+    static final int BATCH_SIZE = 25;
+
+    /**
+     * The status code of a composite operation with a failed step
+     */
+    private static final int STEP_FAILED = 500;
+
+    /**
+     * Time in ms spent indexing in one go and the pause between two slices
+     */
+    private static final int SLICE = 10;
+    private static final int PAUSE = 20;
+
+    /**
+     * Min. time in ms between two saves of the index while harvesting
+     */
+    private static final int CHECKPOINT_INTERVAL = 5000;
+
     private final SearchIndexRegistry searchIndexRegistry;
     private final DispatchAsync dispatcher;
     private final BootstrapContext bootstrap;
     private final Index index;
     private final FilteringStatementContext filteringStatementContext;
+    private boolean running;
 
     @Inject
     public Harvest(SearchIndexRegistry searchIndexRegistry, DispatchAsync dispatcher,
@@ -67,144 +93,357 @@ public class Harvest {
         );
     }
 
+    /**
+     * @return {@code true} if all registered tokens are indexed with their current resources and keywords.
+     */
+    public boolean isComplete() {
+        for (Unit unit : units()) {
+            if (!unit.fingerprint.equals(index.getFingerprint(unit.token))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
     public void run(final Handler handler) {
         run(handler, Footer.PROGRESS_ELEMENT);
     }
 
+    /**
+     * Harvests the tokens which are not yet indexed or whose resources or keywords changed. The descriptions are
+     * read in composite operations of up to {@value #BATCH_SIZE} steps, one composite at a time. If a step fails,
+     * the steps of that batch are read one by one. Only tokens whose descriptions could all be read are marked as
+     * harvested. Indexing the descriptions is done in time slices between which the browser can handle other
+     * events. The index is saved periodically, so a harvest which is interrupted by a reload continues where it
+     * left off.
+     */
     public void run(final Handler handler, Progress progress) {
+        if (running) {
+            return;
+        }
+        running = true;
         handler.onStart();
 
-        Set<Function<Map<String, SearchIndexData>>> functions = new HashSet<Function<Map<String, SearchIndexData>>>();
-        for (final String token : searchIndexRegistry.getTokens(bootstrap.isStandalone())) {
-            final Set<String> resources = searchIndexRegistry.getResources(token);
+        // tokens which are no longer registered
+        List<Unit> units = units();
+        Set<String> registered = new HashSet<>();
+        for (Unit unit : units) {
+            registered.add(unit.token);
+        }
+        for (String token : new ArrayList<>(index.getTokens())) {
+            if (!registered.contains(token)) {
+                index.remove(token);
+            }
+        }
+
+        // pack the pending tokens into batches, the resources of one token are never split
+        List<List<Unit>> batches = new ArrayList<>();
+        List<Unit> batch = new ArrayList<>();
+        int steps = 0;
+        for (Unit unit : units) {
+            if (unit.fingerprint.equals(index.getFingerprint(unit.token))) {
+                continue;
+            }
+            if (!batch.isEmpty() && steps + unit.operations.size() > BATCH_SIZE) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                steps = 0;
+            }
+            batch.add(unit);
+            steps += unit.operations.size();
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+
+        new Run(handler, progress, batches).next();
+    }
+
+    /**
+     * The tokens and their resolved resources. Resolved on each call, since the resources depend on values of the
+     * statement context which change at runtime (e.g. the selected profile in domain mode). The fingerprint of a
+     * token contains the resolved addresses, so a token is harvested again if its addresses changed.
+     */
+    private List<Unit> units() {
+        List<Unit> units = new ArrayList<>();
+        for (final String token : new TreeSet<>(searchIndexRegistry.getTokens(bootstrap.isStandalone()))) {
             final Set<String> keywords = searchIndexRegistry.getKeywords(token);
-            for (final String resource : resources) {
+            Unit unit = new Unit(token, keywords);
+            for (final String resource : new TreeSet<>(searchIndexRegistry.getResources(token))) {
                 // TODO
                 if (resource.startsWith("opt:")) { continue; }
 
                 final ModelNode op = AddressMapping.fromString(resource).asResource(filteringStatementContext);
                 // skip unrecognized addresses
                 if (!op.get(ADDRESS).isDefined()) {
-                    System.out.println("Skipped " + token + " > " + resource + ": No valid address could be resolved: " + op);
+                    Log.warn("Skipped " + token + " > " + resource + ": No valid address could be resolved: " + op);
                     continue;
                 }
                 op.get(OP).set(READ_RESOURCE_DESCRIPTION_OPERATION);
+                unit.resources.add(resource);
+                unit.operations.add(op);
+            }
+            if (!unit.operations.isEmpty()) {
+                unit.fingerprint = fingerprint(unit);
+                units.add(unit);
+            }
+        }
+        return units;
+    }
 
-                Function<Map<String, SearchIndexData>> f = new Function<Map<String, SearchIndexData>>() {
-                    @Override
-                    public void execute(final Control<Map<String, SearchIndexData>> control) {
-
-                        dispatcher.execute(new DMRAction(op), new AsyncCallback<DMRResponse>() {
-                            @Override
-                            public void onFailure(Throwable caught) {
-                                System.out.println("Skipped " + token + " > " + resource);
-                                handler.onError(caught);
-                                control.proceed();
-                            }
-
-                            @Override
-                            public void onSuccess(DMRResponse result) {
-                                ModelNode response = result.get();
-                                if (response.isFailure()) {
-                                    handler.onError(new RuntimeException(response.getFailureDescription()));
-                                    System.out.println("Skipped " + token + " > " + resource);
-                                } else {
-                                    ModelNode delegate = response.get(RESULT).getType().equals(ModelType.LIST) ?
-                                            response.get(RESULT).asList().get(0) : response.get(RESULT);
-                                    try {
-                                        String description = delegate.hasDefined(DESCRIPTION) ?
-                                                delegate.get(DESCRIPTION).asString() : delegate.get(RESULT)
-                                                .get(DESCRIPTION).asString();
-
-                                        // todo: cleanup
-                                        if (description.equals("undefined")) {
-                                            System.out.println("Undefined description " + token + " > " + resource);
-                                        } else {
-                                            String address = op.get(ADDRESS).asString();
-                                            if (handler.shouldHarvest(token, address, description)) {
-
-                                                // Enable to dump search data
-                                                // collectSearchIndex(token, resource, description, keywords);
-
-                                                index.add(token, keywords, description);
-                                                handler.onHarvest(token, address, description);
-                                            } else {
-                                                System.out.println("Denied by harvest handler " + token + " > " + resource);
-                                            }
-                                        }
-                                    } catch (Throwable e) {
-                                        System.out.println("Skipped " + token + " > " + resource + ": " + e.getMessage());
-                                    }
-                                }
-                                control.proceed();
-                            }
-
-                            @SuppressWarnings("UnusedDeclaration")
-                            private void collectSearchIndex(String token, String resource, String description, Set<String> keywords) {
-                                SearchIndexData sid = control.getContext().get(token);
-                                if (sid == null) {
-                                    sid = new SearchIndexData(token, keywords);
-                                    control.getContext().put(token, sid);
-                                }
-                                sid.resources.add(resource);
-                                sid.descriptions.add(description);
-                            }
-                        });
+    private static String fingerprint(Unit unit) {
+        StringBuilder builder = new StringBuilder();
+        if (unit.keywords != null) {
+            for (String keyword : new TreeSet<>(unit.keywords)) {
+                builder.append(keyword).append(',');
+            }
+        }
+        for (ModelNode operation : unit.operations) {
+            builder.append('\n').append(operation.get(ADDRESS).toString());
+        }
+        return builder.length() + ":" + Integer.toHexString(builder.toString().hashCode());
+    }
+
+
+    /**
+     * A single harvest: reads one batch after another and indexes the descriptions in time slices.
+     */
+    private class Run {
+
+        private final Handler handler;
+        private final Progress progress;
+        private final List<List<Unit>> batches;
+        private int current;
+        private boolean dirty;
+        private double lastSave;
+
+        Run(final Handler handler, final Progress progress, final List<List<Unit>> batches) {
+            this.handler = handler;
+            this.progress = progress;
+            this.batches = batches;
+            this.lastSave = Duration.currentTimeMillis();
+            progress.reset(batches.size());
+        }
+
+        void next() {
+            if (current == batches.size()) {
+                finish();
+                return;
+            }
+
+            final List<Unit> batch = batches.get(current++);
+            final List<ModelNode> steps = new ArrayList<>();
+            for (Unit unit : batch) {
+                steps.addAll(unit.operations);
+            }
+            ModelNode composite = new ModelNode();
+            composite.get(OP).set(COMPOSITE);
+            composite.get(ADDRESS).setEmptyList();
+            composite.get(STEPS).set(steps);
+
+            dispatcher.execute(new DMRAction(composite), new AsyncCallback<DMRResponse>() {
+                @Override
+                public void onFailure(Throwable caught) {
+                    if (caught instanceof DispatchError && ((DispatchError) caught).getStatusCode() == STEP_FAILED) {
+                        // the response does not contain the results of the other steps
+                        Log.warn("Composite failed, reading " + steps.size() + " steps one by one: " +
+                                caught.getMessage());
+                        readSingle(batch, steps, 0, new ModelNode());
+                    } else {
+                        // the tokens of this batch are not marked as harvested and will be read again next time
+                        skipped(batch, caught);
+                    }
+                }
+
+                @Override
+                public void onSuccess(DMRResponse result) {
+                    ModelNode response = result.get();
+                    if (!response.get(RESULT).isDefined()) {
+                        skipped(batch, new RuntimeException(response.getFailureDescription()));
+                    } else {
+                        index(batch, response.get(RESULT));
                     }
-                };
-                functions.add(f);
+                }
+            });
+        }
+
+        /**
+         * Executes the steps of a batch as single operations, one after another, and collects the responses in the
+         * same form as the result of a composite operation.
+         */
+        private void readSingle(final List<Unit> batch, final List<ModelNode> steps, final int position,
+                final ModelNode compositeResult) {
+            if (position == steps.size()) {
+                index(batch, compositeResult);
+                return;
             }
+
+            final String step = "step-" + (position + 1);
+            dispatcher.execute(new DMRAction(steps.get(position)), new AsyncCallback<DMRResponse>() {
+                @Override
+                public void onFailure(Throwable caught) {
+                    ModelNode failed = new ModelNode();
+                    failed.get(OUTCOME).set(FAILED);
+                    failed.get(FAILURE_DESCRIPTION).set(String.valueOf(caught.getMessage()));
+                    compositeResult.get(step).set(failed);
+                    readSingle(batch, steps, position + 1, compositeResult);
+                }
+
+                @Override
+                public void onSuccess(DMRResponse result) {
+                    compositeResult.get(step).set(result.get());
+                    readSingle(batch, steps, position + 1, compositeResult);
+                }
+            });
         }
 
-        //noinspection unchecked
-        final Map<String, SearchIndexData> searchIndexDump = new HashMap<>();
-        new Async<Map<String, SearchIndexData>>(progress).parallel(searchIndexDump, new Outcome<Map<String, SearchIndexData>>() {
-            @Override
-            public void onFailure(Map<String, SearchIndexData> context) {
-                Console.error("Harvest failed");
+        private void skipped(List<Unit> batch, Throwable caught) {
+            for (Unit unit : batch) {
+                Log.warn("Skipped " + unit.token);
             }
+            handler.onError(caught);
+            progress.tick();
+            next();
+        }
 
-            @Override
-            public void onSuccess(Map<String, SearchIndexData> context) {
-                // Enable to dump search data
-                // dumpSearchIndex(context);
-                handler.onFinish();
+        /**
+         * Collects the descriptions of the batch and adds them to the index in time slices. Tokens with a failed
+         * step are not marked as harvested and will be read again next time.
+         */
+        private void index(final List<Unit> batch, ModelNode compositeResult) {
+            final List<Unit> owners = new ArrayList<>();
+            final List<Integer> positions = new ArrayList<>();
+            final List<String> descriptions = new ArrayList<>();
+            final Set<Unit> failed = new HashSet<>();
+
+            int step = 1;
+            for (Unit unit : batch) {
+                for (int i = 0; i < unit.operations.size(); i++, step++) {
+                    ModelNode stepResponse = compositeResult.get("step-" + step);
+                    if (stepResponse.isFailure() || !stepResponse.get(RESULT).isDefined()) {
+                        handler.onError(new RuntimeException(stepResponse.getFailureDescription()));
+                        Log.warn("Skipped " + unit.token + " > " + unit.resources.get(i));
+                        failed.add(unit);
+                        continue;
+                    }
+                    String description = description(unit, i, stepResponse.get(RESULT));
+                    if (description != null) {
+                        owners.add(unit);
+                        positions.add(i);
+                        descriptions.add(description);
+                    }
+                }
             }
 
-            @SuppressWarnings("UnusedDeclaration")
-            private void dumpSearchIndex(Map<String, SearchIndexData> context) {
-                System.out.println("token|resources|descriptions|keywords");
-                for (SearchIndexData sid : context.values()) {
-                    System.out.print(sid.token);
-                    System.out.print("|");
-                    for (String resource : sid.resources) {
-                        System.out.print(resource + ";");
+            Scheduler.get().scheduleFixedDelay(new Scheduler.RepeatingCommand() {
+                int next = -1;
+
+                @Override
+                public boolean execute() {
+                    Duration slice = new Duration();
+                    if (next == -1) {
+                        // drop what might be left from a previous harvest of these tokens
+                        for (Unit unit : batch) {
+                            index.remove(unit.token);
+                        }
+                        next = 0;
                     }
-                    System.out.print("|");
-                    for (String desc : sid.descriptions) {
-                        System.out.print(desc + ";");
+                    while (next < descriptions.size() && slice.elapsedMillis() < SLICE) {
+                        add(owners.get(next), positions.get(next), descriptions.get(next));
+                        next++;
                     }
-                    System.out.print("|");
-                    for (String keyword : sid.keywords) {
-                        System.out.print(keyword + ";");
+                    if (next < descriptions.size()) {
+                        return true;
                     }
-                    System.out.println();
+
+                    for (Unit unit : batch) {
+                        if (!failed.contains(unit)) {
+                            index.setFingerprint(unit.token, unit.fingerprint);
+                        }
+                    }
+                    dirty = true;
+                    if (Duration.currentTimeMillis() - lastSave > CHECKPOINT_INTERVAL) {
+                        save();
+                    }
+                    progress.tick();
+                    next();
+                    return false;
+                }
+            }, PAUSE);
+        }
+
+        /**
+         * @return the description or {@code null} if there's no description
+         */
+        private String description(Unit unit, int position, ModelNode stepResult) {
+            String token = unit.token;
+            String resource = unit.resources.get(position);
+            ModelNode delegate = stepResult.getType().equals(ModelType.LIST) ?
+                    stepResult.asList().get(0) : stepResult;
+            try {
+                String description = delegate.hasDefined(DESCRIPTION) ?
+                        delegate.get(DESCRIPTION).asString() : delegate.get(RESULT)
+                        .get(DESCRIPTION).asString();
+
+                // todo: cleanup
+                if (description.equals("undefined")) {
+                    Log.debug("Undefined description " + token + " > " + resource);
+                    return null;
                 }
+                return description;
+            } catch (Throwable e) {
+                Log.warn("Skipped " + token + " > " + resource + ": " + e.getMessage());
+                return null;
             }
-        }, functions.toArray(new Function[functions.size()]));
+        }
+
+        private void add(Unit unit, int position, String description) {
+            String address = unit.operations.get(position).get(ADDRESS).asString();
+            if (handler.shouldHarvest(unit.token, address, description)) {
+                index.add(unit.token, unit.keywords, description);
+                handler.onHarvest(unit.token, address, description);
+            } else {
+                Log.debug("Denied by harvest handler " + unit.token + " > " + unit.resources.get(position));
+            }
+        }
+
+        private void save() {
+            if (dirty) {
+                index.save();
+                dirty = false;
+            }
+            lastSave = Duration.currentTimeMillis();
+        }
+
+        private void finish() {
+            index.save();
+            running = false;
+            progress.finish();
+            handler.onFinish();
+        }
     }
 
-    class SearchIndexData {
-        private final String token;
-        private final Set<String> keywords;
-        private final List<String> resources;
-        private final List<String> descriptions;
 
-        SearchIndexData(final String token, Set<String> keywords) {
+    /**
+     * A token together with its keywords and resolved resources.
+     */
+    private static class Unit {
+
+        final String token;
+        final Set<String> keywords;
+        final List<String> resources;
+        final List<ModelNode> operations;
+        String fingerprint;
+
+        Unit(final String token, final Set<String> keywords) {
             this.token = token;
             this.keywords = keywords;
             this.resources = new ArrayList<>();
-            this.descriptions = new ArrayList<>();
+            this.operations = new ArrayList<>();
         }
     }
 
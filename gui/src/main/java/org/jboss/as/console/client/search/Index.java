@@ -22,32 +22,62 @@ import com.allen_sauer.gwt.log.client.Log;
 import com.google.gwt.core.client.JavaScriptException;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArray;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONNumber;
 import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONParser;
 import com.google.gwt.json.client.JSONString;
+import com.google.gwt.json.client.JSONValue;
 import com.google.gwt.storage.client.Storage;
 import com.google.gwt.storage.client.StorageEvent;
-import com.google.web.bindery.autobean.shared.AutoBean;
-import com.google.web.bindery.autobean.shared.AutoBeanCodex;
-import com.google.web.bindery.autobean.shared.AutoBeanUtils;
 import org.jboss.as.console.client.shared.BeanFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 
 /**
  * An index which builds on <a href="http://lunrjs.com/">http://lunrjs.com/</a>. The index and the related raw
  * documents are persisted in the local storage.
+ * <p>
+ * Documents are grouped by token. For each token the index keeps the ids of its documents, the keywords and the
+ * fingerprint of the data it was harvested from, so that {@link Harvest} can resume and only re-index tokens which
+ * changed. The fingerprints are persisted together with the index in {@link #save()}, so they always match the
+ * saved index.
+ * <p>
+ * To save space in the local storage the lunr index is not persisted as JSON, but in a compact form (see
+ * {@link CompactIndex}) and a document is persisted as its plain description. The lunr index is read from the
+ * local storage when it's used for the first time, not when the console starts. If it was written by another
+ * version of lunr, it's rebuilt from the persisted documents.
  *
  * @author Harald Pehl
  */
 public class Index implements StorageEvent.Handler {
 
+    /**
+     * Version of the storage layout. Indexes of other versions are dropped.
+     */
+    private static final String FORMAT = "2";
+
     private final String prefix;
     private final BeanFactory beanFactory;
     private final Storage localStorage;
     private long idCounter;
+    private final Map<String, TokenEntry> tokens;
+    /**
+     * Document id -> token
+     */
+    private final Map<Long, String> owners;
+    private boolean loaded;
+    /**
+     * Incremented whenever documents are added or removed
+     */
+    private int revision;
     @SuppressWarnings("UnusedDeclaration") private JavaScriptObject indexRef;
 
     Index(final String prefix, final BeanFactory beanFactory) {
@@ -55,6 +85,8 @@ public class Index implements StorageEvent.Handler {
         this.beanFactory = beanFactory;
         this.localStorage = Storage.getLocalStorageIfSupported();
         this.idCounter = 0;
+        this.tokens = new HashMap<String, TokenEntry>();
+        this.owners = new HashMap<Long, String>();
 
         load();
         Storage.addStorageEventHandler(this);
@@ -66,41 +98,72 @@ public class Index implements StorageEvent.Handler {
     }
 
     public void save() {
-        localStorage.setItem(documentsKey(), String.valueOf(idCounter));
-        saveInternal(indexKey());
-        Log.info("Saved " + idCounter + " documents to index at " + indexKey());
-    }
+        try {
+            localStorage.setItem(documentsKey(), String.valueOf(idCounter));
+            if (loaded) {
+                localStorage.setItem(indexKey(), serialize());
+            }
+            saveTokens();
+            localStorage.setItem(formatKey(), FORMAT);
+            Log.info("Saved " + idCounter + " documents to index at " + indexKey());
 
-    private native void saveInternal(String indexKey)  /*-{
-        var jsonIndex = JSON.stringify(this.@org.jboss.as.console.client.search.Index::indexRef);
-        localStorage.setItem(indexKey, jsonIndex)
-    }-*/;
+        } catch (JavaScriptException e) {
+            // quota exceeded: don't leave an index behind which doesn't match the tokens
+            Log.error("Unable to save index at " + indexKey() + ": " + e.getMessage());
+            localStorage.removeItem(indexKey());
+            localStorage.removeItem(tokensKey());
+        }
+    }
 
+    /**
+     * Reads the document counter and the token entries. The lunr index itself is read on demand.
+     */
     public void load() {
+        if (!FORMAT.equals(localStorage.getItem(formatKey())) && (localStorage
+                .getItem(documentsKey()) != null || localStorage.getItem(indexKey()) != null)) {
+            // index written by an older version
+            dropLegacy();
+        }
+
         String item = localStorage.getItem(documentsKey());
         if (item != null) {
             idCounter = Long.parseLong(item);
         }
-        try {
-            loadInternal(indexKey());
-            if (indexRef == null) {
-                // no index found in local storage
-                reset();
-            } else {
-                Log.info("Loaded " + idCounter + " documents from index at " + indexKey());
-            }
-        } catch (JavaScriptException e) {
-            // load must be fail safe, so ignore any errors and reset
+        loaded = false;
+        indexRef = null;
+        if (!loadTokens() && idCounter > 0) {
             reset();
+        } else {
+            Log.info("Found " + idCounter + " documents for index at " + indexKey());
         }
     }
 
-    private native void loadInternal(String indexKey)  /*-{
-        var jsonIndex = localStorage.getItem(indexKey);
-        if (jsonIndex != null) {
-            this.@org.jboss.as.console.client.search.Index::indexRef = $wnd.lunr.Index.load(JSON.parse(jsonIndex));
+    private void ensureLoaded() {
+        if (!loaded) {
+            loaded = true;
+            try {
+                String value = localStorage.getItem(indexKey());
+                if (value != null) {
+                    CompactIndex compact = CompactIndex.parse(value, lunrVersion());
+                    if (compact != null) {
+                        deserialize(compact);
+                    } else if (!tokens.isEmpty()) {
+                        // written by another version of lunr or in an older layout
+                        rebuild();
+                    }
+                }
+                if (indexRef == null) {
+                    // no index found in local storage
+                    reset();
+                } else {
+                    Log.info("Loaded " + idCounter + " documents from index at " + indexKey());
+                }
+            } catch (JavaScriptException e) {
+                // load must be fail safe, so ignore any errors and reset
+                reset();
+            }
         }
-    }-*/;
+    }
 
     /**
      * Resets the index
@@ -110,9 +173,14 @@ public class Index implements StorageEvent.Handler {
             localStorage.removeItem(key(i));
         }
         idCounter = 0;
+        tokens.clear();
+        owners.clear();
+        revision++;
         localStorage.removeItem(documentsKey());
         localStorage.removeItem(indexKey());
+        localStorage.removeItem(tokensKey());
 
+        loaded = true;
         resetInternal();
         Log.info("Reset index to " + indexKey());
     }
@@ -126,31 +194,76 @@ public class Index implements StorageEvent.Handler {
         })
     }-*/;
 
+    /**
+     * Re-indexes the persisted documents using the current version of lunr and saves the new index.
+     */
+    private void rebuild() {
+        resetInternal();
+        for (Map.Entry<String, TokenEntry> entry : tokens.entrySet()) {
+            String keywords = join(entry.getValue().keywords);
+            for (Long id : entry.getValue().documents) {
+                String description = localStorage.getItem(key(id));
+                if (description != null) {
+                    addInternal(String.valueOf(id), entry.getKey(), keywords, description);
+                }
+            }
+        }
+        Log.info("Rebuilt index at " + indexKey() + " written by another version of lunr");
+        save();
+    }
+
+    /**
+     * Removes the documents and the lunr index written by older versions.
+     */
+    private void dropLegacy() {
+        String item = localStorage.getItem(documentsKey());
+        long legacyCounter = item != null ? Long.parseLong(item) : 0;
+        for (long i = 0; i < legacyCounter; i++) {
+            localStorage.removeItem(prefix + "doc_" + i);
+        }
+        localStorage.removeItem(documentsKey());
+        localStorage.removeItem(indexKey());
+        localStorage.removeItem(tokensKey());
+        localStorage.setItem(formatKey(), FORMAT);
+        Log.info("Dropped index at " + indexKey() + " written by an older version");
+    }
+
     public void add(final String token, final Set<String> keywords, final String description) {
+        ensureLoaded();
         long id = idCounter++;
 
-        Document document = beanFactory.indexDocument().as();
-        document.setId(id);
-        document.setToken(token);
-        document.setDescription(description);
-        document.setKeywords(keywords);
-        AutoBean<Document> autoBean = AutoBeanUtils.getAutoBean(document);
-        String json = AutoBeanCodex.encode(autoBean).getPayload();
-        localStorage.setItem(key(id), json);
-
-        String keywordsValue = null;
-        if (keywords != null && !keywords.isEmpty()) {
-            StringBuilder builder = new StringBuilder();
-            for (Iterator<String> iterator = keywords.iterator(); iterator.hasNext(); ) {
-                String keyword = iterator.next();
-                builder.append(keyword);
-                if (iterator.hasNext()) {
-                    builder.append(" ");
-                }
+        try {
+            localStorage.setItem(key(id), description);
+        } catch (JavaScriptException e) {
+            Log.error("Unable to store document " + id + " of " + token + ": " + e.getMessage());
+            return;
+        }
+
+        TokenEntry entry = tokens.get(token);
+        if (entry == null) {
+            entry = new TokenEntry();
+            tokens.put(token, entry);
+        }
+        entry.documents.add(id);
+        entry.keywords = keywords;
+        owners.put(id, token);
+        revision++;
+        addInternal(String.valueOf(id), token, join(keywords), description);
+    }
+
+    private String join(final Set<String> keywords) {
+        if (keywords == null || keywords.isEmpty()) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Iterator<String> iterator = keywords.iterator(); iterator.hasNext(); ) {
+            String keyword = iterator.next();
+            builder.append(keyword);
+            if (iterator.hasNext()) {
+                builder.append(" ");
             }
-            keywordsValue = builder.toString();
         }
-        addInternal(String.valueOf(id), token, keywordsValue, description);
+        return builder.toString();
     }
 
     private native void addInternal(final String id, final String token, final String keywords, final String description) /*-{
@@ -170,7 +283,87 @@ public class Index implements StorageEvent.Handler {
         }
     }-*/;
 
+    /**
+     * Removes all documents of the given token.
+     */
+    public void remove(final String token) {
+        TokenEntry entry = tokens.remove(token);
+        if (entry != null && !entry.documents.isEmpty()) {
+            ensureLoaded();
+            revision++;
+            for (Long id : entry.documents) {
+                localStorage.removeItem(key(id));
+                owners.remove(id);
+                removeInternal(String.valueOf(id));
+            }
+        }
+    }
+
+    private native void removeInternal(final String id) /*-{
+        this.@org.jboss.as.console.client.search.Index::indexRef.remove({id: id});
+    }-*/;
+
+    /**
+     * @return the tokens which have documents or a fingerprint in this index
+     */
+    public Set<String> getTokens() {
+        return tokens.keySet();
+    }
+
+    /**
+     * @return the fingerprint of the data the token was harvested from or {@code null} if the token was not (yet)
+     * harvested completely.
+     */
+    public String getFingerprint(final String token) {
+        TokenEntry entry = tokens.get(token);
+        return entry != null ? entry.fingerprint : null;
+    }
+
+    /**
+     * Marks the token as harvested completely.
+     */
+    public void setFingerprint(final String token, final String fingerprint) {
+        TokenEntry entry = tokens.get(token);
+        if (entry == null) {
+            entry = new TokenEntry();
+            tokens.put(token, entry);
+        }
+        entry.fingerprint = fingerprint;
+    }
+
+    /**
+     * @return the keywords of the token or {@code null} if the token has no keywords or no documents
+     */
+    public Set<String> getKeywords(final String token) {
+        TokenEntry entry = tokens.get(token);
+        return entry != null ? entry.keywords : null;
+    }
+
+    /**
+     * @return the first document of the token or {@code null} if the token has no documents
+     */
+    public Document getDocument(final String token) {
+        TokenEntry entry = tokens.get(token);
+        if (entry != null) {
+            for (Long id : entry.documents) {
+                Document document = document(id, token);
+                if (document != null) {
+                    return document;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a number which changes whenever documents are added or removed
+     */
+    public int getRevision() {
+        return revision;
+    }
+
     public List<Document> search(final String text) {
+        ensureLoaded();
         List<Document> results = new ArrayList<Document>();
         JsArray jsonResult = searchInternal(text);
         if (jsonResult != null) {
@@ -179,10 +372,11 @@ public class Index implements StorageEvent.Handler {
                 JSONString jsonId = json.get("ref").isString();
                 if (jsonId != null) {
                     long id = Long.parseLong(jsonId.stringValue());
-                    String documentJson = localStorage.getItem(key(id));
-                    if (documentJson != null) {
-                        AutoBean<Document> autoBean = AutoBeanCodex.decode(beanFactory, Document.class, documentJson);
-                        results.add(autoBean.as());
+                    String token = owners.get(id);
+                    // only the documents of the hits are read from the local storage
+                    Document document = token != null ? document(id, token) : null;
+                    if (document != null) {
+                        results.add(document);
                     }
                 }
             }
@@ -190,6 +384,19 @@ public class Index implements StorageEvent.Handler {
         return results;
     }
 
+    private Document document(final long id, final String token) {
+        String description = localStorage.getItem(key(id));
+        if (description == null) {
+            return null;
+        }
+        Document document = beanFactory.indexDocument().as();
+        document.setId(id);
+        document.setToken(token);
+        document.setDescription(description);
+        document.setKeywords(tokens.get(token).keywords);
+        return document;
+    }
+
     private native JsArray searchInternal(final String text) /*-{
         return this.@org.jboss.as.console.client.search.Index::indexRef.search(text);
     }-*/;
@@ -204,14 +411,169 @@ public class Index implements StorageEvent.Handler {
         }
     }
 
+
+    // ------------------------------------------------------ compact form of the lunr index
+
+    private String serialize() {
+        CompactIndex compact = new CompactIndex();
+        exportInternal(compact);
+        return compact.serialize();
+    }
+
+    /**
+     * Passes the header and the postings of the lunr index to the compact form. Tokens without documents (tokens of
+     * removed documents) are dropped.
+     */
+    private native void exportInternal(CompactIndex compact) /*-{
+        var index = this.@org.jboss.as.console.client.search.Index::indexRef;
+        compact.@org.jboss.as.console.client.search.CompactIndex::setHeader(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)(
+            $wnd.lunr.version, JSON.stringify(index._fields), index._ref, JSON.stringify(index.pipeline.toJSON()));
+        var corpus = index.corpusTokens.elements;
+        for (var i = 0; i < corpus.length; i++) {
+            var docs = index.tokenStore.get(corpus[i]);
+            for (var ref in docs) {
+                compact.@org.jboss.as.console.client.search.CompactIndex::add(Ljava/lang/String;Ljava/lang/String;D)(
+                    corpus[i], ref, docs[ref].tf);
+            }
+        }
+    }-*/;
+
+    /**
+     * Rebuilds the lunr index from the compact form.
+     */
+    private void deserialize(CompactIndex compact) {
+        JavaScriptObject state = createInternal(compact.getFields(), compact.getRef(), compact.getPipeline());
+        for (Map.Entry<String, SortedMap<Long, Double>> entry : compact.getPostings().entrySet()) {
+            for (Map.Entry<Long, Double> posting : entry.getValue().entrySet()) {
+                addPostingInternal(state, entry.getKey(), String.valueOf(posting.getKey()), posting.getValue());
+            }
+        }
+        indexRef = finishInternal(state);
+    }
+
+    private native JavaScriptObject createInternal(String fields, String ref, String pipeline) /*-{
+        var lunr = $wnd.lunr;
+        var index = new lunr.Index();
+        index._fields = JSON.parse(fields);
+        index._ref = ref;
+        index.pipeline = lunr.Pipeline.load(JSON.parse(pipeline));
+        return {index: index, corpus: [], documents: {}};
+    }-*/;
+
+    private native void addPostingInternal(JavaScriptObject state, String token, String ref, double tf) /*-{
+        state.index.tokenStore.add(token, {ref: ref, tf: tf});
+        var corpus = state.corpus;
+        if (corpus.length == 0 || corpus[corpus.length - 1] != token) {
+            corpus.push(token);
+        }
+        (state.documents[ref] || (state.documents[ref] = [])).push(token);
+    }-*/;
+
+    private native JavaScriptObject finishInternal(JavaScriptObject state) /*-{
+        var lunr = $wnd.lunr;
+        // tokens were added in sorted order, so the arrays are sorted as well
+        state.index.corpusTokens = lunr.SortedSet.load(state.corpus);
+        for (var ref in state.documents) {
+            state.index.documentStore.set(ref, lunr.SortedSet.load(state.documents[ref]));
+        }
+        return state.index;
+    }-*/;
+
+    private native String lunrVersion() /*-{
+        return $wnd.lunr.version;
+    }-*/;
+
+
+    // ------------------------------------------------------ token entries
+
+    private void saveTokens() {
+        // {token: {"fp": fingerprint, "kw": [keyword, ...], "ids": [id, ...]}, ...}
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, TokenEntry> entry : tokens.entrySet()) {
+            JSONObject tokenJson = new JSONObject();
+            if (entry.getValue().fingerprint != null) {
+                tokenJson.put("fp", new JSONString(entry.getValue().fingerprint));
+            }
+            if (entry.getValue().keywords != null) {
+                JSONArray keywords = new JSONArray();
+                for (String keyword : entry.getValue().keywords) {
+                    keywords.set(keywords.size(), new JSONString(keyword));
+                }
+                tokenJson.put("kw", keywords);
+            }
+            JSONArray ids = new JSONArray();
+            for (Long id : entry.getValue().documents) {
+                ids.set(ids.size(), new JSONNumber(id));
+            }
+            tokenJson.put("ids", ids);
+            json.put(entry.getKey(), tokenJson);
+        }
+        localStorage.setItem(tokensKey(), json.toString());
+    }
+
+    /**
+     * @return {@code false} if there are no token entries in the local storage
+     */
+    private boolean loadTokens() {
+        tokens.clear();
+        owners.clear();
+        String item = localStorage.getItem(tokensKey());
+        if (item == null) {
+            return false;
+        }
+        try {
+            JSONObject json = JSONParser.parseStrict(item).isObject();
+            for (String token : json.keySet()) {
+                JSONObject tokenJson = json.get(token).isObject();
+                TokenEntry entry = new TokenEntry();
+                JSONValue fingerprint = tokenJson.get("fp");
+                if (fingerprint != null && fingerprint.isString() != null) {
+                    entry.fingerprint = fingerprint.isString().stringValue();
+                }
+                JSONValue keywords = tokenJson.get("kw");
+                if (keywords != null && keywords.isArray() != null) {
+                    entry.keywords = new LinkedHashSet<String>();
+                    for (int i = 0; i < keywords.isArray().size(); i++) {
+                        entry.keywords.add(keywords.isArray().get(i).isString().stringValue());
+                    }
+                }
+                JSONArray ids = tokenJson.get("ids").isArray();
+                for (int i = 0; i < ids.size(); i++) {
+                    long id = (long) ids.get(i).isNumber().doubleValue();
+                    entry.documents.add(id);
+                    owners.put(id, token);
+                }
+                tokens.put(token, entry);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            Log.error("Unable to read token entries from " + tokensKey() + ": " + e.getMessage());
+            tokens.clear();
+            owners.clear();
+            return false;
+        }
+    }
+
     private String indexKey() {return prefix + "idx";}
 
     private String documentsKey() {return prefix + "docs";}
 
-    private String key(final long id) {return prefix + "doc_" + id;}
+    private String tokensKey() {return prefix + "tokens";}
+
+    private String formatKey() {return prefix + "format";}
+
+    private String key(final long id) {return prefix + "d_" + id;}
 
     @Override
     public String toString() {
         return indexKey() + "[" + idCounter + "]";
     }
+
+
+    private static class TokenEntry {
+
+        final List<Long> documents = new ArrayList<Long>();
+        Set<String> keywords;
+        String fingerprint;
+    }
 }
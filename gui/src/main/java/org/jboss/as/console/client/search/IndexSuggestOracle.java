@@ -18,59 +18,160 @@
  */
 package org.jboss.as.console.client.search;
 
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.SuggestOracle;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * An suggest oracle which uses the {@link org.jboss.as.console.client.search.Index} for lookup.
+ * <p>
+ * Suggestions are taken from a {@link SuggestionTrie} over the keywords and tokens of the index, which answers
+ * prefix queries without touching the lunr index or the local storage (except for reading the description of the
+ * displayed suggestions). Only if the trie doesn't find enough suggestions the (debounced) full text search of the
+ * index is used. Responses are cached per query until the index changes.
+ *
  * @author Harald Pehl
  */
 public class IndexSuggestOracle extends SuggestOracle {
 
+    /**
+     * Delay in ms before a full text search is started. Typing resets the delay.
+     */
+    static final int DEBOUNCE = 150;
+
+    /**
+     * Full text search is only used for queries of at least this length.
+     */
+    private static final int MIN_FULL_TEXT = 3;
+
+    private static final int CACHE_SIZE = 50;
+    private static final int MAX_DESCRIPTION = 125;
+
     private final Index index;
+    private final Map<String, List<DocumentSuggestion>> cache;
+    private final Timer debounce;
+    private SuggestionTrie trie;
+    private int revision;
+    private Request pendingRequest;
+    private Callback pendingCallback;
 
-    public IndexSuggestOracle(final Index index) {this.index = index;}
+    public IndexSuggestOracle(final Index index) {
+        this.index = index;
+        this.revision = -1;
+        this.cache = new LinkedHashMap<String, List<DocumentSuggestion>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, List<DocumentSuggestion>> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        this.debounce = new Timer() {
+            @Override
+            public void run() {
+                if (pendingRequest != null) {
+                    Request request = pendingRequest;
+                    Callback callback = pendingCallback;
+                    pendingRequest = null;
+                    pendingCallback = null;
+                    fullText(request, callback);
+                }
+            }
+        };
+    }
 
     @Override
     public void requestSuggestions(final Request request, final Callback callback) {
-        String query = request.getQuery().trim();
+        String query = request.getQuery().trim().toLowerCase();
         if (query.length() != 0) {
-            List<Document> hits = index.search(query);
-            Map<String, List<Document>> tokens = groupByToken(hits);
-            List<DocumentSuggestion> suggestions = new ArrayList<DocumentSuggestion>();
-            for (Document hit : hits) {
-                String description = hit.getDescription();
-                boolean tooLong = description.length() > 125;
-                String shortDesc = tooLong ? description.substring(0, 125) + "..." : description;
-                String display = tooLong ? "<span title=\"" + description + "\">" + shortDesc + "</span>" : description;
-                DocumentSuggestion suggestion = new DocumentSuggestion(hit, description,
-                        display + " <span class=\"hit-token\">(#" + hit.getToken() + ")</span>");
-                suggestions.add(suggestion);
+            if (revision != index.getRevision()) {
+                rebuild();
+            }
+            // a newer request supersedes the pending one
+            debounce.cancel();
+            pendingRequest = null;
+            pendingCallback = null;
+
+            String key = key(query, request.getLimit());
+            List<DocumentSuggestion> suggestions = cache.get(key);
+            if (suggestions != null) {
+                callback.onSuggestionsReady(request, new Response(suggestions));
+                return;
+            }
+
+            suggestions = new ArrayList<>();
+            for (String token : trie.lookup(query, request.getLimit())) {
+                Document document = index.getDocument(token);
+                if (document != null) {
+                    suggestions.add(suggestion(document));
+                }
+            }
+            if (suggestions.size() >= request.getLimit() || query.length() < MIN_FULL_TEXT) {
+                cache.put(key, suggestions);
+                callback.onSuggestionsReady(request, new Response(suggestions));
+            } else {
+                // show what we have and complete with the full text search once typing pauses
+                callback.onSuggestionsReady(request, new Response(suggestions));
+                pendingRequest = request;
+                pendingCallback = callback;
+                debounce.schedule(DEBOUNCE);
             }
-            callback.onSuggestionsReady(request, new Response(suggestions));
         }
     }
 
-    @Override
-    public boolean isDisplayStringHTML() {
-        return true;
+    private void fullText(final Request request, final Callback callback) {
+        String query = request.getQuery().trim().toLowerCase();
+        List<DocumentSuggestion> suggestions = new ArrayList<>();
+        Set<String> tokens = new HashSet<>();
+        for (String token : trie.lookup(query, request.getLimit())) {
+            Document document = index.getDocument(token);
+            if (document != null) {
+                suggestions.add(suggestion(document));
+                tokens.add(token);
+            }
+        }
+        for (Document hit : index.search(query)) {
+            if (suggestions.size() >= request.getLimit()) {
+                break;
+            }
+            // one suggestion per token is enough
+            if (tokens.add(hit.getToken())) {
+                suggestions.add(suggestion(hit));
+            }
+        }
+        cache.put(key(query, request.getLimit()), suggestions);
+        callback.onSuggestionsReady(request, new Response(suggestions));
     }
 
-    private Map<String, List<Document>> groupByToken(List<Document> hits) {
-        Map<String, List<Document>> tokens = new HashMap<>();
-        for (Document document : hits) {
-            String token = document.getToken();
-            List<Document> documents = tokens.get(token);
-            if (documents == null) {
-                documents = new ArrayList<>();
-                tokens.put(token, documents);
-            }
-            documents.add(document);
+    private void rebuild() {
+        trie = new SuggestionTrie();
+        for (String token : index.getTokens()) {
+            trie.addToken(token, index.getKeywords(token));
         }
-        return tokens;
+        trie.freeze();
+        cache.clear();
+        revision = index.getRevision();
+    }
+
+    private DocumentSuggestion suggestion(Document document) {
+        String description = document.getDescription();
+        boolean tooLong = description.length() > MAX_DESCRIPTION;
+        String shortDesc = tooLong ? description.substring(0, MAX_DESCRIPTION) + "..." : description;
+        String display = tooLong ? "<span title=\"" + description + "\">" + shortDesc + "</span>" : description;
+        return new DocumentSuggestion(document, description,
+                display + " <span class=\"hit-token\">(#" + document.getToken() + ")</span>");
+    }
+
+    private static String key(String query, int limit) {
+        return limit + ":" + query;
+    }
+
+    @Override
+    public boolean isDisplayStringHTML() {
+        return true;
     }
 }
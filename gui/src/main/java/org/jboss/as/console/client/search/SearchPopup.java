@@ -28,6 +28,7 @@ import com.google.gwt.event.dom.client.KeyUpHandler;
 import com.google.gwt.safehtml.client.SafeHtmlTemplates;
 import com.google.gwt.safehtml.shared.SafeHtml;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.*;
 import com.google.gwt.view.client.CellPreviewEvent;
 import com.google.gwt.view.client.ListDataProvider;
@@ -63,6 +64,7 @@ class SearchPopup extends DefaultWindow {
     private final TextBox textBox;
     private final HTML numberOfResults;
     private final PlaceManager placeManager;
+    private final Timer queryTimer;
 
     SearchPopup(final Harvest harvest, final Index index, final PlaceManager placeManager) {
         super("Search");
@@ -71,6 +73,12 @@ class SearchPopup extends DefaultWindow {
         this.harvest = harvest;
         this.index = index;
         this.placeManager = placeManager;
+        this.queryTimer = new Timer() {
+            @Override
+            public void run() {
+                executeQuery();
+            }
+        };
 
         deck = new DeckPanel();
         VerticalPanel indexPanel = new VerticalPanel();
@@ -97,7 +105,8 @@ class SearchPopup extends DefaultWindow {
                 if (keyUpEvent.isDownArrow() && !resultProvider.getList().isEmpty()) {
                     resultList.setFocus(true);
                 } else {
-                    executeQuery();
+                    // don't query the index for each key stroke while typing
+                    queryTimer.schedule(IndexSuggestOracle.DEBOUNCE);
                 }
             }
         });
@@ -201,7 +210,12 @@ class SearchPopup extends DefaultWindow {
     }
 
     void index() {
-        harvest.run(new FilterDuplicatesHarvest(index, this), progressBar);
+        if (harvest.isRunning()) {
+            // still running in the background
+            showIndexPage();
+        } else {
+            harvest.run(new FilterDuplicatesHarvest(this), progressBar);
+        }
     }
 
     void showSearchPage() {
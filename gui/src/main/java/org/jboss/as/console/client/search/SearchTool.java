@@ -36,11 +36,11 @@ import org.jboss.as.console.client.core.bootstrap.hal.GlobalShortcuts;
  */
 public class SearchTool extends Composite {
 
-    private final Index index;
+    private final Harvest harvest;
     private final SearchPopup popup;
 
     public SearchTool(final Harvest harvest, final Index index, PlaceManager placeManager) {
-        this.index = index;
+        this.harvest = harvest;
         HTML root = new HTML("<i class=\"icon-search\" style='color:#CECECE'></i> " + Console.CONSTANTS.common_label_search());
         root.setTitle(Console.CONSTANTS.common_label_search() + "(" + getShortcut() + ")");
         root.addClickHandler(new ClickHandler() {
@@ -73,7 +73,9 @@ public class SearchTool extends Composite {
         Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
             @Override
             public void execute() {
-                if (index.isEmpty()) {
+                // tokens which are not yet indexed (or a harvest interrupted by a reload) are harvested in
+                // the background
+                if (harvest.isRunning() || !harvest.isComplete()) {
                     popup.index();
                 } else {
                     popup.showSearchPage();
@@ -0,0 +1,259 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.jboss.as.console.client.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory prefix trie over the keywords and the parts of the tokens in the search index. Every node knows the
+ * tokens of its subtree ranked by score, so a lookup only walks down the characters of the query. Scores follow the
+ * boosts of the lunr index: a keyword counts {@value #KEYWORD_SCORE}, a token part {@value #TOKEN_SCORE} and a term
+ * which matches the query exactly gets another {@value #EXACT_BONUS}.
+ * <p>
+ * The trie is built once using {@link #add(String, String, int)} and {@link #freeze()}, it doesn't support updates.
+ */
+class SuggestionTrie {
+
+    static final int KEYWORD_SCORE = 3;
+    static final int TOKEN_SCORE = 1;
+    static final int EXACT_BONUS = 1;
+
+    private final Node root;
+    private final List<String> tokens;
+    private final Map<String, Integer> tokenIds;
+    /**
+     * Orders (token id, score) entries by score (best first) and token
+     */
+    private final Comparator<Map.Entry<Integer, Integer>> byScore;
+    private boolean frozen;
+
+    SuggestionTrie() {
+        this.root = new Node();
+        this.tokens = new ArrayList<>();
+        this.tokenIds = new HashMap<>();
+        this.byScore = new Comparator<Map.Entry<Integer, Integer>>() {
+            @Override
+            public int compare(Map.Entry<Integer, Integer> e1, Map.Entry<Integer, Integer> e2) {
+                int result = e2.getValue().compareTo(e1.getValue());
+                return result != 0 ? result : tokens.get(e1.getKey()).compareTo(tokens.get(e2.getKey()));
+            }
+        };
+    }
+
+    /**
+     * Adds the keywords of the token and the parts of its name (separated by '-' or '_').
+     */
+    void addToken(String token, Iterable<String> keywords) {
+        if (keywords != null) {
+            for (String keyword : keywords) {
+                for (String term : terms(keyword)) {
+                    add(term, token, KEYWORD_SCORE);
+                }
+            }
+        }
+        for (String term : terms(token)) {
+            add(term, token, TOKEN_SCORE);
+        }
+    }
+
+    void add(String term, String token, int score) {
+        if (frozen) {
+            throw new IllegalStateException("Suggestion trie is frozen");
+        }
+        Integer id = tokenIds.get(token);
+        if (id == null) {
+            id = tokens.size();
+            tokens.add(token);
+            tokenIds.put(token, id);
+        }
+        Node node = root;
+        String normalized = term.toLowerCase();
+        for (int i = 0; i < normalized.length(); i++) {
+            node = node.child(normalized.charAt(i));
+        }
+        if (node.terms == null) {
+            node.terms = new HashMap<>();
+        }
+        Integer existing = node.terms.get(id);
+        if (existing == null || existing < score) {
+            node.terms.put(id, score);
+        }
+    }
+
+    /**
+     * Precomputes the ranking of each node.
+     */
+    void freeze() {
+        if (!frozen) {
+            rank(root);
+            frozen = true;
+        }
+    }
+
+    /**
+     * @return the tokens matching all words of the query (each word is used as prefix) ordered by score
+     */
+    List<String> lookup(String query, int limit) {
+        freeze();
+        List<String> words = terms(query);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Integer, Integer> scores = null;
+        for (String word : words) {
+            Node node = find(word);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            if (scores == null) {
+                if (words.size() == 1) {
+                    // the common case: the ranking is already there
+                    List<String> result = new ArrayList<>();
+                    for (int i = 0; i < node.ids.length && result.size() < limit; i++) {
+                        result.add(tokens.get(node.ids[i]));
+                    }
+                    return result;
+                }
+                scores = new HashMap<>();
+                for (int i = 0; i < node.ids.length; i++) {
+                    scores.put(node.ids[i], node.scores[i]);
+                }
+            } else {
+                // conjunction
+                Map<Integer, Integer> next = new HashMap<>();
+                for (int i = 0; i < node.ids.length; i++) {
+                    Integer score = scores.get(node.ids[i]);
+                    if (score != null) {
+                        next.put(node.ids[i], score + node.scores[i]);
+                    }
+                }
+                scores = next;
+            }
+        }
+
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(scores.entrySet());
+        Collections.sort(entries, byScore);
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < entries.size() && result.size() < limit; i++) {
+            result.add(tokens.get(entries.get(i).getKey()));
+        }
+        return result;
+    }
+
+    int size() {
+        return tokens.size();
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children != null ? node.children.get(prefix.charAt(i)) : null;
+        }
+        return node;
+    }
+
+    /**
+     * Post order: merges the rankings of the children with the terms of the node (best score per token).
+     */
+    private Map<Integer, Integer> rank(Node node) {
+        Map<Integer, Integer> merged = new HashMap<>();
+        if (node.children != null) {
+            for (Node child : node.children.values()) {
+                for (Map.Entry<Integer, Integer> entry : rank(child).entrySet()) {
+                    max(merged, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        Map<Integer, Integer> ranking = new HashMap<>(merged);
+        if (node.terms != null) {
+            for (Map.Entry<Integer, Integer> entry : node.terms.entrySet()) {
+                // the exact bonus only applies to this node, not to the ones of shorter prefixes
+                max(ranking, entry.getKey(), entry.getValue() + EXACT_BONUS);
+                max(merged, entry.getKey(), entry.getValue());
+            }
+            node.terms = null;
+        }
+
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(ranking.entrySet());
+        Collections.sort(entries, byScore);
+        node.ids = new int[entries.size()];
+        node.scores = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            node.ids[i] = entries.get(i).getKey();
+            node.scores[i] = entries.get(i).getValue();
+        }
+        return merged;
+    }
+
+    private static void max(Map<Integer, Integer> scores, Integer id, int score) {
+        Integer existing = scores.get(id);
+        if (existing == null || existing < score) {
+            scores.put(id, score);
+        }
+    }
+
+    /**
+     * Splits the value into lower case terms at blanks, '-' and '_'.
+     */
+    static List<String> terms(String value) {
+        List<String> terms = new ArrayList<>();
+        if (value != null) {
+            for (String term : value.toLowerCase().split("[\\s\\-_]+")) {
+                if (term.length() != 0) {
+                    terms.add(term);
+                }
+            }
+        }
+        return terms;
+    }
+
+
+    private static class Node {
+
+        Map<Character, Node> children;
+        /**
+         * Token id -> score of the terms ending here. Only used while building the trie.
+         */
+        Map<Integer, Integer> terms;
+        /**
+         * Tokens of this subtree, best first
+         */
+        int[] ids;
+        int[] scores;
+
+        Node child(char c) {
+            if (children == null) {
+                children = new LinkedHashMap<>();
+            }
+            Node child = children.get(c);
+            if (child == null) {
+                child = new Node();
+                children.put(c, child);
+            }
+            return child;
+        }
+    }
+}
@@ -111,7 +111,7 @@ public class HelpSystem {
             }
         }
 
-        dispatcher.execute(new DMRAction(operation), new AsyncCallback<DMRResponse>() {
+        dispatcher.execute(new DMRAction(operation, true), new AsyncCallback<DMRResponse>() {
             @Override
             public void onSuccess(DMRResponse result) {
                 ModelNode response = result.get();
@@ -169,7 +169,7 @@ public class HelpSystem {
         operation.get(OP).set(READ_RESOURCE_DESCRIPTION_OPERATION);
         operation.get(LOCALE).set(getLocale());
 
-        dispatcher.execute(new DMRAction(operation), new AsyncCallback<DMRResponse>() {
+        dispatcher.execute(new DMRAction(operation, true), new AsyncCallback<DMRResponse>() {
             @Override
             public void onSuccess(DMRResponse result) {
                 ModelNode response = result.get();
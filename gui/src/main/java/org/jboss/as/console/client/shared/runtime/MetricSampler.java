@@ -0,0 +1,461 @@
+package org.jboss.as.console.client.shared.runtime;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import org.jboss.as.console.client.core.BootstrapContext;
+import org.jboss.as.console.client.v3.dmr.AddressTemplate;
+import org.jboss.as.console.client.v3.stores.domain.HostStore;
+import org.jboss.dmr.client.ModelNode;
+import org.jboss.dmr.client.dispatch.DispatchAsync;
+import org.jboss.dmr.client.dispatch.DispatchError;
+import org.jboss.dmr.client.dispatch.impl.DMRAction;
+import org.jboss.dmr.client.dispatch.impl.DMRResponse;
+import org.useware.kernel.gui.behaviour.StatementContext;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.jboss.dmr.client.ModelDescriptionConstants.*;
+
+/**
+ * Central service which polls runtime metrics on behalf of the runtime views. A view subscribes to some attributes of
+ * a resource on one or several servers and gets the values every {@code interval} ms.
+ * <p>
+ * The sampler works in ticks of {@link #TICK} ms. On each tick the reads of all due subscriptions are merged into one
+ * composite operation: Subscriptions which read the same resource on the same server share one step. A step reads a
+ * single attribute using {@code read-attribute} and several attributes using {@code read-resource}. There's at most
+ * one composite operation on its way, ticks are skipped until the response arrived.
+ * <p>
+ * If one step fails, the server rejects the whole composite operation without the results of the other steps (e.g.
+ * if one of several servers is stopped). In that case the reads of this tick are repeated as single operations, so
+ * only the subscriptions of the failed read get an error.
+ * <p>
+ * Paused subscriptions (e.g. because the view is hidden) are skipped. While the browser tab is hidden no metrics are
+ * read at all.
+ */
+public class MetricSampler {
+
+    /**
+     * Intervals are rounded up to a multiple of this value.
+     */
+    final static int TICK = 1000; // ms
+
+    /**
+     * The status code of a composite operation with a failed step
+     */
+    private static final int STEP_FAILED = 500;
+
+    /**
+     * Receives the values of a subscription.
+     */
+    public interface Callback {
+
+        /**
+         * @param target the server the values were read from
+         * @param values the subscribed attributes (attributes which are not defined are missing)
+         */
+        void onSample(Target target, ModelNode values);
+
+        void onError(Target target, String failure);
+    }
+
+
+    private final DispatchAsync dispatcher;
+    private final Scheduler scheduler;
+    private final StatementContext statementContext;
+    private final HostStore hostStore;
+    private final BootstrapContext bootstrap;
+    private final List<Subscription> subscriptions;
+    private int ticks;
+    private boolean ticking;
+    private boolean samplePending;
+    private boolean inFlight;
+
+    @Inject
+    public MetricSampler(DispatchAsync dispatcher, Scheduler scheduler, StatementContext statementContext,
+            HostStore hostStore, BootstrapContext bootstrap) {
+        this.dispatcher = dispatcher;
+        this.scheduler = scheduler;
+        this.statementContext = statementContext;
+        this.hostStore = hostStore;
+        this.bootstrap = bootstrap;
+        this.subscriptions = new ArrayList<>();
+    }
+
+    /**
+     * Subscribes to attributes of a resource on the selected server.
+     *
+     * @param template the address of the resource relative to the server
+     */
+    public Subscription subscribe(AddressTemplate template, List<String> attributes, int interval,
+            Callback callback) {
+        return subscribe(template, attributes, interval, Collections.singletonList(Target.SELECTED), callback);
+    }
+
+    /**
+     * Subscribes to attributes of a resource on the given servers. The first values are read right after the current
+     * event loop turn, so subscriptions which are made together share their first composite operation.
+     *
+     * @param template the address of the resource relative to the server
+     * @param interval the polling interval in ms
+     */
+    public Subscription subscribe(AddressTemplate template, List<String> attributes, int interval,
+            List<Target> targets, Callback callback) {
+        Subscription subscription = new Subscription(template, new ArrayList<>(attributes),
+                Math.max(1, (interval + TICK - 1) / TICK), new ArrayList<>(targets), callback);
+        subscriptions.add(subscription);
+        sampleSoon();
+        return subscription;
+    }
+
+    int size() {
+        return subscriptions.size();
+    }
+
+
+    // ------------------------------------------------------ sampling
+
+    private void sampleSoon() {
+        if (!samplePending) {
+            samplePending = true;
+            scheduler.scheduleDeferred(new Scheduler.ScheduledCommand() {
+                @Override
+                public void execute() {
+                    samplePending = false;
+                    sample();
+                }
+            });
+        }
+        if (!ticking) {
+            ticking = true;
+            scheduler.scheduleFixedDelay(new Scheduler.RepeatingCommand() {
+                @Override
+                public boolean execute() {
+                    ticking = tick();
+                    return ticking;
+                }
+            }, TICK);
+        }
+    }
+
+    /**
+     * @return whether there are subscriptions left
+     */
+    boolean tick() {
+        ticks++;
+        sample();
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Reads the values of all due subscriptions using one composite operation.
+     */
+    void sample() {
+        if (inFlight || isPageHidden()) {
+            return;
+        }
+
+        // merge the reads of the due subscriptions: one read per resource and server
+        final Map<String, Read> reads = new LinkedHashMap<>();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isActive() && ticks >= subscription.nextTick) {
+                subscription.nextTick = ticks + subscription.period;
+                ModelNode resource = subscription.template.resolve(statementContext);
+                for (Target target : subscription.targets) {
+                    ModelNode address = target == Target.SELECTED ? selectedServer() : target.address();
+                    if (resource.isDefined()) {
+                        for (ModelNode segment : resource.asList()) {
+                            address.add(segment);
+                        }
+                    }
+                    String key = address.toString();
+                    Read read = reads.get(key);
+                    if (read == null) {
+                        read = new Read(address);
+                        reads.put(key, read);
+                    }
+                    read.attributes.addAll(subscription.attributes);
+                    read.receivers.add(new Receiver(subscription, target));
+                }
+            }
+        }
+        if (reads.isEmpty()) {
+            return;
+        }
+
+        final List<Read> steps = new ArrayList<>(reads.values());
+        List<ModelNode> operations = new ArrayList<>();
+        for (Read read : steps) {
+            operations.add(read.operation());
+        }
+        ModelNode composite = new ModelNode();
+        composite.get(OP).set(COMPOSITE);
+        composite.get(ADDRESS).setEmptyList();
+        composite.get(STEPS).set(operations);
+
+        inFlight = true;
+        dispatcher.execute(new DMRAction(composite), new AsyncCallback<DMRResponse>() {
+            @Override
+            public void onFailure(Throwable caught) {
+                if (steps.size() > 1 && caught instanceof DispatchError &&
+                        ((DispatchError) caught).getStatusCode() == STEP_FAILED) {
+                    readSingle(steps);
+                } else {
+                    inFlight = false;
+                    for (Read read : steps) {
+                        read.failed(caught.getMessage());
+                    }
+                }
+            }
+
+            @Override
+            public void onSuccess(DMRResponse dmrResponse) {
+                inFlight = false;
+                ModelNode response = dmrResponse.get();
+                ModelNode compositeResult = response.get(RESULT);
+                for (int i = 0; i < steps.size(); i++) {
+                    // composites with a failed step end up in onFailure(), but check each step nevertheless
+                    ModelNode stepResponse = compositeResult.get("step-" + (i + 1));
+                    if (!stepResponse.isDefined()) {
+                        steps.get(i).failed(response.isFailure() ? response.getFailureDescription() : "No result");
+                    } else if (stepResponse.isFailure()) {
+                        steps.get(i).failed(stepResponse.getFailureDescription());
+                    } else {
+                        steps.get(i).succeeded(stepResponse.get(RESULT));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Executes the reads as single operations. The next composite operation is sent once all reads are finished.
+     */
+    private void readSingle(List<Read> reads) {
+        final int[] pending = {reads.size()};
+        for (final Read read : reads) {
+            dispatcher.execute(new DMRAction(read.operation()), new AsyncCallback<DMRResponse>() {
+                @Override
+                public void onFailure(Throwable caught) {
+                    finished();
+                    read.failed(caught.getMessage());
+                }
+
+                @Override
+                public void onSuccess(DMRResponse dmrResponse) {
+                    finished();
+                    ModelNode response = dmrResponse.get();
+                    if (response.isFailure()) {
+                        read.failed(response.getFailureDescription());
+                    } else {
+                        read.succeeded(response.get(RESULT));
+                    }
+                }
+
+                private void finished() {
+                    pending[0]--;
+                    if (pending[0] == 0) {
+                        inFlight = false;
+                    }
+                }
+            });
+        }
+    }
+
+    private ModelNode selectedServer() {
+        ModelNode address = new ModelNode();
+        address.setEmptyList();
+        if (!bootstrap.isStandalone()) {
+            address.add("host", hostStore.getSelectedHost());
+            address.add("server", hostStore.getSelectedServer());
+        }
+        return address;
+    }
+
+    /**
+     * Whether the browser tab / window of the console is hidden (Page Visibility API).
+     */
+    protected native boolean isPageHidden() /*-{
+        return !!$doc.hidden;
+    }-*/;
+
+
+    // ------------------------------------------------------ inner classes
+
+    /**
+     * The server to read the metrics from.
+     */
+    public static final class Target {
+
+        /**
+         * The selected server at the time the metrics are read (or the standalone server).
+         */
+        public static final Target SELECTED = new Target(null, null);
+
+        public static Target server(String host, String server) {
+            return new Target(host, server);
+        }
+
+        private final String host;
+        private final String server;
+
+        private Target(String host, String server) {
+            this.host = host;
+            this.server = server;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Target)) return false;
+
+            Target target = (Target) o;
+            return (host != null ? host.equals(target.host) : target.host == null) &&
+                    (server != null ? server.equals(target.server) : target.server == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = host != null ? host.hashCode() : 0;
+            result = 31 * result + (server != null ? server.hashCode() : 0);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return this == SELECTED ? "Target(selected)" : "Target(" + host + "/" + server + ")";
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public String getServer() {
+            return server;
+        }
+
+        private ModelNode address() {
+            ModelNode address = new ModelNode();
+            address.add("host", host);
+            address.add("server", server);
+            return address;
+        }
+    }
+
+
+    public class Subscription {
+
+        private final AddressTemplate template;
+        private final List<String> attributes;
+        private final int period; // in ticks
+        private final List<Target> targets;
+        private final Callback callback;
+        private int nextTick;
+        private boolean paused;
+        private boolean cancelled;
+
+        private Subscription(AddressTemplate template, List<String> attributes, int period, List<Target> targets,
+                Callback callback) {
+            this.template = template;
+            this.attributes = attributes;
+            this.period = period;
+            this.targets = targets;
+            this.callback = callback;
+            this.nextTick = ticks;
+        }
+
+        /**
+         * Stops reading the metrics until {@link #resume()} is called.
+         */
+        public void pause() {
+            paused = true;
+        }
+
+        /**
+         * Reads the metrics right away (if due) and continues polling.
+         */
+        public void resume() {
+            if (paused && !cancelled) {
+                paused = false;
+                sampleSoon();
+            }
+        }
+
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        public boolean isActive() {
+            return !paused && !cancelled;
+        }
+    }
+
+
+    private static class Receiver {
+
+        final Subscription subscription;
+        final Target target;
+
+        Receiver(Subscription subscription, Target target) {
+            this.subscription = subscription;
+            this.target = target;
+        }
+    }
+
+
+    private static class Read {
+
+        final ModelNode address;
+        final Set<String> attributes;
+        final List<Receiver> receivers;
+
+        Read(ModelNode address) {
+            this.address = address;
+            this.attributes = new LinkedHashSet<>();
+            this.receivers = new ArrayList<>();
+        }
+
+        ModelNode operation() {
+            ModelNode operation = new ModelNode();
+            operation.get(ADDRESS).set(address);
+            if (attributes.size() == 1) {
+                operation.get(OP).set(READ_ATTRIBUTE_OPERATION);
+                operation.get(NAME).set(attributes.iterator().next());
+            } else {
+                operation.get(OP).set(READ_RESOURCE_OPERATION);
+                operation.get(INCLUDE_RUNTIME).set(true);
+            }
+            return operation;
+        }
+
+        void succeeded(ModelNode result) {
+            for (Receiver receiver : receivers) {
+                if (receiver.subscription.isActive()) {
+                    ModelNode values = new ModelNode();
+                    for (String attribute : receiver.subscription.attributes) {
+                        ModelNode value = attributes.size() == 1 ? result : result.get(attribute);
+                        if (value.isDefined()) {
+                            values.get(attribute).set(value);
+                        }
+                    }
+                    receiver.subscription.callback.onSample(receiver.target, values);
+                }
+            }
+        }
+
+        void failed(String failure) {
+            for (Receiver receiver : receivers) {
+                if (receiver.subscription.isActive()) {
+                    receiver.subscription.callback.onError(receiver.target, failure);
+                }
+            }
+        }
+    }
+}
@@ -18,10 +18,12 @@ import org.jboss.as.console.client.domain.model.LoggingCallback;
 import org.jboss.as.console.client.shared.BeanFactory;
 import org.jboss.as.console.client.shared.model.ResponseWrapper;
 import org.jboss.as.console.client.shared.runtime.Metric;
+import org.jboss.as.console.client.shared.runtime.MetricSampler;
 import org.jboss.as.console.client.shared.runtime.RuntimeBaseAddress;
 import org.jboss.as.console.client.shared.subsys.RevealStrategy;
 import org.jboss.as.console.client.shared.subsys.jca.ConnectionWindow;
 import org.jboss.as.console.client.shared.subsys.jca.model.DataSource;
+import org.jboss.as.console.client.v3.dmr.AddressTemplate;
 import org.jboss.as.console.client.v3.stores.domain.ServerStore;
 import org.jboss.as.console.client.widgets.forms.ApplicationMetaData;
 import org.jboss.as.console.client.widgets.forms.EntityAdapter;
@@ -34,6 +36,8 @@ import org.jboss.dmr.client.dispatch.impl.DMRResponse;
 import org.jboss.gwt.circuit.Action;
 import org.jboss.gwt.circuit.Dispatcher;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -72,9 +76,17 @@ public class DataSourceMetricPresenter extends CircuitPresenter<DataSourceMetric
     private BeanFactory factory;
     private EntityAdapter<DataSource> dataSourceAdapter;
 
+    /**
+     * Polling interval of the pool and JDBC statistics
+     */
+    private final static int METRIC_INTERVAL = 5000; // ms
+
     private LoadDataSourceCmd loadDSCmd;
     private DataSource selectedXA;
     private final ServerStore serverStore;
+    private final MetricSampler metricSampler;
+    private final List<MetricSampler.Subscription> dsSubscriptions;
+    private final List<MetricSampler.Subscription> xaSubscriptions;
 
 
     @Inject
@@ -82,7 +94,7 @@ public class DataSourceMetricPresenter extends CircuitPresenter<DataSourceMetric
             EventBus eventBus, MyView view, MyProxy proxy,
             PlaceManager placeManager,  DispatchAsync dispatcher, Dispatcher circuit,
             ApplicationMetaData metaData, RevealStrategy revealStrategy,
-            ServerStore serverStore, BeanFactory factory) {
+            ServerStore serverStore, BeanFactory factory, MetricSampler metricSampler) {
         super(eventBus, view, proxy, circuit);
 
         this.placeManager = placeManager;
@@ -91,6 +103,9 @@ public class DataSourceMetricPresenter extends CircuitPresenter<DataSourceMetric
         this.revealStrategy = revealStrategy;
         this.serverStore = serverStore;
         this.factory = factory;
+        this.metricSampler = metricSampler;
+        this.dsSubscriptions = new ArrayList<>();
+        this.xaSubscriptions = new ArrayList<>();
 
         this.loadDSCmd = new LoadDataSourceCmd(dispatcher, metaData);
 
@@ -98,6 +113,8 @@ public class DataSourceMetricPresenter extends CircuitPresenter<DataSourceMetric
 
     public void refreshDatasources() {
 
+        cancelMetrics(true);
+        cancelMetrics(false);
         getView().clearSamples();
         getView().setDatasources(Collections.EMPTY_LIST, true);
         getView().setDatasources(Collections.EMPTY_LIST, false);
@@ -150,6 +167,13 @@ public class DataSourceMetricPresenter extends CircuitPresenter<DataSourceMetric
         });
     }
 
+    @Override
+    protected void onHide() {
+        super.onHide();
+        cancelMetrics(true);
+        cancelMetrics(false);
+    }
+
     @Override
     protected void onReset() {
         super.onReset();
@@ -166,6 +190,7 @@ public class DataSourceMetricPresenter extends CircuitPresenter<DataSourceMetric
         if(!currentSelection.isEnabled())
         {
             Console.error(Console.MESSAGES.subsys_jca_err_ds_notEnabled(currentSelection.getName()));
+            cancelMetrics(xa);
             getView().clearSamples();
             return;
         }
@@ -182,103 +207,81 @@ public class DataSourceMetricPresenter extends CircuitPresenter<DataSourceMetric
         }
     }
 
-    private void loadMetrics(boolean isXA) {
-        loadDSPoolMetrics(isXA);
-        loadDSCacheMetrics(isXA);
-    }
-
-    private void loadDSPoolMetrics(final boolean isXA) {
+    private void loadMetrics(final boolean isXA) {
 
         DataSource target = isXA ? selectedXA : selectedDS;
         if(null==target)
             throw new RuntimeException("DataSource selection is null!");
 
+        cancelMetrics(isXA);
         getView().clearSamples();
 
         String subresource = isXA ? "xa-data-source": "data-source";
-        String name = target.getName();
-
-        ModelNode operation = new ModelNode();
-        operation.get(ADDRESS).set(RuntimeBaseAddress.get());
-        operation.get(ADDRESS).add("subsystem", "datasources");
-        operation.get(ADDRESS).add(subresource, name);
-        operation.get(ADDRESS).add("statistics", "pool");
-
-        operation.get(OP).set(READ_RESOURCE_OPERATION);
-        operation.get(INCLUDE_RUNTIME).set(true);
-
-        dispatcher.execute(new DMRAction(operation), new LoggingCallback<DMRResponse>() {
-            @Override
-            public void onSuccess(DMRResponse dmrResponse) {
-                ModelNode response = dmrResponse.get();
-
-                if(response.isFailure())
-                {
-                    Console.error(Console.MESSAGES.failed("Datasource Metrics"), response.getFailureDescription());
-                }
-                else
-                {
-                    ModelNode result = response.get(RESULT).asObject();
-
-                    long avail = result.get("AvailableCount").asLong();
-                    long active = result.get("ActiveCount").asLong();
-                    long max = result.get("MaxUsedCount").asLong();
-
-                    Metric poolMetric = new Metric(
-                            avail,active,max
-                    );
-
-                    getView().setDSPoolMetric(poolMetric, isXA);
-                }
-            }
-        });
+        AddressTemplate datasource = AddressTemplate.of("subsystem=datasources")
+                .append(subresource + "=" + target.getName());
+        List<MetricSampler.Subscription> subscriptions = isXA ? xaSubscriptions : dsSubscriptions;
+
+        subscriptions.add(metricSampler.subscribe(datasource.append("statistics=pool"),
+                Arrays.asList("AvailableCount", "ActiveCount", "MaxUsedCount"), METRIC_INTERVAL,
+                new MetricsCallback() {
+                    @Override
+                    void onMetrics(ModelNode values) {
+                        long avail = values.get("AvailableCount").asLong();
+                        long active = values.get("ActiveCount").asLong();
+                        long max = values.get("MaxUsedCount").asLong();
+
+                        getView().setDSPoolMetric(new Metric(avail, active, max), isXA);
+                    }
+                }));
+
+        subscriptions.add(metricSampler.subscribe(datasource.append("statistics=jdbc"),
+                Arrays.asList("PreparedStatementCacheAccessCount", "PreparedStatementCacheHitCount",
+                        "PreparedStatementCacheMissCount"), METRIC_INTERVAL,
+                new MetricsCallback() {
+                    @Override
+                    void onMetrics(ModelNode values) {
+                        long size = values.get("PreparedStatementCacheAccessCount").asLong();
+                        long hit = values.get("PreparedStatementCacheHitCount").asLong();
+                        long miss = values.get("PreparedStatementCacheMissCount").asLong();
+
+                        getView().setDSCacheMetric(new Metric(size, hit, miss), isXA);
+                    }
+                }));
     }
 
-    private void loadDSCacheMetrics(final boolean isXA) {
-
-        DataSource target = isXA ? selectedXA : selectedDS;
-        if(null==target)
-            throw new RuntimeException("DataSource selection is null!");
-
-        getView().clearSamples();
-
-        String subresource = isXA ? "xa-data-source": "data-source";
-        String name = target.getName();
-
-        ModelNode operation = new ModelNode();
-        operation.get(ADDRESS).set(RuntimeBaseAddress.get());
-        operation.get(ADDRESS).add("subsystem", "datasources");
-        operation.get(ADDRESS).add(subresource, name);
-        operation.get(ADDRESS).add("statistics", "jdbc");
-
-        operation.get(OP).set(READ_RESOURCE_OPERATION);
-        operation.get(INCLUDE_RUNTIME).set(true);
-
-        dispatcher.execute(new DMRAction(operation), new LoggingCallback<DMRResponse>() {
-            @Override
-            public void onSuccess(DMRResponse dmrResponse) {
-                ModelNode response = dmrResponse.get();
+    private void cancelMetrics(boolean isXA) {
+        List<MetricSampler.Subscription> subscriptions = isXA ? xaSubscriptions : dsSubscriptions;
+        for (MetricSampler.Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        subscriptions.clear();
+    }
 
-                if(response.isFailure())
-                {
-                    Console.error(Console.MESSAGES.failed("Datasource Metrics"), response.getFailureDescription());
-                }
-                else
-                {
-                    ModelNode result = response.get(RESULT).asObject();
+    /**
+     * Keeps polling after an error, so the metrics show up again once the data source recovers. An error is reported
+     * only once until the next successful read.
+     */
+    private abstract class MetricsCallback implements MetricSampler.Callback {
 
-                    long size = result.get("PreparedStatementCacheAccessCount").asLong();
-                    long hit = result.get("PreparedStatementCacheHitCount").asLong();
-                    long miss = result.get("PreparedStatementCacheMissCount").asLong();
+        private boolean failed;
 
-                    Metric metric = new Metric(
-                            size,hit,miss
-                    );
+        @Override
+        public void onSample(MetricSampler.Target target, ModelNode values) {
+            failed = false;
+            onMetrics(values);
+        }
 
-                    getView().setDSCacheMetric(metric, isXA);
-                }
+        @Override
+        public void onError(MetricSampler.Target target, String failure) {
+            if (failed) {
+                Log.error("Failed to read datasource metrics: " + failure);
+            } else {
+                failed = true;
+                Console.error(Console.MESSAGES.failed("Datasource Metrics"), failure);
             }
-        });
+        }
+
+        abstract void onMetrics(ModelNode values);
     }
 
     public void verifyConnection(final String dsName, boolean isXA) {
@@ -17,12 +17,14 @@ import org.jboss.as.console.client.core.NameTokens;
 import org.jboss.as.console.client.domain.model.LoggingCallback;
 import org.jboss.as.console.client.domain.model.SimpleCallback;
 import org.jboss.as.console.client.shared.BeanFactory;
+import org.jboss.as.console.client.shared.runtime.MetricSampler;
 import org.jboss.as.console.client.shared.runtime.RuntimeBaseAddress;
 import org.jboss.as.console.client.shared.subsys.RevealStrategy;
 import org.jboss.as.console.client.shared.subsys.messaging.AggregatedJMSModel;
 import org.jboss.as.console.client.shared.subsys.messaging.LoadJMSCmd;
 import org.jboss.as.console.client.shared.subsys.messaging.model.JMSEndpoint;
 import org.jboss.as.console.client.shared.subsys.messaging.model.Queue;
+import org.jboss.as.console.client.v3.dmr.AddressTemplate;
 import org.jboss.as.console.client.v3.stores.domain.ServerStore;
 import org.jboss.as.console.client.widgets.forms.ApplicationMetaData;
 import org.jboss.as.console.spi.AccessControl;
@@ -35,6 +37,7 @@ import org.jboss.dmr.client.dispatch.impl.DMRResponse;
 import org.jboss.gwt.circuit.Action;
 import org.jboss.gwt.circuit.Dispatcher;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -69,6 +72,16 @@ public class JMSMetricPresenter extends CircuitPresenter<JMSMetricPresenter.MyVi
         void setSelectedProvider(String name);
     }
 
+    /**
+     * Polling interval of the queue and topic statistics
+     */
+    private final static int METRIC_INTERVAL = 5000; // ms
+    private final static AddressTemplate PROVIDER = AddressTemplate.of("subsystem=messaging/hornetq-server=default");
+    private final static List<String> QUEUE_METRICS = Arrays.asList("consumer-count", "message-count",
+            "messages-added", "scheduled-count");
+    private final static List<String> TOPIC_METRICS = Arrays.asList("delivering-count", "durable-message-count",
+            "durable-subscription-count", "message-count", "messages-added", "subscription-count");
+
     private final PlaceManager placemanager;
     private DispatchAsync dispatcher;
     private RevealStrategy revealStrategy;
@@ -77,19 +90,22 @@ public class JMSMetricPresenter extends CircuitPresenter<JMSMetricPresenter.MyVi
     private Queue selectedQueue;
     private final ServerStore serverStore;
     private String currentServer;
+    private final MetricSampler metricSampler;
+    private MetricSampler.Subscription subscription;
 
     @Inject
     public JMSMetricPresenter(
             EventBus eventBus, MyView view, MyProxy proxy,
             DispatchAsync dispatcher, Dispatcher circuit,
             ApplicationMetaData metaData, RevealStrategy revealStrategy,
-            ServerStore serverStore, BeanFactory factory, PlaceManager placemanager) {
+            ServerStore serverStore, BeanFactory factory, PlaceManager placemanager, MetricSampler metricSampler) {
         super(eventBus, view, proxy, circuit);
 
         this.dispatcher = dispatcher;
         this.revealStrategy = revealStrategy;
         this.serverStore = serverStore;
         this.placemanager = placemanager;
+        this.metricSampler = metricSampler;
         this.loadJMSCmd = new LoadJMSCmd(dispatcher, factory, metaData);
     }
 
@@ -141,6 +157,7 @@ public class JMSMetricPresenter extends CircuitPresenter<JMSMetricPresenter.MyVi
 
     public void refreshQueuesAndTopics(String selectedProvider) {
 
+        cancelMetrics();
         getView().clearSamples();
         getView().setTopics(Collections.EMPTY_LIST);
         getView().setQueues(Collections.EMPTY_LIST);
@@ -168,33 +185,11 @@ public class JMSMetricPresenter extends CircuitPresenter<JMSMetricPresenter.MyVi
         if(null==selectedQueue)
             throw new RuntimeException("Queue selection is null!");
 
-        getView().clearSamples();
-
-        ModelNode operation = new ModelNode();
-        operation.get(ADDRESS).set(RuntimeBaseAddress.get());
-        operation.get(ADDRESS).add("subsystem", "messaging");
-        operation.get(ADDRESS).add("hornetq-server", "default");
-        operation.get(ADDRESS).add("jms-queue", selectedQueue.getName());
-
-        operation.get(OP).set(READ_RESOURCE_OPERATION);
-        operation.get(INCLUDE_RUNTIME).set(true);
-
-        dispatcher.execute(new DMRAction(operation), new LoggingCallback<DMRResponse>() {
+        final String name = selectedQueue.getName();
+        subscribe(PROVIDER.append("jms-queue=" + name), QUEUE_METRICS, new Metrics("queue " + name) {
             @Override
-            public void onSuccess(DMRResponse dmrResponse) {
-                ModelNode response = dmrResponse.get();
-
-                if(response.isFailure())
-                {
-                    Console.error("Error loading metrics", response.getFailureDescription());
-                }
-                else
-                {
-                    Console.info("Successfully refreshed metrics for queue "+ selectedQueue.getName());
-                    ModelNode result = response.get(RESULT).asObject();
-                    getView().updateQueueMetrics(result);
-
-                }
+            void onMetrics(ModelNode values) {
+                getView().updateQueueMetrics(values);
             }
         });
     }
@@ -204,34 +199,63 @@ public class JMSMetricPresenter extends CircuitPresenter<JMSMetricPresenter.MyVi
         if(null==selectedTopic)
             throw new RuntimeException("Topic selection is null!");
 
-        getView().clearSamples();
-
-        ModelNode operation = new ModelNode();
-        operation.get(ADDRESS).set(RuntimeBaseAddress.get());
-        operation.get(ADDRESS).add("subsystem", "messaging");
-        operation.get(ADDRESS).add("hornetq-server", "default");
-        operation.get(ADDRESS).add("jms-topic", selectedTopic.getName());
+        final String name = selectedTopic.getName();
+        subscribe(PROVIDER.append("jms-topic=" + name), TOPIC_METRICS, new Metrics("topic " + name) {
+            @Override
+            void onMetrics(ModelNode values) {
+                getView().updateTopicMetrics(values);
+            }
+        });
+    }
 
-        operation.get(OP).set(READ_RESOURCE_OPERATION);
-        operation.get(INCLUDE_RUNTIME).set(true);
+    private void subscribe(AddressTemplate template, List<String> attributes, Metrics callback) {
+        cancelMetrics();
+        getView().clearSamples();
+        subscription = metricSampler.subscribe(template, attributes, METRIC_INTERVAL, callback);
+    }
 
-        dispatcher.execute(new DMRAction(operation), new LoggingCallback<DMRResponse>() {
-            @Override
-            public void onSuccess(DMRResponse dmrResponse) {
-                ModelNode response = dmrResponse.get();
+    private void cancelMetrics() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+    }
 
-                if(response.isFailure())
-                {
-                    Console.error("Error loading metrics", response.getFailureDescription());
-                }
-                else
-                {
-                    Console.info("Successfully refreshed metrics for topic "+ selectedTopic.getName());
-                    ModelNode result = response.get(RESULT).asObject();
-                    getView().updateTopicMetrics(result);
-                }
+    /**
+     * Reports the first sample and the first error of a subscription. Polling goes on after an error, the next
+     * error is reported once a sample was read again.
+     */
+    private abstract class Metrics implements MetricSampler.Callback {
+
+        private final String endpoint;
+        private boolean sampled;
+        private boolean failed;
+
+        Metrics(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void onSample(MetricSampler.Target target, ModelNode values) {
+            if (!sampled) {
+                sampled = true;
+                Console.info("Successfully refreshed metrics for " + endpoint);
             }
-        });
+            failed = false;
+            onMetrics(values);
+        }
+
+        @Override
+        public void onError(MetricSampler.Target target, String failure) {
+            if (failed) {
+                Log.error("Error loading metrics for " + endpoint + ": " + failure);
+            } else {
+                failed = true;
+                Console.error("Error loading metrics", failure);
+            }
+        }
+
+        abstract void onMetrics(ModelNode values);
     }
 
     @Override
@@ -257,6 +281,12 @@ public class JMSMetricPresenter extends CircuitPresenter<JMSMetricPresenter.MyVi
         loadProvider();
     }
 
+    @Override
+    protected void onHide() {
+        super.onHide();
+        cancelMetrics();
+    }
+
     @Override
     protected void revealInParent() {
         revealStrategy.revealInRuntimeParent(this);
@@ -29,11 +29,13 @@ import com.google.gwt.event.logical.shared.AttachEvent;
 import com.google.gwt.event.logical.shared.ResizeEvent;
 import com.google.gwt.event.logical.shared.ResizeHandler;
 import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.safehtml.shared.SafeHtmlUtils;
 import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.ui.*;
 import edu.ycp.cs.dh.acegwt.client.ace.AceEditor;
 import org.jboss.as.console.client.shared.runtime.logging.store.LogFile;
+import org.jboss.as.console.client.shared.runtime.logging.store.LogWindow;
 import org.jboss.ballroom.client.widgets.tools.ToolButton;
 import org.jboss.ballroom.client.widgets.tools.ToolStrip;
 
@@ -56,6 +58,7 @@ public class LogFilePanel extends Composite implements LogFilesId {
     private final String name;
     private final VerticalPanel panel;
     private final AceEditor editor;
+    private final HTML header;
     private final HandlerRegistration resizeHandler;
 
     public LogFilePanel(final LogFile logFile) {
@@ -96,7 +99,9 @@ public class LogFilePanel extends Composite implements LogFilesId {
         SearchBox searchBox = new SearchBox(editor.getElement().getId());
         editor.setSearchBox(searchBox.getElement());
 
-        panel.add(new HTML("<h3>" + logFile.getName() + "</h3>"));
+        header = new HTML();
+        updateHeader(logFile);
+        panel.add(header);
         panel.add(searchBox);
         panel.add(editorPanel);
 
@@ -112,6 +117,19 @@ public class LogFilePanel extends Composite implements LogFilesId {
 
     public void refresh(LogFile logFile) {
         editor.setText(logFile.getContent());
+        updateHeader(logFile);
+    }
+
+    private void updateHeader(LogFile logFile) {
+        SafeHtmlBuilder builder = new SafeHtmlBuilder();
+        builder.appendHtmlConstant("<h3>").appendEscaped(logFile.getName()).appendHtmlConstant("</h3>");
+        LogWindow window = logFile.getWindow();
+        if (window != null && window.isTruncated()) {
+            builder.appendHtmlConstant("<p>").appendEscaped("Showing the last " +
+                    (window.getLineCount() - window.getFirstLine()) + " of " + window.getLineCount() + " lines" +
+                    (window.isComplete() ? "" : " (download in progress)")).appendHtmlConstant("</p>");
+        }
+        header.setHTML(builder.toSafeHtml());
     }
 
     @Override
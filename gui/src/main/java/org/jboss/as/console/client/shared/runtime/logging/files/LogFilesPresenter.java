@@ -104,8 +104,12 @@ public class LogFilesPresenter extends CircuitPresenter<LogFilesPresenter.MyView
             getView().list(logStore.getLogFiles());
 
         } else if (action instanceof StreamLogFile) {
+            // fired once the first lines arrived and again when the download is finished
             streamingProgress.done();
-            getView().open(logStore.getActiveLogFile());
+            LogFile logFile = logStore.getLogFile(((StreamLogFile) action).getName());
+            if (logFile != null) {
+                getView().refresh(logFile);
+            }
 
         } else if (action instanceof SelectLogFile) {
             getView().open(logStore.getActiveLogFile());
@@ -137,7 +141,7 @@ public class LogFilesPresenter extends CircuitPresenter<LogFilesPresenter.MyView
         }
     }
 
-    public void onStreamLogFile(final String logFile, final int fileSize) {
+    public void onStreamLogFile(final String logFile, final long fileSize) {
         if (logStore.isOpen(logFile)) {
             this.circuit.dispatch(new SelectLogFile(logFile));
         } else {
@@ -125,7 +125,7 @@ public class LogFilesTable extends Composite implements LogFilesId {
                 ModelNode logFile = selectionModel.getSelectedObject();
                 if (logFile != null) {
                     String name = logFile.get(FILE_NAME).asString();
-                    int fileSize = logFile.get(FILE_SIZE).asInt();
+                    long fileSize = logFile.get(FILE_SIZE).asLong();
                     presenter.onStreamLogFile(name, fileSize);
                 }
             }
@@ -74,10 +74,20 @@ public class LogFilesTabs extends Composite {
         tabLayout.selectTab(logFile.getName());
     }
 
+    /**
+     * Refreshes the panel of the specified log file or opens a new one if there's no such panel. Panels in hidden
+     * off-page tabs pick up the content when they're attached again.
+     */
     public void refresh(LogFile logFile) {
-        LogFilePanel logFilePanel = selectedLogFilePanel();
-        if (logFilePanel != null) {
-            logFilePanel.refresh(logFile);
+        for (int i = 0; i < tabLayout.getWidgetCount(); i++) {
+            Widget widget = tabLayout.getWidget(i);
+            if (widget instanceof LogFilePanel && ((LogFilePanel) widget).getName().equals(logFile.getName())) {
+                ((LogFilePanel) widget).refresh(logFile);
+                return;
+            }
+        }
+        if (!tabLayout.contains(logFile.getName())) {
+            open(logFile);
         }
     }
 
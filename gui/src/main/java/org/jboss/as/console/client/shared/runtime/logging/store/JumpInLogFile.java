@@ -0,0 +1,72 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.console.client.shared.runtime.logging.store;
+
+import org.jboss.gwt.circuit.Action;
+
+/**
+ * Action for jumping to a line number or to a percentage of the active log file. Percentages are mapped to line
+ * numbers based on the average line length read so far, unless the number of lines is already known.
+ */
+public class JumpInLogFile implements Action {
+
+    public static JumpInLogFile toLine(int line) {
+        return new JumpInLogFile(line, false);
+    }
+
+    public static JumpInLogFile toPercent(int percent) {
+        return new JumpInLogFile(Math.max(0, Math.min(100, percent)), true);
+    }
+
+    private final int value;
+    private final boolean percent;
+
+    private JumpInLogFile(int value, boolean percent) {
+        this.value = value;
+        this.percent = percent;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JumpInLogFile)) return false;
+
+        JumpInLogFile that = (JumpInLogFile) o;
+        return value == that.value && percent == that.percent;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * value + (percent ? 1 : 0);
+    }
+
+    /**
+     * @return the line number (starting at 1) or the percentage
+     */
+    public int getValue() {
+        return value;
+    }
+
+    public boolean isPercent() {
+        return percent;
+    }
+}
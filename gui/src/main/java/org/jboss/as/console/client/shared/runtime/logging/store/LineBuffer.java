@@ -0,0 +1,177 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.console.client.shared.runtime.logging.store;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffer for the lines of a paged log file which were read so far. Lines are indexed like the {@code read-log-file}
+ * operation addresses them: Either by the line number counted from the head or by the distance from the last line
+ * counted from the tail. Once the number of lines is known (i.e. a read operation hit the start or the end of the
+ * file), both indexes are used for lookups.
+ * <p>
+ * Lines indexed from the tail are dropped as soon as the file grows. If the file shrinks (e.g. because it was
+ * rotated), all lines are dropped. The buffer holds at most {@link #MAX_LINES} lines per index, the least recently
+ * used lines are evicted first. All lines put into the buffer are also added to a {@link LogIndex}, which outlives the
+ * eviction of the lines.
+ */
+class LineBuffer {
+
+    final static int MAX_LINES = 5000;
+
+    private final Map<Integer, String> head;
+    private final Map<Integer, String> tail;
+    private final LogIndex index;
+    private long fileSize;
+    private int lineCount;
+
+    LineBuffer() {
+        this.head = lru();
+        this.tail = lru();
+        this.index = new LogIndex();
+        this.fileSize = 0;
+        this.lineCount = -1;
+    }
+
+    private static Map<Integer, String> lru() {
+        return new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > MAX_LINES;
+            }
+        };
+    }
+
+    /**
+     * Adjusts the buffer to the current size of the log file.
+     */
+    void resize(long fileSize) {
+        if (fileSize < this.fileSize) {
+            head.clear();
+            tail.clear();
+            index.clear(false);
+            index.clear(true);
+            lineCount = -1;
+        } else if (fileSize > this.fileSize) {
+            tail.clear();
+            index.clear(true);
+            lineCount = -1;
+        }
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * Adds the lines returned by {@code read-log-file(tail=fromTail, skip=skip, lines=requested)}.
+     */
+    void put(boolean fromTail, int skip, int requested, List<String> lines) {
+        int size = lines.size();
+        for (int i = 0; i < size; i++) {
+            int line = fromTail ? skip + size - 1 - i : skip + i;
+            (fromTail ? tail : head).put(line, lines.get(i));
+            index.add(fromTail, line, lines.get(i));
+        }
+        if (skip >= 0 && size > 0 && size < requested) {
+            // hit the start or the end of the file
+            lineCount = skip + size;
+        }
+    }
+
+    /**
+     * Returns {@code count} lines starting at {@code skip} in the order {@code read-log-file} would return them. If
+     * the number of lines is known, the result is cut at the start or end of the file.
+     *
+     * @return the lines or {@code null} if some lines are not in the buffer
+     */
+    List<String> page(boolean fromTail, int skip, int count) {
+        if (skip < 0) {
+            return null;
+        }
+        int end = lineCount == -1 ? skip + count : Math.min(skip + count, lineCount);
+        List<String> lines = new ArrayList<>();
+        for (int i = skip; i < end; i++) {
+            String line = line(fromTail, fromTail ? skip + end - 1 - i : i);
+            if (line == null) {
+                return null;
+            }
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * @return the smallest range {@code [from, to)} which covers all lines of the page which are not in the buffer or
+     * {@code null} if the page is complete.
+     */
+    int[] missing(boolean fromTail, int skip, int count) {
+        int from = -1;
+        int to = -1;
+        int end = lineCount == -1 ? skip + count : Math.min(skip + count, lineCount);
+        for (int i = skip; i < end; i++) {
+            if (line(fromTail, i) == null) {
+                if (from == -1) {
+                    from = i;
+                }
+                to = i + 1;
+            }
+        }
+        return from == -1 ? null : new int[]{from, to};
+    }
+
+    /**
+     * Moves the start of a page so that the page doesn't exceed the start or the end of the file (if known).
+     */
+    int clamp(int skip, int count) {
+        if (lineCount != -1) {
+            skip = Math.min(skip, lineCount - count);
+        }
+        return Math.max(0, skip);
+    }
+
+    /**
+     * @return the line or {@code null} if the line is not in the buffer
+     */
+    String line(boolean fromTail, int index) {
+        String line = (fromTail ? tail : head).get(index);
+        if (line == null && lineCount != -1 && index < lineCount) {
+            line = (fromTail ? head : tail).get(lineCount - 1 - index);
+        }
+        return line;
+    }
+
+    /**
+     * @return the number of lines or -1 if unknown
+     */
+    int getLineCount() {
+        return lineCount;
+    }
+
+    LogIndex getIndex() {
+        return index;
+    }
+
+    int size() {
+        return head.size() + tail.size();
+    }
+}
@@ -40,8 +40,9 @@ public class LogFile {
 
     private final String name;
     private final List<String> lines;
-    private final String content;
-    private int fileSize;
+    private final LogWindow window;
+    private final LineBuffer buffer;
+    private long fileSize;
 
     private Position position;
     private Position readFrom;
@@ -49,10 +50,16 @@ public class LogFile {
     private boolean follow;
     private boolean stale;
 
-    public LogFile(String name, List<String> lines, int fileSize) {
+    private SearchLogFile search;
+    private boolean searching;
+    private boolean matchFromTail;
+    private int match;
+
+    public LogFile(String name, List<String> lines, long fileSize) {
         this.name = name;
         this.lines = new ArrayList<>();
-        this.content = null;
+        this.window = null;
+        this.buffer = new LineBuffer();
         this.lines.addAll(lines);
         this.fileSize = fileSize;
 
@@ -61,19 +68,26 @@ public class LogFile {
         this.skipped = 0;
         this.follow = false;
         this.stale = false;
+        this.match = -1;
     }
 
-    public LogFile(String name, String content) {
+    /**
+     * Creates a log file for streamed content. The content is read from the window which is filled while the log
+     * file is streamed.
+     */
+    public LogFile(String name, LogWindow window) {
         this.name = name;
         this.lines = Collections.emptyList();
-        this.content = content;
-        this.fileSize = getNumBytes();
+        this.window = window;
+        this.buffer = null;
+        this.fileSize = 0;
 
         this.position = Position.TAIL;
         this.readFrom = Position.TAIL;
         this.skipped = 0;
         this.follow = false;
         this.stale = false;
+        this.match = -1;
     }
 
     @Override
@@ -158,11 +172,25 @@ public class LogFile {
     }
 
     public boolean isPaged() {
-        return content == null;
+        return window == null;
     }
 
     public String getContent() {
-        return isPaged() ? Joiner.on('\n').join(lines) : content;
+        return isPaged() ? Joiner.on('\n').join(lines) : window.getContent();
+    }
+
+    /**
+     * @return the lines read so far or {@code null} if this log file is streamed
+     */
+    LineBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the window of a streamed log file or {@code null} if this log file is paged
+     */
+    public LogWindow getWindow() {
+        return window;
     }
 
     public int getNumBytes() {
@@ -204,13 +232,73 @@ public class LogFile {
         this.stale = stale;
     }
 
-    public int getFileSize() {
-        return fileSize;
+    /**
+     * @return the size of the file in bytes. For a streamed log file that's the number of bytes read so far.
+     */
+    public long getFileSize() {
+        return isPaged() ? fileSize : window.getSize();
     }
 
-    public void setFileSize(int fileSize) {
+    public void setFileSize(long fileSize) {
         if (isPaged()) {
+            // lines counted from the tail move as the file grows, all lines change if the file shrinks
+            if (fileSize < this.fileSize || (fileSize > this.fileSize && matchFromTail)) {
+                match = -1;
+            }
             this.fileSize = fileSize;
         }
     }
+
+    /**
+     * @return the last search or {@code null}
+     */
+    SearchLogFile getSearch() {
+        return search;
+    }
+
+    void setMatch(SearchLogFile search, boolean fromTail, int line) {
+        this.search = search;
+        this.matchFromTail = fromTail;
+        this.match = line;
+    }
+
+    /**
+     * @return the index of the last match counted from the head or the tail or -1 if there's no match (or the index
+     * can't be converted since the number of lines is unknown)
+     */
+    int getMatch(boolean fromTail) {
+        if (match == -1 || fromTail == matchFromTail) {
+            return match;
+        }
+        int lineCount = buffer.getLineCount();
+        return lineCount == -1 ? -1 : lineCount - 1 - match;
+    }
+
+    /**
+     * @return the row of the last match within the current lines or -1 if the match isn't visible
+     */
+    public int getMatchRow() {
+        if (!isPaged()) {
+            return -1;
+        }
+        boolean fromTail = readFrom == Position.TAIL;
+        int line = getMatch(fromTail);
+        if (line == -1) {
+            return -1;
+        }
+        int row = fromTail ? skipped + lines.size() - 1 - line : line - skipped;
+        return row >= 0 && row < lines.size() ? row : -1;
+    }
+
+    public boolean hasMatch() {
+        return match != -1;
+    }
+
+    public boolean isSearching() {
+        return searching;
+    }
+
+    void setSearching(boolean searching) {
+        this.searching = searching;
+    }
 }
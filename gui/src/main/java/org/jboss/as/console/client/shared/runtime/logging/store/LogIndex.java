@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.console.client.shared.runtime.logging.store;
+
+import com.google.gwt.regexp.shared.MatchResult;
+import com.google.gwt.regexp.shared.RegExp;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index over the lines of a paged log file. Lines are grouped into blocks of {@link #BLOCK_SIZE} lines using the same
+ * indexes as the {@link LineBuffer}. For each block the index records the log levels and logger categories of its
+ * lines. Once all lines of a block were indexed, a search with a level or category filter can skip the block without
+ * reading its lines (again).
+ * <p>
+ * Only lines which start with a timestamp followed by the level and the category in brackets (the default pattern of
+ * the file handlers) have a level and a category. Other lines like stack traces are indexed, but don't contribute to
+ * the summary of their block.
+ */
+class LogIndex {
+
+    final static int BLOCK_SIZE = 500;
+
+    /**
+     * If a block contains more categories, the categories of the block are no longer recorded.
+     */
+    private final static int MAX_CATEGORIES = 64;
+
+    private final static RegExp HEADER = RegExp.compile(
+            "^(?:\\d{4}-\\d{2}-\\d{2}[ T])?\\d{2}:\\d{2}:\\d{2}[,.]\\d{3}\\s+([A-Z]+)\\s+\\[([^\\]]*)\\]");
+
+    private final Map<Integer, Block> head;
+    private final Map<Integer, Block> tail;
+
+    LogIndex() {
+        this.head = new HashMap<>();
+        this.tail = new HashMap<>();
+    }
+
+    void add(boolean fromTail, int index, String line) {
+        Map<Integer, Block> blocks = fromTail ? tail : head;
+        Block block = blocks.get(index / BLOCK_SIZE);
+        if (block == null) {
+            block = new Block();
+            blocks.put(index / BLOCK_SIZE, block);
+        }
+        block.add(index % BLOCK_SIZE, line);
+    }
+
+    void clear(boolean fromTail) {
+        (fromTail ? tail : head).clear();
+    }
+
+    /**
+     * @param levels   the bitmask of the wanted levels or 0 for any level
+     * @param category the prefix of the wanted category or {@code null} for any category
+     *
+     * @return {@code false} if all lines of the block were indexed and none of them has one of the levels and the
+     * category, {@code true} otherwise
+     */
+    boolean mayContain(boolean fromTail, int block, int lineCount, int levels, String category) {
+        Block summary = (fromTail ? tail : head).get(block);
+        if (summary == null || !summary.isComplete(block, lineCount)) {
+            return true;
+        }
+        return (levels == 0 || (summary.levels & levels) != 0) && (category == null || summary.hasCategory(category));
+    }
+
+    /**
+     * @return whether the line has one of the levels and the category. Lines without level and category are only
+     * accepted if there's no filter at all.
+     */
+    static boolean accept(String line, int levels, String category) {
+        if (levels == 0 && category == null) {
+            return true;
+        }
+        MatchResult header = HEADER.exec(line);
+        if (header == null) {
+            return false;
+        }
+        LogLevel level = LogLevel.parse(header.getGroup(1));
+        return (levels == 0 || (level != null && (level.mask() & levels) != 0)) &&
+                (category == null || header.getGroup(2).startsWith(category));
+    }
+
+    int size() {
+        return head.size() + tail.size();
+    }
+
+
+    private static class Block {
+
+        final int[] indexed;
+        int count;
+        int levels;
+        Set<String> categories;
+
+        Block() {
+            this.indexed = new int[(BLOCK_SIZE + 31) / 32];
+            this.categories = new HashSet<>();
+        }
+
+        void add(int offset, String line) {
+            int bit = 1 << (offset % 32);
+            if ((indexed[offset / 32] & bit) != 0) {
+                return;
+            }
+            indexed[offset / 32] |= bit;
+            count++;
+
+            MatchResult header = HEADER.exec(line);
+            if (header != null) {
+                LogLevel level = LogLevel.parse(header.getGroup(1));
+                if (level != null) {
+                    levels |= level.mask();
+                }
+                if (categories != null) {
+                    categories.add(header.getGroup(2));
+                    if (categories.size() > MAX_CATEGORIES) {
+                        categories = null;
+                    }
+                }
+            }
+        }
+
+        boolean isComplete(int block, int lineCount) {
+            return count == BLOCK_SIZE || (lineCount != -1 && count >= lineCount - block * BLOCK_SIZE);
+        }
+
+        boolean hasCategory(String prefix) {
+            if (categories == null) {
+                return true;
+            }
+            for (String category : categories) {
+                if (category.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.console.client.shared.runtime.logging.store;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Log levels as they appear in log files. The levels of {@code java.util.logging} are mapped to their JBoss Logging
+ * counterparts.
+ */
+public enum LogLevel {
+
+    TRACE, DEBUG, INFO, WARN, ERROR, FATAL;
+
+    /**
+     * @return the level for the given name or {@code null} if the name is no known level
+     */
+    public static LogLevel parse(String name) {
+        switch (name) {
+            case "TRACE":
+            case "FINER":
+            case "FINEST":
+                return TRACE;
+            case "DEBUG":
+            case "FINE":
+                return DEBUG;
+            case "INFO":
+            case "CONFIG":
+                return INFO;
+            case "WARN":
+            case "WARNING":
+                return WARN;
+            case "ERROR":
+            case "SEVERE":
+                return ERROR;
+            case "FATAL":
+                return FATAL;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the given level and all levels above
+     */
+    public static Set<LogLevel> atLeast(LogLevel level) {
+        return EnumSet.range(level, FATAL);
+    }
+
+    int mask() {
+        return 1 << ordinal();
+    }
+}
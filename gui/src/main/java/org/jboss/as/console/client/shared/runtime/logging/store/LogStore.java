@@ -21,12 +21,9 @@
  */
 package org.jboss.as.console.client.shared.runtime.logging.store;
 
+import com.allen_sauer.gwt.log.client.Log;
 import com.google.gwt.core.client.Scheduler;
-import com.google.gwt.http.client.Request;
-import com.google.gwt.http.client.RequestBuilder;
-import com.google.gwt.http.client.RequestCallback;
-import com.google.gwt.http.client.RequestException;
-import com.google.gwt.http.client.Response;
+import com.google.gwt.regexp.shared.RegExp;
 import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.inject.Inject;
@@ -71,7 +68,28 @@ public class LogStore extends ChangeSupport {
     public final static String LAST_MODIFIED_TIMESTAMP = "last-modified-timestamp";
 
     private final static int PAGE_SIZE = 25;
+
+    /**
+     * Bounds for the polling interval while following a log file. The interval starts with {@code FOLLOW_INTERVAL}
+     * and adapts to the rate lines are appended: It's halved after new lines were read and grows by half while the
+     * file size doesn't change. While the browser tab is hidden the file is polled every
+     * {@code HIDDEN_FOLLOW_INTERVAL} ms. Once the tab is visible again, the file is polled immediately.
+     */
     private final static int FOLLOW_INTERVAL = 1200; // ms
+    private final static int MIN_FOLLOW_INTERVAL = 1000; // ms
+    private final static int MAX_FOLLOW_INTERVAL = 10000; // ms
+    private final static int HIDDEN_FOLLOW_INTERVAL = 30000; // ms
+
+    /**
+     * Number of lines which are read in addition to the estimated number of appended lines. Used to align the
+     * appended lines with the lines already read.
+     */
+    private final static int FOLLOW_OVERLAP = 5;
+
+    /**
+     * Maximum time a search runs before it yields to the browser.
+     */
+    private final static int SEARCH_SLICE = 20; // ms
 
     private final HostStore hostStore;
     private final DispatchAsync dispatcher;
@@ -118,6 +136,21 @@ public class LogStore extends ChangeSupport {
      */
     protected boolean pauseFollow;
 
+    /**
+     * The command which polls the active log file. There's at most one valid command at a time.
+     */
+    private RefreshLogFile follower;
+
+    /**
+     * The running search. A new search cancels the running one.
+     */
+    private SearchInLogFile searcher;
+
+    /**
+     * Whether the listener for the visibility of the browser tab / window was registered.
+     */
+    private boolean observingVisibility;
+
     @Inject
     public LogStore(HostStore hostStore, DispatchAsync dispatcher, Scheduler scheduler, BootstrapContext bootstrap) {
         this.hostStore = hostStore;
@@ -197,8 +230,11 @@ public class LogStore extends ChangeSupport {
                                 response.getFailureDescription()));
                     } else {
                         ModelNode compResult = response.get(RESULT);
-                        LogFile newLogFile = new LogFile(action.getName(), readLines(compResult), 
-                                readFileSize(action.getName(), compResult));
+                        long fileSize = readFileSize(action.getName(), compResult);
+                        List<String> lines = readLines(compResult);
+                        LogFile newLogFile = new LogFile(action.getName(), lines, fileSize);
+                        newLogFile.getBuffer().resize(fileSize);
+                        newLogFile.getBuffer().put(true, 0, pageSize, lines);
                         newLogFile.setFollow(true);
                         states.put(action.getName(), newLogFile);
                         activate(newLogFile);
@@ -219,37 +255,52 @@ public class LogStore extends ChangeSupport {
         final LogFile logFile = states.get(action.getName());
 
         if (logFile == null) {
-            RequestBuilder requestBuilder = new RequestBuilder(RequestBuilder.GET, encode(streamUrl(action.getName())));
-            requestBuilder.setHeader("Accept", "text/plain");
-            requestBuilder.setHeader("Content-Type", "text/plain");
-            requestBuilder.setIncludeCredentials(true);
-            try {
-                // store the request in order to cancel it later
-                pendingStreamingRequest = new PendingStreamingRequest(action.getName(),
-                        requestBuilder.sendRequest(null, new RequestCallback() {
-                            @Override
-                            public void onResponseReceived(Request request, Response response) {
-                                if (response.getStatusCode() >= 400) {
-                                    channel.nack(new IllegalStateException("Failed to stream log file " +
-                                            action.getName() + ": " + response.getStatusCode() + " - " +
-                                            response.getStatusText()));
-                                } else {
-                                    LogFile newLogFile = new LogFile(action.getName(), response.getText());
-                                    newLogFile.setFollow(false);
-                                    states.put(action.getName(), newLogFile);
-                                    activate(newLogFile);
-                                    channel.ack();
-                                }
-                            }
-
-                            @Override
-                            public void onError(Request request, Throwable exception) {
-                                channel.nack(exception);
-                            }
-                        }), channel);
-            } catch (RequestException e) {
-                channel.nack(e);
-            }
+            final LogWindow window = new LogWindow(action.getWindowSize());
+            final LogFile newLogFile = new LogFile(action.getName(), window);
+            newLogFile.setFollow(false);
+
+            // store the request in order to cancel it later
+            pendingStreamingRequest = new PendingStreamingRequest(action.getName(), channel);
+            final PendingStreamingRequest request = pendingStreamingRequest;
+            request.reader = new LogStreamReader(new LogStreamReader.Callback() {
+                @Override
+                public void onChunk(String chunk) {
+                    window.append(chunk);
+                    if (request.channel != null && window.getLineCount() >= pageSize) {
+                        // show the first screen right away
+                        open();
+                    }
+                }
+
+                @Override
+                public void onComplete() {
+                    window.complete();
+                    if (request.channel != null) {
+                        open();
+                    } else if (states.get(action.getName()) == newLogFile) {
+                        fireChange(action);
+                    }
+                }
+
+                @Override
+                public void onError(String reason) {
+                    if (request.channel != null) {
+                        request.channel.nack(new IllegalStateException("Failed to stream log file " +
+                                action.getName() + ": " + reason));
+                        request.channel = null;
+                    } else {
+                        Log.error("Failed to stream log file " + action.getName() + ": " + reason);
+                    }
+                }
+
+                private void open() {
+                    states.put(action.getName(), newLogFile);
+                    activate(newLogFile);
+                    request.channel.ack();
+                    request.channel = null;
+                }
+            });
+            request.reader.read(encode(streamUrl(action.getName())));
 
         } else {
             // already streamed, just activate
@@ -266,6 +317,10 @@ public class LogStore extends ChangeSupport {
 
     @Process(actionType = CloseLogFile.class)
     public void closeLogFile(final CloseLogFile action, final Dispatcher.Channel channel) {
+        if (pendingStreamingRequest != null && pendingStreamingRequest.logFile.equals(action.getName())) {
+            pendingStreamingRequest.cancel();
+            pendingStreamingRequest = null;
+        }
         LogFile removed = states.remove(action.getName());
         if (removed == activeLogFile) {
             activeLogFile = null;
@@ -294,9 +349,23 @@ public class LogStore extends ChangeSupport {
         }
 
         final int skipped;
+        final boolean fromTail;
         final ModelNode op = readLogFileOp(activeLogFile.getName());
         if (prepareNavigation(activeLogFile, action.getDirection(), op)) {
             skipped = op.get("skip").asInt();
+            fromTail = op.get("tail").asBoolean();
+
+            // the tail has to be read again, since the file might have grown in the meantime
+            if (action.getDirection() != TAIL) {
+                List<String> lines = activeLogFile.getBuffer().page(fromTail, skipped, pageSize);
+                if (lines != null && lines.size() == pageSize) {
+                    finishNavigation(activeLogFile, action.getDirection(), skipped, lines,
+                            activeLogFile.getFileSize());
+                    channel.ack();
+                    return;
+                }
+            }
+
             dispatcher.execute(new DMRAction(wrapInComposite(op)), new AsyncCallback<DMRResponse>() {
                 @Override
                 public void onFailure(Throwable caught) {
@@ -311,8 +380,10 @@ public class LogStore extends ChangeSupport {
                                 response.getFailureDescription()));
                     } else {
                         ModelNode compResult = response.get(RESULT);
-                        int fileSize = readFileSize(activeLogFile.getName(), compResult);
+                        long fileSize = readFileSize(activeLogFile.getName(), compResult);
                         List<String> lines = readLines(compResult);
+                        activeLogFile.getBuffer().resize(fileSize);
+                        activeLogFile.getBuffer().put(fromTail, skipped, pageSize, lines);
                         finishNavigation(activeLogFile, action.getDirection(), skipped, lines, fileSize);
                         channel.ack();
                     }
@@ -372,7 +443,8 @@ public class LogStore extends ChangeSupport {
         return validOp;
     }
 
-    private void finishNavigation(LogFile logFile, Direction direction, int skipped, List<String> lines, int fileSize) {
+    private void finishNavigation(LogFile logFile, Direction direction, int skipped, List<String> lines,
+            long fileSize) {
         int diff = pageSize - lines.size();
         switch (direction) {
             case HEAD:
@@ -440,8 +512,11 @@ public class LogStore extends ChangeSupport {
                                     " for " + activeLogFile + " using " + op + ": " + response.getFailureDescription()));
                         } else {
                             ModelNode compResult = response.get(RESULT);
-                            int fileSize = readFileSize(activeLogFile.getName(), compResult);
+                            long fileSize = readFileSize(activeLogFile.getName(), compResult);
                             List<String> lines = readLines(compResult);
+                            activeLogFile.getBuffer().resize(fileSize);
+                            activeLogFile.getBuffer().put(op.hasDefined("tail") && op.get("tail").asBoolean(),
+                                    op.hasDefined("skip") ? op.get("skip").asInt() : 0, pageSize, lines);
                             activeLogFile.setFileSize(fileSize);
                             activeLogFile.setLines(lines);
                             channel.ack();
@@ -452,6 +527,176 @@ public class LogStore extends ChangeSupport {
         }
     }
 
+    @Process(actionType = ScrollLogFile.class)
+    public void scroll(final ScrollLogFile action, final Dispatcher.Channel channel) {
+        if (activeLogFile == null) {
+            channel.nack(new IllegalStateException("Unable to scroll: No active log file!"));
+            return;
+        }
+
+        boolean fromTail = activeLogFile.getReadFrom() == Position.TAIL;
+        int skip = activeLogFile.getSkipped() + (fromTail ? -action.getLines() : action.getLines());
+        show(activeLogFile, fromTail, skip, channel);
+    }
+
+    @Process(actionType = JumpInLogFile.class)
+    public void jump(final JumpInLogFile action, final Dispatcher.Channel channel) {
+        if (activeLogFile == null) {
+            channel.nack(new IllegalStateException("Unable to jump: No active log file!"));
+            return;
+        }
+
+        if (action.isPercent()) {
+            int lineCount = activeLogFile.getBuffer().getLineCount();
+            if (lineCount == -1) {
+                // estimate the number of lines based on the lines read so far
+                List<String> lines = activeLogFile.getLines();
+                int averageLength = lines.isEmpty() ? 1 : max(1, activeLogFile.getNumBytes() / lines.size());
+                lineCount = (int) Math.min(Integer.MAX_VALUE, activeLogFile.getFileSize() / averageLength);
+            }
+            if (action.getValue() <= 50) {
+                show(activeLogFile, false, (int) ((long) lineCount * action.getValue() / 100), channel);
+            } else {
+                show(activeLogFile, true, (int) ((long) lineCount * (100 - action.getValue()) / 100), channel);
+            }
+        } else {
+            show(activeLogFile, false, action.getValue() - 1, channel);
+        }
+    }
+
+    /**
+     * Shows the page starting at {@code skip}. Lines which are not yet in the buffer of the log file are read using
+     * one {@code read-log-file} operation. If {@code skip} lies beyond the other end of the file, the last page
+     * (counted from {@code fromTail}) is shown instead.
+     */
+    private void show(final LogFile logFile, final boolean fromTail, final int skip,
+            final Dispatcher.Channel channel) {
+        show(logFile, fromTail, skip, new AsyncCallback<Void>() {
+            @Override
+            public void onFailure(Throwable caught) {
+                channel.nack(caught);
+            }
+
+            @Override
+            public void onSuccess(Void result) {
+                channel.ack();
+            }
+        });
+    }
+
+    private void show(final LogFile logFile, final boolean fromTail, final int skip,
+            final AsyncCallback<Void> callback) {
+        final LineBuffer buffer = logFile.getBuffer();
+        final int first = buffer.clamp(skip, pageSize);
+        final int[] missing = buffer.missing(fromTail, first, pageSize);
+        if (missing == null) {
+            moveTo(logFile, fromTail, first, buffer.page(fromTail, first, pageSize));
+            callback.onSuccess(null);
+            return;
+        }
+
+        final ModelNode op = readLogFileOp(logFile.getName());
+        op.get("tail").set(fromTail);
+        op.get("skip").set(missing[0]);
+        op.get("lines").set(missing[1] - missing[0]);
+        dispatcher.execute(new DMRAction(wrapInComposite(op)), new AsyncCallback<DMRResponse>() {
+            @Override
+            public void onFailure(Throwable caught) {
+                callback.onFailure(caught);
+            }
+
+            @Override
+            public void onSuccess(DMRResponse result) {
+                ModelNode response = result.get();
+                if (response.isFailure()) {
+                    callback.onFailure(new RuntimeException("Failed to read " + logFile + " using " + op + ": " +
+                            response.getFailureDescription()));
+                } else {
+                    ModelNode compResult = response.get(RESULT);
+                    long fileSize = readFileSize(logFile.getName(), compResult);
+                    List<String> read = readLines(compResult);
+                    buffer.resize(fileSize);
+                    buffer.put(fromTail, missing[0], missing[1] - missing[0], read);
+                    logFile.setFileSize(fileSize);
+
+                    if (read.isEmpty() && missing[0] > 0 && buffer.getLineCount() == -1) {
+                        // skipped past the other end of the file: the number of lines is still unknown, so read
+                        // the last page from the other end
+                        show(logFile, !fromTail, 0, callback);
+                        return;
+                    }
+
+                    // the start or the end of the file might have been reached
+                    int clamped = buffer.clamp(first, pageSize);
+                    List<String> lines = buffer.page(fromTail, clamped, pageSize);
+                    if (lines == null && clamped != first) {
+                        show(logFile, fromTail, clamped, callback);
+                        return;
+                    }
+                    if (lines != null) {
+                        moveTo(logFile, fromTail, clamped, lines);
+                    }
+                    callback.onSuccess(null);
+                }
+            }
+        });
+    }
+
+    private void moveTo(LogFile logFile, boolean fromTail, int skip, List<String> lines) {
+        int lineCount = logFile.getBuffer().getLineCount();
+        if (lineCount != -1 && skip + pageSize >= lineCount) {
+            // the page reaches the other end of the file
+            logFile.goTo(fromTail ? Position.HEAD : Position.TAIL);
+        } else {
+            logFile.goTo(fromTail ? Position.TAIL : Position.HEAD);
+            logFile.goTo(skip);
+        }
+        logFile.setLines(lines);
+    }
+
+    @Process(actionType = SearchLogFile.class)
+    public void search(final SearchLogFile action, final Dispatcher.Channel channel) {
+        if (activeLogFile == null) {
+            channel.nack(new IllegalStateException("Unable to search: No active log file!"));
+            return;
+        }
+        if (!activeLogFile.isPaged()) {
+            // streamed log files are searched in the editor
+            channel.nack(new IllegalStateException("Unable to search " + activeLogFile.getName() +
+                    ": Streamed log files can only be searched in the editor"));
+            return;
+        }
+        final RegExp pattern;
+        try {
+            pattern = RegExp.compile(action.getPattern(), "i");
+        } catch (RuntimeException e) {
+            channel.nack("Invalid search pattern: " + action.getPattern());
+            return;
+        }
+
+        // continue after the last match or start at the top of the page
+        LogFile logFile = activeLogFile;
+        boolean fromTail = logFile.getReadFrom() == Position.TAIL;
+        int step = action.isForward() != fromTail ? 1 : -1;
+        int start = action.sameQuery(logFile.getSearch()) ? logFile.getMatch(fromTail) : -1;
+        if (start != -1) {
+            start += step;
+        } else {
+            start = fromTail ? logFile.getSkipped() + logFile.getLines().size() - 1 : logFile.getSkipped();
+            if (!action.isForward()) {
+                start += step;
+            }
+        }
+
+        if (searcher != null) {
+            searcher.logFile.setSearching(false);
+        }
+        searcher = new SearchInLogFile(logFile, action, pattern, fromTail, step, start);
+        logFile.setSearching(true);
+        channel.ack();
+        scheduler.scheduleIncremental(searcher);
+    }
+
     @Process(actionType = FollowLogFile.class)
     public void follow(final Dispatcher.Channel channel) {
         if (activeLogFile == null) {
@@ -498,7 +743,65 @@ public class LogStore extends ChangeSupport {
     }
 
     private void startFollowing(LogFile logFile) {
-        scheduler.scheduleFixedDelay(new RefreshLogFile(logFile.getName()), FOLLOW_INTERVAL);
+        if (!observingVisibility) {
+            observingVisibility = true;
+            observePageVisibility();
+        }
+        if (follower != null && follower.name.equals(logFile.getName()) && follower.scheduled) {
+            // already polling, but catch up faster
+            follower.interval = FOLLOW_INTERVAL;
+        } else {
+            follower = new RefreshLogFile(logFile.getName());
+            follower.schedule();
+        }
+    }
+
+    /**
+     * Whether the browser tab / window of the console is hidden (Page Visibility API).
+     */
+    protected native boolean isPageHidden() /*-{
+        return !!$doc.hidden;
+    }-*/;
+
+    /**
+     * Registers a listener which calls {@link #onPageVisible()} when the browser tab / window becomes visible again.
+     */
+    protected native void observePageVisibility() /*-{
+        var that = this;
+        $doc.addEventListener("visibilitychange", $entry(function () {
+            if (!$doc.hidden) {
+                that.@org.jboss.as.console.client.shared.runtime.logging.store.LogStore::onPageVisible()();
+            }
+        }));
+    }-*/;
+
+    /**
+     * Polls the followed log file right away instead of waiting for the hidden interval to expire.
+     */
+    protected void onPageVisible() {
+        if (follower != null && follower.scheduled && follower.isValid()) {
+            // replacing the follower invalidates the pending command
+            follower = new RefreshLogFile(follower.name);
+            follower.execute();
+        }
+    }
+
+    /**
+     * Appends the lines read from the tail of a log file to the lines already read. The tail has to overlap with the
+     * end of {@code lines}, so that the new lines can be identified. The result contains the last {@code pageSize}
+     * lines.
+     *
+     * @return the merged lines or {@code null} if {@code tail} doesn't overlap with {@code lines}
+     */
+    static List<String> appendLines(List<String> lines, List<String> tail, int pageSize) {
+        for (int overlap = Math.min(lines.size(), tail.size()); overlap > 0; overlap--) {
+            if (lines.subList(lines.size() - overlap, lines.size()).equals(tail.subList(0, overlap))) {
+                List<String> merged = new ArrayList<>(lines);
+                merged.addAll(tail.subList(overlap, tail.size()));
+                return new ArrayList<>(merged.subList(max(0, merged.size() - pageSize), merged.size()));
+            }
+        }
+        return null;
     }
 
     private String streamUrl(final String name) {
@@ -542,6 +845,15 @@ public class LogStore extends ChangeSupport {
         return op;
     }
 
+    private ModelNode readFileSizeOp(String logFile) {
+        final ModelNode op = new ModelNode();
+        op.get(ADDRESS).set(baseAddress());
+        op.get(ADDRESS).add("log-file", logFile);
+        op.get(OP).set(READ_ATTRIBUTE_OPERATION);
+        op.get(NAME).set(FILE_SIZE);
+        return op;
+    }
+
     private ModelNode wrapInComposite(ModelNode readLogFileOp) {
         final ModelNode comp = new ModelNode();
         comp.get(ADDRESS).setEmptyList();
@@ -555,13 +867,13 @@ public class LogStore extends ChangeSupport {
         return comp;
     }
 
-    private int readFileSize(String name, ModelNode compResult) {
-        int size = -1;
+    private long readFileSize(String name, ModelNode compResult) {
+        long size = -1;
         ModelNode stepResult = compResult.get("step-1");
         if (stepResult.get(RESULT).isDefined()) {
             for (Property property : stepResult.get(RESULT).asPropertyList()) {
                 if (name.equals(property.getName())) {
-                    size = property.getValue().get(FILE_SIZE).asInt();
+                    size = property.getValue().get(FILE_SIZE).asLong();
                     break;
                 }
             }
@@ -570,13 +882,12 @@ public class LogStore extends ChangeSupport {
             // fall back to previously read nodes
             for (ModelNode node : logFiles) {
                 if (name.equals(node.get(FILE_NAME).asString())) {
-                    size = node.get(FILE_SIZE).asInt();
+                    size = node.get(FILE_SIZE).asLong();
                 }
             }
 
         }
-        // to prevent follow up ArithmeticExceptions like x / size
-        return max(1, size);
+        return max(0, size);
     }
 
     private List<String> readLines(ModelNode compResult) {
@@ -609,21 +920,30 @@ public class LogStore extends ChangeSupport {
         return pendingStreamingRequest;
     }
 
+    public LogFile getLogFile(final String name) {
+        return states.get(name);
+    }
+
     public static final class PendingStreamingRequest {
         private final String logFile;
-        private final Request request;
-        private final Dispatcher.Channel channel;
+        private LogStreamReader reader;
+        /**
+         * The channel of the {@link StreamLogFile} action. {@code null} once the log file is shown.
+         */
+        private Dispatcher.Channel channel;
 
-        private PendingStreamingRequest(final String logFile, final Request request, final Dispatcher.Channel channel) {
+        private PendingStreamingRequest(final String logFile, final Dispatcher.Channel channel) {
             this.logFile = logFile;
-            this.request = request;
             this.channel = channel;
         }
 
         public void cancel() {
-            if (request != null && request.isPending() && channel != null) {
-                request.cancel();
-                channel.nack("Download of " + logFile + " canceled");
+            if (reader != null && reader.isPending()) {
+                reader.abort();
+                if (channel != null) {
+                    channel.nack("Download of " + logFile + " canceled");
+                    channel = null;
+                }
             }
         }
     }
@@ -631,49 +951,296 @@ public class LogStore extends ChangeSupport {
 
     // ------------------------------------------------------ polling
 
+    /**
+     * Follows a log file by polling its size. Lines are only read if the size changed. If the file grew, just the
+     * appended lines (estimated by the average line length) are read and appended to the current lines. If the file
+     * was truncated or rotated, or the appended lines can't be aligned, the last page is read again.
+     * <p>
+     * The command reschedules itself after each response, so there's never more than one pending request.
+     */
     private class RefreshLogFile implements Scheduler.RepeatingCommand {
 
         private final String name;
+        private int interval;
+        private boolean scheduled;
 
         private RefreshLogFile(String name) {
             this.name = name;
+            this.interval = FOLLOW_INTERVAL;
         }
 
         @Override
         public boolean execute() {
+            scheduled = false;
             if (isValid()) {
-                final ModelNode op = readLogFileOp(name);
-                op.get("tail").set(true);
-                dispatcher.execute(new DMRAction(wrapInComposite(op)), new AsyncCallback<DMRResponse>() {
-                    @Override
-                    public void onFailure(Throwable caught) {
-                        // noop
+                pollFileSize();
+            }
+            return false;
+        }
+
+        private void pollFileSize() {
+            dispatcher.execute(new DMRAction(readFileSizeOp(name)), new AsyncCallback<DMRResponse>() {
+                @Override
+                public void onFailure(Throwable caught) {
+                    slowDown();
+                }
+
+                @Override
+                public void onSuccess(DMRResponse result) {
+                    ModelNode response = result.get();
+                    if (response.isFailure() || !isValid()) {
+                        slowDown();
+                        return;
+                    }
+                    LogFile logFile = states.get(name);
+                    long fileSize = response.get(RESULT).asLong();
+                    if (fileSize == logFile.getFileSize()) {
+                        slowDown();
+                    } else if (fileSize > logFile.getFileSize() && logFile.isTail() &&
+                            !logFile.getLines().isEmpty()) {
+                        readAppended(logFile.getFileSize(), fileSize);
+                    } else {
+                        readPage();
                     }
+                }
+            });
+        }
 
-                    @Override
-                    public void onSuccess(DMRResponse result) {
-                        ModelNode response = result.get();
-                        if (!response.isFailure()) {
-                            if (isValid()) {
-                                ModelNode compResult = response.get(RESULT);
-                                int fileSize = readFileSize(name, compResult);
-                                List<String> lines = readLines(compResult);
-                                LogFile logFile = states.get(name);
-                                logFile.setFileSize(fileSize);
-                                logFile.setLines(lines);
-                                logFile.goTo(Position.TAIL);
-                                fireChange(new FollowLogFile());
-                            }
-                        }
+        private void readAppended(long oldSize, long newSize) {
+            LogFile logFile = states.get(name);
+            int chars = 0;
+            for (String line : logFile.getLines()) {
+                chars += line.length() + 1;
+            }
+            int averageLength = max(1, chars / logFile.getLines().size());
+            long estimate = (newSize - oldSize + averageLength - 1) / averageLength;
+
+            final ModelNode op = readLogFileOp(name);
+            op.get("lines").set((int) Math.min(pageSize, estimate + FOLLOW_OVERLAP));
+            op.get("tail").set(true);
+            dispatcher.execute(new DMRAction(wrapInComposite(op)), new AsyncCallback<DMRResponse>() {
+                @Override
+                public void onFailure(Throwable caught) {
+                    slowDown();
+                }
+
+                @Override
+                public void onSuccess(DMRResponse result) {
+                    ModelNode response = result.get();
+                    if (response.isFailure() || !isValid()) {
+                        slowDown();
+                        return;
                     }
-                });
+                    ModelNode compResult = response.get(RESULT);
+                    LogFile logFile = states.get(name);
+                    List<String> lines = appendLines(logFile.getLines(), readLines(compResult), pageSize);
+                    if (lines == null) {
+                        // more lines than estimated or the file was rotated in between
+                        readPage();
+                    } else {
+                        update(readFileSize(name, compResult), lines);
+                    }
+                }
+            });
+        }
+
+        private void readPage() {
+            final ModelNode op = readLogFileOp(name);
+            op.get("tail").set(true);
+            dispatcher.execute(new DMRAction(wrapInComposite(op)), new AsyncCallback<DMRResponse>() {
+                @Override
+                public void onFailure(Throwable caught) {
+                    slowDown();
+                }
+
+                @Override
+                public void onSuccess(DMRResponse result) {
+                    ModelNode response = result.get();
+                    if (response.isFailure() || !isValid()) {
+                        slowDown();
+                        return;
+                    }
+                    ModelNode compResult = response.get(RESULT);
+                    update(readFileSize(name, compResult), readLines(compResult));
+                }
+            });
+        }
+
+        private void update(long fileSize, List<String> lines) {
+            LogFile logFile = states.get(name);
+            logFile.getBuffer().resize(fileSize);
+            logFile.getBuffer().put(true, 0, lines.size(), lines);
+            logFile.setFileSize(fileSize);
+            logFile.setLines(lines);
+            logFile.goTo(Position.TAIL);
+            fireChange(new FollowLogFile());
+
+            interval = max(MIN_FOLLOW_INTERVAL, interval / 2);
+            schedule();
+        }
+
+        private void slowDown() {
+            interval = Math.min(MAX_FOLLOW_INTERVAL, interval + interval / 2);
+            schedule();
+        }
+
+        private void schedule() {
+            if (isValid() && !scheduled) {
+                scheduled = true;
+                scheduler.scheduleFixedDelay(this, isPageHidden() ? HIDDEN_FOLLOW_INTERVAL : interval);
             }
-            return isValid();
         }
 
         private boolean isValid() {
             LogFile logFile = states.get(name);
-            return logFile != null && logFile == activeLogFile && logFile.isFollow() && !pauseFollow;
+            return this == follower && logFile != null && logFile == activeLogFile && logFile.isFollow() &&
+                    !pauseFollow;
+        }
+    }
+
+
+    // ------------------------------------------------------ search
+
+    /**
+     * Searches the lines of a log file one by one starting at {@code cursor}. Lines are taken from the buffer of the
+     * log file. Missing lines are read block by block, but blocks which can't contain a match according to the
+     * {@link LogIndex} are skipped. The command yields to the browser every {@link #SEARCH_SLICE} ms.
+     * <p>
+     * If a match is found, the page starting with the matching line is shown. In any case a change event for the
+     * search action is fired once the search is finished.
+     */
+    private class SearchInLogFile implements Scheduler.RepeatingCommand {
+
+        private final LogFile logFile;
+        private final SearchLogFile action;
+        private final RegExp pattern;
+        private final int levels;
+        private final boolean fromTail;
+        private final int step;
+        private int cursor;
+
+        private SearchInLogFile(LogFile logFile, SearchLogFile action, RegExp pattern, boolean fromTail, int step,
+                int cursor) {
+            this.logFile = logFile;
+            this.action = action;
+            this.pattern = pattern;
+            this.levels = action.levelMask();
+            this.fromTail = fromTail;
+            this.step = step;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean execute() {
+            if (!isValid()) {
+                return false;
+            }
+            LineBuffer buffer = logFile.getBuffer();
+            long started = System.currentTimeMillis();
+            for (int scanned = 1; ; scanned++) {
+                int lineCount = buffer.getLineCount();
+                if (cursor < 0 || (lineCount != -1 && cursor >= lineCount)) {
+                    finish(-1);
+                    return false;
+                }
+
+                int block = cursor / LogIndex.BLOCK_SIZE;
+                if (!buffer.getIndex().mayContain(fromTail, block, lineCount, levels, action.getCategory())) {
+                    cursor = step > 0 ? (block + 1) * LogIndex.BLOCK_SIZE : block * LogIndex.BLOCK_SIZE - 1;
+                    continue;
+                }
+                String line = buffer.line(fromTail, cursor);
+                if (line == null) {
+                    read(block);
+                    return false;
+                }
+                if (LogIndex.accept(line, levels, action.getCategory()) && pattern.test(line)) {
+                    finish(cursor);
+                    return false;
+                }
+                cursor += step;
+
+                if (scanned % 100 == 0 && System.currentTimeMillis() - started > SEARCH_SLICE) {
+                    return true;
+                }
+            }
+        }
+
+        private void read(int block) {
+            final LineBuffer buffer = logFile.getBuffer();
+            final int[] missing = buffer.missing(fromTail, block * LogIndex.BLOCK_SIZE, LogIndex.BLOCK_SIZE);
+            if (missing == null) {
+                finish(-1);
+                return;
+            }
+
+            final ModelNode op = readLogFileOp(logFile.getName());
+            op.get("tail").set(fromTail);
+            op.get("skip").set(missing[0]);
+            op.get("lines").set(missing[1] - missing[0]);
+            dispatcher.execute(new DMRAction(wrapInComposite(op)), new AsyncCallback<DMRResponse>() {
+                @Override
+                public void onFailure(Throwable caught) {
+                    if (isValid()) {
+                        Log.error("Failed to search " + logFile + ": " + caught.getMessage());
+                        finish(-1);
+                    }
+                }
+
+                @Override
+                public void onSuccess(DMRResponse result) {
+                    if (!isValid()) {
+                        return;
+                    }
+                    ModelNode response = result.get();
+                    if (response.isFailure()) {
+                        Log.error("Failed to search " + logFile + " using " + op + ": " +
+                                response.getFailureDescription());
+                        finish(-1);
+                        return;
+                    }
+                    ModelNode compResult = response.get(RESULT);
+                    long fileSize = readFileSize(logFile.getName(), compResult);
+                    List<String> lines = readLines(compResult);
+                    buffer.resize(fileSize);
+                    buffer.put(fromTail, missing[0], missing[1] - missing[0], lines);
+                    logFile.setFileSize(fileSize);
+                    if (lines.isEmpty()) {
+                        // beyond the end of the file
+                        finish(-1);
+                    } else {
+                        scheduler.scheduleIncremental(SearchInLogFile.this);
+                    }
+                }
+            });
+        }
+
+        private void finish(int line) {
+            searcher = null;
+            logFile.setSearching(false);
+            logFile.setMatch(action, fromTail, line);
+            if (line == -1 || logFile != activeLogFile) {
+                fireChange(action);
+                return;
+            }
+
+            // show the match as first line of the page
+            show(logFile, fromTail, fromTail ? line - pageSize + 1 : line, new AsyncCallback<Void>() {
+                @Override
+                public void onFailure(Throwable caught) {
+                    Log.error("Failed to show match in " + logFile + ": " + caught.getMessage());
+                    fireChange(action);
+                }
+
+                @Override
+                public void onSuccess(Void result) {
+                    fireChange(action);
+                }
+            });
+        }
+
+        private boolean isValid() {
+            return this == searcher && states.get(logFile.getName()) == logFile;
         }
     }
 }
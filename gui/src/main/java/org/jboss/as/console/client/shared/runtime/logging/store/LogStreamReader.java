@@ -0,0 +1,200 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.console.client.shared.runtime.logging.store;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Reads a text response chunk by chunk as it arrives. Uses the fetch API and a stream reader if supported by the
+ * browser, so that chunks are released once they're processed. Otherwise falls back to the progress events of an
+ * {@code XMLHttpRequest}. If the browser supports chunked responses ({@code moz-chunked-text}), each progress event
+ * carries just the new chunk. Otherwise the consumed part of the response text is copied and dropped from the
+ * reader: The request itself keeps the response until it's finished, so the request is released right after the
+ * last chunk.
+ */
+class LogStreamReader {
+
+    interface Callback {
+
+        void onChunk(String chunk);
+
+        void onComplete();
+
+        void onError(String reason);
+    }
+
+    private final Callback callback;
+    private JavaScriptObject handle;
+    private boolean pending;
+
+    LogStreamReader(Callback callback) {
+        this.callback = callback;
+    }
+
+    void read(String url) {
+        pending = true;
+        handle = start(url);
+    }
+
+    void abort() {
+        if (pending) {
+            pending = false;
+            abort(handle);
+        }
+    }
+
+    boolean isPending() {
+        return pending;
+    }
+
+    private void chunk(String chunk) {
+        if (pending) {
+            callback.onChunk(chunk);
+        }
+    }
+
+    private void complete() {
+        if (pending) {
+            pending = false;
+            callback.onComplete();
+        }
+    }
+
+    private void error(String reason) {
+        if (pending) {
+            pending = false;
+            callback.onError(reason);
+        }
+    }
+
+    private native JavaScriptObject start(String url) /*-{
+        var that = this;
+        var onChunk = $entry(function (chunk) {
+            that.@org.jboss.as.console.client.shared.runtime.logging.store.LogStreamReader::chunk(Ljava/lang/String;)(chunk);
+        });
+        var onComplete = $entry(function () {
+            that.@org.jboss.as.console.client.shared.runtime.logging.store.LogStreamReader::complete()();
+        });
+        var onError = $entry(function (reason) {
+            that.@org.jboss.as.console.client.shared.runtime.logging.store.LogStreamReader::error(Ljava/lang/String;)(String(reason));
+        });
+        var headers = {"Accept": "text/plain", "Content-Type": "text/plain"};
+
+        if ($wnd.fetch && $wnd.ReadableStream && $wnd.TextDecoder) {
+            var handle = {controller: $wnd.AbortController ? new $wnd.AbortController() : null, reader: null};
+            var options = {credentials: "include", headers: headers};
+            if (handle.controller) {
+                options.signal = handle.controller.signal;
+            }
+            $wnd.fetch(url, options).then(function (response) {
+                if (!response.ok) {
+                    onError(response.status + " - " + response.statusText);
+                    return;
+                }
+                var decoder = new $wnd.TextDecoder("utf-8");
+                handle.reader = response.body.getReader();
+                var pump = function () {
+                    return handle.reader.read().then(function (result) {
+                        if (result.done) {
+                            var rest = decoder.decode();
+                            if (rest.length) {
+                                onChunk(rest);
+                            }
+                            onComplete();
+                        } else {
+                            onChunk(decoder.decode(result.value, {stream: true}));
+                            return pump();
+                        }
+                    });
+                };
+                return pump();
+            })["catch"](function (error) {
+                onError(error && error.message ? error.message : error);
+            });
+            return handle;
+
+        } else {
+            var xhr = new $wnd.XMLHttpRequest();
+            var handle = {xhr: xhr};
+            var chunked = false;
+            var seen = 0;
+            var consume = function () {
+                if (chunked) {
+                    // the response holds just the chunk received since the last progress event
+                    if (xhr.response) {
+                        onChunk(xhr.response);
+                    }
+                } else {
+                    var text = xhr.responseText;
+                    if (text.length > seen) {
+                        // copy the chunk: a substring would keep the whole response text alive
+                        onChunk((" " + text.substring(seen)).substring(1));
+                        seen = text.length;
+                    }
+                }
+            };
+            var release = function () {
+                xhr.onprogress = xhr.onload = xhr.onerror = null;
+                handle.xhr = null;
+            };
+            xhr.open("GET", url, true);
+            xhr.withCredentials = true;
+            try {
+                xhr.responseType = "moz-chunked-text";
+                chunked = xhr.responseType === "moz-chunked-text";
+            } catch (e) {
+                chunked = false;
+            }
+            for (var name in headers) {
+                xhr.setRequestHeader(name, headers[name]);
+            }
+            xhr.onprogress = consume;
+            xhr.onload = function () {
+                if (xhr.status >= 400) {
+                    onError(xhr.status + " - " + xhr.statusText);
+                } else {
+                    if (!chunked) {
+                        consume();
+                    }
+                    onComplete();
+                }
+                release();
+            };
+            xhr.onerror = function () {
+                onError("Network error");
+                release();
+            };
+            xhr.send();
+            return handle;
+        }
+    }-*/;
+
+    private static native void abort(JavaScriptObject handle) /*-{
+        if (handle.xhr) {
+            handle.xhr.abort();
+        } else if (handle.controller) {
+            handle.controller.abort();
+        } else if (handle.reader) {
+            handle.reader.cancel();
+        }
+    }-*/;
+}
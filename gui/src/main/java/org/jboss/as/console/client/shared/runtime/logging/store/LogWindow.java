@@ -0,0 +1,289 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.console.client.shared.runtime.logging.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Content of a streamed log file. The content is appended chunk by chunk as it arrives. All lines are counted, but
+ * only the last lines up to {@code capacity} characters are retained. Older lines are dropped as new ones arrive.
+ * <p>
+ * The retained lines are kept in one text buffer together with an index of line offsets: For each retained line
+ * the index holds its start in the buffer and its byte offset in the log file. A single line is cut off after
+ * {@code capacity} characters.
+ */
+public class LogWindow {
+
+    /**
+     * Default number of characters which are retained.
+     */
+    public final static int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+
+    private final int capacity;
+
+    /**
+     * The retained lines, each terminated by {@code '\n'}. Dropped lines are removed from the buffer once the
+     * dropped part exceeds the capacity.
+     */
+    private final StringBuilder text;
+    private int textStart;
+
+    /**
+     * Line offset index: {@code starts[first + i]} is the start of the i-th retained line in {@code text},
+     * {@code offsets[first + i]} its byte offset in the log file.
+     */
+    private int[] starts;
+    private long[] offsets;
+    private int first;
+    private int count;
+
+    /**
+     * The incomplete last line (at most {@code capacity} characters), its byte offset in the log file and its size
+     * in bytes (including the characters which were cut off).
+     */
+    private final StringBuilder partial;
+    private long partialOffset;
+    private long partialBytes;
+
+    private int lineCount;
+    private long size;
+    private boolean complete;
+
+    public LogWindow(int capacity) {
+        this.capacity = capacity;
+        this.text = new StringBuilder();
+        this.textStart = 0;
+        this.starts = new int[64];
+        this.offsets = new long[64];
+        this.first = 0;
+        this.count = 0;
+        this.partial = new StringBuilder();
+        this.partialOffset = 0;
+        this.partialBytes = 0;
+
+        this.lineCount = 0;
+        this.size = 0;
+        this.complete = false;
+    }
+
+    void append(String chunk) {
+        size += utf8Length(chunk, 0, chunk.length());
+        int start = 0;
+        int newline;
+        while ((newline = chunk.indexOf('\n', start)) != -1) {
+            appendPartial(chunk, start, newline);
+            partialBytes++;
+            addLine();
+            start = newline + 1;
+        }
+        appendPartial(chunk, start, chunk.length());
+    }
+
+    void complete() {
+        if (partialBytes > 0) {
+            addLine();
+        }
+        complete = true;
+    }
+
+    private void appendPartial(String chunk, int start, int end) {
+        partialBytes += utf8Length(chunk, start, end);
+        int room = capacity - partial.length();
+        if (room > 0) {
+            partial.append(chunk, start, Math.min(end, start + room));
+        }
+    }
+
+    private void addLine() {
+        int length = partial.length();
+        if (length > 0 && partial.charAt(length - 1) == '\r') {
+            length--;
+        }
+        if (first + count == starts.length) {
+            grow();
+        }
+        starts[first + count] = text.length();
+        offsets[first + count] = partialOffset;
+        count++;
+        lineCount++;
+        text.append(partial, 0, length).append('\n');
+        partial.setLength(0);
+        partialOffset += partialBytes;
+        partialBytes = 0;
+
+        while (text.length() - textStart > capacity && count > 1) {
+            first++;
+            count--;
+            textStart = starts[first];
+        }
+        if (textStart > capacity) {
+            compact();
+        }
+    }
+
+    private void grow() {
+        if (first > 0) {
+            compactIndex();
+        }
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * count);
+            offsets = Arrays.copyOf(offsets, 2 * count);
+        }
+    }
+
+    private void compact() {
+        text.delete(0, textStart);
+        for (int i = first; i < first + count; i++) {
+            starts[i] -= textStart;
+        }
+        textStart = 0;
+        compactIndex();
+    }
+
+    private void compactIndex() {
+        System.arraycopy(starts, first, starts, 0, count);
+        System.arraycopy(offsets, first, offsets, 0, count);
+        first = 0;
+    }
+
+    /**
+     * @return the number of bytes of {@code text} in UTF-8. Surrogates count two bytes each, so a surrogate pair
+     * which is split across two chunks still counts four bytes.
+     */
+    static int utf8Length(String text) {
+        return utf8Length(text, 0, text.length());
+    }
+
+    private static int utf8Length(String text, int start, int end) {
+        int bytes = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800 || Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                bytes += 2;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+
+    // ------------------------------------------------------ properties
+
+    /**
+     * @return the retained lines followed by an incomplete last line (if any)
+     */
+    public String getContent() {
+        StringBuilder builder = new StringBuilder(text.length() - textStart + partial.length());
+        if (count > 0) {
+            builder.append(text, textStart, text.length() - 1);
+        }
+        if (partial.length() != 0) {
+            if (builder.length() != 0) {
+                builder.append('\n');
+            }
+            builder.append(partial);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return a copy of the retained lines
+     */
+    public List<String> getLines() {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(line(first + i));
+        }
+        return lines;
+    }
+
+    /**
+     * @param line the zero based number of a line
+     *
+     * @return the line or {@code null} if the line isn't retained
+     */
+    public String getLine(int line) {
+        int index = index(line);
+        return index == -1 ? null : line(index);
+    }
+
+    /**
+     * @param line the zero based number of a line
+     *
+     * @return the byte offset of the line in the log file or -1 if the line isn't retained
+     */
+    public long getOffset(int line) {
+        int index = index(line);
+        return index == -1 ? -1 : offsets[index];
+    }
+
+    private int index(int line) {
+        int relative = line - getFirstLine();
+        return relative >= 0 && relative < count ? first + relative : -1;
+    }
+
+    private String line(int index) {
+        int end = index + 1 < first + count ? starts[index + 1] : text.length();
+        return text.substring(starts[index], end - 1);
+    }
+
+    /**
+     * @return the number of complete lines read so far
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the (zero based) number of the first retained line
+     */
+    public int getFirstLine() {
+        return lineCount - count;
+    }
+
+    /**
+     * @return the number of bytes read so far (the content is decoded as UTF-8)
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return whether lines were dropped because the content exceeds the capacity
+     */
+    public boolean isTruncated() {
+        return getFirstLine() > 0;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.console.client.shared.runtime.logging.store;
+
+import org.jboss.gwt.circuit.Action;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Action for searching the next (or previous) line of the active log file which matches a regular expression and
+ * optionally has one of the given levels and a category starting with the given prefix. The search starts after the
+ * last match or at the top of the current page and reads further lines from the server as needed.
+ * <p>
+ * Only paged log files can be searched. Streamed log files are held in the editor as a whole and are searched using
+ * the search box of the editor, which doesn't know about levels and categories.
+ */
+public class SearchLogFile implements Action {
+
+    private final String pattern;
+    private final Set<LogLevel> levels;
+    private final String category;
+    private final boolean forward;
+
+    /**
+     * @param pattern  the regular expression (case insensitive), empty to match any line
+     * @param levels   the wanted levels, empty for any level (use {@link LogLevel#atLeast(LogLevel)} to search for a
+     *                 minimum level)
+     * @param category the prefix of the wanted category, empty for any category
+     * @param forward  whether to search towards the end of the file
+     */
+    public SearchLogFile(String pattern, Set<LogLevel> levels, String category, boolean forward) {
+        this.pattern = pattern == null ? "" : pattern;
+        this.levels = levels.isEmpty() ? EnumSet.noneOf(LogLevel.class) : EnumSet.copyOf(levels);
+        this.category = category == null || category.isEmpty() ? null : category;
+        this.forward = forward;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SearchLogFile)) return false;
+
+        SearchLogFile that = (SearchLogFile) o;
+        return forward == that.forward && sameQuery(that);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = pattern.hashCode();
+        result = 31 * result + levels.hashCode();
+        result = 31 * result + (category != null ? category.hashCode() : 0);
+        result = 31 * result + (forward ? 1 : 0);
+        return result;
+    }
+
+    /**
+     * @return whether both actions search for the same lines (regardless of the direction)
+     */
+    boolean sameQuery(SearchLogFile that) {
+        return that != null && pattern.equals(that.pattern) && levels.equals(that.levels) &&
+                (category != null ? category.equals(that.category) : that.category == null);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public Set<LogLevel> getLevels() {
+        return levels;
+    }
+
+    /**
+     * @return the category prefix or {@code null}
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    public boolean isForward() {
+        return forward;
+    }
+
+    int levelMask() {
+        int mask = 0;
+        for (LogLevel level : levels) {
+            mask |= level.mask();
+        }
+        return mask;
+    }
+}
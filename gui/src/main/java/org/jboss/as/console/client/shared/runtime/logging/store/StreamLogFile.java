@@ -24,16 +24,22 @@ package org.jboss.as.console.client.shared.runtime.logging.store;
 import org.jboss.gwt.circuit.Action;
 
 /**
- * Downloads the entire log file using the streaming feature of the log-file resource. Be sure to call this action
- * only if the log file does not exceed a reasonable file size.
+ * Downloads the entire log file using the streaming feature of the log-file resource. The log file is shown as soon
+ * as the first lines arrived. Only the last lines up to the window size (in characters) are kept in memory.
  * @author Harald Pehl
  */
 public class StreamLogFile implements Action {
 
     private final String name;
+    private final int windowSize;
 
     public StreamLogFile(String name) {
+        this(name, LogWindow.DEFAULT_CAPACITY);
+    }
+
+    public StreamLogFile(String name, int windowSize) {
         this.name = name;
+        this.windowSize = windowSize;
     }
 
     @Override
@@ -53,4 +59,8 @@ public class StreamLogFile implements Action {
     public String getName() {
         return name;
     }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
 }
@@ -23,7 +23,6 @@ package org.jboss.as.console.client.shared.runtime.logging.viewer;
 
 import com.google.gwt.user.client.ui.Composite;
 import com.google.gwt.user.client.ui.FlowPanel;
-import org.jboss.as.console.client.shared.runtime.logging.store.ChangePageSize;
 import org.jboss.as.console.client.shared.runtime.logging.store.LogFile;
 import org.jboss.gwt.circuit.Action;
 
@@ -43,10 +42,6 @@ public class LogFileIndicator extends Composite {
 
     private final FlowPanel indicator;
 
-    private int bytesConsumed;
-    private int consumedSnapshot;
-    private int lastSkipped;
-
     public LogFileIndicator() {
         FlowPanel container = new FlowPanel();
         this.indicator = new FlowPanel();
@@ -60,47 +55,21 @@ public class LogFileIndicator extends Composite {
     }
 
     public void refresh(LogFile logFile, Action action) {
-        int bytesPerFile = logFile.getFileSize();
+        long bytesPerFile = max(1, logFile.getFileSize());
         int containerHeight = getElement().getParentElement().getClientHeight();
-        boolean resized = lastSkipped == logFile.getSkipped() && action instanceof ChangePageSize;
 
+        // the position is estimated based on the average line length of the visible lines
+        int lines = max(1, logFile.getLines().size());
+        double bytesPerLine = logFile.getNumBytes() / (double) lines;
+        double bytesConsumed;
         if (logFile.getPosition() == Position.HEAD) {
-            bytesConsumed = consumedSnapshot = logFile.getNumBytes();
+            bytesConsumed = logFile.getNumBytes();
         } else if (logFile.getPosition() == Position.TAIL) {
-            bytesConsumed = consumedSnapshot = bytesPerFile;
-
+            bytesConsumed = bytesPerFile;
+        } else if (logFile.getReadFrom() == Position.HEAD) {
+            bytesConsumed = logFile.getSkipped() * bytesPerLine + logFile.getNumBytes();
         } else {
-            if (!resized) {
-                consumedSnapshot = bytesConsumed;
-            }
-
-            if (logFile.getSkipped() > lastSkipped) {
-                // skipped increased
-                if (logFile.getReadFrom() == Position.HEAD) {
-                    // next
-                    bytesConsumed += logFile.getNumBytes();
-                } else {
-                    // prev
-                    bytesConsumed -= logFile.getNumBytes();
-                }
-
-            } else if (logFile.getSkipped() < lastSkipped) {
-                // skipped decreased
-                if (logFile.getReadFrom() == Position.HEAD) {
-                    // prev
-                    bytesConsumed -= logFile.getNumBytes();
-                } else {
-                    // next
-                    bytesConsumed += logFile.getNumBytes();
-                }
-
-            } else if (resized) {
-                if (logFile.getReadFrom() == Position.HEAD) {
-                    bytesConsumed = consumedSnapshot + logFile.getNumBytes();
-                } else {
-                    bytesConsumed = consumedSnapshot - logFile.getNumBytes();
-                }
-            }
+            bytesConsumed = bytesPerFile - logFile.getSkipped() * bytesPerLine;
         }
 
         double ratio = (100.0d / bytesPerFile) * bytesConsumed;
@@ -112,7 +81,5 @@ public class LogFileIndicator extends Composite {
         indicatorHeight = max(5, indicatorHeight);
         indicatorHeight = min(containerHeight, indicatorHeight);
         indicator.getElement().getStyle().setHeight(indicatorHeight, PX);
-
-        lastSkipped = logFile.getSkipped();
     }
 }
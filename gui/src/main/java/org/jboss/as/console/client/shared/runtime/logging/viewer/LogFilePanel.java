@@ -25,20 +25,28 @@ import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.dom.client.Style;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.event.dom.client.KeyCodes;
+import com.google.gwt.event.dom.client.KeyUpEvent;
+import com.google.gwt.event.dom.client.KeyUpHandler;
+import com.google.gwt.event.dom.client.MouseWheelEvent;
+import com.google.gwt.event.dom.client.MouseWheelHandler;
 import com.google.gwt.event.logical.shared.AttachEvent;
 import com.google.gwt.event.logical.shared.ResizeEvent;
 import com.google.gwt.event.logical.shared.ResizeHandler;
 import com.google.gwt.event.shared.HandlerRegistration;
-import com.google.gwt.safehtml.shared.SafeHtmlUtils;
 import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.ui.*;
 import edu.ycp.cs.dh.acegwt.client.ace.AceEditor;
+import org.jboss.as.console.client.Console;
 import org.jboss.as.console.client.shared.runtime.logging.store.*;
 import org.jboss.ballroom.client.widgets.tools.ToolButton;
 import org.jboss.ballroom.client.widgets.tools.ToolStrip;
 import org.jboss.gwt.circuit.Action;
 import org.jboss.gwt.circuit.Dispatcher;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import static com.google.gwt.dom.client.Style.Unit.EM;
 import static com.google.gwt.dom.client.Style.Unit.PX;
 import static com.google.gwt.dom.client.Style.VerticalAlign.MIDDLE;
@@ -52,9 +60,11 @@ import static org.jboss.as.console.client.shared.util.IdHelper.setId;
  */
 public class LogFilePanel extends Composite implements LogViewerId {
 
-    private final static int HEADER_HEIGHT = 48; // no search + 35;
+    private final static int HEADER_HEIGHT = 48 + 35;
     private final static int TOOLS_HEIGHT = 32;
     private final static int MARGIN_BOTTOM = 50;
+    private final static int SCROLL_LINES = 3;
+    private final static int SCROLL_DELAY = 40; // ms
 
     private final Dispatcher circuit;
     private final String name;
@@ -67,7 +77,14 @@ public class LogFilePanel extends Composite implements LogViewerId {
     private final ToolButton prev;
     private final ToolButton next;
     private final ToolButton tail;
+    private final TextBox jump;
+    private final TextBox findTextBox;
+    private final ListBox findLevel;
+    private final TextBox findCategory;
+    private final Label findStatus;
     private int visibleLines;
+    private String content;
+    private int pendingScroll;
 
     public LogFilePanel(final Dispatcher circuit, final LogFile logFile) {
         this.circuit = circuit;
@@ -78,9 +95,66 @@ public class LogFilePanel extends Composite implements LogViewerId {
         panel.getElement().getStyle().setPadding(30, Style.Unit.PX);
 
         panel.add(new HTML("<h3>" + logFile.getName() + "</h3>"));
-        // No search box: The search works only inside the currently displayed lines, not over the whole
-        // log file. It's better to disable search than having a search which is ambiguous to the user.
-//        panel.add(new SearchBox());
+
+        // the search covers the whole log file: it's executed by the store which reads further lines as needed
+        findTextBox = new TextBox();
+        findTextBox.getElement().setAttribute("placeholder", "Find (regular expression)");
+        findTextBox.addKeyUpHandler(new KeyUpHandler() {
+            @Override
+            public void onKeyUp(KeyUpEvent event) {
+                if (event.getNativeKeyCode() == KeyCodes.KEY_ENTER) {
+                    onFind(!event.isShiftKeyDown());
+                }
+            }
+        });
+        setId(findTextBox, BASE_ID, "find_input");
+
+        findLevel = new ListBox();
+        findLevel.addItem("All levels", "");
+        LogLevel[] levels = LogLevel.values();
+        for (int i = levels.length - 1; i > 0; i--) {
+            findLevel.addItem(levels[i].name() + (i < levels.length - 1 ? " and above" : ""), levels[i].name());
+        }
+        setId(findLevel, BASE_ID, "find_level");
+
+        findCategory = new TextBox();
+        findCategory.getElement().setAttribute("placeholder", "Category");
+        findCategory.setVisibleLength(16);
+        setId(findCategory, BASE_ID, "find_category");
+
+        ToolButton findPrev = new ToolButton("<i class=\"icon-angle-left\"></i>", new ClickHandler() {
+            @Override
+            public void onClick(ClickEvent event) {
+                onFind(false);
+            }
+        });
+        setId(findPrev, BASE_ID, "prev_match");
+
+        ToolButton findNext = new ToolButton("<i class=\"icon-angle-right\"></i>", new ClickHandler() {
+            @Override
+            public void onClick(ClickEvent event) {
+                onFind(true);
+            }
+        });
+        setId(findNext, BASE_ID, "next_match");
+
+        findStatus = new Label();
+        findStatus.getElement().getStyle().setMarginLeft(1, EM);
+
+        ToolStrip searchTools = new ToolStrip();
+        searchTools.addToolWidget(findTextBox);
+        searchTools.addToolWidget(findLevel);
+        searchTools.addToolWidget(findCategory);
+        searchTools.addToolButton(findPrev);
+        searchTools.addToolButton(findNext);
+        searchTools.addToolWidget(findStatus);
+        findTextBox.getElement().getStyle().setWidth(20, EM);
+        for (Widget widget : new Widget[]{findTextBox, findLevel, findCategory}) {
+            widget.getElement().getStyle().setMarginBottom(0, PX);
+            widget.getElement().getStyle().setMarginRight(0.5, EM);
+            widget.getElement().getParentElement().getStyle().setVerticalAlign(MIDDLE);
+        }
+        panel.add(searchTools);
 
         editor = new AceEditor();
         editor.addAttachHandler(new AttachEvent.Handler() {
@@ -106,6 +180,14 @@ public class LogFilePanel extends Composite implements LogViewerId {
                 }
             }
         });
+        // the editor shows just the visible lines: scrolling is handled by the store
+        editor.addDomHandler(new MouseWheelHandler() {
+            @Override
+            public void onMouseWheel(MouseWheelEvent event) {
+                event.preventDefault();
+                onScroll(event.isNorth() ? -SCROLL_LINES : SCROLL_LINES);
+            }
+        }, MouseWheelEvent.getType());
         indicator = new LogFileIndicator();
         HorizontalPanel editorPanel = new HorizontalPanel();
         editorPanel.setStyleName("fill-layout-width");
@@ -165,11 +247,27 @@ public class LogFilePanel extends Composite implements LogViewerId {
         tail.setOperationAddress("/{selected.host}/{selected.server}/subsystem=logging", "read-log-file");
         setId(tail, BASE_ID, "tail");
 
+        jump = new TextBox();
+        jump.getElement().setAttribute("placeholder", "Line or %");
+        jump.setVisibleLength(8);
+        jump.addKeyUpHandler(new KeyUpHandler() {
+            @Override
+            public void onKeyUp(KeyUpEvent event) {
+                if (event.getNativeKeyCode() == KeyCodes.KEY_ENTER) {
+                    onJump(jump.getValue().trim());
+                }
+            }
+        });
+        jump.getElement().getStyle().setMarginLeft(1, EM);
+        jump.getElement().getStyle().setMarginBottom(0, PX);
+        setId(jump, BASE_ID, "jump");
+
         ToolStrip navigationTools = new ToolStrip();
         navigationTools.addToolButton(head);
         navigationTools.addToolButton(prev);
         navigationTools.addToolButton(next);
         navigationTools.addToolButton(tail);
+        navigationTools.addToolWidget(jump);
         navigationTools.addToolWidget(follow);
         panel.add(navigationTools);
 
@@ -184,8 +282,25 @@ public class LogFilePanel extends Composite implements LogViewerId {
     }
 
     public void refresh(LogFile logFile, Action action) {
-        editor.setText(logFile.getContent());
+        String newContent = logFile.getContent();
+        if (!newContent.equals(content)) {
+            content = newContent;
+            editor.setText(newContent);
+        }
         indicator.refresh(logFile, action);
+        if (action instanceof SearchLogFile) {
+            if (logFile.isSearching()) {
+                findStatus.setText("Searching...");
+            } else if (logFile.hasMatch()) {
+                findStatus.setText("");
+            } else {
+                findStatus.setText("No match");
+            }
+        }
+        int matchRow = logFile.getMatchRow();
+        if (matchRow != -1) {
+            editor.gotoLine(matchRow + 1);
+        }
         follow.setValue(logFile.isFollow());
         if (logFile.getLines().size() < visibleLines) {
             head.setEnabled(false);
@@ -200,6 +315,57 @@ public class LogFilePanel extends Composite implements LogViewerId {
         }
     }
 
+    /**
+     * Scroll events are collected for a short time and dispatched as one action.
+     */
+    private void onScroll(int lines) {
+        if (pendingScroll == 0) {
+            Scheduler.get().scheduleFixedDelay(new Scheduler.RepeatingCommand() {
+                @Override
+                public boolean execute() {
+                    int scroll = pendingScroll;
+                    pendingScroll = 0;
+                    if (scroll < 0) {
+                        circuit.dispatch(new UnFollowLogFile());
+                    }
+                    if (scroll != 0) {
+                        circuit.dispatch(new ScrollLogFile(scroll));
+                    }
+                    return false;
+                }
+            }, SCROLL_DELAY);
+        }
+        pendingScroll += lines;
+    }
+
+    private void onJump(String value) {
+        try {
+            JumpInLogFile action;
+            if (value.endsWith("%")) {
+                action = JumpInLogFile.toPercent(Integer.parseInt(value.substring(0, value.length() - 1).trim()));
+            } else {
+                action = JumpInLogFile.toLine(Integer.parseInt(value));
+            }
+            circuit.dispatch(new UnFollowLogFile());
+            circuit.dispatch(action);
+        } catch (NumberFormatException e) {
+            Console.warning("Invalid line number or percentage: " + value);
+        }
+    }
+
+    private void onFind(boolean forward) {
+        String minLevel = findLevel.getSelectedValue();
+        Set<LogLevel> levels = minLevel == null || minLevel.isEmpty() ?
+                EnumSet.noneOf(LogLevel.class) : LogLevel.atLeast(LogLevel.valueOf(minLevel));
+        String pattern = findTextBox.getValue().trim();
+        String category = findCategory.getValue().trim();
+        if (pattern.isEmpty() && levels.isEmpty() && category.isEmpty()) {
+            return;
+        }
+        circuit.dispatch(new UnFollowLogFile());
+        circuit.dispatch(new SearchLogFile(pattern, levels, category, forward));
+    }
+
     private void onNavigate(Direction direction) {
         if (direction == Direction.HEAD || direction == Direction.PREVIOUS) {
             circuit.dispatch(new UnFollowLogFile());
@@ -232,97 +398,4 @@ public class LogFilePanel extends Composite implements LogViewerId {
     public String getName() {
         return name;
     }
-
-
-    /**
-     * Simulates AceEditor's build in search box
-     */
-    @SuppressWarnings("UnusedDeclaration")
-    private class SearchBox extends Composite {
-
-        public SearchBox() {
-
-            // first part: setup the visible widgets
-            final TextBox findTextBox = new TextBox();
-            findTextBox.addStyleName("ace_search_field");
-            findTextBox.getElement().setAttribute("placeholder", "Find");
-            setId(findTextBox, BASE_ID, "find_input");
-
-            ToolButton findButton = new ToolButton("Find", new ClickHandler() {
-                @Override
-                public void onClick(ClickEvent event) {
-                    editor.search(findTextBox.getValue());
-                }
-            });
-            setId(findButton, BASE_ID, "find");
-
-            Button findPrev = new Button(SafeHtmlUtils.fromSafeConstant("<i class=\"icon-angle-left\"></i>"));
-            findPrev.addStyleName("toolstrip-button");
-            findPrev.getElement().setAttribute("action", "findPrev"); // AceEditor action wiring
-            setId(findPrev, BASE_ID, "prev_match");
-
-            Button findNext = new Button(SafeHtmlUtils.fromSafeConstant("<i class=\"icon-angle-right\"></i>"));
-            findNext.addStyleName("toolstrip-button");
-            findNext.getElement().setAttribute("action", "findNext"); // AceEditor action wiring
-            setId(findNext, BASE_ID, "next_match");
-
-            ToolStrip searchTools = new ToolStrip();
-            searchTools.addToolWidget(findTextBox);
-            searchTools.addToolButton(findButton);
-            searchTools.addToolWidget(findPrev);
-            searchTools.addToolWidget(findNext);
-            findTextBox.getElement().getStyle().setWidth(20, EM);
-            findTextBox.getElement().getStyle().setMarginBottom(0, PX);
-            findTextBox.getElement().getParentElement().getStyle().setVerticalAlign(MIDDLE);
-            findButton.getElement().getParentElement().getStyle().setVerticalAlign(MIDDLE);
-            findPrev.getElement().getParentElement().getStyle().setVerticalAlign(MIDDLE);
-            findNext.getElement().getParentElement().getStyle().setVerticalAlign(MIDDLE);
-
-            // next part: rebuild the original search box
-            FlowPanel searchForm = div("ace_search_form", false);
-            searchForm.add(searchTools);
-
-            FlowPanel replaceForm = div("ace_replace_form", true);
-            replaceForm.add(hiddenTextBox("ace_search_field"));
-            replaceForm.add(hiddenButton("replaceAndFindNext", "ace_replacebtn"));
-            replaceForm.add(hiddenButton("replaceAll", "ace_replacebtn"));
-
-            FlowPanel searchOptions = div("ace_search_options", true);
-            searchOptions.add(hiddenButton("toggleRegexpMode", "ace_button"));
-            searchOptions.add(hiddenButton("toggleCaseSensitive", "ace_button"));
-            searchOptions.add(hiddenButton("toggleWholeWords", "ace_button"));
-
-            FlowPanel searchBox = div("ace_search_log_viewer", false);
-            searchBox.add(hiddenButton("close", "ace_searchbtn_close"));
-            searchBox.add(searchForm);
-            searchBox.add(replaceForm);
-            searchBox.add(searchOptions);
-
-            initWidget(searchBox);
-        }
-
-        private FlowPanel div(String styleName, boolean hidden) {
-            FlowPanel div = new FlowPanel();
-            div.setStyleName(styleName);
-            if (hidden) {
-                div.setVisible(false);
-            }
-            return div;
-        }
-
-        private Button hiddenButton(String action, String styleName) {
-            Button button = new Button();
-            button.setStyleName(styleName);
-            button.getElement().setAttribute("action", action);
-            button.setVisible(false);
-            return button;
-        }
-
-        private TextBox hiddenTextBox(String styleName) {
-            TextBox textBox = new TextBox();
-            textBox.setStyleName(styleName);
-            textBox.setVisible(false);
-            return textBox;
-        }
-    }
 }
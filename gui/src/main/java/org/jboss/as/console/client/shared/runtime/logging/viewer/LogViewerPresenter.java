@@ -28,6 +28,7 @@ import com.gwtplatform.mvp.client.annotations.NameToken;
 import com.gwtplatform.mvp.client.annotations.ProxyCodeSplit;
 import com.gwtplatform.mvp.client.proxy.Place;
 import com.gwtplatform.mvp.client.proxy.Proxy;
+import org.jboss.as.console.client.Console;
 import org.jboss.as.console.client.core.CircuitPresenter;
 import org.jboss.as.console.client.core.NameTokens;
 import org.jboss.as.console.client.shared.runtime.logging.store.*;
@@ -96,6 +97,9 @@ public class LogViewerPresenter extends CircuitPresenter<LogViewerPresenter.MyVi
             getView().open(logStore.getActiveLogFile());
 
         } else if (action instanceof NavigateInLogFile ||
+                action instanceof ScrollLogFile ||
+                action instanceof JumpInLogFile ||
+                action instanceof SearchLogFile ||
                 action instanceof ChangePageSize ||
                 action instanceof  FollowLogFile ||
                 action instanceof UnFollowLogFile) {
@@ -106,6 +110,15 @@ public class LogViewerPresenter extends CircuitPresenter<LogViewerPresenter.MyVi
         }
     }
 
+    @Override
+    protected void onError(Action action, String reason) {
+        if (action instanceof SearchLogFile) {
+            Console.warning(reason);
+        } else {
+            super.onError(action, reason);
+        }
+    }
+
     @Override
     protected void revealInParent() {
         revealStrategy.revealInRuntimeParent(this);
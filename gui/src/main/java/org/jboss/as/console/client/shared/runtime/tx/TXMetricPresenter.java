@@ -11,26 +11,20 @@ import com.gwtplatform.mvp.client.proxy.Proxy;
 import org.jboss.as.console.client.Console;
 import org.jboss.as.console.client.core.CircuitPresenter;
 import org.jboss.as.console.client.core.NameTokens;
-import org.jboss.as.console.client.domain.model.LoggingCallback;
 import org.jboss.as.console.client.plugins.RuntimeGroup;
 import org.jboss.as.console.client.shared.runtime.Metric;
-import org.jboss.as.console.client.shared.runtime.RuntimeBaseAddress;
+import org.jboss.as.console.client.shared.runtime.MetricSampler;
 import org.jboss.as.console.client.shared.subsys.RevealStrategy;
-import org.jboss.as.console.client.shared.subsys.tx.model.TransactionManager;
-import org.jboss.as.console.client.widgets.forms.AddressBinding;
-import org.jboss.as.console.client.widgets.forms.ApplicationMetaData;
-import org.jboss.as.console.client.widgets.forms.EntityAdapter;
+import org.jboss.as.console.client.v3.dmr.AddressTemplate;
 import org.jboss.as.console.spi.AccessControl;
 import org.jboss.as.console.spi.RuntimeExtension;
 import org.jboss.as.console.spi.SearchIndex;
 import org.jboss.dmr.client.ModelNode;
-import org.jboss.dmr.client.dispatch.DispatchAsync;
-import org.jboss.dmr.client.dispatch.impl.DMRAction;
-import org.jboss.dmr.client.dispatch.impl.DMRResponse;
 import org.jboss.gwt.circuit.Action;
 import org.jboss.gwt.circuit.Dispatcher;
 
-import static org.jboss.dmr.client.ModelDescriptionConstants.*;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * @author Heiko Braun
@@ -55,24 +49,28 @@ public class TXMetricPresenter extends CircuitPresenter<TXMetricPresenter.MyView
     }
 
 
-    private DispatchAsync dispatcher;
-    private AddressBinding addressBinding;
-    private EntityAdapter<TransactionManager> entityAdapter;
+    /**
+     * Polling interval of the transaction statistics
+     */
+    private final static int METRIC_INTERVAL = 5000; // ms
+    private final static AddressTemplate TRANSACTIONS = AddressTemplate.of("subsystem=transactions");
+    private final static List<String> ATTRIBUTES = Arrays.asList("number-of-transactions",
+            "number-of-committed-transactions", "number-of-aborted-transactions", "number-of-timed-out-transactions",
+            "number-of-application-rollbacks", "number-of-resource-rollbacks");
+
     private RevealStrategy revealStrategy;
+    private final MetricSampler metricSampler;
+    private MetricSampler.Subscription subscription;
 
 
     @Inject
     public TXMetricPresenter(
             EventBus eventBus, MyView view, MyProxy proxy,
-            DispatchAsync dispatcher, Dispatcher circuit,
-            ApplicationMetaData metaData, RevealStrategy revealStrategy) {
+            Dispatcher circuit, RevealStrategy revealStrategy, MetricSampler metricSampler) {
         super(eventBus, view, proxy, circuit);
 
-        this.dispatcher = dispatcher;
         this.revealStrategy = revealStrategy;
-
-        this.addressBinding = metaData.getBeanMetaData(TransactionManager.class).getAddress();
-        this.entityAdapter = new EntityAdapter<TransactionManager>(TransactionManager.class, metaData);
+        this.metricSampler = metricSampler;
     }
 
 
@@ -88,7 +86,7 @@ public class TXMetricPresenter extends CircuitPresenter<TXMetricPresenter.MyView
         Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
             @Override
             public void execute() {
-                refresh();
+                if(isVisible()) refresh();
             }
         });
     }
@@ -99,6 +97,12 @@ public class TXMetricPresenter extends CircuitPresenter<TXMetricPresenter.MyView
         refresh();
     }
 
+    @Override
+    protected void onHide() {
+        super.onHide();
+        cancelMetrics();
+    }
+
     @Override
     protected void revealInParent() {
         revealStrategy.revealInRuntimeParent(this);
@@ -107,43 +111,38 @@ public class TXMetricPresenter extends CircuitPresenter<TXMetricPresenter.MyView
     @Override
     public void refresh() {
 
+        cancelMetrics();
         getView().clearSamples();
 
-        ModelNode operation = addressBinding.asResource(RuntimeBaseAddress.get());
-        operation.get(OP).set(READ_RESOURCE_OPERATION);
-        operation.get(INCLUDE_RUNTIME).set(true);
-
-        dispatcher.execute(new DMRAction(operation), new LoggingCallback<DMRResponse>() {
-            @Override
-            public void onSuccess(DMRResponse dmrResponse) {
-                ModelNode result = dmrResponse.get();
-
-                if(result.isFailure())
-                {
-                    Log.error("Failed to load TX metrics: "+ result.getFailureDescription());
-                }
-                else
-                {
-
-                    TransactionManager metrics = entityAdapter.fromDMR(result.get(RESULT));
-
-                    getView().setTxMetric(new Metric(
-                            metrics.getNumTransactions(),
-                            metrics.getNumCommittedTransactions(),
-                            metrics.getNumAbortedTransactions(),
-                            metrics.getNumTimeoutTransactions()
-                    ));
-
-                    getView().setRollbackMetric(new Metric(
-                            metrics.getNumApplicationRollback(),
-                            metrics.getNumResourceRollback()
-                    ));
-
-
-                }
+        subscription = metricSampler.subscribe(TRANSACTIONS, ATTRIBUTES, METRIC_INTERVAL,
+                new MetricSampler.Callback() {
+                    @Override
+                    public void onSample(MetricSampler.Target target, ModelNode values) {
+                        getView().setTxMetric(new Metric(
+                                values.get("number-of-transactions").asLong(),
+                                values.get("number-of-committed-transactions").asLong(),
+                                values.get("number-of-aborted-transactions").asLong(),
+                                values.get("number-of-timed-out-transactions").asLong()
+                        ));
+
+                        getView().setRollbackMetric(new Metric(
+                                values.get("number-of-application-rollbacks").asLong(),
+                                values.get("number-of-resource-rollbacks").asLong()
+                        ));
+                    }
+
+                    @Override
+                    public void onError(MetricSampler.Target target, String failure) {
+                        Log.error("Failed to load TX metrics: " + failure);
+                    }
+                });
+    }
 
-            }
-        });
+    private void cancelMetrics() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
     }
 
 }
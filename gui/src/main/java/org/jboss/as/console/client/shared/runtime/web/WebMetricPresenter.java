@@ -15,25 +15,23 @@ import org.jboss.as.console.client.core.NameTokens;
 import org.jboss.as.console.client.domain.model.LoggingCallback;
 import org.jboss.as.console.client.shared.BeanFactory;
 import org.jboss.as.console.client.shared.runtime.Metric;
-import org.jboss.as.console.client.shared.runtime.RuntimeBaseAddress;
+import org.jboss.as.console.client.shared.runtime.MetricSampler;
 import org.jboss.as.console.client.shared.subsys.RevealStrategy;
 import org.jboss.as.console.client.shared.subsys.web.LoadConnectorCmd;
 import org.jboss.as.console.client.shared.subsys.web.model.HttpConnector;
+import org.jboss.as.console.client.v3.dmr.AddressTemplate;
 import org.jboss.as.console.client.widgets.forms.ApplicationMetaData;
 import org.jboss.as.console.spi.AccessControl;
 import org.jboss.as.console.spi.SearchIndex;
 import org.jboss.dmr.client.ModelNode;
 import org.jboss.dmr.client.dispatch.DispatchAsync;
-import org.jboss.dmr.client.dispatch.impl.DMRAction;
-import org.jboss.dmr.client.dispatch.impl.DMRResponse;
 import org.jboss.gwt.circuit.Action;
 import org.jboss.gwt.circuit.Dispatcher;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
-import static org.jboss.dmr.client.ModelDescriptionConstants.*;
-
 /**
  * @author Heiko Braun
  * @date 12/9/11
@@ -55,11 +53,18 @@ public class WebMetricPresenter extends CircuitPresenter<WebMetricPresenter.MyVi
     }
 
 
+    /**
+     * Polling interval of the connector statistics
+     */
+    private final static int METRIC_INTERVAL = 5000; // ms
+
     private DispatchAsync dispatcher;
     private RevealStrategy revealStrategy;
     private HttpConnector selectedConnector;
     private BeanFactory factory;
     private final LoadConnectorCmd cmd;
+    private final MetricSampler metricSampler;
+    private MetricSampler.Subscription subscription;
 
 
     @Inject
@@ -67,12 +72,13 @@ public class WebMetricPresenter extends CircuitPresenter<WebMetricPresenter.MyVi
             EventBus eventBus, MyView view, MyProxy proxy,
             DispatchAsync dispatcher, Dispatcher circuit,
             ApplicationMetaData metaData, RevealStrategy revealStrategy,
-            BeanFactory factory) {
+            BeanFactory factory, MetricSampler metricSampler) {
         super(eventBus, view, proxy, circuit);
 
         this.dispatcher = dispatcher;
         this.revealStrategy = revealStrategy;
         this.factory = factory;
+        this.metricSampler = metricSampler;
         this.cmd = new LoadConnectorCmd(dispatcher, factory, true);
     }
 
@@ -85,6 +91,8 @@ public class WebMetricPresenter extends CircuitPresenter<WebMetricPresenter.MyVi
 
     public void refresh() {
 
+        cancelMetrics();
+
         // TODO Why is the list cleared and re-initialized afterwards?
         getView().setConnectors(Collections.<HttpConnector>emptyList());
 
@@ -107,40 +115,38 @@ public class WebMetricPresenter extends CircuitPresenter<WebMetricPresenter.MyVi
         if(null==selectedConnector)
             throw new RuntimeException("connector selection is null!");
 
+        cancelMetrics();
         getView().clearSamples();
 
-        ModelNode operation = new ModelNode();
-        operation.get(ADDRESS).set(RuntimeBaseAddress.get());
-        operation.get(ADDRESS).add("subsystem", "web");
-        operation.get(ADDRESS).add("connector", selectedConnector.getName());
-
-        operation.get(OP).set(READ_RESOURCE_OPERATION);
-        operation.get(INCLUDE_RUNTIME).set(true);
+        AddressTemplate connector = AddressTemplate.of("subsystem=web")
+                .append("connector=" + selectedConnector.getName());
+        subscription = metricSampler.subscribe(connector,
+                Arrays.asList("requestCount", "errorCount", "processingTime", "maxTime"), METRIC_INTERVAL,
+                new MetricSampler.Callback() {
+                    @Override
+                    public void onSample(MetricSampler.Target target, ModelNode values) {
+                        Metric metric = new Metric(
+                                values.get("requestCount").asLong(),
+                                values.get("errorCount").asLong(),
+                                values.get("processingTime").asLong(),
+                                values.get("maxTime").asLong()
+                        );
+
+                        getView().setConnectorMetric(metric);
+                    }
+
+                    @Override
+                    public void onError(MetricSampler.Target target, String failure) {
+                        Log.error(Console.MESSAGES.failed("Web Metrics"), failure);
+                    }
+                });
+    }
 
-        dispatcher.execute(new DMRAction(operation), new LoggingCallback<DMRResponse>() {
-            @Override
-            public void onSuccess(DMRResponse dmrResponse) {
-                ModelNode response = dmrResponse.get();
-
-                if(response.isFailure())
-                {
-                    Log.error(Console.MESSAGES.failed("Web Metrics"), response.getFailureDescription());
-                }
-                else
-                {
-                    ModelNode result = response.get(RESULT).asObject();
-
-                    Metric metric = new Metric(
-                            result.get("requestCount").asLong(),
-                            result.get("errorCount").asLong(),
-                            result.get("processingTime").asLong(),
-                            result.get("maxTime").asLong()
-                    );
-
-                    getView().setConnectorMetric(metric);
-                }
-            }
-        });
+    private void cancelMetrics() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
     }
 
     @Override
@@ -167,6 +173,12 @@ public class WebMetricPresenter extends CircuitPresenter<WebMetricPresenter.MyVi
         refresh();
     }
 
+    @Override
+    protected void onHide() {
+        super.onHide();
+        cancelMetrics();
+    }
+
     @Override
     protected void revealInParent() {
         revealStrategy.revealInRuntimeParent(this);
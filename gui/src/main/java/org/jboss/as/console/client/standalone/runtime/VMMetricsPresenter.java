@@ -1,5 +1,6 @@
 package org.jboss.as.console.client.standalone.runtime;
 
+import com.allen_sauer.gwt.log.client.Log;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.inject.Inject;
 import com.google.web.bindery.event.shared.EventBus;
@@ -15,8 +16,10 @@ import org.jboss.as.console.client.shared.BeanFactory;
 import org.jboss.as.console.client.shared.jvm.LoadJVMMetricsCmd;
 import org.jboss.as.console.client.shared.jvm.model.CompositeVMMetric;
 import org.jboss.as.console.client.shared.runtime.Metric;
+import org.jboss.as.console.client.shared.runtime.MetricSampler;
 import org.jboss.as.console.client.shared.runtime.vm.VMMetricsManagement;
 import org.jboss.as.console.client.shared.runtime.vm.VMView;
+import org.jboss.as.console.client.v3.dmr.AddressTemplate;
 import org.jboss.as.console.client.widgets.forms.ApplicationMetaData;
 import org.jboss.as.console.spi.AccessControl;
 import org.jboss.as.console.spi.OperationMode;
@@ -25,6 +28,10 @@ import org.jboss.dmr.client.dispatch.DispatchAsync;
 import org.jboss.gwt.circuit.Action;
 import org.jboss.gwt.circuit.Dispatcher;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.jboss.as.console.spi.OperationMode.Mode.STANDALONE;
 
 /**
@@ -35,8 +42,16 @@ public class VMMetricsPresenter
         extends CircuitPresenter<VMView, VMMetricsPresenter.MyProxy>
         implements VMMetricsManagement {
 
+    /**
+     * Polling interval of the memory and thread metrics
+     */
+    private final static int METRIC_INTERVAL = 5000; // ms
+    private final static AddressTemplate PLATFORM_MBEAN = AddressTemplate.of("core-service=platform-mbean");
+
     private ApplicationMetaData metaData;
     private LoadJVMMetricsCmd loadMetricCmd;
+    private final MetricSampler metricSampler;
+    private final List<MetricSampler.Subscription> subscriptions;
 
     @ProxyCodeSplit
     @NameToken(NameTokens.VirtualMachine)
@@ -58,10 +73,13 @@ public class VMMetricsPresenter
     @Inject
     public VMMetricsPresenter(
             EventBus eventBus, MyView view, MyProxy proxy,
-            DispatchAsync dispatcher, BeanFactory factory, ApplicationMetaData propertyMetaData, Dispatcher circuit) {
+            DispatchAsync dispatcher, BeanFactory factory, ApplicationMetaData propertyMetaData, Dispatcher circuit,
+            MetricSampler metricSampler) {
         super(eventBus, view, proxy, circuit);
 
         this.metaData = propertyMetaData;
+        this.metricSampler = metricSampler;
+        this.subscriptions = new ArrayList<>();
         this.loadMetricCmd = new LoadJVMMetricsCmd(dispatcher, factory, new ModelNode(), metaData);
     }
 
@@ -74,12 +92,13 @@ public class VMMetricsPresenter
 
     @Override
     protected void onAction(Action action) {
-        refresh();
+        if(isVisible()) refresh();
     }
 
     @Override
     protected void onHide() {
         super.onHide();
+        cancelMetrics();
     }
 
 
@@ -97,6 +116,7 @@ public class VMMetricsPresenter
 
     public void loadVMStatus() {
 
+        cancelMetrics();
         getView().clearSamples();
 
         loadMetricCmd.execute(new AsyncCallback<CompositeVMMetric>() {
@@ -134,6 +154,59 @@ public class VMMetricsPresenter
             }
         });
 
+        pollMetrics();
+    }
+
+    /**
+     * Polls the memory and thread metrics. The OS and runtime metrics don't change and are only read by {@link
+     * #loadVMStatus()}.
+     */
+    private void pollMetrics() {
+        subscriptions.add(metricSampler.subscribe(PLATFORM_MBEAN.append("type=memory"),
+                Arrays.asList("heap-memory-usage", "non-heap-memory-usage"), METRIC_INTERVAL,
+                new MetricsCallback() {
+                    @Override
+                    public void onSample(MetricSampler.Target target, ModelNode values) {
+                        getView().setHeap(heap(values.get("heap-memory-usage")));
+                        getView().setNonHeap(heap(values.get("non-heap-memory-usage")));
+                    }
+                }));
+
+        subscriptions.add(metricSampler.subscribe(PLATFORM_MBEAN.append("type=threading"),
+                Arrays.asList("thread-count", "daemon-thread-count"), METRIC_INTERVAL,
+                new MetricsCallback() {
+                    @Override
+                    public void onSample(MetricSampler.Target target, ModelNode values) {
+                        getView().setThreads(new Metric(
+                                values.get("thread-count").asLong(),
+                                values.get("daemon-thread-count").asLong()
+                        ));
+                    }
+                }));
+    }
+
+    private static Metric heap(ModelNode usage) {
+        return new Metric(
+                usage.get("max").asLong(),
+                usage.get("used").asLong(),
+                usage.get("committed").asLong(),
+                usage.get("init").asLong()
+        );
+    }
+
+    private void cancelMetrics() {
+        for (MetricSampler.Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        subscriptions.clear();
+    }
+
+    private abstract class MetricsCallback implements MetricSampler.Callback {
+
+        @Override
+        public void onError(MetricSampler.Target target, String failure) {
+            Log.error("Failed to read VM metrics: " + failure);
+        }
     }
 
     @Override
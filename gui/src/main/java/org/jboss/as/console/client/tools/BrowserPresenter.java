@@ -8,7 +8,6 @@ import com.gwtplatform.mvp.client.PresenterWidget;
 import org.jboss.as.console.client.Console;
 import org.jboss.as.console.client.domain.model.SimpleCallback;
 import org.jboss.as.console.client.rbac.SecurityFramework;
-import org.jboss.as.console.client.shared.util.LRUCache;
 import org.jboss.as.console.mbui.behaviour.ModelNodeAdapter;
 import org.jboss.as.console.mbui.widgets.AddressUtils;
 import org.jboss.ballroom.client.rbac.SecurityContext;
@@ -42,7 +41,6 @@ public class BrowserPresenter extends PresenterWidget<BrowserPresenter.MyView>{
     private boolean hasBeenRevealed;
     private ModelNode pinToAddress = null;
 
-    private LRUCache<String, SecurityContext> contextCache = new LRUCache<String, SecurityContext>(25);
 
     public interface MyView extends PopupView {
         void setPresenter(BrowserPresenter presenter);
@@ -244,31 +242,22 @@ public class BrowserPresenter extends PresenterWidget<BrowserPresenter.MyView>{
                 final Set<String> resources = new HashSet<String>();
                 resources.add(addressString);
 
-                if(contextCache.containsKey(addressString))
-                {
-                    control.getContext().securityContext = contextCache.get(addressString);
-                    control.proceed();
-                }
-                else {
-
-                    securityFramework.createSecurityContext(addressString, resources, false,
-                            new AsyncCallback<SecurityContext>() {
-                                @Override
-                                public void onFailure(Throwable caught) {
-                                    Console.error("Failed to create security context for "+addressString, caught.getMessage());
-                                    control.abort();
-                                }
+                // the security framework shares the access control meta data across contexts
+                securityFramework.createSecurityContext(addressString, resources, false,
+                        new AsyncCallback<SecurityContext>() {
+                            @Override
+                            public void onFailure(Throwable caught) {
+                                Console.error("Failed to create security context for "+addressString, caught.getMessage());
+                                control.abort();
+                            }
 
-                                @Override
-                                public void onSuccess(SecurityContext result) {
-                                    final String cacheKey = AddressUtils.asKey(address, true);
-                                    contextCache.put(cacheKey, result);
-                                    control.getContext().securityContext = result;
-                                    control.proceed();
-                                }
+                            @Override
+                            public void onSuccess(SecurityContext result) {
+                                control.getContext().securityContext = result;
+                                control.proceed();
                             }
-                    );
-                }
+                        }
+                );
 
             }
         };
@@ -515,31 +504,22 @@ public class BrowserPresenter extends PresenterWidget<BrowserPresenter.MyView>{
                 final Set<String> resources = new HashSet<String>();
                 resources.add(addressString);
 
-                if(contextCache.containsKey(addressString))
-                {
-                    control.getContext().securityContext = contextCache.get(addressString);
-                    control.proceed();
-                }
-                else {
-
-                    securityFramework.createSecurityContext(addressString, resources, false,
-                            new AsyncCallback<SecurityContext>() {
-                                @Override
-                                public void onFailure(Throwable caught) {
-                                    Console.error("Failed to create security context for "+addressString, caught.getMessage());
-                                    control.abort();
-                                }
+                // the security framework shares the access control meta data across contexts
+                securityFramework.createSecurityContext(addressString, resources, false,
+                        new AsyncCallback<SecurityContext>() {
+                            @Override
+                            public void onFailure(Throwable caught) {
+                                Console.error("Failed to create security context for "+addressString, caught.getMessage());
+                                control.abort();
+                            }
 
-                                @Override
-                                public void onSuccess(SecurityContext result) {
-                                    final String cacheKey = AddressUtils.asKey(address, false);
-                                    contextCache.put(cacheKey, result);
-                                    control.getContext().securityContext = result;
-                                    control.proceed();
-                                }
+                            @Override
+                            public void onSuccess(SecurityContext result) {
+                                control.getContext().securityContext = result;
+                                control.proceed();
                             }
-                    );
-                }
+                        }
+                );
 
             }
         };
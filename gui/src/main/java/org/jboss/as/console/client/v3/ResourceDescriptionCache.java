@@ -0,0 +1,376 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.console.client.v3;
+
+import com.allen_sauer.gwt.log.client.Log;
+import com.google.gwt.core.client.JavaScriptException;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONParser;
+import com.google.gwt.json.client.JSONString;
+import com.google.gwt.json.client.JSONValue;
+import com.google.gwt.storage.client.Storage;
+import org.jboss.as.console.client.core.BootstrapContext;
+import org.jboss.dmr.client.ModelNode;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Persistent cache for the results of {@code read-resource-description} operations (including the access control
+ * meta data) which uses the local storage of the browser.
+ * <p>
+ * Descriptions only change if the management model changes and access control meta data depends on the roles of the
+ * user. Hence the entries are scoped by product version, management model version, roles and run-as role and keyed
+ * by the resolved operation. Entries of other product or management model versions (or of an older layout of the
+ * cache) are removed when the cache is used for the first time. Each entry is tagged with the address template it was
+ * requested for, so that all entries of a template can be invalidated at once, see {@link #invalidate(String)}. The
+ * cache is bounded by the number of entries and the total size, the least recently used entries are evicted first.
+ * Entries expire after {@link #MAX_AGE} ms, since the access control exceptions refer to resource instances which
+ * might have been added or removed in the meantime.
+ * <p>
+ * If the browser doesn't support local storage or the management model version is unknown, the cache is disabled.
+ */
+public class ResourceDescriptionCache {
+
+    private static final String PREFIX = "org.jboss.as.console.rrd.";
+    private static final String INDEX = PREFIX + "index";
+
+    /**
+     * Version of the layout of the index and the entries. Must be increased if the layout changes.
+     */
+    private static final int FORMAT = 3;
+
+    /**
+     * Upper bounds for the number of entries and the total size (in characters) of all entries. Most browsers limit
+     * the local storage to 5MB, so leave some room for others.
+     */
+    private static final int MAX_ENTRIES = 500;
+    private static final int MAX_SIZE = 2 * 1024 * 1024;
+
+    /**
+     * Entries bigger than this are not cached at all.
+     */
+    private static final int MAX_ENTRY_SIZE = 512 * 1024;
+
+    private static final long MAX_AGE = 12 * 60 * 60 * 1000;
+
+    private final BootstrapContext bootstrap;
+    private final Storage storage;
+    /**
+     * Storage key -> size and address template in access order (least recently used first)
+     */
+    private final LinkedHashMap<String, IndexEntry> index;
+    private String version;
+    private int size;
+    private int hits;
+    private int misses;
+    private boolean flushScheduled;
+
+    @Inject
+    public ResourceDescriptionCache(BootstrapContext bootstrap) {
+        this.bootstrap = bootstrap;
+        this.storage = Storage.getLocalStorageIfSupported();
+        this.index = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @return the cached result for the given operation or {@code null} if there's no (valid) entry.
+     */
+    public ModelNode get(ModelNode operation) {
+        if (!enabled()) {
+            return null;
+        }
+        String scope = scope();
+        String json = operation.toJSONString(true);
+        String key = key(scope, json);
+        if (!index.containsKey(key)) {
+            misses++;
+            return null;
+        }
+
+        String value = storage.getItem(key);
+        ModelNode result = null;
+        if (value != null) {
+            // <timestamp>\n<scope>\n<operation>\n<base64 encoded result>
+            int first = value.indexOf('\n');
+            int second = first != -1 ? value.indexOf('\n', first + 1) : -1;
+            int third = second != -1 ? value.indexOf('\n', second + 1) : -1;
+            if (third != -1 && value.substring(first + 1, second).equals(scope) && value
+                    .substring(second + 1, third).equals(json)) {
+                try {
+                    long timestamp = Long.parseLong(value.substring(0, first));
+                    if (System.currentTimeMillis() - timestamp < MAX_AGE) {
+                        result = ModelNode.fromBase64(value.substring(third + 1));
+                    }
+                } catch (Throwable t) {
+                    Log.error("Failed to decode cached description for " + operation.toJSONString(true), t);
+                }
+            }
+        }
+
+        if (result == null) {
+            remove(key);
+            misses++;
+        } else {
+            hits++;
+            index.get(key); // update the access order
+            scheduleFlush();
+        }
+        return result;
+    }
+
+    /**
+     * @param address the address template the operation was resolved from
+     */
+    public void put(String address, ModelNode operation, ModelNode result) {
+        if (!enabled()) {
+            return;
+        }
+        String scope = scope();
+        String json = operation.toJSONString(true);
+        String key = key(scope, json);
+        String value = System.currentTimeMillis() + "\n" + scope + "\n" + json + "\n" + result.toBase64String();
+        if (value.length() > MAX_ENTRY_SIZE) {
+            return;
+        }
+
+        remove(key);
+        evict(MAX_ENTRIES - 1, MAX_SIZE - value.length());
+        if (!setItem(key, value)) {
+            // quota exceeded: make room for the new entry and try once more
+            evict(index.size() / 2, size / 2);
+            if (!setItem(key, value)) {
+                Log.warn("Unable to cache description for " + operation.toJSONString(true));
+                scheduleFlush();
+                return;
+            }
+        }
+        index.put(key, new IndexEntry(value.length(), address));
+        size += value.length();
+        scheduleFlush();
+    }
+
+    public void remove(ModelNode operation) {
+        if (enabled()) {
+            remove(key(scope(), operation.toJSONString(true)));
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Removes all entries which were stored for the specified address template. Unlike {@link #remove(ModelNode)} this
+     * removes the entries of all scopes and all resolved operations of the template.
+     */
+    public void invalidate(String address) {
+        if (enabled()) {
+            for (Iterator<Map.Entry<String, IndexEntry>> iterator = index.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<String, IndexEntry> entry = iterator.next();
+                if (address.equals(entry.getValue().address)) {
+                    storage.removeItem(entry.getKey());
+                    size -= entry.getValue().size;
+                    iterator.remove();
+                }
+            }
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Removes all entries from the local storage.
+     */
+    public void clear() {
+        if (storage != null) {
+            for (String key : new ArrayList<>(index.keySet())) {
+                remove(key);
+            }
+            storage.removeItem(INDEX);
+        }
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+
+    // ------------------------------------------------------ internals
+
+    private boolean enabled() {
+        if (storage == null || bootstrap.getManagementVersion() == null) {
+            return false;
+        }
+        String currentVersion = FORMAT + "/" + bootstrap.getProductVersion() + "/" + bootstrap.getManagementVersion();
+        if (!currentVersion.equals(version)) {
+            load(currentVersion);
+        }
+        return true;
+    }
+
+    /**
+     * Reads the index from the local storage and drops it, if it belongs to a different product or management model
+     * version.
+     */
+    private void load(String currentVersion) {
+        version = currentVersion;
+        index.clear();
+        size = 0;
+
+        String json = storage.getItem(INDEX);
+        if (json != null) {
+            try {
+                JSONArray array = JSONParser.parseStrict(json).isArray();
+                if (array != null && array.size() > 0 && currentVersion.equals(stringValue(array.get(0)))) {
+                    // [version, key, size, address, key, size, address, ...]
+                    for (int i = 1; i + 2 < array.size(); i += 3) {
+                        String key = stringValue(array.get(i));
+                        int entrySize = (int) array.get(i + 1).isNumber().doubleValue();
+                        index.put(key, new IndexEntry(entrySize, stringValue(array.get(i + 2))));
+                        size += entrySize;
+                    }
+                } else {
+                    purge();
+                }
+            } catch (RuntimeException e) {
+                Log.error("Unable to read the description cache index, clear cache", e);
+                purge();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries of this cache from the local storage including unknown ones.
+     */
+    private void purge() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < storage.getLength(); i++) {
+            String key = storage.key(i);
+            if (key != null && key.startsWith(PREFIX)) {
+                keys.add(key);
+            }
+        }
+        for (String key : keys) {
+            storage.removeItem(key);
+        }
+        index.clear();
+        size = 0;
+    }
+
+    private void evict(int maxEntries, int maxSize) {
+        Iterator<Map.Entry<String, IndexEntry>> iterator = index.entrySet().iterator();
+        while (iterator.hasNext() && (index.size() > maxEntries || size > maxSize)) {
+            Map.Entry<String, IndexEntry> entry = iterator.next();
+            storage.removeItem(entry.getKey());
+            size -= entry.getValue().size;
+            iterator.remove();
+        }
+    }
+
+    private void remove(String key) {
+        IndexEntry entry = index.remove(key);
+        if (entry != null) {
+            size -= entry.size;
+        }
+        storage.removeItem(key);
+    }
+
+    private boolean setItem(String key, String value) {
+        try {
+            storage.setItem(key, value);
+            return true;
+        } catch (JavaScriptException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The index is written once per event loop turn rather than after each modification.
+     */
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
+                @Override
+                public void execute() {
+                    flushScheduled = false;
+                    JSONArray array = new JSONArray();
+                    array.set(0, new JSONString(version));
+                    for (Map.Entry<String, IndexEntry> entry : index.entrySet()) {
+                        array.set(array.size(), new JSONString(entry.getKey()));
+                        array.set(array.size(), new JSONNumber(entry.getValue().size));
+                        array.set(array.size(), new JSONString(String.valueOf(entry.getValue().address)));
+                    }
+                    setItem(INDEX, array.toString());
+                }
+            });
+        }
+    }
+
+    private String key(String scope, String operation) {
+        // collisions are detected in get() by comparing the stored scope and operation
+        return PREFIX + hash(scope) + "." + hash(operation);
+    }
+
+    /**
+     * Access control meta data depends on the effective roles.
+     */
+    private String scope() {
+        StringBuilder builder = new StringBuilder();
+        if (bootstrap.getRoles() != null) {
+            for (String role : new TreeSet<>(bootstrap.getRoles())) {
+                builder.append(role.toLowerCase()).append(",");
+            }
+        }
+        builder.append("/").append(bootstrap.getRunAs());
+        return builder.toString();
+    }
+
+    private static String hash(String value) {
+        return Integer.toHexString(value.hashCode());
+    }
+
+    private static String stringValue(JSONValue value) {
+        JSONString string = value.isString();
+        return string != null ? string.stringValue() : null;
+    }
+
+
+    private static class IndexEntry {
+
+        final int size;
+        final String address;
+
+        IndexEntry(int size, String address) {
+            this.size = size;
+            this.address = address;
+        }
+    }
+}
@@ -25,37 +25,259 @@ import org.jboss.as.console.client.v3.dmr.AddressTemplate;
 import org.jboss.as.console.client.v3.dmr.ResourceDescription;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
+ * Registry for resource descriptions. The descriptions are kept in a trie keyed by the segments of the address
+ * template. A lookup is resolved in this order:
+ * <ol>
+ * <li>the description registered for exactly this template</li>
+ * <li>the description registered for a template which uses wildcards where the lookup uses a specific name (e.g.
+ * {@code server=*} for {@code server=default-server})</li>
+ * <li>the child description of the closest registered parent, if that one was read recursively (see
+ * {@link ResourceDescription#getChildDescription(String, String)}). The child description is then registered for
+ * the template, so subsequent lookups are served directly.</li>
+ * </ol>
+ *
  * @author Harald Pehl
  */
 public class ResourceDescriptionRegistry {
 
-    private final Map<AddressTemplate, ResourceDescription> registry;
+    private static final String WILDCARD = "*";
+
+    private final Node root;
+    private final Node optionalRoot;
+    private int size;
+    private int hits;
+    private int wildcardHits;
+    private int childHits;
+    private int misses;
 
     public ResourceDescriptionRegistry() {
-        registry = new HashMap<>();
+        root = new Node();
+        optionalRoot = new Node();
     }
 
     public void add(AddressTemplate addressTemplate, ResourceDescription description) {
-        registry.put(addressTemplate, description);
+        register(addressTemplate, description, false);
+    }
+
+    private void register(AddressTemplate addressTemplate, ResourceDescription description, boolean derived) {
+        Node node = addressTemplate.isOptional() ? optionalRoot : root;
+        for (String segment : addressTemplate.getSegments()) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+            }
+            node = child;
+        }
+        if (node.description == null) {
+            size++;
+        }
+        node.description = description;
+        node.derived = derived;
+        if (!derived) {
+            // descriptions taken from a parent are stored under the specific template (which might be outside the
+            // subtree of the parent in case of wildcards), so drop them all.
+            root.dropDerived();
+            optionalRoot.dropDerived();
+        }
     }
 
     public ResourceDescription lookup(AddressTemplate addressTemplate) {
 
-        ResourceDescription resourceDescription = registry.get(addressTemplate);
+        ResourceDescription resourceDescription = resolve(addressTemplate, true);
         if(null==resourceDescription)
             throw new RuntimeException("Failed to lookup resource description for "+addressTemplate.toString());
 
         return resourceDescription;
     }
 
+    /**
+     * Checks whether {@link #lookup(AddressTemplate)} would find a description. Unlike the lookup, this neither
+     * counts as hit or miss nor registers child descriptions.
+     */
     public boolean has(AddressTemplate addressTemplate) {
-        return registry.containsKey(addressTemplate);
+        return resolve(addressTemplate, false) != null;
+    }
+
+    /**
+     * @return the number of registered descriptions (including the ones taken from recursive parents)
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceDescriptionRegistry(" + size + " descriptions, hits: " + hits + ", wildcard hits: " +
+                wildcardHits + ", child hits: " + childHits + ", misses: " + misses + ")";
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getWildcardHits() {
+        return wildcardHits;
+    }
+
+    public int getChildHits() {
+        return childHits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+
+    // ------------------------------------------------------ resolve
+
+    /**
+     * @param record whether to update the statistics and to register child descriptions
+     */
+    private ResourceDescription resolve(AddressTemplate addressTemplate, boolean record) {
+        Node start = addressTemplate.isOptional() ? optionalRoot : root;
+        List<String> segments = addressTemplate.getSegments();
+
+        // 1. + 2. exact or wildcard match
+        Match match = find(start, segments, 0, false);
+        if (match != null) {
+            if (!record) {
+                return match.node.description;
+            } else if (match.node.derived) {
+                childHits++;
+            } else if (match.wildcard) {
+                wildcardHits++;
+            } else {
+                hits++;
+            }
+            return match.node.description;
+        }
+
+        // 3. child description of the closest parent
+        Node node = start;
+        Node parent = start.description != null ? start : null;
+        int parentIndex = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            Node next = node.children.get(segments.get(i));
+            if (next == null) {
+                next = node.children.get(wildcard(segments.get(i)));
+            }
+            if (next == null) {
+                break;
+            }
+            node = next;
+            if (node.description != null) {
+                parent = node;
+                parentIndex = i + 1;
+            }
+        }
+        if (parent != null) {
+            ResourceDescription description = parent.description;
+            for (int i = parentIndex; i < segments.size() && description != null; i++) {
+                description = childDescription(description, segments.get(i));
+            }
+            if (description != null) {
+                if (record) {
+                    register(addressTemplate, description, true);
+                    childHits++;
+                }
+                return description;
+            }
+        }
+
+        if (record) {
+            misses++;
+        }
+        return null;
+    }
+
+    /**
+     * Depth first search which prefers specific segments over wildcards.
+     */
+    private Match find(Node node, List<String> segments, int index, boolean wildcard) {
+        if (index == segments.size()) {
+            return node.description != null ? new Match(node, wildcard) : null;
+        }
+        String segment = segments.get(index);
+        Node child = node.children.get(segment);
+        if (child != null) {
+            Match match = find(child, segments, index + 1, wildcard);
+            if (match != null) {
+                return match;
+            }
+        }
+        String wildcardSegment = wildcard(segment);
+        if (wildcardSegment != null && !wildcardSegment.equals(segment)) {
+            child = node.children.get(wildcardSegment);
+            if (child != null) {
+                return find(child, segments, index + 1, true);
+            }
+        }
+        return null;
+    }
+
+    private ResourceDescription childDescription(ResourceDescription parent, String segment) {
+        int index = segment.indexOf('=');
+        if (index == -1) {
+            return null;
+        }
+        String type = segment.substring(0, index);
+        String name = segment.substring(index + 1);
+        ResourceDescription child = parent.getChildDescription(type, name);
+        if (child == ResourceDescription.EMPTY && !WILDCARD.equals(name)) {
+            child = parent.getChildDescription(type, WILDCARD);
+        }
+        return child == ResourceDescription.EMPTY ? null : child;
+    }
+
+    /**
+     * @return {@code type=*} for {@code type=name} or {@code null} if the segment is no key/value pair
+     */
+    private static String wildcard(String segment) {
+        int index = segment.indexOf('=');
+        return index == -1 ? null : segment.substring(0, index + 1) + WILDCARD;
     }
 
-    public boolean contains(AddressTemplate addressTemplate) {
-        return registry.containsKey(addressTemplate);
+
+    // ------------------------------------------------------ inner classes
+
+    private class Node {
+
+        final Map<String, Node> children = new HashMap<>();
+        ResourceDescription description;
+        /**
+         * Whether the description was taken from a recursive parent.
+         */
+        boolean derived;
+
+        /**
+         * Removes the descriptions taken from recursive parents, since they might be outdated now.
+         */
+        void dropDerived() {
+            for (Node child : children.values()) {
+                if (child.derived) {
+                    child.description = null;
+                    child.derived = false;
+                    size--;
+                }
+                child.dropDerived();
+            }
+        }
+    }
+
+
+    private static class Match {
+
+        final Node node;
+        final boolean wildcard;
+
+        Match(Node node, boolean wildcard) {
+            this.node = node;
+            this.wildcard = wildcard;
+        }
     }
 }
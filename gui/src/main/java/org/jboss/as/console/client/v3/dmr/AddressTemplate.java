@@ -206,6 +206,20 @@ public class AddressTemplate {
         return template;
     }
 
+    /**
+     * Returns the tokens of this template as strings, e.g. {@code ["{selected.profile}", "subsystem=mail",
+     * "mail-session=*"]} for {@code "{selected.profile}/subsystem=mail/mail-session=*"}.
+     *
+     * @return the tokens of this template (empty for the root template)
+     */
+    public List<String> getSegments() {
+        List<String> segments = new ArrayList<>(tokens.size());
+        for (Token token : tokens) {
+            segments.add(token.toString());
+        }
+        return segments;
+    }
+
     public boolean isOptional() {
         return optional;
     }
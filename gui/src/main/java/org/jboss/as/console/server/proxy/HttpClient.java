@@ -19,6 +19,7 @@
 
 package org.jboss.as.console.server.proxy;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -40,7 +41,13 @@ import java.util.logging.Logger;
  */
 public class HttpClient {
 
+    /**
+     * Buffer size used to stream request and response bodies.
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
     private static Logger logger;
+    private static volatile boolean httpsInitialized = false;
     private String proxyHost = null;
     private int proxyPort = -1;
     private boolean isHttps = false;
@@ -178,6 +185,18 @@ public class HttpClient {
         }
     }
 
+    /**
+     * Sets the connect and read timeout in ms. Values &lt;= 0 are ignored.
+     */
+    public void setTimeouts(int connectTimeout, int readTimeout) {
+        if (connectTimeout > 0) {
+            urlConnection.setConnectTimeout(connectTimeout);
+        }
+        if (readTimeout > 0) {
+            urlConnection.setReadTimeout(readTimeout);
+        }
+    }
+
     /**
      * private method to get the URLConnection
      * @param str URL string
@@ -191,8 +210,11 @@ public class HttpClient {
                 * certificate (https), SSLException or IOException is thrown.
                 * the following line is a hack to avoid that
                 */
-                Security.addProvider(new com.sun.net.ssl.internal.ssl.Provider());
-                System.setProperty("java.protocol.handler.pkgs", "com.sun.net.ssl.internal.www.protocol");
+                if (!httpsInitialized) {
+                    Security.addProvider(new com.sun.net.ssl.internal.ssl.Provider());
+                    System.setProperty("java.protocol.handler.pkgs", "com.sun.net.ssl.internal.www.protocol");
+                    httpsInitialized = true;
+                }
                 if (isProxy) {
                     System.setProperty("https.proxyHost", proxyHost);
                     System.setProperty("https.proxyPort", proxyPort + "");
@@ -313,7 +335,25 @@ public class HttpClient {
      * @return InputStream input stream from URLConnection
      */
     public InputStream doPost(byte[] postData, String contentType) {
+        return doPost(new ByteArrayInputStream(postData), postData.length, contentType);
+    }
+
+    /**
+     * Streams the request body to the upstream server and returns the InputStream. The body is not buffered:
+     * if the content length is known, a fixed length request is used, otherwise the body is sent chunked.
+     *
+     * @param postData the request body
+     * @param contentLength the length of the body or -1 if unknown
+     * @param contentType allows you to set the contentType of the request.
+     * @return InputStream input stream from URLConnection
+     */
+    public InputStream doPost(InputStream postData, int contentLength, String contentType) {
         this.urlConnection.setDoOutput(true);
+        if (contentLength >= 0) {
+            this.urlConnection.setFixedLengthStreamingMode(contentLength);
+        } else {
+            this.urlConnection.setChunkedStreamingMode(BUFFER_SIZE);
+        }
         if (contentType != null) this.urlConnection.setRequestProperty( "Content-type", contentType );
 
         OutputStream out = null;
@@ -321,7 +361,7 @@ public class HttpClient {
             out = this.getOutputStream();
             if(out!=null)
             {
-                out.write(postData);
+                copy(postData, out);
                 out.flush();
             }
         } catch (IOException e) {
@@ -339,6 +379,50 @@ public class HttpClient {
         return (this.getInputStream());
     }
 
+    /**
+     * Drains and closes the response streams, so that the underlying connection is returned to the keep-alive
+     * cache of {@link HttpURLConnection} and can be reused for subsequent requests to the same host.
+     */
+    public void release() {
+        InputStream in = null;
+        try {
+            in = this.urlConnection.getResponseCode() != HttpURLConnection.HTTP_OK ?
+                    this.urlConnection.getErrorStream() : this.urlConnection.getInputStream();
+            if (in != null) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                while (in.read(buffer) != -1) {
+                    // drain
+                }
+            }
+        } catch (IOException e) {
+            // connection will not be reused
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    //
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the input to the output using a {@link #BUFFER_SIZE} buffer.
+     *
+     * @return the number of bytes copied
+     */
+    public static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long count = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            count += read;
+        }
+        return count;
+    }
+
     public String getContentEncoding() {
         if (this.urlConnection == null) return null;
         return (this.urlConnection.getContentEncoding());
@@ -20,9 +20,7 @@
 package org.jboss.as.console.server.proxy;
 
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -32,6 +30,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 import javax.xml.transform.Transformer;
@@ -57,27 +56,34 @@ public class XmlHttpProxy {
     int proxyPort = -1;
     private Object config;
     private static String USAGE = "Usage:  -url service_URL  -id service_key [-url or -id required] -xslurl xsl_url [optional] -format json|xml [optional] -callback[optional] -config [optional] -resources base_directory_containing XSL stylesheets [optional]";
-    private String authHeader;
+    private int connectTimeout = 0;
+    private int readTimeout = 0;
 
     public XmlHttpProxy() {}
 
-    private String contentType = "application/json";
+    // shared by concurrent requests (async mode)
+    private Map<String, Cookie> cookies = new ConcurrentHashMap<String, Cookie>();
 
-    private Map<String, Cookie> cookies = new HashMap<String, Cookie>();
-
-    int status = -1;
-
-    public String getContentType() {
-        return contentType;
+    public interface CookieCallback
+    {
+        Map<String, Cookie> getCookies();
     }
 
-    public int getStatus() {
-        return status;
+    /**
+     * Notified once the upstream response is available and before the payload is written to the output stream.
+     * Used to set status and headers before the response is committed.
+     */
+    public interface ResponseHandler
+    {
+        void onResponse(int status, String contentType, int contentLength);
     }
 
-    public interface CookieCallback
-    {
-        Map<String, Cookie> getCookies();
+    /**
+     * Timeouts for the upstream connection in ms. Use 0 (the default) to wait forever.
+     */
+    public void setTimeouts(int connectTimeout, int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
     }
 
     public XmlHttpProxy(String proxyHost, int proxyPort) {
@@ -112,8 +118,20 @@ public class XmlHttpProxy {
                                String method,
                                String userName,
                                String password, String authHeader) throws IOException, MalformedURLException {
-        this.authHeader = authHeader;
-        doProcess(urlString, out, xslInputStream, paramsMap, headers,method, null,null, userName,password);
+        processRequest(urlString, out, xslInputStream, paramsMap, headers, method, userName, password, authHeader, null);
+    }
+
+    public void processRequest(String urlString,
+                               OutputStream out,
+                               InputStream xslInputStream,
+                               Map paramsMap,
+                               Map headers,
+                               String method,
+                               String userName,
+                               String password, String authHeader,
+                               ResponseHandler responseHandler) throws IOException, MalformedURLException {
+        doProcess(urlString, out, xslInputStream, paramsMap, headers,method, null, -1, null, userName,password,
+                authHeader, responseHandler);
     }
     /**
      * This method will go out and make the call and it will apply an XSLT Transformation with the
@@ -133,8 +151,30 @@ public class XmlHttpProxy {
                        String postContentType,
                        String userName,
                        String password, String authHeader) throws IOException, MalformedURLException {
-        this.authHeader = authHeader;
-        doProcess(urlString, out, xslInputStream, paramsMap, headers, XmlHttpProxy.POST, postData, postContentType, userName, password);
+        doPost(urlString, out, xslInputStream, paramsMap, headers, new ByteArrayInputStream(postData), postData.length,
+                postContentType, userName, password, authHeader, null);
+    }
+
+    /**
+     * Like {@link #doPost(String, OutputStream, InputStream, Map, Map, byte[], String, String, String, String)}, but
+     * streams the request body instead of expecting it in memory.
+     *
+     * @param postLength - the length of the body or -1 if unknown
+     * @param responseHandler - notified before the response payload is written, may be null
+     */
+    public void doPost(String urlString,
+                       OutputStream out,
+                       InputStream xslInputStream,
+                       Map paramsMap,
+                       Map headers,
+                       InputStream postData,
+                       int postLength,
+                       String postContentType,
+                       String userName,
+                       String password, String authHeader,
+                       ResponseHandler responseHandler) throws IOException, MalformedURLException {
+        doProcess(urlString, out, xslInputStream, paramsMap, headers, XmlHttpProxy.POST, postData, postLength,
+                postContentType, userName, password, authHeader, responseHandler);
     }
 
     /**
@@ -146,10 +186,13 @@ public class XmlHttpProxy {
      * @param xslInputStream - An input Stream to an XSL style sheet that is provided to the XSLT processor. If set to null there will be no transformation
      * @param paramsMap - A Map of parameters that are feed to the XSLT Processor. These params may be used when generating content. This may be set to null if no parameters are necessary.
      * @param method - the HTTP method used.
-     * @param postData - A String of the bodyContent to be posted. A doPost will be used if this is parameter is not null.
+     * @param postData - A stream of the bodyContent to be posted. A doPost will be used if this is parameter is not null.
+     * @param postLength - The length of the bodyContent or -1 if unknown.
      * @param postContentType - The request contentType used when posting data. Will not be set if this parameter is null.
      * @param userName - userName used for basic authorization
      * @param password - password used for basic authorization
+     * @param authHeader - the authorization header passed through if no userName and password are given
+     * @param responseHandler - notified before the response payload is written, may be null
      */
     public void doProcess(String urlString,
                           OutputStream out,
@@ -157,10 +200,13 @@ public class XmlHttpProxy {
                           Map paramsMap,
                           Map headers,
                           String method,
-                          byte[] postData,
+                          InputStream postData,
+                          int postLength,
                           String postContentType,
                           String userName,
-                          String password) throws IOException, MalformedURLException {
+                          String password,
+                          String authHeader,
+                          ResponseHandler responseHandler) throws IOException, MalformedURLException {
 
         if (paramsMap == null) {
             paramsMap = new HashMap();
@@ -172,7 +218,6 @@ public class XmlHttpProxy {
         }
 
         InputStream in = null;
-        BufferedOutputStream os = null;
 
         HttpClient httpclient = null;
 
@@ -193,12 +238,13 @@ public class XmlHttpProxy {
         {
             httpclient = new HttpClient(proxyHost, proxyPort, urlString, headers, method, callback, authHeader);
         }
+        httpclient.setTimeouts(connectTimeout, readTimeout);
 
         // post data determines whether we are going to do a get or a post
         if (postData == null) {
             in = httpclient.getInputStream();
         } else {
-            in = httpclient.doPost(postData, postContentType);
+            in = httpclient.doPost(postData, postLength, postContentType);
         }
 
         // Set-Cookie header
@@ -252,6 +298,9 @@ public class XmlHttpProxy {
 
         if(responseCode != 200)
         {
+            // read the error payload, so that the connection can be reused
+            httpclient.release();
+
             if(401== responseCode || 403==responseCode)
             {
                 // authentication required
@@ -298,12 +347,13 @@ public class XmlHttpProxy {
             }
         }
 
-        pipeResponsePayload(out, xslInputStream, paramsMap, in, httpclient);
+        pipeResponsePayload(out, xslInputStream, paramsMap, in, httpclient, responseHandler);
 
 
     }
 
-    private void pipeResponsePayload(OutputStream out, InputStream xslInputStream, Map paramsMap, InputStream in, HttpClient httpclient) {
+    private void pipeResponsePayload(OutputStream out, InputStream xslInputStream, Map paramsMap, InputStream in,
+            HttpClient httpclient, ResponseHandler responseHandler) {
         // read the encoding from the incoming document and default to UTF-8
         // if an encoding is not provided
         String ce = httpclient.getContentEncoding();
@@ -320,24 +370,23 @@ public class XmlHttpProxy {
                 ce = "UTF-8";
             }
         }
-        // get the content type
-        this.contentType = httpclient.getContentType();
-        this.status = httpclient.getResponseCode();
+        // get the content type: kept local, the proxy instance is shared by concurrent requests (async mode)
+        String contentType = httpclient.getContentType();
+        int status = httpclient.getResponseCode();
 
         // write out the content type
         //http://www.ietf.org/rfc/rfc4627.txt
+        if (responseHandler != null) {
+            // the length is only known if the payload is passed through unchanged
+            responseHandler.onResponse(status, contentType, xslInputStream == null ? httpclient.getContentLength() : -1);
+        }
 
         try {
 
-            // response stream
-
-            byte[] buffer = new byte[1024];
-            int read = 0;
+            // response stream, not buffered
             if (xslInputStream == null) {
-                while (true) {
-                    read = in.read(buffer);
-                    if (read <= 0) break;
-                    out.write(buffer, 0, read );
+                if (in != null) {
+                    HttpClient.copy(in, out);
                 }
             } else {
                 transform(in, xslInputStream, paramsMap, out, ce);
@@ -20,6 +20,9 @@
 package org.jboss.as.console.server.proxy;
 
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -27,12 +30,11 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
@@ -43,6 +45,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.PropertyResourceBundle;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -80,6 +83,14 @@ import java.util.logging.Logger;
  *    service.passThrough=true
  * </pre>
  *
+ * Async mode (servlet init params, requires <code>async-supported</code>):<br>
+ * <pre>
+ *    async=true             process requests on a bounded upstream executor instead of the container thread
+ *    async.threads=16       max. number of concurrent upstream calls
+ *    async.queue=64         max. number of requests waiting for an upstream thread, others are rejected with 503
+ *    async.timeout=60000    per request timeout in ms, answered with 504 (also used as upstream read timeout)
+ * </pre>
+ *
  * @author Greg Murray
  * @author Heiko Braun
  */
@@ -110,7 +121,10 @@ public class XmlHttpProxyServlet extends HttpServlet
 
     private static String setCookie;
     private String configResource = null;
-    private String authHeader;
+
+    private boolean async = false;
+    private long asyncTimeout = 60000;
+    private UpstreamExecutor upstream;
 
     public XmlHttpProxyServlet() {
         if (rDebug) {
@@ -185,11 +199,48 @@ public class XmlHttpProxyServlet extends HttpServlet
             xhp = new XmlHttpProxy();
         }
 
+        // size of the keep-alive connection cache used by HttpURLConnection per upstream host
+        String maxConnections = ctx.getInitParameter("upstreamMaxConnections");
+        if (maxConnections != null && System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", maxConnections);
+        }
+
         // config override
         String servletName = config.getServletName();
         String configName = config.getInitParameter("config.name");
         configResource = configName!=null ? configName : DEFAULT_CONFIG;
         //System.out.println("Configure "+servletName + " through "+configResource);
+
+        // async mode
+        async = "true".equals(config.getInitParameter("async"));
+        if (async) {
+            int threads = intParam(config, "async.threads", 16);
+            int queue = intParam(config, "async.queue", 64);
+            asyncTimeout = intParam(config, "async.timeout", 60000);
+            upstream = new UpstreamExecutor(threads, queue);
+            xhp.setTimeouts((int) asyncTimeout, (int) asyncTimeout);
+        }
+    }
+
+    private int intParam(ServletConfig config, String name, int defaultValue) throws ServletException {
+        String value = config.getInitParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException nfe) {
+            throw new ServletException("XmlHttpProxyServlet: intialization error. " + name + " must be a number");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (upstream != null) {
+            upstream.shutdown();
+            upstream = null;
+        }
+        super.destroy();
     }
 
     private void getServices(HttpServletResponse res)
@@ -218,46 +269,97 @@ public class XmlHttpProxyServlet extends HttpServlet
     }
 
     public void doDelete(HttpServletRequest req, HttpServletResponse res) {
-        doProcess(req,res, XmlHttpProxy.DELETE);
+        dispatch(req, res, XmlHttpProxy.DELETE);
     }
 
     public void doGet(HttpServletRequest req, HttpServletResponse res) {
-        doProcess(req,res, XmlHttpProxy.GET);
+        dispatch(req, res, XmlHttpProxy.GET);
     }
 
     public void doPost(HttpServletRequest req, HttpServletResponse res) {
-        doProcess(req,res, XmlHttpProxy.POST);
+        dispatch(req, res, XmlHttpProxy.POST);
     }
 
     public void doPut(HttpServletRequest req, HttpServletResponse res) {
-        doProcess(req,res, XmlHttpProxy.PUT);
+        dispatch(req, res, XmlHttpProxy.PUT);
     }
 
-    public void doProcess(HttpServletRequest req, HttpServletResponse res, String method)
-    {
-
-        boolean isPost = XmlHttpProxy.POST.equals(method);
-
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] bodyContent = null;
+    /**
+     * Processes the request on the container thread or - in async mode - on the upstream executor. In async mode the
+     * container thread is released while waiting for the management endpoint. If the executor is saturated the
+     * request is rejected with 503 right away. Requests which take longer than the configured timeout are answered
+     * with 504.
+     */
+    private void dispatch(final HttpServletRequest req, final HttpServletResponse res, final String method) {
+        if (!async || !req.isAsyncSupported()) {
+            doProcess(req, res, method);
+            return;
+        }
 
-        OutputStream out = null;
-        PrintWriter writer = null;
+        final AsyncContext asyncContext = req.startAsync(req, res);
+        final AtomicBoolean completed = new AtomicBoolean(false);
+        asyncContext.setTimeout(asyncTimeout);
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (completed.compareAndSet(false, true)) {
+                    if (!res.isCommitted()) {
+                        res.setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                    }
+                    asyncContext.complete();
+                }
+            }
 
-        try {
+            @Override
+            public void onError(AsyncEvent event) throws IOException {
+                if (completed.compareAndSet(false, true)) {
+                    asyncContext.complete();
+                }
+            }
 
-            BufferedInputStream in = new BufferedInputStream(req.getInputStream());
-            int next = in.read();
-            while (next > -1) {
-                bos.write(next);
-                next = in.read();
+            @Override
+            public void onComplete(AsyncEvent event) throws IOException {
+                completed.set(true);
             }
 
-            bodyContent = bos.toByteArray();
+            @Override
+            public void onStartAsync(AsyncEvent event) throws IOException {}
+        });
+
+        boolean accepted = upstream.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // skip requests which timed out while waiting in the queue
+                    if (!completed.get()) {
+                        doProcess(req, res, method);
+                    }
+                } catch (RuntimeException e) {
+                    // the response might have been completed by a timeout in the meantime
+                    logMessage("XmlHttpProxyServlet: async processing failed: " + e);
+                } finally {
+                    if (completed.compareAndSet(false, true)) {
+                        asyncContext.complete();
+                    }
+                }
+            }
+        });
 
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (!accepted && completed.compareAndSet(false, true)) {
+            logMessage("XmlHttpProxyServlet: upstream executor saturated, rejecting request");
+            res.setHeader("Retry-After", "2");
+            res.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            asyncContext.complete();
         }
+    }
+
+    public void doProcess(HttpServletRequest req, final HttpServletResponse res, String method)
+    {
+
+        boolean isPost = XmlHttpProxy.POST.equals(method);
+
+        OutputStream out = null;
+        PrintWriter writer = null;
 
         try
         {
@@ -297,7 +399,7 @@ public class XmlHttpProxyServlet extends HttpServlet
             }
             // get the headers to pass through
             Map headers = null;
-            authHeader = null;
+            String authHeader = null;
 
             // Forward all request headers starting with the header token jmaki-
             // and chop off the jmaki-
@@ -471,20 +573,28 @@ public class XmlHttpProxyServlet extends HttpServlet
 
             out = res.getOutputStream();
 
+            // status and headers have to be set before the payload is streamed into the response
+            XmlHttpProxy.ResponseHandler responseHandler = new XmlHttpProxy.ResponseHandler() {
+                @Override
+                public void onResponse(int status, String contentType, int contentLength) {
+                    res.setStatus(status);
+                    if (contentType != null) res.setContentType(contentType);
+                    if (contentLength >= 0) res.setContentLength(contentLength);
+                }
+            };
+
             if (!isPost)
             {
-                xhp.processRequest(urlString, out, xslInputStream, paramsMap, headers, method, userName, password, authHeader);
+                xhp.processRequest(urlString, out, xslInputStream, paramsMap, headers, method, userName, password,
+                        authHeader, responseHandler);
             }
             else
             {
-                if (bodyContent == null)
-                    getLogger().info("XmlHttpProxyServlet attempting to post to url " + urlString + " with no body content");
-                xhp.doPost(urlString, out, xslInputStream, paramsMap, headers, bodyContent, req.getContentType(), userName, password, authHeader);
+                // the request body is streamed to the upstream server
+                xhp.doPost(urlString, out, xslInputStream, paramsMap, headers, req.getInputStream(),
+                        req.getContentLength(), req.getContentType(), userName, password, authHeader, responseHandler);
             }
 
-            res.setContentType(xhp.getContentType());
-            res.setStatus(xhp.getStatus());
-
         }
         catch (Exception iox)
         {
@@ -500,6 +610,10 @@ public class XmlHttpProxyServlet extends HttpServlet
                 res.setHeader("Retry-After", unavailble.getRetryAfter() !=null ? unavailble.getRetryAfter() : "2");
                 res.setStatus(503);
             }
+            else if(iox instanceof SocketTimeoutException)
+            {
+                res.setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+            }
             else if(iox instanceof GenericException)
             {
                 GenericException generic = (GenericException)iox;
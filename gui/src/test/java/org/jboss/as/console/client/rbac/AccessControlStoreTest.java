@@ -0,0 +1,269 @@
+package org.jboss.as.console.client.rbac;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import org.jboss.as.console.client.v3.ResourceDescriptionCache;
+import org.jboss.dmr.client.ModelNode;
+import org.jboss.dmr.client.StaticDmrResponse;
+import org.jboss.dmr.client.dispatch.Action;
+import org.jboss.dmr.client.dispatch.DispatchAsync;
+import org.jboss.dmr.client.dispatch.DispatchRequest;
+import org.jboss.dmr.client.dispatch.Result;
+import org.jboss.dmr.client.dispatch.impl.DMRAction;
+import org.jboss.gwt.flow.client.Cancellable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.jboss.dmr.client.ModelDescriptionConstants.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AccessControlStoreTest {
+
+    private static final String DATASOURCES = "{selected.profile}/subsystem=datasources";
+    private static final String MAIL = "{selected.profile}/subsystem=mail";
+
+    private List<ModelNode> sent;
+    private List<AsyncCallback<Result>> callbacks;
+    private ResourceDescriptionCache cache;
+    private AccessControlStore store;
+
+
+    // ------------------------------------------------------ setup
+
+    @Before
+    public void setUp() {
+        sent = new ArrayList<>();
+        callbacks = new ArrayList<>();
+        cache = mock(ResourceDescriptionCache.class);
+
+        // keeps the callbacks until the test answers them
+        DispatchAsync dispatcher = new DispatchAsync() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <A extends Action<R>, R extends Result> DispatchRequest execute(A action,
+                    AsyncCallback<R> callback) {
+                sent.add(((DMRAction) action).getOperation());
+                callbacks.add((AsyncCallback<Result>) callback);
+                return null;
+            }
+
+            @Override
+            public <A extends Action<R>, R extends Result> DispatchRequest undo(A action, R result,
+                    AsyncCallback<Void> callback) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void setProperty(String key, String value) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void clearProperty(String key) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        store = new AccessControlStore(dispatcher, cache, 3);
+    }
+
+
+    // ------------------------------------------------------ fetch
+
+    @Test
+    public void fetch() {
+        Recorder recorder = fetch(DATASOURCES, rrd("datasources"));
+        assertEquals(1, sent.size());
+        assertNull(recorder.result);
+
+        respond(0, description("datasources"));
+        assertEquals(1, recorder.result.getFetched());
+        assertEquals(description("datasources"), recorder.result.getPayloads().get(0));
+        assertEquals(1, store.size());
+        verify(cache).put(DATASOURCES, rrd("datasources"), description("datasources"));
+
+        // served from memory
+        Recorder again = fetch(DATASOURCES, rrd("datasources"));
+        assertEquals(1, sent.size());
+        assertEquals(0, again.result.getFetched());
+        assertEquals(description("datasources"), again.result.getPayloads().get(0));
+    }
+
+    @Test
+    public void fetchFromCache() {
+        when(cache.get(rrd("datasources"))).thenReturn(description("datasources"));
+
+        Recorder recorder = fetch(DATASOURCES, rrd("datasources"));
+        assertTrue(sent.isEmpty());
+        assertEquals(description("datasources"), recorder.result.getPayloads().get(0));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void joinPending() {
+        Recorder first = fetch(DATASOURCES, rrd("datasources"));
+        Recorder second = fetch(DATASOURCES, rrd("datasources"));
+        assertEquals(1, sent.size());
+
+        respond(0, description("datasources"));
+        assertEquals(description("datasources"), first.result.getPayloads().get(0));
+        assertEquals(description("datasources"), second.result.getPayloads().get(0));
+        assertEquals(0, second.result.getFetched());
+    }
+
+    @Test
+    public void cancel() {
+        Recorder first = new Recorder();
+        Cancellable handle = store.fetch(Collections.singletonList(DATASOURCES),
+                Collections.singletonList(rrd("datasources")), first);
+        Recorder second = fetch(DATASOURCES, rrd("datasources"));
+        handle.cancel();
+
+        respond(0, description("datasources"));
+        assertNull(first.result);
+        assertNotNull(second.result);
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void failure() {
+        Recorder recorder = fetch(DATASOURCES, rrd("datasources"));
+        callbacks.get(0).onSuccess(StaticDmrResponse.failure("denied"));
+        assertTrue(recorder.result.isFailure());
+        assertEquals("denied", recorder.result.getFailureDescription());
+        assertNull(recorder.result.getPayloads());
+        assertEquals(0, store.size());
+
+        // nothing is pending anymore
+        fetch(DATASOURCES, rrd("datasources"));
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void transportError() {
+        Recorder recorder = fetch(DATASOURCES, rrd("datasources"));
+        callbacks.get(0).onFailure(new RuntimeException("offline"));
+        assertEquals("offline", recorder.caught.getMessage());
+
+        fetch(DATASOURCES, rrd("datasources"));
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void wildcard() {
+        ModelNode operation = rrd("datasources", "data-source", "*");
+        ModelNode list = new ModelNode();
+        ModelNode other = list.add();
+        other.get(ADDRESS).add("subsystem", "mail");
+        other.get(RESULT).set(description("mail"));
+        ModelNode match = list.add();
+        match.get(ADDRESS).add("subsystem", "datasources").add("data-source", "*");
+        match.get(RESULT).set(description("data-source"));
+
+        Recorder recorder = fetch(DATASOURCES + "/data-source=*", operation);
+        respond(0, list);
+        assertEquals(description("data-source"), recorder.result.getPayloads().get(0));
+    }
+
+
+    // ------------------------------------------------------ invalidation
+
+    @Test
+    public void invalidate() {
+        fetch(DATASOURCES, rrd("datasources"));
+        respond(0, description("datasources"));
+        fetch(MAIL, rrd("mail"));
+        respond(1, description("mail"));
+        assertEquals(2, store.size());
+
+        store.invalidate(DATASOURCES);
+        assertEquals(1, store.size());
+        // also removes the entries which are no longer (or not yet) in memory
+        verify(cache).invalidate(DATASOURCES);
+        verify(cache, never()).invalidate(MAIL);
+
+        fetch(DATASOURCES, rrd("datasources"));
+        assertEquals(3, sent.size());
+        fetch(MAIL, rrd("mail"));
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    public void bounded() {
+        for (int i = 0; i < 5; i++) {
+            fetch(DATASOURCES, rrd("ds" + i));
+            respond(i, description("ds" + i));
+        }
+        assertEquals(3, store.size());
+
+        // the least recently used entries were dropped
+        fetch(DATASOURCES, rrd("ds4"));
+        assertEquals(5, sent.size());
+        fetch(DATASOURCES, rrd("ds0"));
+        assertEquals(6, sent.size());
+    }
+
+    @Test
+    public void clear() {
+        fetch(DATASOURCES, rrd("datasources"));
+        respond(0, description("datasources"));
+        store.clear();
+        assertEquals(0, store.size());
+        verify(cache).clear();
+    }
+
+
+    // ------------------------------------------------------ helpers
+
+    private Recorder fetch(String address, ModelNode operation) {
+        Recorder recorder = new Recorder();
+        store.fetch(Collections.singletonList(address), Collections.singletonList(operation), recorder);
+        return recorder;
+    }
+
+    private void respond(int index, ModelNode... results) {
+        ModelNode composite = new ModelNode();
+        for (int i = 0; i < results.length; i++) {
+            composite.get("step-" + (i + 1), OUTCOME).set(SUCCESS);
+            composite.get("step-" + (i + 1), RESULT).set(results[i]);
+        }
+        callbacks.get(index).onSuccess(StaticDmrResponse.ok(composite));
+    }
+
+    private static ModelNode rrd(String subsystem, String... address) {
+        ModelNode operation = new ModelNode();
+        operation.get(OP).set(READ_RESOURCE_DESCRIPTION_OPERATION);
+        operation.get(ADDRESS).add("subsystem", subsystem);
+        for (int i = 0; i < address.length; i += 2) {
+            operation.get(ADDRESS).add(address[i], address[i + 1]);
+        }
+        operation.get("access-control").set("trim-descriptions");
+        return operation;
+    }
+
+    private static ModelNode description(String name) {
+        ModelNode description = new ModelNode();
+        description.get(DESCRIPTION).set(name);
+        description.get("access-control", "default", "read").set(true);
+        return description;
+    }
+
+    private static class Recorder implements AsyncCallback<AccessControlStore.Result> {
+
+        AccessControlStore.Result result;
+        Throwable caught;
+
+        @Override
+        public void onSuccess(AccessControlStore.Result result) {
+            this.result = result;
+        }
+
+        @Override
+        public void onFailure(Throwable caught) {
+            this.caught = caught;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.jboss.as.console.client.rbac;
+
+import org.jboss.ballroom.client.rbac.AuthorisationDecision;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies that the decisions of a sealed context, which are answered by the {@link PermissionMatrix}, match the
+ * evaluation over the plain constraints.
+ */
+public class SecurityContextImplTest {
+
+    private static final String SUBSYSTEM = "{selected.profile}/subsystem=datasources";
+    private static final String DATA_SOURCE = "{selected.profile}/subsystem=datasources/data-source=*";
+    private static final String JCA = "{selected.profile}/subsystem=jca";
+    private static final List<String> ATTRIBUTES = Arrays.asList("jndi-name", "enabled", "archive-validation",
+            "undeclared");
+    private static final List<String> OPERATIONS = Arrays.asList("add", "remove", "flush");
+
+    @Test
+    public void sameDecisionsAsConstraints() {
+        // all combinations of resource and attribute permissions
+        for (int bits = 0; bits < 1 << 9; bits++) {
+            SecurityContextImpl context = context(bits);
+            String scenario = "scenario " + Integer.toBinaryString(bits);
+
+            assertDecision(scenario, expected(context, false, new SecurityContextImpl.Priviledge() {
+                @Override
+                public boolean isGranted(Constraints c) {
+                    return c.isReadResource();
+                }
+            }), context.getReadPriviledge());
+            assertDecision(scenario, expected(context, false, new SecurityContextImpl.Priviledge() {
+                @Override
+                public boolean isGranted(Constraints c) {
+                    return c.isWriteResource();
+                }
+            }), context.getWritePriviledge());
+
+            for (final String attribute : ATTRIBUTES) {
+                String label = scenario + ", " + attribute;
+                assertDecision(label, expected(context, true, new SecurityContextImpl.Priviledge() {
+                    @Override
+                    public boolean isGranted(Constraints c) {
+                        return c.isAttributeRead(attribute);
+                    }
+                }), context.getAttributeReadPriviledge(attribute));
+                assertDecision(label, expected(context, true, new SecurityContextImpl.Priviledge() {
+                    @Override
+                    public boolean isGranted(Constraints c) {
+                        return c.isAttributeWrite(attribute);
+                    }
+                }), context.getAttributeWritePriviledge(attribute));
+            }
+
+            for (String address : Arrays.asList(SUBSYSTEM, DATA_SOURCE)) {
+                Constraints constraints = context.accessConstraints.get(address);
+                assertEquals(scenario, constraints.isReadResource(), context.getReadPrivilege(address).isGranted());
+                assertEquals(scenario, constraints.isWriteResource(), context.getWritePrivilege(address).isGranted());
+                for (String operation : OPERATIONS) {
+                    assertEquals(scenario + ", " + operation, constraints.isOperationExec(address, operation),
+                            context.getOperationPriviledge(address, operation).isGranted());
+                }
+            }
+            for (String address : Arrays.asList(SUBSYSTEM, DATA_SOURCE, JCA)) {
+                Constraints constraints = context.accessConstraints.containsKey(address) ?
+                        context.accessConstraints.get(address) : context.optionalConstraints.get(address);
+                for (String attribute : constraints.getAttributeNames()) {
+                    Constraints.AttributePerm perm = constraints.attributePermissions.get(attribute);
+                    assertEquals(scenario + ", " + attribute, perm.isRead(),
+                            context.getAttributeReadPriviledge(address, attribute).isGranted());
+                    assertEquals(scenario + ", " + attribute, perm.isWrite(),
+                            context.getAttributeWritePriviledge(address, attribute).isGranted());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void decisionsAreNotShared() {
+        SecurityContextImpl context = context(0);
+
+        AuthorisationDecision first = context.getReadPriviledge();
+        assertFalse(first.isGranted());
+        first.setGranted(true);
+        first.getErrorMessages().clear();
+
+        AuthorisationDecision second = context.getReadPriviledge();
+        assertNotSame(first, second);
+        assertFalse(second.isGranted());
+        assertEquals(Arrays.asList(SUBSYSTEM), second.getErrorMessages());
+
+        AuthorisationDecision operation = context.getOperationPriviledge(SUBSYSTEM, "flush");
+        assertFalse(operation.isGranted());
+        operation.setGranted(true);
+        assertFalse(context.getOperationPriviledge(SUBSYSTEM, "flush").isGranted());
+        assertFalse(context.getWritePrivilege(DATA_SOURCE).isGranted());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void missingConstraints() {
+        SecurityContextImpl context = context(0);
+        context.getReadPrivilege("{selected.profile}/subsystem=undertow");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void undeclaredAttribute() {
+        SecurityContextImpl context = context(0);
+        context.getAttributeReadPriviledge(SUBSYSTEM, "undeclared");
+    }
+
+
+    // ------------------------------------------------------ helper methods
+
+    /**
+     * Builds a sealed context whose permissions are taken from the bits of {@code scenario}.
+     */
+    private SecurityContextImpl context(int scenario) {
+        Set<ResourceRef> required = new LinkedHashSet<ResourceRef>();
+        required.add(new ResourceRef(SUBSYSTEM));
+        required.add(new ResourceRef(DATA_SOURCE));
+        required.add(new ResourceRef("opt:/" + JCA));
+        SecurityContextImpl context = new SecurityContextImpl("datasources", required);
+
+        Constraints subsystem = new Constraints(SUBSYSTEM);
+        subsystem.setReadResource(bit(scenario, 0));
+        subsystem.setWriteResource(bit(scenario, 1));
+        subsystem.setAttributeRead("enabled", bit(scenario, 2));
+        subsystem.setOperationExec(SUBSYSTEM, "flush", bit(scenario, 3));
+        context.setConstraints(SUBSYSTEM, subsystem);
+
+        Constraints dataSource = new Constraints(DATA_SOURCE);
+        dataSource.setReadResource(bit(scenario, 4));
+        dataSource.setWriteResource(bit(scenario, 5));
+        dataSource.setAttributeRead("jndi-name", true);
+        dataSource.setAttributeWrite("jndi-name", bit(scenario, 6));
+        dataSource.setAttributeWrite("enabled", bit(scenario, 7));
+        dataSource.setOperationExec(DATA_SOURCE, "add", true);
+        dataSource.setOperationExec(DATA_SOURCE, "remove", bit(scenario, 3));
+        context.setConstraints(DATA_SOURCE, dataSource);
+
+        Constraints jca = new Constraints(JCA);
+        jca.setReadResource(true);
+        jca.setAttributeRead("archive-validation", bit(scenario, 8));
+        context.setOptionalConstraints(JCA, jca);
+
+        context.seal();
+        return context;
+    }
+
+    private static boolean bit(int scenario, int index) {
+        return (scenario & (1 << index)) != 0;
+    }
+
+    /**
+     * The evaluation over the plain constraints: granted if the privilege holds true for all required resources,
+     * otherwise the address of the first resource which denies it is added as error message.
+     */
+    private AuthorisationDecision expected(SecurityContextImpl context, boolean includeOptional,
+            SecurityContextImpl.Priviledge priviledge) {
+        AuthorisationDecision decision = new AuthorisationDecision(true);
+        for (ResourceRef ref : context.requiredResources) {
+            if (ref.optional) {
+                continue;
+            }
+            Map<String, Constraints> constraints = includeOptional && !context.accessConstraints
+                    .containsKey(ref.address) ? context.optionalConstraints : context.accessConstraints;
+            if (!priviledge.isGranted(constraints.get(ref.address))) {
+                decision.getErrorMessages().add(ref.address);
+                decision.setGranted(false);
+                break;
+            }
+        }
+        return decision;
+    }
+
+    private void assertDecision(String scenario, AuthorisationDecision expected, AuthorisationDecision actual) {
+        assertEquals(scenario, expected.isGranted(), actual.isGranted());
+        assertEquals(scenario, expected.getErrorMessages(), actual.getErrorMessages());
+    }
+}
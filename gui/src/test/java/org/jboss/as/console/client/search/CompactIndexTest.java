@@ -0,0 +1,88 @@
+package org.jboss.as.console.client.search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.SortedMap;
+
+import static org.junit.Assert.*;
+
+public class CompactIndexTest {
+
+    private static final String LUNR = "0.5.6";
+    private static final String FIELDS = "[{\"name\":\"keywords\",\"boost\":3},{\"name\":\"token\",\"boost\":1}]";
+    private static final String PIPELINE = "[\"trimmer\",\"stopWordFilter\",\"stemmer\"]";
+
+    private CompactIndex index;
+
+    @Before
+    public void setUp() {
+        index = new CompactIndex();
+        index.setHeader(LUNR, FIELDS, "id", PIPELINE);
+        index.add("datasourc", "0", 0.5);
+        index.add("datasourc", "12", 1);
+        index.add("datasourc", "1234567", 0.33333);
+        index.add("data", "3", 0.25);
+        index.add("jdbc", "12", 0.125);
+        index.add("d\u00e9j\u00e0", "5", 1);
+        index.add("\u30ed\u30b0", "7", 0.7071);
+    }
+
+    @Test
+    public void roundTrip() {
+        CompactIndex parsed = CompactIndex.parse(index.serialize(), LUNR);
+        assertNotNull(parsed);
+        assertEquals(LUNR, parsed.getLunrVersion());
+        assertEquals(FIELDS, parsed.getFields());
+        assertEquals("id", parsed.getRef());
+        assertEquals(PIPELINE, parsed.getPipeline());
+        assertEquals(index.getPostings().keySet(), parsed.getPostings().keySet());
+
+        for (String token : index.getPostings().keySet()) {
+            SortedMap<Long, Double> expected = index.getPostings().get(token);
+            SortedMap<Long, Double> actual = parsed.getPostings().get(token);
+            assertEquals(token, expected.keySet(), actual.keySet());
+            for (Long ref : expected.keySet()) {
+                // term frequencies are rounded to 1/10000
+                assertEquals(token + "/" + ref, expected.get(ref), actual.get(ref), 0.00005);
+            }
+        }
+        assertEquals(index.serialize(), parsed.serialize());
+    }
+
+    @Test
+    public void frontCoding() {
+        String[] lines = index.serialize().split("\n");
+        // the length of the prefix shared with the predecessor is encoded as char code offset by 48
+        assertEquals("0data 4sourc 1\u00e9j\u00e0 0jdbc 0\u30ed\u30b0", lines[5]);
+    }
+
+    @Test
+    public void empty() {
+        CompactIndex empty = new CompactIndex();
+        empty.setHeader(LUNR, "[]", "id", "[]");
+        CompactIndex parsed = CompactIndex.parse(empty.serialize(), LUNR);
+        assertNotNull(parsed);
+        assertTrue(parsed.getPostings().isEmpty());
+    }
+
+    @Test
+    public void otherLunrVersion() {
+        assertNull(CompactIndex.parse(index.serialize(), "0.6.0"));
+    }
+
+    @Test
+    public void otherFormat() {
+        // layout 2 was a JSON array
+        assertNull(CompactIndex.parse("[2,\"0.5.6\",[],\"id\",[],\"0data\",\"3:1\"]", LUNR));
+        assertNull(CompactIndex.parse(index.serialize().replaceFirst("3", "4"), LUNR));
+    }
+
+    @Test
+    public void corrupt() {
+        String value = index.serialize();
+        assertNull(CompactIndex.parse(value.substring(0, value.lastIndexOf('\n')), LUNR));
+        assertNull(CompactIndex.parse(value.replace(':', '!'), LUNR));
+        assertNull(CompactIndex.parse(value.replace(";", ""), LUNR));
+    }
+}
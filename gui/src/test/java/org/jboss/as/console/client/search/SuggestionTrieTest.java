@@ -0,0 +1,52 @@
+package org.jboss.as.console.client.search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class SuggestionTrieTest {
+
+    private SuggestionTrie trie;
+
+    @Before
+    public void setUp() {
+        trie = new SuggestionTrie();
+        trie.addToken("datasources", asList("jdbc", "data source", "xa"));
+        trie.addToken("data-grid", asList("infinispan", "cache"));
+        trie.addToken("logging", asList("log", "handler", "category"));
+        trie.addToken("jms-destinations", asList("queue", "topic"));
+        trie.addToken("server-groups", Collections.<String>emptyList());
+        trie.freeze();
+    }
+
+    @Test
+    public void keywordsRankBeforeTokens() {
+        // 'data' is a keyword of datasources, but only part of the token data-grid
+        assertEquals(asList("datasources", "data-grid"), trie.lookup("data", 10));
+    }
+
+    @Test
+    public void prefix() {
+        assertEquals(asList("logging"), trie.lookup("lo", 10));
+        assertEquals(asList("logging"), trie.lookup("HAND", 10));
+        assertEquals(asList("jms-destinations"), trie.lookup("que", 10));
+        assertEquals(asList("server-groups"), trie.lookup("group", 10));
+    }
+
+    @Test
+    public void conjunction() {
+        assertEquals(asList("datasources"), trie.lookup("data jd", 10));
+        assertTrue(trie.lookup("data queue", 10).isEmpty());
+    }
+
+    @Test
+    public void limitAndMisses() {
+        assertEquals(1, trie.lookup("data", 1).size());
+        assertTrue(trie.lookup("foo", 10).isEmpty());
+        assertTrue(trie.lookup("  ", 10).isEmpty());
+    }
+}
@@ -0,0 +1,222 @@
+package org.jboss.as.console.client.shared.runtime;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import org.jboss.as.console.client.core.BootstrapContext;
+import org.jboss.as.console.client.v3.dmr.AddressTemplate;
+import org.jboss.dmr.client.ModelNode;
+import org.jboss.dmr.client.StaticDispatcher;
+import org.jboss.dmr.client.StaticDmrResponse;
+import org.jboss.dmr.client.dispatch.Action;
+import org.jboss.dmr.client.dispatch.DispatchAsync;
+import org.jboss.dmr.client.dispatch.DispatchError;
+import org.jboss.dmr.client.dispatch.DispatchRequest;
+import org.jboss.dmr.client.dispatch.Result;
+import org.jboss.dmr.client.dispatch.impl.DMRAction;
+import org.junit.Before;
+import org.junit.Test;
+import org.useware.kernel.gui.behaviour.StatementContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.jboss.dmr.client.ModelDescriptionConstants.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MetricSamplerTest {
+
+    private static final AddressTemplate POOL = AddressTemplate.of(
+            "subsystem=datasources/data-source=ExampleDS/statistics=pool");
+    private static final MetricSampler.Target SERVER_ONE = MetricSampler.Target.server("master", "server-one");
+    private static final MetricSampler.Target SERVER_TWO = MetricSampler.Target.server("master", "server-two");
+
+    private StaticDispatcher dispatcher;
+    private MetricSampler sampler;
+
+    @Before
+    public void setUp() {
+        dispatcher = new StaticDispatcher();
+        sampler = sampler(dispatcher);
+    }
+
+    @Test
+    public void mergeReads() {
+        Recorder active = new Recorder();
+        Recorder available = new Recorder();
+        sampler.subscribe(POOL, Collections.singletonList("ActiveCount"), 1000,
+                Arrays.asList(SERVER_ONE, SERVER_TWO), active);
+        sampler.subscribe(POOL, Collections.singletonList("AvailableCount"), 1000,
+                Collections.singletonList(SERVER_ONE), available);
+
+        ModelNode poolOne = new ModelNode();
+        poolOne.get("ActiveCount").set(1);
+        poolOne.get("AvailableCount").set(9);
+        poolOne.get("MaxUsedCount").set(3);
+        dispatcher.push(StaticDmrResponse.ok(steps(poolOne, new ModelNode().set(2))));
+        sampler.sample();
+
+        // one step per server
+        List<ModelNode> steps = dispatcher.getLastOperation().get(STEPS).asList();
+        assertEquals(2, steps.size());
+        assertEquals(READ_RESOURCE_OPERATION, steps.get(0).get(OP).asString());
+        assertEquals("server-one", steps.get(0).get(ADDRESS).asList().get(1).asProperty().getValue().asString());
+        assertEquals(READ_ATTRIBUTE_OPERATION, steps.get(1).get(OP).asString());
+        assertEquals("ActiveCount", steps.get(1).get(NAME).asString());
+        assertEquals("server-two", steps.get(1).get(ADDRESS).asList().get(1).asProperty().getValue().asString());
+
+        // each subscription gets its own attributes
+        assertEquals(Arrays.asList(SERVER_ONE, SERVER_TWO), active.targets);
+        assertEquals(1, active.values.get(0).get("ActiveCount").asInt());
+        assertFalse(active.values.get(0).hasDefined("AvailableCount"));
+        assertEquals(2, active.values.get(1).get("ActiveCount").asInt());
+        assertEquals(9, available.values.get(0).get("AvailableCount").asInt());
+        assertFalse(available.values.get(0).hasDefined("ActiveCount"));
+    }
+
+    @Test
+    public void intervals() {
+        Recorder fast = new Recorder();
+        Recorder slow = new Recorder();
+        sampler.subscribe(POOL, Collections.singletonList("ActiveCount"), 1000,
+                Collections.singletonList(SERVER_ONE), fast);
+        sampler.subscribe(POOL, Collections.singletonList("ActiveCount"), 2500,
+                Collections.singletonList(SERVER_TWO), slow);
+
+        dispatcher.push(StaticDmrResponse.ok(steps(new ModelNode().set(1), new ModelNode().set(2))));
+        sampler.sample();
+        dispatcher.push(StaticDmrResponse.ok(steps(new ModelNode().set(1))));
+        sampler.tick();
+        dispatcher.push(StaticDmrResponse.ok(steps(new ModelNode().set(1))));
+        sampler.tick();
+        dispatcher.push(StaticDmrResponse.ok(steps(new ModelNode().set(1), new ModelNode().set(2))));
+        sampler.tick();
+
+        assertEquals(4, fast.values.size());
+        assertEquals(2, slow.values.size());
+    }
+
+    @Test
+    public void pauseAndCancel() {
+        Recorder recorder = new Recorder();
+        MetricSampler.Subscription subscription = sampler.subscribe(POOL, Collections.singletonList("ActiveCount"),
+                1000, Collections.singletonList(SERVER_ONE), recorder);
+
+        // nothing is read while paused (the dispatcher would fail without a result)
+        subscription.pause();
+        sampler.tick();
+        assertTrue(recorder.values.isEmpty());
+
+        subscription.resume();
+        dispatcher.push(StaticDmrResponse.ok(steps(new ModelNode().set(1))));
+        sampler.sample();
+        assertEquals(1, recorder.values.size());
+
+        subscription.cancel();
+        assertEquals(0, sampler.size());
+        assertFalse(sampler.tick());
+    }
+
+    @Test
+    public void failedStep() {
+        Recorder recorder = new Recorder();
+        sampler.subscribe(POOL, Collections.singletonList("ActiveCount"), 1000,
+                Arrays.asList(SERVER_ONE, SERVER_TWO), recorder);
+
+        ModelNode failed = new ModelNode();
+        failed.get(OUTCOME).set("failed");
+        failed.get(FAILURE_DESCRIPTION).set("Server not running");
+        ModelNode result = steps(new ModelNode().set(1));
+        result.get("step-2").set(failed);
+        dispatcher.push(StaticDmrResponse.ok(result));
+        sampler.sample();
+
+        assertEquals(Collections.singletonList(SERVER_ONE), recorder.targets);
+        assertEquals(Collections.singletonList("Server not running"), recorder.failures);
+    }
+
+    @Test
+    public void failedComposite() {
+        // composites fail with HTTP 500 as soon as one step fails
+        StaticDispatcher singleOnly = new StaticDispatcher() {
+            @Override
+            public <A extends Action<R>, R extends Result> DispatchRequest execute(A action,
+                    AsyncCallback<R> callback) {
+                if (COMPOSITE.equals(((DMRAction) action).getOperation().get(OP).asString())) {
+                    callback.onFailure(new DispatchError("Composite failed", 500));
+                    return null;
+                }
+                return super.execute(action, callback);
+            }
+        };
+        sampler = sampler(singleOnly);
+        Recorder recorder = new Recorder();
+        sampler.subscribe(POOL, Collections.singletonList("ActiveCount"), 1000,
+                Arrays.asList(SERVER_ONE, SERVER_TWO), recorder);
+
+        // the reads are repeated one by one (results are popped from a stack)
+        singleOnly.push(StaticDmrResponse.failure("Server not running"));
+        singleOnly.push(StaticDmrResponse.ok(new ModelNode().set(1)));
+        sampler.sample();
+
+        assertEquals("server-two", singleOnly.getLastOperation().get(ADDRESS).asList().get(1).asProperty().getValue()
+                .asString());
+        assertEquals(Collections.singletonList(SERVER_ONE), recorder.targets);
+        assertEquals(1, recorder.values.get(0).get("ActiveCount").asInt());
+        assertEquals(Collections.singletonList("Server not running"), recorder.failures);
+
+        // polling goes on with composites
+        singleOnly.push(StaticDmrResponse.ok(new ModelNode().set(2)));
+        singleOnly.push(StaticDmrResponse.ok(new ModelNode().set(1)));
+        sampler.tick();
+        assertEquals(Arrays.asList(SERVER_ONE, SERVER_ONE, SERVER_TWO), recorder.targets);
+    }
+
+
+    // ------------------------------------------------------ helper methods
+
+    private MetricSampler sampler(DispatchAsync dispatcher) {
+        BootstrapContext bootstrap = mock(BootstrapContext.class);
+        when(bootstrap.isStandalone()).thenReturn(false);
+
+        return new MetricSampler(dispatcher, mock(Scheduler.class), mock(StatementContext.class), null, bootstrap) {
+            @Override
+            protected boolean isPageHidden() {
+                return false;
+            }
+        };
+    }
+
+    private ModelNode steps(ModelNode... results) {
+        ModelNode node = new ModelNode();
+        for (int i = 0; i < results.length; i++) {
+            ModelNode step = new ModelNode();
+            step.get(OUTCOME).set(SUCCESS);
+            step.get(RESULT).set(results[i]);
+            node.get("step-" + (i + 1)).set(step);
+        }
+        return node;
+    }
+
+
+    private static class Recorder implements MetricSampler.Callback {
+
+        final List<MetricSampler.Target> targets = new ArrayList<>();
+        final List<ModelNode> values = new ArrayList<>();
+        final List<String> failures = new ArrayList<>();
+
+        @Override
+        public void onSample(MetricSampler.Target target, ModelNode values) {
+            this.targets.add(target);
+            this.values.add(values);
+        }
+
+        @Override
+        public void onError(MetricSampler.Target target, String failure) {
+            failures.add(failure);
+        }
+    }
+}
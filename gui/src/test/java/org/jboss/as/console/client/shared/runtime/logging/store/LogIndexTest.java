@@ -0,0 +1,83 @@
+package org.jboss.as.console.client.shared.runtime.logging.store;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LogIndexTest {
+
+    private static final int ERROR = LogLevel.ERROR.mask();
+    private static final int INFO = LogLevel.INFO.mask();
+
+    @Test
+    public void completeBlocks() {
+        LineBuffer buffer = new LineBuffer();
+        buffer.resize(42);
+        buffer.put(false, 0, LogIndex.BLOCK_SIZE, lines(0, LogIndex.BLOCK_SIZE, "INFO", "org.jboss.as"));
+        buffer.put(false, LogIndex.BLOCK_SIZE, 10, lines(LogIndex.BLOCK_SIZE, 5, "INFO", "org.jboss.as"));
+        LogIndex index = buffer.getIndex();
+
+        assertFalse(index.mayContain(false, 0, buffer.getLineCount(), ERROR, null));
+        assertTrue(index.mayContain(false, 0, buffer.getLineCount(), INFO | ERROR, null));
+        assertTrue(index.mayContain(false, 0, buffer.getLineCount(), 0, "org.jboss"));
+        assertFalse(index.mayContain(false, 0, buffer.getLineCount(), 0, "com.acme"));
+
+        // the last block is complete since the end of the file was reached
+        assertEquals(LogIndex.BLOCK_SIZE + 5, buffer.getLineCount());
+        assertFalse(index.mayContain(false, 1, buffer.getLineCount(), ERROR, null));
+
+        // unknown blocks and blocks counted from the tail
+        assertTrue(index.mayContain(false, 2, -1, ERROR, null));
+        assertTrue(index.mayContain(true, 0, -1, ERROR, null));
+    }
+
+    @Test
+    public void incompleteBlock() {
+        LineBuffer buffer = new LineBuffer();
+        buffer.resize(42);
+        buffer.put(true, 0, 10, lines(0, 10, "INFO", "org.jboss.as"));
+
+        assertTrue(buffer.getIndex().mayContain(true, 0, buffer.getLineCount(), ERROR, null));
+    }
+
+    @Test
+    public void growingFile() {
+        LineBuffer buffer = new LineBuffer();
+        buffer.resize(42);
+        buffer.put(false, 0, 10, lines(0, 10, "INFO", "org.jboss.as"));
+        buffer.put(true, 0, 10, lines(0, 10, "INFO", "org.jboss.as"));
+        assertEquals(2, buffer.getIndex().size());
+
+        buffer.resize(84);
+        assertEquals(1, buffer.getIndex().size());
+
+        buffer.resize(21);
+        assertEquals(0, buffer.getIndex().size());
+    }
+
+    @Test
+    public void accept() {
+        String line = "2015-03-02 10:15:30,123 WARNING [org.jboss.as.server] (MSC service thread 1-2) Something";
+        assertTrue(LogIndex.accept(line, 0, null));
+        assertTrue(LogIndex.accept(line, LogLevel.WARN.mask(), null));
+        assertTrue(LogIndex.accept(line, 0, "org.jboss"));
+        assertFalse(LogIndex.accept(line, ERROR, null));
+        assertFalse(LogIndex.accept(line, 0, "com.acme"));
+
+        String stackTrace = "\tat org.jboss.as.server.Main.main(Main.java:42)";
+        assertTrue(LogIndex.accept(stackTrace, 0, null));
+        assertFalse(LogIndex.accept(stackTrace, ERROR, null));
+        assertTrue(LogIndex.accept("10:15:30.123 ERROR [com.acme] (default task-1) Boom", ERROR, "com.acme"));
+    }
+
+    private List<String> lines(int first, int count, String level, String category) {
+        List<String> lines = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            lines.add("2015-03-02 10:15:30,123 " + level + "  [" + category + "] (main) line " + i);
+        }
+        return lines;
+    }
+}
@@ -9,6 +9,7 @@ import org.jboss.dmr.client.StaticDmrResponse;
 import org.jboss.gwt.circuit.NoopChannel;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.util.Collections;
 import java.util.LinkedList;
@@ -17,22 +18,33 @@ import java.util.List;
 import static org.jboss.as.console.client.shared.runtime.logging.viewer.Direction.*;
 import static org.jboss.dmr.client.ModelDescriptionConstants.RESULT;
 import static org.junit.Assert.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 public class LogStoreTest {
 
     private StaticDispatcher dispatcher;
+    private Scheduler scheduler;
     private LogStore store;
+    private boolean hidden;
 
     @Before
     public void setUp() {
         BootstrapContext bootstrap = mock(BootstrapContext.class);
-        Scheduler scheduler = mock(Scheduler.class);
+        scheduler = mock(Scheduler.class);
         when(bootstrap.isStandalone()).thenReturn(true);
 
         dispatcher = new StaticDispatcher();
-        store = new LogStore(null, dispatcher, scheduler, bootstrap);
+        hidden = false;
+        store = new LogStore(null, dispatcher, scheduler, bootstrap) {
+            @Override
+            protected boolean isPageHidden() {
+                return hidden;
+            }
+
+            @Override
+            protected void observePageVisibility() {
+            }
+        };
     }
 
 
@@ -254,14 +266,13 @@ public class LogStoreTest {
         assertFalse(activeLogFile.isStale());
 
         // Next
-        dispatcher.push(StaticDmrResponse.ok(comp(logFileNodes("server.log"), linesNode(2))));
         store.navigate(new NavigateInLogFile(NEXT), NoopChannel.INSTANCE);
 
-        // 3.1 verify DMR operation
+        // 3.1 verify that the page was taken from the buffer (no new DMR operation)
         operation = dispatcher.getLastOperation().get("steps").asList().get(1);
         assertNotNull(operation);
         assertTrue(operation.get("tail").asBoolean());
-        assertEquals(2, operation.get("skip").asInt());
+        assertEquals(4, operation.get("skip").asInt());
 
         // 3.2 verify log file state
         activeLogFile = store.getActiveLogFile();
@@ -433,14 +444,13 @@ public class LogStoreTest {
         assertFalse(activeLogFile.isStale());
 
         // Previous
-        dispatcher.push(StaticDmrResponse.ok(comp(logFileNodes("server.log"), linesNode(2))));
         store.navigate(new NavigateInLogFile(PREVIOUS), NoopChannel.INSTANCE);
 
-        // 3.1 verify DMR operation
+        // 3.1 verify that the page was taken from the buffer (no new DMR operation)
         operation = dispatcher.getLastOperation().get("steps").asList().get(1);
         assertNotNull(operation);
         assertFalse(operation.get("tail").asBoolean());
-        assertEquals(2, operation.get("skip").asInt());
+        assertEquals(4, operation.get("skip").asInt());
 
         // 3.2 verify log file state
         activeLogFile = store.getActiveLogFile();
@@ -455,6 +465,113 @@ public class LogStoreTest {
         assertFalse(activeLogFile.isStale());
     }
 
+    @Test
+    public void scrollFetchesMissingLines() {
+        LogFile logFile = new LogFile("server.log", lines(2), 0);
+        store.pageSize = 2;
+        store.states.put(logFile.getName(), logFile);
+        store.activate(logFile);
+
+        // Head: line 0, 1
+        dispatcher.push(StaticDmrResponse.ok(comp(logFileSize("server.log", 42), linesNode(0, 1))));
+        store.navigate(new NavigateInLogFile(HEAD), NoopChannel.INSTANCE);
+
+        // Scroll down one line: only line 2 is read
+        dispatcher.push(StaticDmrResponse.ok(comp(logFileSize("server.log", 42), linesNode(2, 2))));
+        store.scroll(new ScrollLogFile(1), NoopChannel.INSTANCE);
+
+        ModelNode operation = dispatcher.getLastOperation().get("steps").asList().get(1);
+        assertFalse(operation.get("tail").asBoolean());
+        assertEquals(2, operation.get("skip").asInt());
+        assertEquals(1, operation.get("lines").asInt());
+        assertLines(logFile.getContent(), 1, 2);
+        assertEquals(Position.HEAD, logFile.getReadFrom());
+        assertEquals(1, logFile.getSkipped());
+
+        // Scroll up again: served from the buffer
+        store.scroll(new ScrollLogFile(-1), NoopChannel.INSTANCE);
+        assertLines(logFile.getContent(), 0, 1);
+        assertTrue(logFile.isHead());
+    }
+
+    @Test
+    public void jumpToLine() {
+        LogFile logFile = new LogFile("server.log", lines(2), 0);
+        store.pageSize = 2;
+        store.states.put(logFile.getName(), logFile);
+        store.activate(logFile);
+
+        // the file has only 11 lines: the end of the file is reached and the missing line before is read
+        // (results are popped from a stack)
+        dispatcher.push(StaticDmrResponse.ok(comp(logFileSize("server.log", 42), linesNode(9, 9))));
+        dispatcher.push(StaticDmrResponse.ok(comp(logFileSize("server.log", 42), linesNode(10, 10))));
+        store.jump(JumpInLogFile.toLine(11), NoopChannel.INSTANCE);
+
+        ModelNode operation = dispatcher.getLastOperation().get("steps").asList().get(1);
+        assertFalse(operation.get("tail").asBoolean());
+        assertEquals(9, operation.get("skip").asInt());
+        assertEquals(1, operation.get("lines").asInt());
+        assertEquals(11, logFile.getBuffer().getLineCount());
+        assertLines(logFile.getContent(), 9, 10);
+        assertTrue(logFile.isTail());
+    }
+
+    @Test
+    public void jumpPastEnd() {
+        LogFile logFile = new LogFile("server.log", lines(2), 0);
+        store.pageSize = 2;
+        store.states.put(logFile.getName(), logFile);
+        store.activate(logFile);
+
+        // the file has only 11 lines: nothing is read at line 20, so the last page is read from the tail
+        // (results are popped from a stack)
+        dispatcher.push(StaticDmrResponse.ok(comp(logFileSize("server.log", 42), linesNode(9, 10))));
+        dispatcher.push(StaticDmrResponse.ok(comp(logFileSize("server.log", 42), new ModelNode().setEmptyList())));
+        store.jump(JumpInLogFile.toLine(20), NoopChannel.INSTANCE);
+
+        ModelNode operation = dispatcher.getLastOperation().get("steps").asList().get(1);
+        assertTrue(operation.get("tail").asBoolean());
+        assertEquals(0, operation.get("skip").asInt());
+        assertEquals(2, operation.get("lines").asInt());
+        assertLines(logFile.getContent(), 9, 10);
+        assertTrue(logFile.isTail());
+    }
+
+    @Test
+    public void searchNextMatch() {
+        LogFile logFile = new LogFile("server.log", lines(2), 0);
+        store.pageSize = 2;
+        store.states.put(logFile.getName(), logFile);
+        store.activate(logFile);
+
+        // Head: line 0, 1
+        dispatcher.push(StaticDmrResponse.ok(comp(logFileSize("server.log", 42), linesNode(0, 1))));
+        store.navigate(new NavigateInLogFile(HEAD), NoopChannel.INSTANCE);
+
+        // the rest of the first block is read: the file has only 10 lines
+        SearchLogFile search = new SearchLogFile("line [37]$", Collections.<LogLevel>emptySet(), null, true);
+        dispatcher.push(StaticDmrResponse.ok(comp(logFileSize("server.log", 42), linesNode(2, 9))));
+        runSearch(search);
+
+        ModelNode operation = dispatcher.getLastOperation().get("steps").asList().get(1);
+        assertFalse(operation.get("tail").asBoolean());
+        assertEquals(2, operation.get("skip").asInt());
+        assertEquals(LogIndex.BLOCK_SIZE - 2, operation.get("lines").asInt());
+        assertLines(logFile.getContent(), 3, 4);
+        assertEquals(0, logFile.getMatchRow());
+
+        // next match from the buffer
+        runSearch(search);
+        assertLines(logFile.getContent(), 7, 8);
+        assertEquals(0, logFile.getMatchRow());
+
+        // no further match: the page stays
+        runSearch(search);
+        assertFalse(logFile.hasMatch());
+        assertLines(logFile.getContent(), 7, 8);
+        assertEquals(-1, logFile.getMatchRow());
+    }
+
     @Test
     public void changePageSize() {
         store.changePageSize(new ChangePageSize(42), NoopChannel.INSTANCE);
@@ -505,6 +622,103 @@ public class LogStoreTest {
         assertFalse(activeLogFile.isFollow());
     }
 
+    @Test
+    public void followUnchanged() {
+        LogFile logFile = new LogFile("server.log", lines(3), 21);
+        logFile.setFollow(true);
+        store.states.put(logFile.getName(), logFile);
+        store.activate(logFile);
+        Scheduler.RepeatingCommand refresh = scheduledRefresh();
+
+        dispatcher.push(StaticDmrResponse.ok(new ModelNode().set(21)));
+        assertFalse(refresh.execute());
+
+        // only the file size was read
+        assertEquals("read-attribute", dispatcher.getLastOperation().get("operation").asString());
+        assertLines(logFile.getContent(), 0, 1, 2);
+        verify(scheduler, times(2)).scheduleFixedDelay(eq(refresh), anyInt());
+    }
+
+    @Test
+    public void followAppended() {
+        LogFile logFile = new LogFile("server.log", lines(3), 21);
+        logFile.setFollow(true);
+        store.states.put(logFile.getName(), logFile);
+        store.activate(logFile);
+        Scheduler.RepeatingCommand refresh = scheduledRefresh();
+
+        // results are popped from a stack
+        dispatcher.push(StaticDmrResponse.ok(comp(logFileSize("server.log", 35), linesNode(1, 4))));
+        dispatcher.push(StaticDmrResponse.ok(new ModelNode().set(35)));
+        refresh.execute();
+
+        // two lines were appended: read them plus some overlap
+        ModelNode op = dispatcher.getLastOperation().get("steps").get(1);
+        assertEquals(2 + 5, op.get("lines").asInt());
+        assertLines(logFile.getContent(), 0, 1, 2, 3, 4);
+        assertEquals(35, logFile.getFileSize());
+        assertTrue(logFile.isTail());
+    }
+
+    @Test
+    public void followHidden() {
+        LogFile logFile = new LogFile("server.log", lines(3), 21);
+        logFile.setFollow(true);
+        store.states.put(logFile.getName(), logFile);
+        hidden = true;
+        store.activate(logFile);
+        Scheduler.RepeatingCommand refresh = scheduledRefresh();
+
+        // still polled, but at the hidden interval
+        dispatcher.push(StaticDmrResponse.ok(new ModelNode().set(21)));
+        refresh.execute();
+        assertEquals("read-attribute", dispatcher.getLastOperation().get("operation").asString());
+        verify(scheduler, times(2)).scheduleFixedDelay(refresh, 30000);
+    }
+
+    @Test
+    public void followVisible() {
+        LogFile logFile = new LogFile("server.log", lines(3), 21);
+        logFile.setFollow(true);
+        store.states.put(logFile.getName(), logFile);
+        hidden = true;
+        store.activate(logFile);
+        Scheduler.RepeatingCommand refresh = scheduledRefresh();
+
+        // polled as soon as the page is visible again
+        hidden = false;
+        dispatcher.push(StaticDmrResponse.ok(comp(logFileSize("server.log", 35), linesNode(1, 4))));
+        dispatcher.push(StaticDmrResponse.ok(new ModelNode().set(35)));
+        store.onPageVisible();
+        assertLines(logFile.getContent(), 0, 1, 2, 3, 4);
+
+        // the pending command is obsolete: it must not dispatch (the results stack is empty)
+        assertFalse(refresh.execute());
+    }
+
+    @Test
+    public void followEmpty() {
+        LogFile logFile = new LogFile("server.log", Collections.<String>emptyList(), 0);
+        logFile.setFollow(true);
+        store.states.put(logFile.getName(), logFile);
+        store.activate(logFile);
+        Scheduler.RepeatingCommand refresh = scheduledRefresh();
+
+        dispatcher.push(StaticDmrResponse.ok(new ModelNode().set(0)));
+        refresh.execute();
+        assertEquals("read-attribute", dispatcher.getLastOperation().get("operation").asString());
+        assertEquals(0, logFile.getFileSize());
+    }
+
+    @Test
+    public void appendLines() {
+        List<String> merged = LogStore.appendLines(lines(3), lines(1, 4), 4);
+        assertEquals(lines(1, 4), merged);
+
+        // no overlap
+        assertNull(LogStore.appendLines(lines(3), lines(4, 6), 4));
+    }
+
 
     // ------------------------------------------------------ node factory methods
 
@@ -535,17 +749,31 @@ public class LogStoreTest {
         return node;
     }
 
+    private ModelNode logFileSize(String name, int size) {
+        ModelNode node = new ModelNode();
+        node.get(name).get("file-size").set(size);
+        return node;
+    }
+
     private ModelNode linesNode(int numberOfLines) {
+        return linesNode(0, numberOfLines - 1);
+    }
+
+    private ModelNode linesNode(int first, int last) {
         ModelNode node = new ModelNode();
-        for (String line : lines(numberOfLines)) {
+        for (String line : lines(first, last)) {
             node.add(line);
         }
         return node;
     }
 
     private List<String> lines(int numberOfLines) {
+        return lines(0, numberOfLines - 1);
+    }
+
+    private List<String> lines(int first, int last) {
         List<String> lines = new LinkedList<>();
-        for (int i = 0; i < numberOfLines; i++) {
+        for (int i = first; i <= last; i++) {
             lines.add("line " + i);
         }
         return lines;
@@ -554,6 +782,23 @@ public class LogStoreTest {
 
     // ------------------------------------------------------ helper methods
 
+    private Scheduler.RepeatingCommand scheduledRefresh() {
+        ArgumentCaptor<Scheduler.RepeatingCommand> captor = ArgumentCaptor.forClass(Scheduler.RepeatingCommand.class);
+        verify(scheduler).scheduleFixedDelay(captor.capture(), anyInt());
+        return captor.getValue();
+    }
+
+    private void runSearch(SearchLogFile search) {
+        store.search(search, NoopChannel.INSTANCE);
+        ArgumentCaptor<Scheduler.RepeatingCommand> captor = ArgumentCaptor.forClass(Scheduler.RepeatingCommand.class);
+        verify(scheduler, atLeastOnce()).scheduleIncremental(captor.capture());
+        Scheduler.RepeatingCommand command = captor.getValue();
+        for (int i = 0; i < 10 && store.getActiveLogFile().isSearching(); i++) {
+            command.execute();
+        }
+        assertFalse(store.getActiveLogFile().isSearching());
+    }
+
     private void assertLines(String content, int... lines) {
         StringBuilder builder = new StringBuilder();
         for (int i = 0; i < lines.length; i++) {
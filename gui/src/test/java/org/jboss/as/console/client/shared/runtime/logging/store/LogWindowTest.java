@@ -0,0 +1,104 @@
+package org.jboss.as.console.client.shared.runtime.logging.store;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LogWindowTest {
+
+    @Test
+    public void chunks() {
+        LogWindow window = new LogWindow(LogWindow.DEFAULT_CAPACITY);
+        window.append("line 0\nli");
+        window.append("ne 1\r\nline");
+        assertEquals(2, window.getLineCount());
+        assertEquals("line 0\nline 1\nline", window.getContent());
+
+        window.append(" 2");
+        window.complete();
+        assertTrue(window.isComplete());
+        assertEquals(3, window.getLineCount());
+        assertEquals(Arrays.asList("line 0", "line 1", "line 2"), window.getLines());
+        assertEquals(21, window.getSize());
+    }
+
+    @Test
+    public void size() {
+        LogWindow window = new LogWindow(LogWindow.DEFAULT_CAPACITY);
+        window.append("\u00e4\u20ac\n");
+        assertEquals(6, window.getSize());
+
+        // a surrogate pair split across two chunks
+        window.append("\ud83d");
+        window.append("\ude00");
+        assertEquals(10, window.getSize());
+    }
+
+    @Test
+    public void capacity() {
+        LogWindow window = new LogWindow(14);
+        window.append("line 0\nline 1\nline 2\nline 3\n");
+
+        // only the last two lines fit into the window, but all lines are counted
+        assertTrue(window.isTruncated());
+        assertEquals(4, window.getLineCount());
+        assertEquals(2, window.getFirstLine());
+        assertEquals("line 2\nline 3", window.getContent());
+        assertEquals(28, window.getSize());
+    }
+
+    @Test
+    public void offsets() {
+        LogWindow window = new LogWindow(LogWindow.DEFAULT_CAPACITY);
+        window.append("line 0\r\n\u00e4\u00e4\nli");
+        window.append("ne 2\n");
+
+        assertEquals("line 0", window.getLine(0));
+        assertEquals("\u00e4\u00e4", window.getLine(1));
+        assertEquals("line 2", window.getLine(2));
+        assertNull(window.getLine(3));
+        assertEquals(0, window.getOffset(0));
+        assertEquals(8, window.getOffset(1));
+        assertEquals(13, window.getOffset(2));
+        assertEquals(-1, window.getOffset(3));
+    }
+
+    @Test
+    public void dropped() {
+        LogWindow window = new LogWindow(14);
+        for (int i = 0; i < 100; i++) {
+            window.append("line " + (i % 10) + "\n");
+        }
+
+        assertEquals(100, window.getLineCount());
+        assertEquals(98, window.getFirstLine());
+        assertNull(window.getLine(97));
+        assertEquals("line 8", window.getLine(98));
+        assertEquals(98 * 7, window.getOffset(98));
+        assertEquals(Arrays.asList("line 8", "line 9"), window.getLines());
+        assertEquals("line 8\nline 9", window.getContent());
+    }
+
+    @Test
+    public void longLine() {
+        LogWindow window = new LogWindow(14);
+        window.append("0123456789");
+        window.append("0123456789");
+        window.append("0123456789\n");
+
+        // the long line is cut off, but all of its bytes are counted
+        assertEquals("01234567890123", window.getLine(0));
+        assertEquals(31, window.getSize());
+
+        window.append("line 1\n");
+        assertEquals(1, window.getFirstLine());
+        assertEquals(31, window.getOffset(1));
+        assertEquals(38, window.getSize());
+
+        window.append("0123456789");
+        window.append("0123456789");
+        assertEquals("line 1\n01234567890123", window.getContent());
+    }
+}
@@ -0,0 +1,90 @@
+package org.jboss.as.console.client.v3;
+
+import org.jboss.as.console.client.v3.dmr.AddressTemplate;
+import org.jboss.as.console.client.v3.dmr.ResourceDescription;
+import org.jboss.as.console.client.v3.dmr.RrdFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResourceDescriptionRegistryTest {
+
+    private static final String MAIL_SESSIONS = "{selected.profile}/subsystem=mail/mail-session=*";
+
+    private ResourceDescription mailSessions;
+    private ResourceDescriptionRegistry registry;
+
+    @Before
+    public void setUp() {
+        mailSessions = RrdFactory.mailSessions();
+        registry = new ResourceDescriptionRegistry();
+        registry.add(AddressTemplate.of(MAIL_SESSIONS), mailSessions);
+    }
+
+    @Test
+    public void exact() {
+        assertSame(mailSessions, registry.lookup(AddressTemplate.of(MAIL_SESSIONS)));
+        assertEquals(1, registry.getHits());
+    }
+
+    @Test
+    public void wildcard() {
+        assertSame(mailSessions,
+                registry.lookup(AddressTemplate.of("{selected.profile}/subsystem=mail/mail-session=default")));
+        assertEquals(1, registry.getWildcardHits());
+    }
+
+    @Test
+    public void childDescription() {
+        AddressTemplate smtp = AddressTemplate.of(
+                "{selected.profile}/subsystem=mail/mail-session=default/server=smtp");
+        ResourceDescription description = registry.lookup(smtp);
+        assertTrue(description.hasAttributes());
+        assertEquals(2, registry.size());
+
+        // served directly from now on
+        assertSame(description, registry.lookup(smtp));
+        assertEquals(2, registry.getChildHits());
+        assertEquals(0, registry.getMisses());
+    }
+
+    @Test
+    public void childDescriptionDroppedOnAdd() {
+        registry.lookup(AddressTemplate.of(MAIL_SESSIONS + "/server=smtp"));
+        assertEquals(2, registry.size());
+
+        registry.add(AddressTemplate.of(MAIL_SESSIONS), mailSessions);
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void has() {
+        assertTrue(registry.has(AddressTemplate.of("{selected.profile}/subsystem=mail/mail-session=default")));
+        assertTrue(registry.has(AddressTemplate.of(MAIL_SESSIONS + "/server=smtp")));
+        assertFalse(registry.has(AddressTemplate.of("{selected.profile}/subsystem=mail/mail-session=*/foo=bar")));
+        assertFalse(registry.has(AddressTemplate.of("opt:/" + MAIL_SESSIONS)));
+        assertFalse(registry.has(AddressTemplate.of("{selected.profile}/subsystem=undertow")));
+
+        // no side effects
+        assertEquals(1, registry.size());
+        assertEquals(0, registry.getWildcardHits());
+        assertEquals(0, registry.getChildHits());
+        assertEquals(0, registry.getMisses());
+    }
+
+    @Test
+    public void miss() {
+        try {
+            registry.lookup(AddressTemplate.of("{selected.profile}/subsystem=mail/mail-session=*/foo=bar"));
+            fail("RuntimeException expected");
+        } catch (RuntimeException expected) {
+            assertEquals(1, registry.getMisses());
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void lookupFails() {
+        registry.lookup(AddressTemplate.of("{selected.profile}/subsystem=undertow"));
+    }
+}
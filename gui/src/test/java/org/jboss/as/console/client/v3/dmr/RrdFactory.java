@@ -30,7 +30,7 @@ import static org.jboss.dmr.client.ModelDescriptionConstants.RESULT;
 /**
  * @author Harald Pehl
  */
-class RrdFactory {
+public class RrdFactory {
 
     // /subsystem=mail/mail-session=*:read-resource-description(recursive=true)
     final static String MAIL_SESSIONS =
@@ -183,7 +183,7 @@ class RrdFactory {
             "aWxkcmVubwAAAAAAEHJlc3BvbnNlLWhlYWRlcnNvAAAAAQANcHJvY2Vzcy1zdGF0ZXMAD3JlbG9h\n" +
             "ZC1yZXF1aXJlZA==";
 
-    static ResourceDescription mailSessions() {
+    public static ResourceDescription mailSessions() {
         ModelNode node = ModelNode.fromBase64(MAIL_SESSIONS);
         List<ModelNode> nodes = node.get(RESULT).asList();
         return new ResourceDescription((nodes.get(0).get(RESULT)));
@@ -0,0 +1,197 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.jboss.as.console.server.proxy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test harness for the management proxy. Starts a stub management endpoint which answers every POST after a
+ * fixed latency and drives {@link XmlHttpProxy} through an {@link UpstreamExecutor} the same way the servlet does in
+ * async mode. Prints throughput, latency percentiles and the number of rejected requests.
+ * <p>
+ * Not a unit test, run manually:
+ * <pre>
+ *     ProxyLoadHarness [clients=200] [requests=20] [latency=50] [threads=16] [queue=64] [payload=4096]
+ * </pre>
+ */
+public class ProxyLoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        int clients = arg(args, 0, 200);
+        int requests = arg(args, 1, 20);
+        final int latency = arg(args, 2, 50);
+        int threads = arg(args, 3, 16);
+        int queue = arg(args, 4, 64);
+        final int payload = arg(args, 5, 4096);
+
+        HttpServer stub = startStub(latency, payload);
+        String url = "http://127.0.0.1:" + stub.getAddress().getPort() + "/management";
+        UpstreamExecutor upstream = new UpstreamExecutor(threads, queue);
+        XmlHttpProxy proxy = new XmlHttpProxy();
+        proxy.setTimeouts(5000, 30000);
+
+        try {
+            System.out.println("Warm up...");
+            run(proxy, upstream, url, Math.min(clients, threads), 5);
+
+            System.out.printf("Running %d clients x %d requests, %d ms upstream latency, %d threads, queue %d%n",
+                    clients, requests, latency, threads, queue);
+            Stats stats = run(proxy, upstream, url, clients, requests);
+            stats.print();
+        } finally {
+            upstream.shutdown();
+            stub.stop(0);
+        }
+    }
+
+    private static Stats run(final XmlHttpProxy proxy, final UpstreamExecutor upstream, final String url,
+            final int clients, final int requests) throws InterruptedException {
+
+        final Stats stats = new Stats();
+        final byte[] body = "{\"operation\":\"read-resource\",\"address\":[]}".getBytes();
+        final CountDownLatch done = new CountDownLatch(clients * requests);
+        long start = System.nanoTime();
+
+        for (int c = 0; c < clients; c++) {
+            Thread client = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int r = 0; r < requests; r++) {
+                        final CountDownLatch response = new CountDownLatch(1);
+                        final long begin = System.nanoTime();
+                        boolean accepted = upstream.submit(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                                    proxy.doPost(url, out, null, null, null, new ByteArrayInputStream(body),
+                                            body.length, "application/json", null, null, null, null);
+                                    stats.success(System.nanoTime() - begin);
+                                } catch (Exception e) {
+                                    stats.failed.incrementAndGet();
+                                } finally {
+                                    response.countDown();
+                                }
+                            }
+                        });
+                        if (!accepted) {
+                            // backpressure: the servlet answers with 503
+                            stats.rejected.incrementAndGet();
+                            response.countDown();
+                        }
+                        try {
+                            response.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }
+            });
+            client.setDaemon(true);
+            client.start();
+        }
+
+        done.await();
+        stats.elapsed = System.nanoTime() - start;
+        return stats;
+    }
+
+    private static HttpServer startStub(final int latency, final int payload) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.createContext("/management", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                byte[] buffer = new byte[4096];
+                while (in.read(buffer) != -1) {
+                    // consume the request
+                }
+                try {
+                    Thread.sleep(latency);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] response = new byte[payload];
+                exchange.getResponseHeaders().set("Content-Type", "application/dmr-encoded");
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private static int arg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+
+    private static class Stats {
+
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        long elapsed;
+
+        void success(long nanos) {
+            latencies.add(nanos);
+        }
+
+        void print() {
+            List<Long> sorted = new ArrayList<Long>(latencies);
+            Collections.sort(sorted);
+            double seconds = elapsed / 1e9;
+            System.out.printf("Completed: %d, failed: %d, rejected (503): %d in %.2f s%n",
+                    sorted.size(), failed.get(), rejected.get(), seconds);
+            System.out.printf("Throughput: %.1f req/s%n", sorted.size() / seconds);
+            if (!sorted.isEmpty()) {
+                System.out.printf("Latency p50: %.1f ms, p90: %.1f ms, p99: %.1f ms, max: %.1f ms%n",
+                        percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                        sorted.get(sorted.size() - 1) / 1e6);
+            }
+        }
+
+        private double percentile(List<Long> sorted, int p) {
+            int index = Math.min(sorted.size() - 1, (int) Math.ceil(p / 100.0 * sorted.size()) - 1);
+            return sorted.get(Math.max(0, index)) / 1e6;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.jboss.as.console.server.proxy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Drives {@link XmlHttpProxyServlet} in async mode against a stub management endpoint. The endpoint answers
+ * {@code /management?id=<n>} with the content type {@code application/x-<n>} and the payload {@code <n>}.
+ */
+public class XmlHttpProxyServletTest {
+
+    private static final long WAIT = 10;
+
+    private HttpServer upstream;
+    private ExecutorService upstreamExecutor;
+    private XmlHttpProxyServlet servlet;
+    private CountDownLatch blocked;
+
+
+    // ------------------------------------------------------ setup
+
+    private void start(int threads, int queue, final int maxLatency) throws Exception {
+        final Random random = new Random();
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+        upstream.createContext("/management", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String id = exchange.getRequestURI().getQuery().substring("id=".length());
+                try {
+                    if (blocked != null) {
+                        blocked.await(WAIT, TimeUnit.SECONDS);
+                    } else if (maxLatency > 0) {
+                        Thread.sleep(random.nextInt(maxLatency));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] payload = id.getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "application/x-" + id);
+                exchange.sendResponseHeaders(200, payload.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(payload);
+                out.close();
+            }
+        });
+        upstreamExecutor = Executors.newCachedThreadPool();
+        upstream.setExecutor(upstreamExecutor);
+        upstream.start();
+
+        ServletConfig config = mock(ServletConfig.class);
+        when(config.getServletName()).thenReturn("gwtProxy");
+        when(config.getServletContext()).thenReturn(mock(ServletContext.class));
+        when(config.getInitParameter("config.name")).thenReturn("xhp-test.properties");
+        when(config.getInitParameter("async")).thenReturn("true");
+        when(config.getInitParameter("async.threads")).thenReturn(String.valueOf(threads));
+        when(config.getInitParameter("async.queue")).thenReturn(String.valueOf(queue));
+        when(config.getInitParameter("async.timeout")).thenReturn("5000");
+
+        servlet = new XmlHttpProxyServlet();
+        servlet.init(config);
+    }
+
+    @After
+    public void tearDown() {
+        if (blocked != null) {
+            blocked.countDown();
+        }
+        if (servlet != null) {
+            servlet.destroy();
+        }
+        if (upstream != null) {
+            upstream.stop(0);
+            upstreamExecutor.shutdownNow();
+        }
+    }
+
+
+    // ------------------------------------------------------ tests
+
+    @Test
+    public void concurrentResponsesKeepTheirContentType() throws Exception {
+        start(8, 64, 20);
+
+        List<Exchange> exchanges = new ArrayList<Exchange>();
+        for (int i = 0; i < 64; i++) {
+            exchanges.add(new Exchange(String.valueOf(i)));
+        }
+        for (Exchange exchange : exchanges) {
+            servlet.doGet(exchange.request, exchange.response);
+        }
+
+        for (Exchange exchange : exchanges) {
+            assertTrue("request " + exchange.id + " not completed", exchange.await());
+            verify(exchange.response).setStatus(200);
+            verify(exchange.response).setContentType("application/x-" + exchange.id);
+            assertEquals(exchange.id, exchange.payload());
+        }
+    }
+
+    @Test
+    public void rejectWhenSaturated() throws Exception {
+        blocked = new CountDownLatch(1);
+        start(1, 1, 0);
+
+        // one running, one queued, one rejected
+        Exchange running = new Exchange("1");
+        Exchange queued = new Exchange("2");
+        Exchange rejected = new Exchange("3");
+        servlet.doGet(running.request, running.response);
+        servlet.doGet(queued.request, queued.response);
+        servlet.doGet(rejected.request, rejected.response);
+
+        assertTrue(rejected.await());
+        verify(rejected.response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(rejected.response).setHeader("Retry-After", "2");
+        verify(rejected.context).complete();
+
+        blocked.countDown();
+        assertTrue(running.await());
+        assertTrue(queued.await());
+        assertEquals("1", running.payload());
+        assertEquals("2", queued.payload());
+        verify(queued.response).setContentType("application/x-2");
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        blocked = new CountDownLatch(1);
+        start(1, 1, 0);
+
+        Exchange exchange = new Exchange("1");
+        servlet.doGet(exchange.request, exchange.response);
+        exchange.listener.get().onTimeout(null);
+
+        assertTrue(exchange.await());
+        verify(exchange.response).setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+
+        // the late upstream response must not complete the request a second time
+        blocked.countDown();
+        Thread.sleep(200);
+        verify(exchange.context, times(1)).complete();
+    }
+
+
+    // ------------------------------------------------------ helpers
+
+    /**
+     * Mocked request / response pair which is completed through the async context.
+     */
+    private class Exchange {
+
+        final String id;
+        final HttpServletRequest request;
+        final HttpServletResponse response;
+        final AsyncContext context;
+        final AtomicReference<AsyncListener> listener;
+        final CountDownLatch completed;
+        final ByteArrayOutputStream payload;
+
+        Exchange(String id) throws IOException {
+            this.id = id;
+            this.request = mock(HttpServletRequest.class);
+            this.response = mock(HttpServletResponse.class);
+            this.context = mock(AsyncContext.class);
+            this.listener = new AtomicReference<AsyncListener>();
+            this.completed = new CountDownLatch(1);
+            this.payload = new ByteArrayOutputStream();
+
+            HttpSession session = mock(HttpSession.class);
+            when(session.getAttribute("upstream")).thenReturn(upstream.getAddress().getPort());
+
+            when(request.isAsyncSupported()).thenReturn(true);
+            when(request.startAsync(any(ServletRequest.class), any(ServletResponse.class))).thenReturn(context);
+            when(request.getHeaderNames()).thenAnswer(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) {
+                    return Collections.enumeration(Collections.emptyList());
+                }
+            });
+            when(request.getRequestURI()).thenReturn("/app/proxy/management");
+            when(request.getServletPath()).thenReturn("/app/proxy");
+            when(request.getQueryString()).thenReturn("id=" + id);
+            when(request.getSession()).thenReturn(session);
+
+            ServletOutputStream out = mock(ServletOutputStream.class);
+            doAnswer(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) {
+                    Object[] args = invocation.getArguments();
+                    payload.write((byte[]) args[0], (Integer) args[1], (Integer) args[2]);
+                    return null;
+                }
+            }).when(out).write(any(byte[].class), anyInt(), anyInt());
+            when(response.getOutputStream()).thenReturn(out);
+
+            doAnswer(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) {
+                    listener.set((AsyncListener) invocation.getArguments()[0]);
+                    return null;
+                }
+            }).when(context).addListener(any(AsyncListener.class));
+            doAnswer(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) {
+                    completed.countDown();
+                    return null;
+                }
+            }).when(context).complete();
+        }
+
+        boolean await() throws InterruptedException {
+            return completed.await(WAIT, TimeUnit.SECONDS);
+        }
+
+        String payload() throws IOException {
+            return payload.toString("UTF-8");
+        }
+    }
+}